@@ -3,10 +3,12 @@ package net.yudichev.jiotty.common.app;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.Lists;
 import com.google.inject.AbstractModule;
+import com.google.inject.Binding;
 import com.google.inject.Guice;
 import com.google.inject.Injector;
 import com.google.inject.Module;
 import com.google.inject.TypeLiteral;
+import jakarta.annotation.Nullable;
 import net.yudichev.jiotty.common.inject.LifecycleComponent;
 import net.yudichev.jiotty.common.lang.MoreThrowables;
 import net.yudichev.jiotty.common.lang.TypedBuilder;
@@ -104,11 +106,15 @@ public final class Application {
     private final AtomicBoolean startedAllComponentsSuccessfully = new AtomicBoolean();
     private final AtomicBoolean runCalled = new AtomicBoolean();
     private final Injector injector;
+    private final boolean parallelLifecycle;
 
     private CountDownLatch shutdownLatch;
     private Thread runThread;
+    @Nullable
+    private ParallelLifecycle startedParallelLifecycle;
 
-    private Application(Supplier<Module> moduleSupplier) {
+    private Application(Supplier<Module> moduleSupplier, boolean parallelLifecycle) {
+        this.parallelLifecycle = parallelLifecycle;
         ApplicationLifecycleControl applicationLifecycleControl = new ApplicationLifecycleControl() {
             @Override
             public void initiateShutdown() {
@@ -128,7 +134,8 @@ public final class Application {
         injector = Guice.createInjector(new ApplicationSupportModule(applicationLifecycleControl), moduleSupplier.get());
     }
 
-    /// Start all [LifecycleComponent]s.
+    /// Start all [LifecycleComponent]s: one by one in binding order, or, if [Builder#withParallelLifecycle()] was used, in parallel, each
+    /// after the components it depends on.
     ///
     /// @throws InterruptedException if the thread was interrupted while starting
     /// @throws RuntimeException     if one of the components failed to start; note components that are already started won't be stopped, use [#stop()] for
@@ -137,12 +144,21 @@ public final class Application {
         startedAllComponentsSuccessfully.set(false);
         componentsAttemptedToStart.clear();
         logger.info("Initialising components");
-        List<LifecycleComponent> allComponents = injector
-                .findBindingsByType(new TypeLiteral<LifecycleComponent>() {})
+        List<Binding<LifecycleComponent>> bindings = injector.findBindingsByType(new TypeLiteral<LifecycleComponent>() {});
+        List<LifecycleComponent> allComponents = bindings
                 .stream()
                 .map(lifecycleComponentBinding -> lifecycleComponentBinding.getProvider().get())
                 .collect(toImmutableList());
 
+        if (parallelLifecycle) {
+            logger.info("Starting components in parallel");
+            startedParallelLifecycle = new ParallelLifecycle(allComponents, LifecycleComponentDependencies.find(injector, bindings, allComponents));
+            startedParallelLifecycle.start(componentsAttemptedToStart::add);
+            startedAllComponentsSuccessfully.set(true);
+            logger.info("Started");
+            return;
+        }
+
         logger.info("Starting components");
         for (LifecycleComponent component : allComponents) {
             if (Thread.interrupted()) {
@@ -164,7 +180,12 @@ public final class Application {
     /// Stop all components that have been started - must be called on same thread that called [#start()].
     public void stop() {
         logger.info("Shutting down");
-        stop(componentsAttemptedToStart);
+        if (startedParallelLifecycle != null) {
+            startedParallelLifecycle.stop();
+            startedParallelLifecycle = null;
+        } else {
+            Lists.reverse(componentsAttemptedToStart).forEach(Application::stop);
+        }
         componentsAttemptedToStart.clear();
         logger.info("Shut down");
     }
@@ -226,32 +247,63 @@ public final class Application {
         }
     }
 
-    private static void start(LifecycleComponent lifecycleComponent) {
+    static void start(LifecycleComponent lifecycleComponent) {
         logger.info("Starting component {}", lifecycleComponent.name());
-        lifecycleComponent.start();
+        var event = new ComponentLifecycleEvent();
+        event.begin();
+        try {
+            lifecycleComponent.start();
+            event.succeeded = true;
+        } finally {
+            commit(event, lifecycleComponent, "start");
+        }
         logger.info("Started component {}", lifecycleComponent.name());
     }
 
-    private static void stop(List<LifecycleComponent> lifecycleComponents) {
-        Lists.reverse(lifecycleComponents).forEach(lifecycleComponent -> {
-            try {
-                logger.info("Stopping component {}", lifecycleComponent.name());
-                lifecycleComponent.stop();
-                logger.info("Stopped component {}", lifecycleComponent.name());
-            } catch (Throwable e) {
-                logger.error("Failed stopping component {}", lifecycleComponent.name(), e);
-            }
-        });
+    /// Failures are logged.
+    static void stop(LifecycleComponent lifecycleComponent) {
+        var event = new ComponentLifecycleEvent();
+        event.begin();
+        try {
+            logger.info("Stopping component {}", lifecycleComponent.name());
+            lifecycleComponent.stop();
+            event.succeeded = true;
+            logger.info("Stopped component {}", lifecycleComponent.name());
+        } catch (Throwable e) {
+            logger.error("Failed stopping component {}", lifecycleComponent.name(), e);
+        } finally {
+            commit(event, lifecycleComponent, "stop");
+        }
+    }
+
+    private static void commit(ComponentLifecycleEvent event, LifecycleComponent lifecycleComponent, String action) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.component = lifecycleComponent.name();
+            event.action = action;
+            event.commit();
+        }
     }
 
     public static final class Builder implements TypedBuilder<Application> {
         private final ImmutableList.Builder<Supplier<Module>> moduleSupplierListBuilder = ImmutableList.builder();
+        private boolean parallelLifecycle;
 
         public Builder addModule(Supplier<Module> moduleSupplier) {
             moduleSupplierListBuilder.add(moduleSupplier);
             return this;
         }
 
+        /// Start components in parallel, each as soon as the components it depends on (as seen by Guice, directly or through other bindings)
+        /// have started, and stop them in the reverse order; startup timings are logged and recorded as JFR events.
+        ///
+        /// A component that needs another one started first must depend on it in Guice (a `Provider` will do) and be bound after it:
+        /// dependencies on components bound later are not honoured, see [ParallelLifecycle].
+        public Builder withParallelLifecycle() {
+            parallelLifecycle = true;
+            return this;
+        }
+
         @Override
         public Application build() {
             List<Supplier<Module>> moduleSuppliers = moduleSupplierListBuilder.build();
@@ -263,7 +315,7 @@ public final class Application {
                                    .forEach(this::install);
                 }
             };
-            return new Application(() -> module);
+            return new Application(() -> module, parallelLifecycle);
         }
     }
 }
@@ -0,0 +1,24 @@
+package net.yudichev.jiotty.common.app;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// JFR event covering the start or stop of one [net.yudichev.jiotty.common.inject.LifecycleComponent]; costs nothing unless recording.
+@Name("net.yudichev.jiotty.ComponentLifecycle")
+@Label("Component Lifecycle")
+@Category({"Jiotty", "Application"})
+@Description("Start or stop of a lifecycle component")
+@StackTrace(false)
+final class ComponentLifecycleEvent extends jdk.jfr.Event {
+    @Label("Component")
+    String component;
+
+    @Label("Action")
+    String action;
+
+    @Label("Succeeded")
+    boolean succeeded;
+}
@@ -0,0 +1,85 @@
+package net.yudichev.jiotty.common.app;
+
+import com.google.inject.Binding;
+import com.google.inject.ConfigurationException;
+import com.google.inject.Injector;
+import com.google.inject.Key;
+import com.google.inject.Scopes;
+import com.google.inject.spi.Dependency;
+import com.google.inject.spi.ExposedBinding;
+import com.google.inject.spi.HasDependencies;
+import net.yudichev.jiotty.common.inject.LifecycleComponent;
+
+import java.util.ArrayDeque;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/// Works out which [LifecycleComponent]s depend on which from the Guice bindings, following dependencies through other bindings (including
+/// `Provider`s and private modules) until a binding of another lifecycle component is reached.
+final class LifecycleComponentDependencies {
+    private LifecycleComponentDependencies() {
+    }
+
+    /// @param bindings   of the components, as found in the `injector`
+    /// @param components the components provided by `bindings`, in the same order
+    /// @return the components each component depends on
+    static Map<LifecycleComponent, Set<LifecycleComponent>> find(Injector injector,
+                                                                 List<Binding<LifecycleComponent>> bindings,
+                                                                 List<LifecycleComponent> components) {
+        Set<LifecycleComponent> componentSet = Collections.newSetFromMap(new IdentityHashMap<>());
+        componentSet.addAll(components);
+        Map<LifecycleComponent, Set<LifecycleComponent>> dependenciesByComponent = new IdentityHashMap<>();
+        for (int i = 0; i < bindings.size(); i++) {
+            LifecycleComponent component = components.get(i);
+            dependenciesByComponent.put(component, find(injector, bindings.get(i), component, componentSet));
+        }
+        return dependenciesByComponent;
+    }
+
+    private static Set<LifecycleComponent> find(Injector injector, Binding<?> componentBinding, LifecycleComponent component, Set<LifecycleComponent> components) {
+        Set<LifecycleComponent> dependencies = Collections.newSetFromMap(new IdentityHashMap<>());
+        Set<Binding<?>> visited = new HashSet<>();
+        Deque<ResolvedBinding> pending = new ArrayDeque<>();
+        pending.push(new ResolvedBinding(injector, componentBinding));
+        while (!pending.isEmpty()) {
+            ResolvedBinding resolved = pending.pop();
+            Binding<?> binding = resolved.binding();
+            if (!visited.add(binding)) {
+                continue;
+            }
+            if (LifecycleComponent.class.isAssignableFrom(binding.getKey().getTypeLiteral().getRawType()) && Scopes.isSingleton(binding)) {
+                Object instance = binding.getProvider().get();
+                if (instance != component && components.contains(instance)) {
+                    // its own dependencies are its business
+                    dependencies.add((LifecycleComponent) instance);
+                    continue;
+                }
+            }
+            if (binding instanceof ExposedBinding<?> exposedBinding) {
+                // the real binding lives in the private module's injector
+                Injector privateInjector = exposedBinding.getPrivateElements().getInjector();
+                resolve(privateInjector, binding.getKey(), pending);
+            } else if (binding instanceof HasDependencies hasDependencies) {
+                for (Dependency<?> dependency : hasDependencies.getDependencies()) {
+                    resolve(resolved.injector(), dependency.getKey(), pending);
+                }
+            }
+        }
+        return dependencies;
+    }
+
+    private static void resolve(Injector injector, Key<?> key, Deque<ResolvedBinding> pending) {
+        try {
+            pending.push(new ResolvedBinding(injector, injector.getBinding(key)));
+        } catch (ConfigurationException ignored) {
+            // not something we could depend on
+        }
+    }
+
+    private record ResolvedBinding(Injector injector, Binding<?> binding) {}
+}
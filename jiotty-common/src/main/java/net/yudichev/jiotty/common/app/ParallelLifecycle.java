@@ -0,0 +1,208 @@
+package net.yudichev.jiotty.common.app;
+
+import net.yudichev.jiotty.common.inject.LifecycleComponent;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.util.concurrent.Uninterruptibles.awaitTerminationUninterruptibly;
+
+/// Starts [LifecycleComponent]s in parallel, each as soon as the components it depends on have started, and stops them in the reverse
+/// order: a component is only stopped once everything depending on it has stopped.
+///
+/// Components are given in the order they would be started one by one. Only dependencies on components earlier in that order are honoured:
+/// starting one by one is known to work, so a dependency on a later component cannot be one that needs to be started first, and ignoring
+/// such dependencies also rules out cycles.
+final class ParallelLifecycle {
+    private static final Logger logger = LoggerFactory.getLogger(ParallelLifecycle.class);
+    private static final int REPORTED_SLOWEST_COMPONENTS = 5;
+
+    private final List<LifecycleComponent> components;
+    /// indexes of the components each component depends on, all lower than its own index
+    private final int[][] dependencies;
+    /// indexes of the components depending on each component
+    private final int[][] dependents;
+    private final AtomicIntegerArray attempted;
+
+    /// @param components   in the order they would be started one by one
+    /// @param dependencies components each component depends on, directly or not
+    ParallelLifecycle(List<LifecycleComponent> components, Map<LifecycleComponent, ? extends Collection<LifecycleComponent>> dependencies) {
+        this.components = List.copyOf(components);
+        Map<LifecycleComponent, Integer> indexByComponent = new IdentityHashMap<>();
+        for (int i = 0; i < this.components.size(); i++) {
+            checkArgument(indexByComponent.put(this.components.get(i), i) == null, "Duplicate component %s", this.components.get(i));
+        }
+        this.dependencies = new int[this.components.size()][];
+        List<List<Integer>> dependentLists = new ArrayList<>(this.components.size());
+        for (int i = 0; i < this.components.size(); i++) {
+            dependentLists.add(new ArrayList<>());
+        }
+        for (int i = 0; i < this.components.size(); i++) {
+            int index = i;
+            Collection<LifecycleComponent> componentDependencies = dependencies.get(this.components.get(i));
+            this.dependencies[i] = componentDependencies == null ? new int[0] : componentDependencies.stream()
+                                                                                              .map(indexByComponent::get)
+                                                                                              .filter(dependencyIndex -> dependencyIndex != null && dependencyIndex < index)
+                                                                                              .mapToInt(Integer::intValue)
+                                                                                              .distinct()
+                                                                                              .toArray();
+            for (int dependencyIndex : this.dependencies[i]) {
+                dependentLists.get(dependencyIndex).add(i);
+            }
+        }
+        dependents = dependentLists.stream().map(list -> list.stream().mapToInt(Integer::intValue).toArray()).toArray(int[][]::new);
+        attempted = new AtomicIntegerArray(this.components.size());
+    }
+
+    /// @param onAttempt called, on an arbitrary thread, just before a component is started
+    /// @throws InterruptedException if interrupted while starting; components being started are interrupted and waited for, no more are started
+    /// @throws RuntimeException     the first failure to start a component; components that depend on it are not started and components being
+    ///                              started are waited for
+    void start(Consumer<LifecycleComponent> onAttempt) throws InterruptedException {
+        int count = components.size();
+        long[] startNanos = new long[count];
+        long[] endNanos = new long[count];
+        AtomicBoolean aborted = new AtomicBoolean();
+        AtomicReference<Throwable> firstFailure = new AtomicReference<>();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+        long beginNanos = System.nanoTime();
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("component-start-", 0).factory());
+        try {
+            for (int i = 0; i < count; i++) {
+                int index = i;
+                // dependencies have lower indexes, so their futures are already there
+                var dependencyFutures = IntStream.of(dependencies[i]).mapToObj(dependencyIndex -> futures[dependencyIndex]).toArray(CompletableFuture<?>[]::new);
+                futures[i] = CompletableFuture.allOf(dependencyFutures).thenRunAsync(() -> {
+                    if (aborted.get()) {
+                        return;
+                    }
+                    LifecycleComponent component = components.get(index);
+                    attempted.set(index, 1);
+                    onAttempt.accept(component);
+                    startNanos[index] = System.nanoTime();
+                    try {
+                        Application.start(component);
+                    } catch (Throwable e) {
+                        aborted.set(true);
+                        firstFailure.compareAndSet(null, e);
+                        throw e;
+                    } finally {
+                        endNanos[index] = System.nanoTime();
+                    }
+                }, executor);
+            }
+            try {
+                CompletableFuture.allOf(futures).get();
+            } catch (ExecutionException e) {
+                Throwable failure = firstFailure.get() == null ? e.getCause() : firstFailure.get();
+                if (failure instanceof RuntimeException runtimeException) {
+                    throw runtimeException;
+                }
+                if (failure instanceof Error error) {
+                    throw error;
+                }
+                throw new RuntimeException(failure);
+            } catch (InterruptedException e) {
+                aborted.set(true);
+                executor.shutdownNow();
+                awaitTerminationUninterruptibly(executor);
+                throw new InterruptedException(String.format("Interrupted while starting; components attempted to start: %s out of %s",
+                                                             attemptedIndexes().count(), count));
+            }
+        } finally {
+            executor.shutdown();
+        }
+        logProfile(beginNanos, startNanos, endNanos);
+    }
+
+    /// Stops components that were attempted to start, each after all components depending on it are stopped; failures are logged.
+    void stop() {
+        int count = components.size();
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[count];
+        ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofPlatform().name("component-stop-", 0).factory());
+        try {
+            // dependents have higher indexes, so going backwards their futures are already there
+            for (int i = count - 1; i >= 0; i--) {
+                int index = i;
+                var dependentFutures = IntStream.of(dependents[i]).mapToObj(dependentIndex -> futures[dependentIndex]).toArray(CompletableFuture<?>[]::new);
+                futures[i] = CompletableFuture.allOf(dependentFutures).thenRunAsync(() -> {
+                    if (attempted.get(index) == 1) {
+                        Application.stop(components.get(index));
+                    }
+                }, executor);
+            }
+            CompletableFuture.allOf(futures).join();
+        } finally {
+            executor.shutdown();
+            awaitTerminationUninterruptibly(executor);
+        }
+        for (int i = 0; i < count; i++) {
+            attempted.set(i, 0);
+        }
+    }
+
+    private IntStream attemptedIndexes() {
+        return IntStream.range(0, components.size()).filter(i -> attempted.get(i) == 1);
+    }
+
+    private void logProfile(long beginNanos, long[] startNanos, long[] endNanos) {
+        if (components.isEmpty()) {
+            return;
+        }
+        int count = components.size();
+        long sumNanos = 0;
+        int last = 0;
+        for (int i = 0; i < count; i++) {
+            sumNanos += endNanos[i] - startNanos[i];
+            if (endNanos[i] > endNanos[last]) {
+                last = i;
+            }
+        }
+
+        // critical path: from the component to finish last, back through the dependency that finished last each time
+        List<Integer> criticalPath = new ArrayList<>();
+        for (int i = last; i >= 0; ) {
+            criticalPath.addFirst(i);
+            int next = -1;
+            for (int dependencyIndex : dependencies[i]) {
+                if (next < 0 || endNanos[dependencyIndex] > endNanos[next]) {
+                    next = dependencyIndex;
+                }
+            }
+            i = next;
+        }
+        logger.info("Started {} components in {} ({} one by one); critical path: {}",
+                    count,
+                    Duration.ofNanos(endNanos[last] - beginNanos),
+                    Duration.ofNanos(sumNanos),
+                    criticalPath.stream().map(i -> describe(i, startNanos, endNanos)).collect(Collectors.joining(" -> ")));
+        logger.info("Slowest components: {}",
+                    IntStream.range(0, count).boxed()
+                             .sorted(Comparator.comparingLong((Integer i) -> endNanos[i] - startNanos[i]).reversed())
+                             .limit(REPORTED_SLOWEST_COMPONENTS)
+                             .map(i -> describe(i, startNanos, endNanos))
+                             .collect(Collectors.joining(", ")));
+    }
+
+    private String describe(int index, long[] startNanos, long[] endNanos) {
+        return components.get(index).name() + " (" + Duration.ofNanos(endNanos[index] - startNanos[index]) + ')';
+    }
+}
@@ -0,0 +1,200 @@
+package net.yudichev.jiotty.common.async;
+
+import net.yudichev.jiotty.common.lang.BaseIdempotentCloseable;
+import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.lang.Runnables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/// Strictly serial [SchedulingExecutor] that does not own a platform thread. Tasks are queued into a mailbox which is drained by one
+/// long-lived virtual thread per executor, which parks (and so releases its carrier) while the mailbox is empty; delays are tracked by a timer
+/// shared between all executors created by the same [VirtualThreadExecutorFactory].
+///
+/// The executor does not track its scheduled tasks: once it is closed, their timers are dropped the next time they are due.
+final class ActorSchedulingExecutor implements SchedulingExecutor {
+    private static final Logger logger = LoggerFactory.getLogger(ActorSchedulingExecutor.class);
+    /// Max tasks executed in a row before the thread yields its carrier, so that a busy executor does not starve the others.
+    private static final int YIELD_BATCH_SIZE = 64;
+
+    private final BlockingQueue<Runnable> mailbox = new LinkedBlockingQueue<>();
+    private final CompletableFuture<Void> drainedAfterClose = new CompletableFuture<>();
+    private final String threadNameBase;
+    private final Scheduler timer;
+    private final TaskInstrumentation instrumentation;
+    private final Thread thread;
+
+    private volatile boolean closed;
+
+    ActorSchedulingExecutor(String threadNameBase, Scheduler timer) {
+        this.threadNameBase = checkNotNull(threadNameBase);
+        this.timer = checkNotNull(timer);
+        instrumentation = new TaskInstrumentation(threadNameBase, mailbox::size);
+        thread = Thread.ofVirtual().name(threadNameBase + "-0").start(this::drain);
+    }
+
+    @Override
+    public <T> CompletableFuture<T> submit(Callable<? extends T> task) {
+        var resultFuture = new CompletableFuture<T>();
+        enqueue(instrumentation.instrument(() -> {
+            try {
+                resultFuture.complete(task.call());
+            } catch (Exception e) {
+                resultFuture.completeExceptionally(e);
+            }
+        }));
+        return resultFuture;
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        enqueue(instrumentation.instrument(guard("task", command)));
+    }
+
+    @Override
+    public Closeable schedule(Duration delay, Runnable command) {
+        var handle = new ScheduledHandle(guard("scheduled task", command), false);
+        handle.setTimerHandle(timer.schedule(delay, handle::fire));
+        return handle;
+    }
+
+    @Override
+    public Closeable scheduleAtFixedRate(Duration initialDelay, Duration period, Runnable command) {
+        var handle = new ScheduledHandle(guard("scheduled task", command), true);
+        handle.setTimerHandle(timer.scheduleAtFixedRate(initialDelay, period, handle::fire));
+        return handle;
+    }
+
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        instrumentation.close();
+        // the marker is executed after everything that was queued before close
+        doEnqueue(() -> drainedAfterClose.complete(null));
+        if (Thread.currentThread() == thread) {
+            return;
+        }
+        try {
+            drainedAfterClose.get(10, SECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Was not able to gracefully stop executor '{}' in 10 seconds", threadNameBase);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ActorSchedulingExecutor{" + threadNameBase + ", pending=" + mailbox.size() + '}';
+    }
+
+    private void enqueue(Runnable task) {
+        if (closed) {
+            throw new RejectedExecutionException("Executor '" + threadNameBase + "' is closed");
+        }
+        doEnqueue(task);
+    }
+
+    private void doEnqueue(Runnable task) {
+        mailbox.add(task);
+    }
+
+    private void drain() {
+        int tasksSinceYield = 0;
+        while (!drainedAfterClose.isDone()) {
+            Runnable task;
+            try {
+                task = mailbox.take();
+            } catch (InterruptedException e) {
+                // left over by a task that interrupted itself; the executor itself is only stopped by close()
+                continue;
+            }
+            try {
+                task.run();
+            } catch (Throwable e) {
+                logger.error("Executor '{}': unhandled failure in task {}", threadNameBase, task, e);
+            }
+            if (++tasksSinceYield == YIELD_BATCH_SIZE) {
+                tasksSinceYield = 0;
+                Thread.yield();
+            }
+        }
+    }
+
+    private static Runnable guard(String task, Runnable command) {
+        return Runnables.guarded(logger, task, command);
+    }
+
+    private final class ScheduledHandle extends BaseIdempotentCloseable {
+        private final Runnable command;
+        private final boolean periodic;
+        private final AtomicBoolean queued = new AtomicBoolean();
+        private volatile Closeable timerHandle;
+
+        ScheduledHandle(Runnable command, boolean periodic) {
+            this.command = command;
+            this.periodic = periodic;
+        }
+
+        void setTimerHandle(Closeable timerHandle) {
+            this.timerHandle = timerHandle;
+            if (isClosed()) {
+                timerHandle.close();
+            }
+        }
+
+        /// Runs on the shared timer thread; must stay cheap.
+        void fire() {
+            if (closed) {
+                // the executor is gone: stop the timer
+                close();
+                return;
+            }
+            // like ScheduledThreadPoolExecutor, do not pile up executions of a periodic task that is slower than its period
+            if (isClosed() || !queued.compareAndSet(false, true)) {
+                return;
+            }
+            doEnqueue(this::runInActor);
+        }
+
+        @Override
+        protected void doClose() {
+            Closeable handle = timerHandle;
+            if (handle != null) {
+                handle.close();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "ScheduledHandle{" + command + '}';
+        }
+
+        private void runInActor() {
+            queued.set(false);
+            if (!isClosed()) {
+                command.run();
+                if (!periodic) {
+                    close();
+                }
+            }
+        }
+    }
+}
@@ -2,9 +2,11 @@ package net.yudichev.jiotty.common.async;
 
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.lang.Either;
+import net.yudichev.jiotty.common.metrics.Metrics;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
@@ -45,6 +47,7 @@ public class AsyncOperationRetryImpl implements AsyncOperationRetry {
                                                                                  operationName,
                                                                                  backoffDelayMs,
                                                                                  humanReadableMessage(retryableFailure.exception()));
+                                                                     recordRetry(operationName, backoffDelayMs);
                                                                      var retryFuture = new CompletableFuture<T>();
                                                                      backoffHandler.accept(
                                                                              backoffDelayMs,
@@ -55,4 +58,16 @@ public class AsyncOperationRetryImpl implements AsyncOperationRetry {
                                                                  .orElseGet(() -> failure(retryableFailure.exception()))
                      ));
     }
+
+    private static void recordRetry(String operationName, long backoffDelayMs) {
+        if (Metrics.enabled()) {
+            Metrics.registry().counter("jiotty_operation_retries_total", Map.of("operation", operationName)).increment();
+        }
+        var event = new OperationRetryEvent();
+        if (event.shouldCommit()) {
+            event.operation = operationName;
+            event.backoffMs = backoffDelayMs;
+            event.commit();
+        }
+    }
 }
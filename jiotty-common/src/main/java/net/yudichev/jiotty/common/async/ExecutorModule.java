@@ -3,13 +3,51 @@ package net.yudichev.jiotty.common.async;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponentModule;
 import net.yudichev.jiotty.common.inject.ExposedKeyModule;
+import net.yudichev.jiotty.common.lang.TypedBuilder;
 
 public final class ExecutorModule extends BaseLifecycleComponentModule implements ExposedKeyModule<ExecutorFactory> {
+    private final boolean virtualThreads;
+
+    public ExecutorModule() {
+        this(false);
+    }
+
+    private ExecutorModule(boolean virtualThreads) {
+        this.virtualThreads = virtualThreads;
+    }
+
     @Override
     protected void configure() {
-        install(new FactoryModuleBuilder()
-                .implement(SchedulingExecutor.class, SingleThreadedSchedulingExecutor.class)
-                .build(getExposedKey()));
+        if (virtualThreads) {
+            bind(getExposedKey()).to(registerLifecycleComponent(VirtualThreadExecutorFactory.class));
+        } else {
+            install(new FactoryModuleBuilder()
+                            .implement(SchedulingExecutor.class, SingleThreadedSchedulingExecutor.class)
+                            .build(getExposedKey()));
+        }
         expose(getExposedKey());
     }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    public static final class Builder implements TypedBuilder<ExposedKeyModule<ExecutorFactory>> {
+        private boolean virtualThreads;
+
+        private Builder() {
+        }
+
+        /// Run all executors as serial mailboxes on virtual threads with a shared timer, see [VirtualThreadExecutorFactory], instead of one
+        /// platform thread per executor.
+        public Builder withVirtualThreads() {
+            virtualThreads = true;
+            return this;
+        }
+
+        @Override
+        public ExposedKeyModule<ExecutorFactory> build() {
+            return new ExecutorModule(virtualThreads);
+        }
+    }
 }
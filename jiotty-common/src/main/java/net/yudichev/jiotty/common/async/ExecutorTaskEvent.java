@@ -0,0 +1,24 @@
+package net.yudichev.jiotty.common.async;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/// JFR event covering the execution of one task by a [SchedulingExecutor].
+@Name("net.yudichev.jiotty.ExecutorTask")
+@Label("Executor Task")
+@Category({"Jiotty", "Executors"})
+@Description("Execution of a task by a scheduling executor")
+@StackTrace(false)
+final class ExecutorTaskEvent extends jdk.jfr.Event {
+    @Label("Executor")
+    String executor;
+
+    @Label("Wait Time")
+    @Description("Time the task spent queued before it started executing")
+    @Timespan
+    long waitTime;
+}
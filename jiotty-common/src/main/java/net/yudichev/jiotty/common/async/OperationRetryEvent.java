@@ -0,0 +1,23 @@
+package net.yudichev.jiotty.common.async;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+import jdk.jfr.Timespan;
+
+/// JFR event recorded when [AsyncOperationRetryImpl] schedules a retry of a failed operation.
+@Name("net.yudichev.jiotty.OperationRetry")
+@Label("Operation Retry")
+@Category({"Jiotty", "Async"})
+@Description("A failed operation is retried after a backoff")
+@StackTrace(false)
+final class OperationRetryEvent extends jdk.jfr.Event {
+    @Label("Operation")
+    String operation;
+
+    @Label("Backoff")
+    @Timespan(Timespan.MILLISECONDS)
+    long backoffMs;
+}
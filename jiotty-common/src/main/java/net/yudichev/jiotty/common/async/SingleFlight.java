@@ -0,0 +1,137 @@
+package net.yudichev.jiotty.common.async;
+
+import net.yudichev.jiotty.common.metrics.Counter;
+import net.yudichev.jiotty.common.metrics.Metrics;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Coalesces concurrent identical asynchronous calls: while a call for a key is in flight, further [#get(Object, Supplier)] calls for the
+/// same key share its result instead of issuing their own. Meant for read-only calls, like polling a device's state, where several
+/// consumers asking at about the same time would otherwise each cost a request.
+///
+/// Optionally, a successful result keeps being served for a short time after it arrived. Failures are never kept: the next call after a
+/// failed one is issued anew. A kept result is only dropped when the next call for its key finds it expired, so keys should come from a
+/// small set, like device or entity IDs.
+///
+/// Each caller gets its own future, so cancelling or completing it does not affect the others or the call being shared.
+///
+/// Counter `jiotty_single_flight_calls_total` tagged with the `name` given at creation counts calls by `result`: `issued`, `coalesced`
+/// (joined one in flight) or `cached` (served a kept result).
+public final class SingleFlight<K, V> {
+    private final long resultTtlNanos;
+    private final LongSupplier nanoTime;
+    private final ConcurrentMap<K, Flight<V>> flightsByKey = new ConcurrentHashMap<>();
+    private final LongAdder issued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder cached = new LongAdder();
+    private final Counter issuedCounter;
+    private final Counter coalescedCounter;
+    private final Counter cachedCounter;
+
+    SingleFlight(String name, Duration resultTtl, LongSupplier nanoTime) {
+        checkNotNull(name);
+        checkArgument(!resultTtl.isNegative(), "resultTtl must not be negative: %s", resultTtl);
+        resultTtlNanos = resultTtl.toNanos();
+        this.nanoTime = checkNotNull(nanoTime);
+        issuedCounter = counter(name, "issued");
+        coalescedCounter = counter(name, "coalesced");
+        cachedCounter = counter(name, "cached");
+    }
+
+    /// Only coalesces calls that are in flight at the same time.
+    public static <K, V> SingleFlight<K, V> create(String name) {
+        return create(name, Duration.ZERO);
+    }
+
+    /// @param resultTtl for how long a successful result is served to subsequent calls after it arrived
+    public static <K, V> SingleFlight<K, V> create(String name, Duration resultTtl) {
+        return new SingleFlight<>(name, resultTtl, System::nanoTime);
+    }
+
+    /// @param call issues the call for the key; invoked unless one for the key is in flight or its result is still kept
+    public CompletableFuture<V> get(K key, Supplier<? extends CompletableFuture<? extends V>> call) {
+        checkNotNull(key);
+        long now = nanoTime.getAsLong();
+        Flight<V> flight = flightsByKey.get(key);
+        if (flight == null || !flight.isUsable(now, resultTtlNanos)) {
+            var newFlight = new Flight<V>();
+            flight = flightsByKey.compute(key, (_, existing) -> existing != null && existing.isUsable(now, resultTtlNanos) ? existing : newFlight);
+            if (flight == newFlight) {
+                issued.increment();
+                issuedCounter.increment();
+                issue(key, newFlight, call);
+                return newFlight.result.copy();
+            }
+        }
+        if (flight.result.isDone()) {
+            cached.increment();
+            cachedCounter.increment();
+        } else {
+            coalesced.increment();
+            coalescedCounter.increment();
+        }
+        return flight.result.copy();
+    }
+
+    /// Forgets a kept result for the key, if any, so that the next call is issued; a call in flight is still shared.
+    public void invalidate(K key) {
+        flightsByKey.computeIfPresent(key, (_, flight) -> flight.result.isDone() ? null : flight);
+    }
+
+    public Stats stats() {
+        return new Stats(issued.sum(), coalesced.sum(), cached.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "SingleFlight{resultTtl=" + Duration.ofNanos(resultTtlNanos) + ", keys=" + flightsByKey.size() + '}';
+    }
+
+    private void issue(K key, Flight<V> flight, Supplier<? extends CompletableFuture<? extends V>> call) {
+        CompletableFuture<? extends V> callFuture;
+        try {
+            callFuture = checkNotNull(call.get(), "call returned null");
+        } catch (RuntimeException e) {
+            callFuture = CompletableFuture.failedFuture(e);
+        }
+        callFuture.whenComplete((value, throwable) -> {
+            if (throwable == null && resultTtlNanos > 0) {
+                flight.completedAtNanos = nanoTime.getAsLong();
+            } else {
+                flightsByKey.remove(key, flight);
+            }
+            if (throwable == null) {
+                flight.result.complete(value);
+            } else {
+                flight.result.completeExceptionally(throwable);
+            }
+        });
+    }
+
+    private static Counter counter(String name, String result) {
+        return Metrics.counter("jiotty_single_flight_calls_total", Map.of("name", name, "result", result));
+    }
+
+    public record Stats(long issued, long coalesced, long cached) {}
+
+    private static final class Flight<V> {
+        final CompletableFuture<V> result = new CompletableFuture<>();
+        /// written before the result is completed, so visible to whoever sees it completed
+        volatile long completedAtNanos;
+
+        boolean isUsable(long nowNanos, long ttlNanos) {
+            // a failed flight is removed before it is completed, but may still be seen in between
+            return !result.isDone() || !result.isCompletedExceptionally() && nowNanos - completedAtNanos < ttlNanos;
+        }
+    }
+}
@@ -17,7 +17,9 @@ import java.util.concurrent.Callable;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -28,6 +30,8 @@ public final class SingleThreadedSchedulingExecutor implements SchedulingExecuto
     private final Set<Closeable> scheduleHandles = Sets.newConcurrentHashSet();
     private final ScheduledExecutorService executor;
     private final String threadNameBase;
+    private final AtomicInteger queuedTaskCount = new AtomicInteger();
+    private final TaskInstrumentation instrumentation;
 
     @Inject
     public SingleThreadedSchedulingExecutor(@Assisted String threadNameBase) {
@@ -36,12 +40,13 @@ public final class SingleThreadedSchedulingExecutor implements SchedulingExecuto
                                                                       .setDaemon(true)
                                                                       .build());
         this.threadNameBase = threadNameBase;
+        instrumentation = new TaskInstrumentation(threadNameBase, queuedTaskCount::get);
     }
 
     @Override
     public <T> CompletableFuture<T> submit(Callable<? extends T> task) {
         var resultFuture = new CompletableFuture<T>();
-        executor.submit(() -> {
+        executeQueued(() -> {
             try {
                 resultFuture.complete(task.call());
             } catch (Exception e) {
@@ -53,7 +58,7 @@ public final class SingleThreadedSchedulingExecutor implements SchedulingExecuto
 
     @Override
     public void execute(Runnable command) {
-        executor.execute(guard("task", command));
+        executeQueued(guard("task", command));
     }
 
     @Override
@@ -78,6 +83,25 @@ public final class SingleThreadedSchedulingExecutor implements SchedulingExecuto
         if (!MoreExecutors.shutdownAndAwaitTermination(executor, 10, SECONDS)) {
             logger.warn("Was not able to gracefully stop executor '{}' in 10 seconds", threadNameBase);
         }
+        instrumentation.close();
+    }
+
+    private void executeQueued(Runnable task) {
+        Runnable instrumentedTask = instrumentation.instrument(task);
+        // counted before submitting, so that the task cannot finish (and decrement) first
+        queuedTaskCount.incrementAndGet();
+        try {
+            executor.execute(() -> {
+                try {
+                    instrumentedTask.run();
+                } finally {
+                    queuedTaskCount.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queuedTaskCount.decrementAndGet();
+            throw e;
+        }
     }
 
     private static Runnable guard(String task, Runnable command) {
@@ -0,0 +1,83 @@
+package net.yudichev.jiotty.common.async;
+
+import jdk.jfr.EventType;
+import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.metrics.Histogram;
+import net.yudichev.jiotty.common.metrics.Metrics;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.IntSupplier;
+
+import static net.yudichev.jiotty.common.metrics.Histogram.DURATION_SECONDS_BUCKETS;
+
+/// Metrics and JFR events of one executor: queue depth, and per task, wait and execution time. Tasks are only timed while metrics or the JFR
+/// event are enabled.
+///
+/// Metrics are tagged with the executor name. Executor names may be made up at runtime (e.g. per device), and histogram series are never
+/// removed, so only the first [#MAX_TAGGED_EXECUTOR_NAMES] distinct names get series of their own; executors created after that share the
+/// [#OTHER_EXECUTORS] series. JFR events always carry the actual name.
+final class TaskInstrumentation implements Closeable {
+    private static final EventType TASK_EVENT_TYPE = EventType.getEventType(ExecutorTaskEvent.class);
+    private static final int MAX_TAGGED_EXECUTOR_NAMES = 100;
+    private static final String OTHER_EXECUTORS = "other";
+    private static final Set<String> taggedExecutorNames = ConcurrentHashMap.newKeySet();
+
+    private final String executorName;
+    private final Histogram waitTime;
+    private final Histogram executionTime;
+    private final Closeable queueDepthGauge;
+
+    /// @param queueDepth tasks queued for execution, including the one being executed
+    TaskInstrumentation(String executorName, IntSupplier queueDepth) {
+        this.executorName = executorName;
+        Map<String, String> tags = Map.of("executor", executorTag(executorName));
+        waitTime = Metrics.histogram("jiotty_executor_task_wait_seconds", tags, DURATION_SECONDS_BUCKETS);
+        executionTime = Metrics.histogram("jiotty_executor_task_duration_seconds", tags, DURATION_SECONDS_BUCKETS);
+        queueDepthGauge = Metrics.gauge("jiotty_executor_queue_depth", tags, queueDepth::getAsInt);
+    }
+
+    /// Call when the task is queued for immediate execution.
+    Runnable instrument(Runnable task) {
+        if (!Metrics.enabled() && !TASK_EVENT_TYPE.isEnabled()) {
+            return task;
+        }
+        long queuedNanos = System.nanoTime();
+        return () -> {
+            var event = new ExecutorTaskEvent();
+            event.begin();
+            long startNanos = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                long endNanos = System.nanoTime();
+                waitTime.recordNanos(startNanos - queuedNanos);
+                executionTime.recordNanos(endNanos - startNanos);
+                event.end();
+                if (event.shouldCommit()) {
+                    event.executor = executorName;
+                    event.waitTime = startNanos - queuedNanos;
+                    event.commit();
+                }
+            }
+        };
+    }
+
+    @Override
+    public void close() {
+        queueDepthGauge.close();
+    }
+
+    private static String executorTag(String executorName) {
+        if (taggedExecutorNames.contains(executorName)) {
+            return executorName;
+        }
+        // may let a few names more than the max through under contention, which is fine
+        if (taggedExecutorNames.size() < MAX_TAGGED_EXECUTOR_NAMES) {
+            taggedExecutorNames.add(executorName);
+            return executorName;
+        }
+        return OTHER_EXECUTORS;
+    }
+}
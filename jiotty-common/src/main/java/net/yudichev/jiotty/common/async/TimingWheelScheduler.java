@@ -0,0 +1,264 @@
+package net.yudichev.jiotty.common.async;
+
+import com.google.common.math.LongMath;
+import net.yudichev.jiotty.common.lang.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Duration;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/// Hashed timing wheel [Scheduler] (Varghese & Lauck): a ring of buckets, each a doubly linked list of timeouts, advanced by one thread every tick.
+///
+/// - `schedule` is a lock-free enqueue; the timeout is linked into its bucket on the next tick, so scheduling is O(1) regardless of the number
+///   of outstanding timeouts.
+/// - Cancelling marks the timeout so it never fires and unlinks it from its bucket on the next tick, also in O(1); cancelled timeouts don't
+///   linger until their deadline like they do in a heap.
+/// - Timeouts fire up to one tick late. Commands run on the wheel thread, so they must be short: hand off anything substantial to an executor.
+/// - The wheel thread parks while there are no timeouts, but while any are outstanding it wakes up every tick, however distant they are.
+public final class TimingWheelScheduler implements Scheduler, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(TimingWheelScheduler.class);
+
+    private static final int STATE_PENDING = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long tickNanos;
+    private final long startNanos;
+    private final Thread workerThread;
+
+    private volatile boolean workerIdle;
+    private volatile boolean closed;
+
+    // worker thread state
+    private long tick;
+    private int linkedTimeoutCount;
+
+    public TimingWheelScheduler(String threadName) {
+        this(threadName, Duration.ofMillis(10), 512);
+    }
+
+    public TimingWheelScheduler(String threadName, Duration tickDuration, int ticksPerWheel) {
+        checkArgument(!tickDuration.isNegative() && !tickDuration.isZero(), "tickDuration must be positive: %s", tickDuration);
+        checkArgument(ticksPerWheel > 0 && Integer.bitCount(ticksPerWheel) == 1, "ticksPerWheel must be a positive power of 2: %s", ticksPerWheel);
+        tickNanos = tickDuration.toNanos();
+        wheel = new Bucket[ticksPerWheel];
+        for (int i = 0; i < ticksPerWheel; i++) {
+            wheel[i] = new Bucket();
+        }
+        mask = ticksPerWheel - 1;
+        startNanos = System.nanoTime();
+        workerThread = new Thread(this::runWorker, checkNotNull(threadName));
+        workerThread.setDaemon(true);
+        workerThread.start();
+    }
+
+    @Override
+    public Closeable schedule(Duration delay, Runnable command) {
+        return newTimeout(saturatedToNanos(delay), 0, command);
+    }
+
+    @Override
+    public Closeable scheduleAtFixedRate(Duration initialDelay, Duration period, Runnable command) {
+        checkArgument(!period.isNegative() && !period.isZero(), "period must be positive: %s", period);
+        return newTimeout(saturatedToNanos(initialDelay), saturatedToNanos(period), command);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        LockSupport.unpark(workerThread);
+        if (Thread.currentThread() != workerThread) {
+            try {
+                workerThread.join(10_000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private Timeout newTimeout(long delayNanos, long periodNanos, Runnable command) {
+        checkState(!closed, "scheduler is closed");
+        var timeout = new Timeout(LongMath.saturatedAdd(System.nanoTime() - startNanos, Math.max(delayNanos, 0)), periodNanos, checkNotNull(command));
+        submitToWorker(timeout);
+        return timeout;
+    }
+
+    private void submitToWorker(Timeout timeout) {
+        newTimeouts.add(timeout);
+        if (workerIdle) {
+            LockSupport.unpark(workerThread);
+        }
+    }
+
+    private void runWorker() {
+        while (!closed) {
+            if (linkedTimeoutCount == 0 && newTimeouts.isEmpty()) {
+                parkUntilWorkArrives();
+                // nothing is linked, so buckets for the ticks that elapsed while parked are empty and can be skipped
+                tick = Math.max(tick, (System.nanoTime() - startNanos) / tickNanos);
+            }
+            waitForTickEnd();
+            unlinkCancelledTimeouts();
+            linkNewTimeouts();
+            expireTimeouts(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void parkUntilWorkArrives() {
+        workerIdle = true;
+        // re-check after publishing the idle flag: a concurrent submitter either sees the flag and unparks, or its timeout is seen here
+        while (!closed && newTimeouts.isEmpty()) {
+            LockSupport.park(this);
+        }
+        workerIdle = false;
+    }
+
+    private void waitForTickEnd() {
+        long tickEndNanos = tickNanos * (tick + 1);
+        long sleepNanos;
+        while (!closed && (sleepNanos = tickEndNanos - (System.nanoTime() - startNanos)) > 0) {
+            LockSupport.parkNanos(this, sleepNanos);
+        }
+    }
+
+    private void linkNewTimeouts() {
+        Timeout timeout;
+        while ((timeout = newTimeouts.poll()) != null) {
+            if (timeout.state.get() == STATE_CANCELLED) {
+                continue;
+            }
+            long deadlineTick = Math.max(timeout.deadlineNanos / tickNanos, tick);
+            timeout.remainingRounds = (deadlineTick - tick) >> Integer.numberOfTrailingZeros(wheel.length);
+            wheel[(int) (deadlineTick & mask)].link(timeout);
+            linkedTimeoutCount++;
+        }
+    }
+
+    private void unlinkCancelledTimeouts() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.unlink(timeout);
+                linkedTimeoutCount--;
+            }
+        }
+    }
+
+    private void expireTimeouts(Bucket bucket) {
+        Timeout timeout = bucket.head;
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.remainingRounds <= 0) {
+                bucket.unlink(timeout);
+                linkedTimeoutCount--;
+                timeout.expire();
+            } else {
+                timeout.remainingRounds--;
+            }
+            timeout = next;
+        }
+    }
+
+    /// durations too long to express in nanoseconds are as good as forever
+    private static long saturatedToNanos(Duration duration) {
+        try {
+            return duration.toNanos();
+        } catch (ArithmeticException e) {
+            return duration.isNegative() ? Long.MIN_VALUE : Long.MAX_VALUE;
+        }
+    }
+
+    private static final class Bucket {
+        private Timeout head;
+        private Timeout tail;
+
+        void link(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        void unlink(Timeout timeout) {
+            if (timeout.prev == null) {
+                head = timeout.next;
+            } else {
+                timeout.prev.next = timeout.next;
+            }
+            if (timeout.next == null) {
+                tail = timeout.prev;
+            } else {
+                timeout.next.prev = timeout.prev;
+            }
+            timeout.prev = timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+
+    private final class Timeout implements Closeable {
+        private final AtomicInteger state = new AtomicInteger(STATE_PENDING);
+        private final long periodNanos;
+        private final Runnable command;
+        private long deadlineNanos;
+
+        // worker thread state
+        private long remainingRounds;
+        private Bucket bucket;
+        private Timeout prev;
+        private Timeout next;
+
+        Timeout(long deadlineNanos, long periodNanos, Runnable command) {
+            this.deadlineNanos = deadlineNanos;
+            this.periodNanos = periodNanos;
+            this.command = command;
+        }
+
+        @Override
+        public void close() {
+            if (state.compareAndSet(STATE_PENDING, STATE_CANCELLED)) {
+                cancelledTimeouts.add(this);
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Timeout{" + command + '}';
+        }
+
+        void expire() {
+            if (periodNanos == 0 && !state.compareAndSet(STATE_PENDING, STATE_EXPIRED)) {
+                return;
+            }
+            if (periodNanos != 0 && state.get() != STATE_PENDING) {
+                return;
+            }
+            try {
+                command.run();
+            } catch (Throwable e) {
+                logger.error("Failed while executing timer task {}", command, e);
+            }
+            if (periodNanos != 0 && state.get() == STATE_PENDING) {
+                deadlineNanos = LongMath.saturatedAdd(deadlineNanos, periodNanos);
+                // if cancelled concurrently from now on, the cancellation queue is processed after this timeout is linked again
+                submitToWorker(this);
+            }
+        }
+    }
+}
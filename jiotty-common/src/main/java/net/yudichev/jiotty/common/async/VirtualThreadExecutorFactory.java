@@ -0,0 +1,71 @@
+package net.yudichev.jiotty.common.async;
+
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.time.Duration;
+
+import static net.yudichev.jiotty.common.lang.Closeable.closeIfNotNull;
+
+/// Creates executors that do not own a platform thread each: every executor is a serial mailbox drained by its own virtual thread, and all
+/// executors created by this factory share one [TimingWheelScheduler] for their delayed and periodic tasks.
+///
+/// Contract-wise the executors are interchangeable with the ones created by [ExecutorFactoryImpl]: tasks never run concurrently, run in
+/// submission order and all run on the same thread. Note that a task blocking on a monitor may pin its carrier thread, so executors doing
+/// heavy blocking I/O under `synchronized` are better off with a dedicated thread.
+///
+/// The shared timer thread is started when first needed and stopped when this component stops (or is closed), after the components that
+/// depend on it.
+public final class VirtualThreadExecutorFactory extends BaseLifecycleComponent implements ExecutorFactory, Closeable {
+    private final Object lock = new Object();
+    private final Scheduler timer = new SharedTimer();
+    @Nullable
+    private TimingWheelScheduler currentTimer;
+
+    @Inject
+    public VirtualThreadExecutorFactory() {
+    }
+
+    @Override
+    public SchedulingExecutor createSingleThreadedSchedulingExecutor(String threadNameBase) {
+        return new ActorSchedulingExecutor(threadNameBase, timer);
+    }
+
+    @Override
+    public void close() {
+        TimingWheelScheduler timerToClose;
+        synchronized (lock) {
+            timerToClose = currentTimer;
+            currentTimer = null;
+        }
+        closeIfNotNull(timerToClose);
+    }
+
+    @Override
+    protected void doStop() {
+        close();
+    }
+
+    private Scheduler currentTimer() {
+        synchronized (lock) {
+            if (currentTimer == null) {
+                currentTimer = new TimingWheelScheduler("shared-timer");
+            }
+            return currentTimer;
+        }
+    }
+
+    private final class SharedTimer implements Scheduler {
+        @Override
+        public Closeable schedule(Duration delay, Runnable command) {
+            return currentTimer().schedule(delay, command);
+        }
+
+        @Override
+        public Closeable scheduleAtFixedRate(Duration initialDelay, Duration period, Runnable command) {
+            return currentTimer().scheduleAtFixedRate(initialDelay, period, command);
+        }
+    }
+}
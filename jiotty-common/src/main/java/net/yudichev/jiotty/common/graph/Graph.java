@@ -1,54 +1,82 @@
 package net.yudichev.jiotty.common.graph;
 
 import jakarta.annotation.Nullable;
+import jdk.jfr.EventType;
 import net.yudichev.jiotty.common.lang.BaseIdempotentCloseable;
 import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.metrics.Histogram;
+import net.yudichev.jiotty.common.metrics.Metrics;
 import net.yudichev.jiotty.common.time.CurrentDateTimeProvider;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
-import java.util.Comparator;
-import java.util.HashSet;
+import java.util.BitSet;
+import java.util.Deque;
 import java.util.IdentityHashMap;
-import java.util.Iterator;
 import java.util.List;
-import java.util.Set;
-import java.util.TreeSet;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-
+import static com.google.common.base.Throwables.throwIfUnchecked;
+import static java.util.Comparator.comparingInt;
+import static net.yudichev.jiotty.common.metrics.Histogram.DURATION_SECONDS_BUCKETS;
+import static net.yudichev.jiotty.common.metrics.Histogram.SIZE_BUCKETS;
+
+/// Dependency graph of [Node]s executed in waves: each wave runs all pending nodes in the order of their rank, so a node runs after all its parents.
+///
+/// All graph methods must be called on one thread. Optionally, a graph can be given a [ForkJoinPool] to execute nodes of the same rank that declare
+/// themselves [parallel-safe][Node#isParallelSafe()] concurrently, with a barrier before the next rank; everything else still happens on the graph
+/// thread, and [Node#afterWave()] is always called in (rank, registration order) order.
 public class Graph extends BaseIdempotentCloseable {
     private static final Logger logger = LoggerFactory.getLogger(Graph.class);
+    private static final EventType WAVE_EVENT_TYPE = EventType.getEventType(GraphWaveEvent.class);
+    private static final Histogram WAVE_DURATION = Metrics.histogram("jiotty_graph_wave_duration_seconds", DURATION_SECONDS_BUCKETS);
+    private static final Histogram WAVE_SIZE = Metrics.histogram("jiotty_graph_wave_nodes", SIZE_BUCKETS);
+    private static final int MIN_PARALLEL_BATCH_SIZE = 2;
 
-    private final TreeSet<NodeState> nodesPendingTrigger = new TreeSet<>(Comparator.comparing(NodeState::rank).thenComparing(NodeState::id));
+    /// Nodes pending trigger, bucketed by rank; within a bucket, bits are node IDs, so iteration order is (rank, ID).
+    private final List<PendingBucket> pendingBucketsByRank = new ArrayList<>();
     private final List<NodeState> nodesTriggeredInWave = new ArrayList<>();
     private final IdentityHashMap<Node, NodeState> statesByNode = new IdentityHashMap<>();
+    private final List<NodeState> statesById = new ArrayList<>();
     private final CurrentDateTimeProvider timeProvider;
     private final Consumer<RuntimeException> exceptionHandler;
-    private final Set<NodeState> nodesNeedingReRanking = new HashSet<>();
     private final AtomicReference<Thread> callerThread = new AtomicReference<>();
-    private int nodeIdGenerator;
+    @Nullable
+    private final ForkJoinPool parallelWavePool;
+    private int pendingNodeCount;
     @Nullable
     private Instant waveTime;
     private int waveId;
+    private volatile boolean inParallelBatch;
 
     public Graph(CurrentDateTimeProvider timeProvider, Consumer<RuntimeException> exceptionHandler) {
+        this(timeProvider, exceptionHandler, null);
+    }
+
+    /// @param parallelWavePool if not `null`, pending [parallel-safe][Node#isParallelSafe()] nodes of each rank are executed on this pool
+    public Graph(CurrentDateTimeProvider timeProvider, Consumer<RuntimeException> exceptionHandler, @Nullable ForkJoinPool parallelWavePool) {
         this.timeProvider = checkNotNull(timeProvider);
         this.exceptionHandler = checkNotNull(exceptionHandler);
+        this.parallelWavePool = parallelWavePool;
     }
 
     public <T extends Node> T registerNode(String name, T node) {
         assertCallingThreadConsistent();
         checkState(!inWave(), "Cannot register nodes in-wave");
-        var nodeState = new NodeState(name, node);
+        var nodeState = new NodeState(name, node, statesById.size());
         checkArgument(statesByNode.putIfAbsent(node, nodeState) == null, "Node already registered: %s", node);
+        statesById.add(nodeState);
         nodeState.initialise();
         return node;
     }
@@ -77,9 +105,9 @@ public class Graph extends BaseIdempotentCloseable {
     @Override
     protected void doClose() {
         assertCallingThreadConsistent();
-        nodesPendingTrigger.clear();
+        pendingBucketsByRank.clear();
+        pendingNodeCount = 0;
         nodesTriggeredInWave.clear();
-        nodesNeedingReRanking.clear();
         Closeable.closeSafelyIfNotNull(logger, statesByNode.values());
     }
 
@@ -87,24 +115,42 @@ public class Graph extends BaseIdempotentCloseable {
         assertCallingThreadConsistent();
         checkState(!inWave(), "recursive call to wave()");
 
-        if (nodesPendingTrigger.isEmpty()) {
+        if (pendingNodeCount == 0) {
             return false;
         }
         waveId++;
         assert setWaveIdInMdc();
         waveTime = timeProvider.currentInstant();
-        NodeState currentNode = nodesPendingTrigger.first();
+        @Nullable GraphWaveEvent event = null;
+        long waveStartNanos = 0;
+        if (Metrics.enabled() || WAVE_EVENT_TYPE.isEnabled()) {
+            event = new GraphWaveEvent();
+            event.begin();
+            waveStartNanos = System.nanoTime();
+        }
         try {
-            do {
+            int rank = 0;
+            int afterId = -1;
+            NodeState currentNode;
+            while ((currentNode = nextPendingNode(rank, afterId)) != null) {
+                if (parallelWavePool != null && currentNode.rank != rank) {
+                    // entered a new rank: its parallel-safe nodes go first, then whatever is still pending in this rank runs as usual
+                    rank = currentNode.rank;
+                    afterId = -1;
+                    runParallelBatch(parallelWavePool, rank);
+                    continue;
+                }
                 nodesTriggeredInWave.add(currentNode);
                 boolean stateModified = currentNode.node.wave();
                 if (stateModified) {
                     // mark all children as pending trigger
                     currentNode.children.forEach(NodeState::triggerInNextWave);
                 }
-                nodesPendingTrigger.remove(currentNode);
-                currentNode = nodesPendingTrigger.higher(currentNode);
-            } while (currentNode != null);
+                currentNode.removeFromPending();
+                // nodes triggered in-wave that come after the current one are executed in this wave, the rest - in the next one
+                rank = currentNode.rank;
+                afterId = currentNode.id;
+            }
         } catch (RuntimeException e) {
             try {
                 exceptionHandler.accept(e);
@@ -116,6 +162,9 @@ public class Graph extends BaseIdempotentCloseable {
         } finally {
             assert clearWaveIdInMdc();
             waveTime = null;
+            if (parallelWavePool != null) {
+                nodesTriggeredInWave.sort(comparingInt((NodeState nodeState) -> nodeState.rank).thenComparingInt(nodeState -> nodeState.id));
+            }
             nodesTriggeredInWave.forEach(nodeState -> {
                 try {
                     nodeState.node.afterWave();
@@ -125,20 +174,88 @@ public class Graph extends BaseIdempotentCloseable {
             });
             if (logger.isDebugEnabled()) {
                 logger.debug("Wave {}: nodes triggered: {}, nodes pending: {}",
-                             waveId, new ArrayList<>(nodesTriggeredInWave), new ArrayList<>(nodesPendingTrigger));
+                             waveId, new ArrayList<>(nodesTriggeredInWave), pendingNodes());
+            }
+            if (event != null) {
+                recordWave(event, waveStartNanos);
             }
             nodesTriggeredInWave.clear();
         }
-        return !nodesPendingTrigger.isEmpty();
+        return pendingNodeCount > 0;
+    }
+
+    private void recordWave(GraphWaveEvent event, long waveStartNanos) {
+        event.end();
+        WAVE_DURATION.recordNanos(System.nanoTime() - waveStartNanos);
+        WAVE_SIZE.record(nodesTriggeredInWave.size());
+        if (event.shouldCommit()) {
+            event.waveId = waveId;
+            event.nodeCount = nodesTriggeredInWave.size();
+            event.pendingNodeCount = pendingNodeCount;
+            event.commit();
+        }
     }
 
     private void assertCallingThreadConsistent() {
         var currentThread = Thread.currentThread();
         boolean justAssignedThread = callerThread.compareAndSet(null, currentThread);
-        assert justAssignedThread || callerThread.getOpaque() == currentThread
+        assert justAssignedThread || callerThread.getOpaque() == currentThread || isParallelBatchWorker(currentThread)
                 : "graph called on multiple threads: " + callerThread.getOpaque() + " and " + currentThread;
     }
 
+    private boolean isParallelBatchWorker(Thread thread) {
+        return inParallelBatch && thread instanceof ForkJoinWorkerThread workerThread && workerThread.getPool() == parallelWavePool;
+    }
+
+    private void runParallelBatch(ForkJoinPool pool, int rank) {
+        List<NodeState> batch = new ArrayList<>();
+        BitSet pendingNodeIds = pendingBucket(rank).nodeIds;
+        for (int id = pendingNodeIds.nextSetBit(0); id >= 0; id = pendingNodeIds.nextSetBit(id + 1)) {
+            NodeState nodeState = statesById.get(id);
+            if (nodeState.node.isParallelSafe()) {
+                batch.add(nodeState);
+            }
+        }
+        if (batch.size() < MIN_PARALLEL_BATCH_SIZE) {
+            return;
+        }
+
+        boolean[] stateModified = new boolean[batch.size()];
+        Throwable[] failures = new Throwable[batch.size()];
+        List<Callable<Void>> tasks = new ArrayList<>(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            int index = i;
+            tasks.add(() -> {
+                try {
+                    stateModified[index] = batch.get(index).node.wave();
+                } catch (RuntimeException | Error e) {
+                    failures[index] = e;
+                }
+                return null;
+            });
+        }
+        inParallelBatch = true;
+        try {
+            pool.invokeAll(tasks);
+        } finally {
+            inParallelBatch = false;
+        }
+
+        // apply the effects on the graph thread in node order, exactly as if the batch was executed sequentially: a failure stops the wave
+        // there, so the nodes after the failed one stay pending and trigger nothing, as if they had not run
+        nodesTriggeredInWave.addAll(batch);
+        for (int i = 0; i < batch.size(); i++) {
+            if (failures[i] != null) {
+                throwIfUnchecked(failures[i]);
+            }
+            NodeState nodeState = batch.get(i);
+            if (stateModified[i]) {
+                nodeState.children.forEach(NodeState::triggerInNextWave);
+            }
+            nodeState.removeFromPending();
+        }
+    }
+
     private boolean setWaveIdInMdc() {
         MDC.put("waveId", '[' + Integer.toString(waveId) + ']');
         return true;
@@ -149,40 +266,55 @@ public class Graph extends BaseIdempotentCloseable {
         return true;
     }
 
-    private void reRank() {
-        // if nodesPendingTrigger is not empty, need to rebuild it as mutating ranks in-place will break the sorting
-        List<NodeState> nodesPendingTriggerCopy = null;
-        if (!nodesPendingTrigger.isEmpty()) {
-            nodesPendingTriggerCopy = new ArrayList<>(nodesPendingTrigger);
-            nodesPendingTrigger.clear();
+    @Nullable
+    private NodeState nextPendingNode(int rank, int afterId) {
+        for (int r = rank; r < pendingBucketsByRank.size(); r++) {
+            PendingBucket bucket = pendingBucketsByRank.get(r);
+            if (bucket.size > 0) {
+                int id = bucket.nodeIds.nextSetBit(r == rank ? afterId + 1 : 0);
+                if (id >= 0) {
+                    return statesById.get(id);
+                }
+            }
         }
+        return null;
+    }
 
-        while (!nodesNeedingReRanking.isEmpty()) {
-            Iterator<NodeState> iterator = nodesNeedingReRanking.iterator();
-            while (iterator.hasNext()) {
-                NodeState nodeState = iterator.next();
-                assert nodeState.rank <= 0 : "nodesNeedingReRanking contains node with final rank";
-                assert !nodeState.parents.isEmpty() : "asked to re-rank node with no parents";
-                boolean allParentsHaveFinalRank = true;
-                for (NodeState parent : nodeState.parents) {
-                    if (parent.rank != 0) {
-                        nodeState.rank = Math.min(-Math.abs(parent.rank) - 1, nodeState.rank);
-                    }
-                    if (parent.rank <= 0) {
-                        allParentsHaveFinalRank = false;
-                    }
-                }
-                if (allParentsHaveFinalRank) {
-                    // finalise our rank too
-                    assert nodeState.rank < 0;
-                    nodeState.rank = -nodeState.rank;
-                    iterator.remove();
-                }
+    private List<NodeState> pendingNodes() {
+        List<NodeState> result = new ArrayList<>(pendingNodeCount);
+        for (NodeState nodeState = nextPendingNode(0, -1); nodeState != null; nodeState = nextPendingNode(nodeState.rank, nodeState.id)) {
+            result.add(nodeState);
+        }
+        return result;
+    }
+
+    private PendingBucket pendingBucket(int rank) {
+        while (pendingBucketsByRank.size() <= rank) {
+            pendingBucketsByRank.add(new PendingBucket());
+        }
+        return pendingBucketsByRank.get(rank);
+    }
+
+    private static final class PendingBucket {
+        private final BitSet nodeIds = new BitSet();
+        private int size;
+
+        boolean add(int nodeId) {
+            if (nodeIds.get(nodeId)) {
+                return false;
             }
+            nodeIds.set(nodeId);
+            size++;
+            return true;
         }
 
-        if (nodesPendingTriggerCopy != null) {
-            nodesPendingTrigger.addAll(nodesPendingTriggerCopy);
+        boolean remove(int nodeId) {
+            if (!nodeIds.get(nodeId)) {
+                return false;
+            }
+            nodeIds.clear(nodeId);
+            size--;
+            return true;
         }
     }
 
@@ -192,13 +324,13 @@ public class Graph extends BaseIdempotentCloseable {
         private final String name;
         private final Node node;
         private final int id;
-        /// @implSpec negative -> non-final in process of computing, 0 - invalid and needs re-ranking, positive - final ranked
-        private int rank = 1; // node that jas just been created has a rank of 1 (as no parents)
+        /// Length of the longest path from a root to this node plus one, so every node ranks strictly higher than all its parents.
+        private int rank = 1; // node that has just been created has a rank of 1 (as no parents)
 
-        public NodeState(String name, Node node) {
+        public NodeState(String name, Node node, int id) {
             this.name = name;
             this.node = node;
-            id = nodeIdGenerator++;
+            this.id = id;
         }
 
         public void initialise() {
@@ -216,21 +348,12 @@ public class Graph extends BaseIdempotentCloseable {
 
             checkArgument(!parents.contains(parent), "Dependency %s -> %s already exists", this, parent);
             parents.add(parent);
-            markAsNeedReranking();
             parent.children.add(this);
 
-            Set<NodeState> visitedNodes = new HashSet<>(statesByNode.size());
-            forAllChildrenRecursively(nodeState -> {
-                if (!visitedNodes.add(nodeState)) {
-                    // undo the effects of the whole method
-                    parents.remove(parent);
-                    parent.children.remove(this);
-                    throw new IllegalArgumentException("Adding dependency " + this + " -> " + parent + " creates a cycle involving node " + nodeState);
-                }
-                nodeState.markAsNeedReranking();
-            });
-
-            reRank();
+            // a parent that ranks lower can't be our descendant, so there is no cycle and ranks stay valid
+            if (rank <= parent.rank) {
+                raiseRanksAbove(parent);
+            }
 
             return this;
         }
@@ -241,14 +364,6 @@ public class Graph extends BaseIdempotentCloseable {
             return node;
         }
 
-        public int rank() {
-            return rank;
-        }
-
-        public int id() {
-            return id;
-        }
-
         @Override
         public String name() {
             assertCallingThreadConsistent();
@@ -258,7 +373,12 @@ public class Graph extends BaseIdempotentCloseable {
         @Override
         public boolean triggerInNextWave() {
             assertCallingThreadConsistent();
-            return nodesPendingTrigger.add(this);
+            checkState(!inParallelBatch, "Nodes cannot be triggered from a parallel-safe node's wave()");
+            if (!pendingBucket(rank).add(id)) {
+                return false;
+            }
+            pendingNodeCount++;
+            return true;
         }
 
         @Override
@@ -286,16 +406,50 @@ public class Graph extends BaseIdempotentCloseable {
             node.close();
         }
 
-        private void markAsNeedReranking() {
-            rank = 0;
-            nodesNeedingReRanking.add(this);
+        void removeFromPending() {
+            if (pendingBucket(rank).remove(id)) {
+                pendingNodeCount--;
+            }
+        }
+
+        /// Incrementally restores the rank invariant after subscribing to `parent`: only descendants whose rank actually needs to grow are
+        /// visited. `parent` being among them means it is reachable from this node, i.e. the new edge closes a cycle.
+        private void raiseRanksAbove(NodeState parent) {
+            List<NodeState> raisedNodes = new ArrayList<>();
+            List<Integer> previousRanks = new ArrayList<>();
+            Deque<NodeState> nodesToVisit = new ArrayDeque<>();
+
+            raisedNodes.add(this);
+            previousRanks.add(rank);
+            setRank(parent.rank + 1);
+            nodesToVisit.push(this);
+            while (!nodesToVisit.isEmpty()) {
+                NodeState nodeState = nodesToVisit.pop();
+                for (NodeState child : nodeState.children) {
+                    if (child.rank <= nodeState.rank) {
+                        if (child == parent) {
+                            // undo the effects of the whole subscription
+                            for (int i = raisedNodes.size() - 1; i >= 0; i--) {
+                                raisedNodes.get(i).setRank(previousRanks.get(i));
+                            }
+                            parents.remove(parent);
+                            parent.children.remove(this);
+                            throw new IllegalArgumentException("Adding dependency " + this + " -> " + parent + " creates a cycle involving node " + nodeState);
+                        }
+                        raisedNodes.add(child);
+                        previousRanks.add(child.rank);
+                        child.setRank(nodeState.rank + 1);
+                        nodesToVisit.push(child);
+                    }
+                }
+            }
         }
 
-        private void forAllChildrenRecursively(Consumer<NodeState> consumer) {
-            for (NodeState child : children) {
-                consumer.accept(child);
-                child.forAllChildrenRecursively(consumer);
+        private void setRank(int newRank) {
+            if (pendingBucket(rank).remove(id)) {
+                pendingBucket(newRank).add(id);
             }
+            rank = newRank;
         }
     }
 }
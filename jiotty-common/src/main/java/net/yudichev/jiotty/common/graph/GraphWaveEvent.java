@@ -0,0 +1,25 @@
+package net.yudichev.jiotty.common.graph;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// JFR event covering one [Graph] wave.
+@Name("net.yudichev.jiotty.GraphWave")
+@Label("Graph Wave")
+@Category({"Jiotty", "Graph"})
+@Description("One wave of a dependency graph")
+@StackTrace(false)
+final class GraphWaveEvent extends jdk.jfr.Event {
+    @Label("Wave Id")
+    int waveId;
+
+    @Label("Nodes Executed")
+    int nodeCount;
+
+    @Label("Nodes Pending")
+    @Description("Nodes left pending for the next wave")
+    int pendingNodeCount;
+}
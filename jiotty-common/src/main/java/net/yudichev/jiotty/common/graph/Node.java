@@ -7,6 +7,13 @@ public interface Node extends Closeable {
 
     boolean wave();
 
+    /// Whether [#wave()] may run concurrently with other nodes of the same rank when the [Graph] has a parallel wave pool. A parallel-safe
+    /// node must only read state of its parents (and its own) in [#wave()], and must not trigger or subscribe to other nodes there; the graph
+    /// itself triggers its children after the whole rank completes.
+    default boolean isParallelSafe() {
+        return false;
+    }
+
     default void afterWave() {
     }
 
@@ -15,6 +15,7 @@ import java.time.Duration;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.DoubleSupplier;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -89,9 +90,16 @@ public abstract class BaseGraphBasedServer extends BaseLifecycleComponent {
     protected void handlePanic(String reason) {
     }
 
+    /// Override to execute [parallel-safe][net.yudichev.jiotty.common.graph.Node#isParallelSafe()] nodes of the same rank concurrently on
+    /// the returned pool.
+    @Nullable
+    protected ForkJoinPool parallelWavePool() {
+        return null;
+    }
+
     private void createGraph() {
         logger.info("Creating graph");
-        var graph = new Graph(timeProvider, this::panic);
+        var graph = new Graph(timeProvider, this::panic, parallelWavePool());
         graphRunner = new GraphRunner(graph, executor) {
 
             @Override
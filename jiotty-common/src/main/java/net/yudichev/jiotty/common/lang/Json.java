@@ -8,6 +8,9 @@ import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
 import com.google.common.reflect.TypeToken;
 
+import java.io.InputStream;
+import java.io.Reader;
+
 public final class Json {
     private static final ObjectMapper mapper = new ObjectMapper()
             .registerModule(new Jdk8Module())
@@ -29,6 +32,21 @@ public final class Json {
         return MoreThrowables.getAsUnchecked(() -> mapper.readValue(json, mapper.getTypeFactory().constructType(type.getType())));
     }
 
+    /// Binds straight from the bytes, without decoding them into a String first. The encoding (UTF-8/16/32) is auto-detected.
+    public static <T> T parse(byte[] json, Class<T> type) {
+        return MoreThrowables.getAsUnchecked(() -> mapper.readValue(json, type));
+    }
+
+    /// Binds straight from the stream, without materialising it as a String first. The encoding (UTF-8/16/32) is auto-detected.
+    public static <T> T parse(InputStream json, TypeToken<T> type) {
+        return MoreThrowables.getAsUnchecked(() -> mapper.readValue(json, mapper.getTypeFactory().constructType(type.getType())));
+    }
+
+    /// Binds straight from the reader, without materialising it as a String first; decoding is up to the reader. The reader is closed.
+    public static <T> T parse(Reader json, TypeToken<T> type) {
+        return MoreThrowables.getAsUnchecked(() -> mapper.readValue(json, mapper.getTypeFactory().constructType(type.getType())));
+    }
+
     public static ObjectNode object() {
         return mapper.createObjectNode();
     }
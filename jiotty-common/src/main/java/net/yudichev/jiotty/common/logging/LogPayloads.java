@@ -0,0 +1,56 @@
+package net.yudichev.jiotty.common.logging;
+
+import java.nio.charset.Charset;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Log arguments that render a payload cut down to a maximum length. Nothing is converted until the message is actually formatted, so
+/// passing them to a disabled (or asynchronous) logger costs one small allocation.
+public final class LogPayloads {
+    public static final int DEFAULT_MAX_LENGTH = 256;
+
+    private LogPayloads() {
+    }
+
+    public static Object abbreviated(Object payload) {
+        return abbreviated(payload, DEFAULT_MAX_LENGTH);
+    }
+
+    public static Object abbreviated(Object payload, int maxLength) {
+        checkArgument(maxLength >= 0, "maxLength must not be negative: %s", maxLength);
+        return new Object() {
+            @Override
+            public String toString() {
+                return abbreviate(String.valueOf(payload), maxLength);
+            }
+        };
+    }
+
+    public static Object abbreviated(byte[] payload) {
+        return abbreviated(payload, UTF_8, DEFAULT_MAX_LENGTH);
+    }
+
+    /// Only decodes the bytes that can be shown; a multibyte character cut in half at the end shows as a replacement character.
+    public static Object abbreviated(byte[] payload, Charset charset, int maxLength) {
+        checkNotNull(payload);
+        checkNotNull(charset);
+        checkArgument(maxLength >= 0, "maxLength must not be negative: %s", maxLength);
+        return new Object() {
+            @Override
+            public String toString() {
+                // a character takes at least one byte, so maxLength bytes are enough to fill maxLength characters
+                int length = Math.min(payload.length, maxLength);
+                String prefix = new String(payload, 0, length, charset);
+                return length == payload.length
+                       ? prefix
+                       : prefix + "...(" + payload.length + " bytes)";
+            }
+        };
+    }
+
+    private static String abbreviate(String string, int maxLength) {
+        return string.length() <= maxLength ? string : string.substring(0, maxLength) + "...(" + string.length() + " chars)";
+    }
+}
@@ -0,0 +1,70 @@
+package net.yudichev.jiotty.common.logging;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/// Decides whether a message on a hot path gets logged, according to the [SamplingPolicy] currently set for the logger in [LogSampling].
+/// Meant to be checked after the level, so that nothing is counted while the level is off:
+/// ```
+/// private static final LogSampler debugSampler = LogSampling.sampler(logger);
+///
+/// if (logger.isDebugEnabled() && debugSampler.sample()) {
+///     logger.debug("IN {}: {}", topic, LogPayloads.abbreviated(payload));
+/// }
+/// ```
+/// Thread safe; with concurrent callers the sampling is approximate.
+public final class LogSampler {
+    private final String loggerName;
+    private volatile State state;
+
+    LogSampler(String loggerName) {
+        this.loggerName = loggerName;
+        state = new State(LogSampling.version(), LogSampling.resolve(loggerName));
+    }
+
+    public boolean sample() {
+        State currentState = state;
+        int currentVersion = LogSampling.version();
+        if (currentState.version != currentVersion) {
+            currentState = new State(currentVersion, LogSampling.resolve(loggerName));
+            state = currentState;
+        }
+        return currentState.sample();
+    }
+
+    @Override
+    public String toString() {
+        return "LogSampler{" + loggerName + ": " + state.policy + '}';
+    }
+
+    private static final class State {
+        private static final long SECOND_NANOS = SECONDS.toNanos(1);
+
+        private final int version;
+        private final SamplingPolicy policy;
+        private final AtomicLong count = new AtomicLong();
+        private volatile long windowStartNanos = System.nanoTime();
+
+        State(int version, SamplingPolicy policy) {
+            this.version = version;
+            this.policy = policy;
+        }
+
+        boolean sample() {
+            return switch (policy) {
+                case SamplingPolicy.All _ -> true;
+                case SamplingPolicy.EveryNth(int n) -> count.getAndIncrement() % n == 0;
+                case SamplingPolicy.PerSecond(int n) -> {
+                    long now = System.nanoTime();
+                    if (now - windowStartNanos >= SECOND_NANOS) {
+                        // racing threads may both start a new window, letting a few more messages through
+                        windowStartNanos = now;
+                        count.set(0);
+                    }
+                    yield count.getAndIncrement() < n;
+                }
+            };
+        }
+    }
+}
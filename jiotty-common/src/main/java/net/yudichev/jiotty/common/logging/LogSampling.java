@@ -0,0 +1,77 @@
+package net.yudichev.jiotty.common.logging;
+
+import com.google.common.collect.ImmutableSortedMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Process-wide [SamplingPolicy]s by logger name, consulted by [LogSampler]s. A policy set for a logger applies to its descendants too
+/// (`a.b` covers `a.b.C`), unless they have a policy of their own. Loggers without a policy log everything.
+///
+/// Policies can be changed at any time, e.g. via `LoggingLevelConfigurator`; samplers pick up the change on their next use.
+public final class LogSampling {
+    private static final Logger logger = LoggerFactory.getLogger(LogSampling.class);
+
+    private static final Map<String, SamplingPolicy> policiesByLoggerName = new ConcurrentHashMap<>();
+    /// bumped on every change, so that samplers only resolve their policy again when something has changed
+    private static final AtomicInteger version = new AtomicInteger();
+
+    private LogSampling() {
+    }
+
+    public static LogSampler sampler(Logger logger) {
+        return sampler(logger.getName());
+    }
+
+    public static LogSampler sampler(String loggerName) {
+        return new LogSampler(checkNotNull(loggerName));
+    }
+
+    public static void setPolicy(String loggerName, SamplingPolicy policy) {
+        SamplingPolicy oldPolicy = policiesByLoggerName.put(checkNotNull(loggerName), checkNotNull(policy));
+        version.incrementAndGet();
+        logger.info("Set sampling of logger {} {} -> {}", loggerName, oldPolicy, policy);
+    }
+
+    public static void resetPolicy(String loggerName) {
+        SamplingPolicy oldPolicy = policiesByLoggerName.remove(loggerName);
+        if (oldPolicy != null) {
+            version.incrementAndGet();
+            logger.info("Reset sampling of logger {} (was {})", loggerName, oldPolicy);
+        }
+    }
+
+    public static void resetAllPolicies() {
+        policiesByLoggerName.clear();
+        version.incrementAndGet();
+    }
+
+    /// @return the policies explicitly set, by logger name
+    public static Map<String, SamplingPolicy> policies() {
+        return ImmutableSortedMap.copyOf(policiesByLoggerName);
+    }
+
+    static int version() {
+        return version.get();
+    }
+
+    static SamplingPolicy resolve(String loggerName) {
+        String name = loggerName;
+        while (true) {
+            SamplingPolicy policy = policiesByLoggerName.get(name);
+            if (policy != null) {
+                return policy;
+            }
+            int lastDot = name.lastIndexOf('.');
+            if (lastDot < 0) {
+                return policiesByLoggerName.getOrDefault("", SamplingPolicy.ALL);
+            }
+            name = name.substring(0, lastDot);
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package net.yudichev.jiotty.common.logging;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/// How many of the messages guarded by a [LogSampler] get logged. The string form, accepted by [#parse(String)] and produced by
+/// [#toString()], is `all`, `1/N` (every Nth message) or `N/s` (at most N messages per second).
+public sealed interface SamplingPolicy {
+    SamplingPolicy ALL = new All();
+
+    static SamplingPolicy everyNth(int n) {
+        return n == 1 ? ALL : new EveryNth(n);
+    }
+
+    static SamplingPolicy perSecond(int n) {
+        return new PerSecond(n);
+    }
+
+    static SamplingPolicy parse(String spec) {
+        String trimmedSpec = spec.trim();
+        if (trimmedSpec.equalsIgnoreCase("all")) {
+            return ALL;
+        }
+        // parsed rarely, when configuring
+        Matcher matcher = Pattern.compile("1/(\\d+)|(\\d+)/s").matcher(trimmedSpec);
+        checkArgument(matcher.matches(), "Invalid sampling policy '%s', expected 'all', '1/N' or 'N/s'", spec);
+        if (matcher.group(1) != null) {
+            return everyNth(Integer.parseInt(matcher.group(1)));
+        }
+        return perSecond(Integer.parseInt(matcher.group(2)));
+    }
+
+    record All() implements SamplingPolicy {
+        @Override
+        public String toString() {
+            return "all";
+        }
+    }
+
+    record EveryNth(int n) implements SamplingPolicy {
+        public EveryNth {
+            checkArgument(n > 0, "n must be positive: %s", n);
+        }
+
+        @Override
+        public String toString() {
+            return "1/" + n;
+        }
+    }
+
+    record PerSecond(int n) implements SamplingPolicy {
+        public PerSecond {
+            checkArgument(n >= 0, "n must not be negative: %s", n);
+        }
+
+        @Override
+        public String toString() {
+            return n + "/s";
+        }
+    }
+}
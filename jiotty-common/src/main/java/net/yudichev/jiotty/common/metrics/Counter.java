@@ -0,0 +1,9 @@
+package net.yudichev.jiotty.common.metrics;
+
+public interface Counter {
+    default void increment() {
+        add(1);
+    }
+
+    void add(long amount);
+}
@@ -0,0 +1,18 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+
+public interface Histogram {
+    /// Bucket upper bounds for durations in seconds, from 100us to a minute.
+    ImmutableDoubleArray DURATION_SECONDS_BUCKETS =
+            ImmutableDoubleArray.of(0.0001, 0.00025, 0.0005, 0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10, 30, 60);
+    /// Bucket upper bounds for sizes and counts.
+    ImmutableDoubleArray SIZE_BUCKETS = ImmutableDoubleArray.of(1, 2, 5, 10, 20, 50, 100, 200, 500, 1000);
+
+    void record(double value);
+
+    /// Records a duration in seconds.
+    default void recordNanos(long nanos) {
+        record(nanos / 1e9);
+    }
+}
@@ -0,0 +1,136 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import net.yudichev.jiotty.common.lang.BaseIdempotentCloseable;
+import net.yudichev.jiotty.common.lang.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.DoubleSupplier;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Process-wide entry point to the current [MetricsRegistry], which is [MetricsRegistry#NOOP] until [#setRegistry(MetricsRegistry)] is called,
+/// e.g. by [MetricsModule].
+///
+/// Instruments obtained here can be created once and kept (typically in a `static final` or a field of a long-lived object) regardless of
+/// when the registry is set: they move over to the current registry on first use after it changes, and gauges are re-registered with it.
+/// While metrics are [disabled][#enabled()], using an instrument costs a volatile read and a no-op call; code that needs to do extra work
+/// to produce a value (like reading the clock) should check [#enabled()] first.
+public final class Metrics {
+    private static final Logger logger = LoggerFactory.getLogger(Metrics.class);
+
+    private static final Object lock = new Object();
+    /// guarded by lock
+    private static final Set<GaugeRegistration> gauges = new LinkedHashSet<>();
+    private static volatile MetricsRegistry registry = MetricsRegistry.NOOP;
+
+    private Metrics() {
+    }
+
+    public static boolean enabled() {
+        return registry != MetricsRegistry.NOOP;
+    }
+
+    public static MetricsRegistry registry() {
+        return registry;
+    }
+
+    /// Makes `newRegistry` current; [MetricsRegistry#NOOP] disables metrics.
+    public static void setRegistry(MetricsRegistry newRegistry) {
+        checkNotNull(newRegistry);
+        synchronized (lock) {
+            gauges.forEach(GaugeRegistration::unbind);
+            registry = newRegistry;
+            gauges.forEach(GaugeRegistration::bind);
+        }
+        logger.info("Metrics registry set to {}", newRegistry);
+    }
+
+    public static Counter counter(String name) {
+        return counter(name, Map.of());
+    }
+
+    public static Counter counter(String name, Map<String, String> tags) {
+        Map<String, String> tagsCopy = Map.copyOf(tags);
+        var instrument = new LazyInstrument<>(currentRegistry -> currentRegistry.counter(name, tagsCopy));
+        return amount -> instrument.get().add(amount);
+    }
+
+    public static Histogram histogram(String name, ImmutableDoubleArray bucketUpperBounds) {
+        return histogram(name, Map.of(), bucketUpperBounds);
+    }
+
+    public static Histogram histogram(String name, Map<String, String> tags, ImmutableDoubleArray bucketUpperBounds) {
+        Map<String, String> tagsCopy = Map.copyOf(tags);
+        var instrument = new LazyInstrument<>(currentRegistry -> currentRegistry.histogram(name, tagsCopy, bucketUpperBounds));
+        return value -> instrument.get().record(value);
+    }
+
+    /// @return closing it removes the gauge from the current registry and stops it being added to future ones
+    public static Closeable gauge(String name, Map<String, String> tags, DoubleSupplier value) {
+        var registration = new GaugeRegistration(name, Map.copyOf(tags), checkNotNull(value));
+        synchronized (lock) {
+            gauges.add(registration);
+            registration.bind();
+        }
+        return registration;
+    }
+
+    private static final class LazyInstrument<T> {
+        private final Function<MetricsRegistry, T> factory;
+        private volatile Bound<T> bound;
+
+        LazyInstrument(Function<MetricsRegistry, T> factory) {
+            this.factory = checkNotNull(factory);
+        }
+
+        T get() {
+            MetricsRegistry currentRegistry = registry;
+            Bound<T> currentBound = bound;
+            if (currentBound == null || currentBound.registry() != currentRegistry) {
+                // racing threads may both look the instrument up, which returns the same one anyway
+                currentBound = new Bound<>(currentRegistry, factory.apply(currentRegistry));
+                bound = currentBound;
+            }
+            return currentBound.instrument();
+        }
+
+        private record Bound<T>(MetricsRegistry registry, T instrument) {}
+    }
+
+    private static final class GaugeRegistration extends BaseIdempotentCloseable {
+        private final String name;
+        private final Map<String, String> tags;
+        private final DoubleSupplier value;
+        /// guarded by lock
+        private Closeable registryRegistration = Closeable.noop();
+
+        GaugeRegistration(String name, Map<String, String> tags, DoubleSupplier value) {
+            this.name = checkNotNull(name);
+            this.tags = checkNotNull(tags);
+            this.value = checkNotNull(value);
+        }
+
+        void bind() {
+            registryRegistration = registry.gauge(name, tags, value);
+        }
+
+        void unbind() {
+            registryRegistration.close();
+            registryRegistration = Closeable.noop();
+        }
+
+        @Override
+        protected void doClose() {
+            synchronized (lock) {
+                gauges.remove(this);
+                unbind();
+            }
+        }
+    }
+}
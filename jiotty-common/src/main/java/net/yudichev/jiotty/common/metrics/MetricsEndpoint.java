@@ -0,0 +1,63 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.inject.BindingAnnotation;
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.rest.RestServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.annotation.Retention;
+import java.lang.annotation.Target;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.lang.Closeable.closeIfNotNull;
+import static java.lang.annotation.ElementType.FIELD;
+import static java.lang.annotation.ElementType.METHOD;
+import static java.lang.annotation.ElementType.PARAMETER;
+import static java.lang.annotation.RetentionPolicy.RUNTIME;
+
+final class MetricsEndpoint extends BaseLifecycleComponent {
+    private static final Logger logger = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+    private final RestServer restServer;
+    private final String path;
+    private Closeable route;
+
+    @Inject
+    MetricsEndpoint(@Dependency RestServer restServer, @Path String path) {
+        this.restServer = checkNotNull(restServer);
+        this.path = checkNotNull(path);
+    }
+
+    @Override
+    protected void doStart() {
+        var registry = new PrometheusMetricsRegistry();
+        Metrics.setRegistry(registry);
+        route = restServer.get(path, context -> {
+            context.res().setContentType(PrometheusMetricsRegistry.CONTENT_TYPE);
+            context.result(registry.scrape());
+        });
+        logger.info("Serving metrics on {}", path);
+    }
+
+    @Override
+    protected void doStop() {
+        closeIfNotNull(route);
+        route = null;
+        Metrics.setRegistry(MetricsRegistry.NOOP);
+    }
+
+    @Retention(RUNTIME)
+    @Target({FIELD, PARAMETER, METHOD})
+    @BindingAnnotation
+    @interface Dependency {
+    }
+
+    @Retention(RUNTIME)
+    @Target({FIELD, PARAMETER, METHOD})
+    @BindingAnnotation
+    @interface Path {
+    }
+}
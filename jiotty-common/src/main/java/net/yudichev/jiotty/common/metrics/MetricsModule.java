@@ -0,0 +1,57 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.inject.Module;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponentModule;
+import net.yudichev.jiotty.common.inject.BindingSpec;
+import net.yudichev.jiotty.common.lang.TypedBuilder;
+import net.yudichev.jiotty.common.rest.RestServer;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.inject.BindingSpec.boundTo;
+import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
+
+/// Enables [Metrics] with a [PrometheusMetricsRegistry] for as long as the application runs and serves it for scraping on the [RestServer].
+public final class MetricsModule extends BaseLifecycleComponentModule {
+    private final BindingSpec<RestServer> restServerSpec;
+    private final BindingSpec<String> pathSpec;
+
+    private MetricsModule(BindingSpec<RestServer> restServerSpec, BindingSpec<String> pathSpec) {
+        this.restServerSpec = checkNotNull(restServerSpec);
+        this.pathSpec = checkNotNull(pathSpec);
+    }
+
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    @Override
+    protected void configure() {
+        restServerSpec.bind(RestServer.class)
+                      .annotatedWith(MetricsEndpoint.Dependency.class)
+                      .installedBy(this::installLifecycleComponentModule);
+        pathSpec.bind(String.class)
+                .annotatedWith(MetricsEndpoint.Path.class)
+                .installedBy(this::installLifecycleComponentModule);
+        registerLifecycleComponent(MetricsEndpoint.class);
+    }
+
+    public static final class Builder implements TypedBuilder<Module> {
+        private BindingSpec<RestServer> restServerSpec = boundTo(RestServer.class);
+        private BindingSpec<String> pathSpec = literally("/metrics");
+
+        public Builder withRestServer(BindingSpec<RestServer> restServerSpec) {
+            this.restServerSpec = checkNotNull(restServerSpec);
+            return this;
+        }
+
+        public Builder withPath(BindingSpec<String> pathSpec) {
+            this.pathSpec = checkNotNull(pathSpec);
+            return this;
+        }
+
+        @Override
+        public Module build() {
+            return new MetricsModule(restServerSpec, pathSpec);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+/// Where instruments live. Instruments are identified by name and tags: asking for the same ones again returns the same instrument.
+///
+/// Code being instrumented goes through [Metrics] rather than using a registry directly.
+public interface MetricsRegistry {
+    /// Discards everything.
+    MetricsRegistry NOOP = new NoopMetricsRegistry();
+
+    Counter counter(String name, Map<String, String> tags);
+
+    /// @param bucketUpperBounds ascending; ignored if the histogram already exists
+    Histogram histogram(String name, Map<String, String> tags, ImmutableDoubleArray bucketUpperBounds);
+
+    /// @param value polled whenever the gauge is read, on an arbitrary thread
+    /// @return closing it removes the gauge
+    Closeable gauge(String name, Map<String, String> tags, DoubleSupplier value);
+}
@@ -0,0 +1,32 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.util.Map;
+import java.util.function.DoubleSupplier;
+
+final class NoopMetricsRegistry implements MetricsRegistry {
+    private static final Counter COUNTER = _ -> {};
+    private static final Histogram HISTOGRAM = _ -> {};
+
+    @Override
+    public Counter counter(String name, Map<String, String> tags) {
+        return COUNTER;
+    }
+
+    @Override
+    public Histogram histogram(String name, Map<String, String> tags, ImmutableDoubleArray bucketUpperBounds) {
+        return HISTOGRAM;
+    }
+
+    @Override
+    public Closeable gauge(String name, Map<String, String> tags, DoubleSupplier value) {
+        return Closeable.noop();
+    }
+
+    @Override
+    public String toString() {
+        return "NOOP";
+    }
+}
@@ -0,0 +1,278 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.primitives.ImmutableDoubleArray;
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// In-memory [MetricsRegistry] rendering its instruments in the Prometheus text exposition format.
+///
+/// Recording is lock-free; [#scrape()] reads the instruments without stopping writers, so a histogram's buckets, sum and count may be off by
+/// the few values recorded while it was being read.
+@SuppressWarnings("HardcodedLineSeparator")
+public final class PrometheusMetricsRegistry implements MetricsRegistry {
+    public static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+    private static final Pattern NAME_PATTERN = Pattern.compile("[a-zA-Z_:][a-zA-Z0-9_:]*");
+    private static final Pattern TAG_KEY_PATTERN = Pattern.compile("[a-zA-Z_][a-zA-Z0-9_]*");
+
+    /// sorted so that all series of one metric are rendered together, under one TYPE line
+    private final ConcurrentSkipListMap<Id, Instrument> instrumentsById = new ConcurrentSkipListMap<>();
+    private final ConcurrentMap<String, String> typesByName = new ConcurrentHashMap<>();
+
+    @Override
+    public Counter counter(String name, Map<String, String> tags) {
+        return get(name, tags, PrometheusCounter.class, "counter", PrometheusCounter::new);
+    }
+
+    @Override
+    public Histogram histogram(String name, Map<String, String> tags, ImmutableDoubleArray bucketUpperBounds) {
+        return get(name, tags, PrometheusHistogram.class, "histogram", () -> new PrometheusHistogram(bucketUpperBounds));
+    }
+
+    @Override
+    public Closeable gauge(String name, Map<String, String> tags, DoubleSupplier value) {
+        checkNotNull(value);
+        PrometheusGauge gauge = get(name, tags, PrometheusGauge.class, "gauge", PrometheusGauge::new);
+        // several sources of the same gauge are summed up, e.g. executors that happen to have the same name
+        DoubleSupplier source = value::getAsDouble;
+        gauge.sources.add(source);
+        return () -> gauge.sources.remove(source);
+    }
+
+    public String scrape() {
+        var sb = new StringBuilder(4096);
+        String lastName = null;
+        for (Map.Entry<Id, Instrument> entry : instrumentsById.entrySet()) {
+            Id id = entry.getKey();
+            Instrument instrument = entry.getValue();
+            if (!instrument.hasSeries()) {
+                continue;
+            }
+            if (!id.name().equals(lastName)) {
+                sb.append("# TYPE ").append(id.name()).append(' ').append(instrument.type()).append('\n');
+                lastName = id.name();
+            }
+            instrument.render(id, sb);
+        }
+        return sb.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "PrometheusMetricsRegistry{" + instrumentsById.size() + " series}";
+    }
+
+    private <T extends Instrument> T get(String name, Map<String, String> tags, Class<T> type, String typeName, Supplier<T> factory) {
+        Id id = id(name, tags);
+        Instrument instrument = instrumentsById.get(id);
+        if (instrument == null) {
+            checkType(name, typeName);
+            instrument = instrumentsById.computeIfAbsent(id, _ -> factory.get());
+        }
+        checkArgument(type.isInstance(instrument), "%s is a %s, not a %s", id, instrument.type(), typeName);
+        return type.cast(instrument);
+    }
+
+    /// all series of a metric must be of the same type
+    private void checkType(String name, String typeName) {
+        String existingTypeName = typesByName.putIfAbsent(name, typeName);
+        checkArgument(existingTypeName == null || existingTypeName.equals(typeName), "Metric %s is a %s, not a %s", name, existingTypeName, typeName);
+    }
+
+    private static Id id(String name, Map<String, String> tags) {
+        checkArgument(NAME_PATTERN.matcher(name).matches(), "Invalid metric name: %s", name);
+        tags.keySet().forEach(key -> checkArgument(TAG_KEY_PATTERN.matcher(key).matches(), "Invalid tag name: %s", key));
+        return new Id(name, ImmutableSortedMap.copyOf(tags));
+    }
+
+    private static void appendSeries(StringBuilder sb, String name, Map<String, String> tags, @Nullable String extraTagKey, @Nullable String extraTagValue) {
+        sb.append(name);
+        if (!tags.isEmpty() || extraTagKey != null) {
+            sb.append('{');
+            boolean first = true;
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                first = appendTag(sb, first, tag.getKey(), tag.getValue());
+            }
+            if (extraTagKey != null) {
+                appendTag(sb, first, extraTagKey, extraTagValue);
+            }
+            sb.append('}');
+        }
+        sb.append(' ');
+    }
+
+    private static boolean appendTag(StringBuilder sb, boolean first, String key, String value) {
+        if (!first) {
+            sb.append(',');
+        }
+        sb.append(key).append("=\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '\\' -> sb.append("\\\\");
+                case '"' -> sb.append("\\\"");
+                case '\n' -> sb.append("\\n");
+                default -> sb.append(c);
+            }
+        }
+        sb.append('"');
+        return false;
+    }
+
+    private static void appendValue(StringBuilder sb, double value) {
+        if (value == Math.rint(value) && Math.abs(value) < 1e15) {
+            sb.append((long) value);
+        } else if (Double.isNaN(value)) {
+            sb.append("NaN");
+        } else if (Double.isInfinite(value)) {
+            sb.append(value > 0 ? "+Inf" : "-Inf");
+        } else {
+            sb.append(value);
+        }
+        sb.append('\n');
+    }
+
+    private record Id(String name, ImmutableSortedMap<String, String> tags) implements Comparable<Id> {
+        @Override
+        public int compareTo(Id other) {
+            int result = name.compareTo(other.name);
+            if (result != 0) {
+                return result;
+            }
+            var otherTags = other.tags.entrySet().iterator();
+            for (Map.Entry<String, String> tag : tags.entrySet()) {
+                if (!otherTags.hasNext()) {
+                    return 1;
+                }
+                Map.Entry<String, String> otherTag = otherTags.next();
+                result = tag.getKey().compareTo(otherTag.getKey());
+                if (result == 0) {
+                    result = tag.getValue().compareTo(otherTag.getValue());
+                }
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return otherTags.hasNext() ? -1 : 0;
+        }
+    }
+
+    private sealed interface Instrument permits PrometheusCounter, PrometheusGauge, PrometheusHistogram {
+        String type();
+
+        default boolean hasSeries() {
+            return true;
+        }
+
+        void render(Id id, StringBuilder sb);
+    }
+
+    private static final class PrometheusCounter implements Instrument, Counter {
+        private final LongAdder value = new LongAdder();
+
+        @Override
+        public void add(long amount) {
+            value.add(amount);
+        }
+
+        @Override
+        public String type() {
+            return "counter";
+        }
+
+        @Override
+        public void render(Id id, StringBuilder sb) {
+            appendSeries(sb, id.name(), id.tags(), null, null);
+            appendValue(sb, value.sum());
+        }
+    }
+
+    private static final class PrometheusGauge implements Instrument {
+        private final List<DoubleSupplier> sources = new CopyOnWriteArrayList<>();
+
+        @Override
+        public String type() {
+            return "gauge";
+        }
+
+        /// all sources may have been closed
+        @Override
+        public boolean hasSeries() {
+            return !sources.isEmpty();
+        }
+
+        @Override
+        public void render(Id id, StringBuilder sb) {
+            double value = 0;
+            for (DoubleSupplier source : sources) {
+                try {
+                    value += source.getAsDouble();
+                } catch (RuntimeException e) {
+                    value = Double.NaN;
+                }
+            }
+            appendSeries(sb, id.name(), id.tags(), null, null);
+            appendValue(sb, value);
+        }
+    }
+
+    private static final class PrometheusHistogram implements Instrument, Histogram {
+        private final double[] upperBounds;
+        /// per bucket, not cumulative; the last one is +Inf
+        private final LongAdder[] counts;
+        private final DoubleAdder sum = new DoubleAdder();
+
+        PrometheusHistogram(ImmutableDoubleArray upperBounds) {
+            this.upperBounds = upperBounds.toArray();
+            for (int i = 1; i < this.upperBounds.length; i++) {
+                checkArgument(this.upperBounds[i] > this.upperBounds[i - 1], "Bucket bounds must be ascending: %s", upperBounds);
+            }
+            counts = new LongAdder[this.upperBounds.length + 1];
+            Arrays.setAll(counts, _ -> new LongAdder());
+        }
+
+        @Override
+        public void record(double value) {
+            int index = Arrays.binarySearch(upperBounds, value);
+            // an exact match belongs to its bucket (le), otherwise the first bucket above
+            counts[index >= 0 ? index : -index - 1].increment();
+            sum.add(value);
+        }
+
+        @Override
+        public String type() {
+            return "histogram";
+        }
+
+        @Override
+        public void render(Id id, StringBuilder sb) {
+            long cumulativeCount = 0;
+            String bucketName = id.name() + "_bucket";
+            for (int i = 0; i < counts.length; i++) {
+                cumulativeCount += counts[i].sum();
+                appendSeries(sb, bucketName, id.tags(), "le", i < upperBounds.length ? Double.toString(upperBounds[i]) : "+Inf");
+                appendValue(sb, cumulativeCount);
+            }
+            appendSeries(sb, id.name() + "_sum", id.tags(), null, null);
+            appendValue(sb, sum.sum());
+            appendSeries(sb, id.name() + "_count", id.tags(), null, null);
+            appendValue(sb, cumulativeCount);
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package net.yudichev.jiotty.common.rest;
+
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// How [HttpResponseCache] treats the responses to one type of request.
+///
+/// @param name                 identifies the type of request in cache keys, logs and stats
+/// @param maxAge               how long a response is served without asking the server
+/// @param staleWhileRevalidate how long after `maxAge` a response is still served straight away, while being revalidated in the background
+/// @param staleIfError         how long after `maxAge` a response is served if getting a fresh one fails
+/// @param memoryOnly           whether responses are never written to disk, for those holding personal data or secrets
+public record HttpCachePolicy(String name, Duration maxAge, Duration staleWhileRevalidate, Duration staleIfError, boolean memoryOnly) {
+    public HttpCachePolicy {
+        checkNotNull(name);
+        checkArgument(!maxAge.isNegative(), "maxAge must not be negative: %s", maxAge);
+        checkArgument(!staleWhileRevalidate.isNegative(), "staleWhileRevalidate must not be negative: %s", staleWhileRevalidate);
+        checkArgument(!staleIfError.isNegative(), "staleIfError must not be negative: %s", staleIfError);
+    }
+
+    public static HttpCachePolicy of(String name, Duration maxAge) {
+        return new HttpCachePolicy(name, maxAge, Duration.ZERO, Duration.ZERO, false);
+    }
+
+    public HttpCachePolicy withStaleWhileRevalidate(Duration staleWhileRevalidate) {
+        return new HttpCachePolicy(name, maxAge, staleWhileRevalidate, staleIfError, memoryOnly);
+    }
+
+    public HttpCachePolicy withStaleIfError(Duration staleIfError) {
+        return new HttpCachePolicy(name, maxAge, staleWhileRevalidate, staleIfError, memoryOnly);
+    }
+
+    public HttpCachePolicy withMemoryOnly() {
+        return new HttpCachePolicy(name, maxAge, staleWhileRevalidate, staleIfError, true);
+    }
+}
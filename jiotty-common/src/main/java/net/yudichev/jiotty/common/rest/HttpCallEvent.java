@@ -0,0 +1,28 @@
+package net.yudichev.jiotty.common.rest;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/// JFR event covering one attempt of a [RestClients] call, from sending the request to receiving the response headers or a failure.
+@Name("net.yudichev.jiotty.HttpCall")
+@Label("HTTP Call")
+@Category({"Jiotty", "HTTP"})
+@Description("One attempt of an outgoing HTTP call")
+@StackTrace(false)
+final class HttpCallEvent extends jdk.jfr.Event {
+    @Label("Method")
+    String method;
+
+    @Label("Host")
+    String host;
+
+    @Label("Status")
+    @Description("Response code, or 'error' if no response was received")
+    String status;
+
+    @Label("Retries Left")
+    int retriesLeft;
+}
@@ -0,0 +1,454 @@
+package net.yudichev.jiotty.common.rest;
+
+import com.google.common.hash.Hashing;
+import com.google.common.reflect.TypeToken;
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import okhttp3.Cache;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.ResponseBody;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.util.Objects.requireNonNull;
+import static net.yudichev.jiotty.common.lang.HumanReadableExceptionMessage.humanReadableMessage;
+
+/// Application-level cache of JSON responses to `GET` requests for data that changes slowly, kept on disk so that it survives restarts.
+/// Connectors opt in per type of request by calling [#call(OkHttpClient, Request, TypeToken, HttpCachePolicy)] with an [HttpCachePolicy]
+/// instead of [RestClients#call(Call, TypeToken)]:
+/// - a fresh response is served without a request;
+/// - a stale one is revalidated with `If-None-Match` / `If-Modified-Since` when the server gave an `ETag` / `Last-Modified`, so that an
+/// unchanged response costs a `304`, and within [HttpCachePolicy#staleWhileRevalidate()] it is served straight away while that happens;
+/// - within [HttpCachePolicy#staleIfError()] it is served if the server cannot be reached;
+/// - concurrent requests for the same response share one fetch.
+///
+/// Responses are keyed by the policy's name, the URL and the `Authorization` header, so requests made with different credentials never
+/// share a response; only a hash of the key is kept, so the credentials are not written to disk. Responses that hold personal data or
+/// secrets should use a [memory only][HttpCachePolicy#withMemoryOnly()] policy.
+///
+/// Fetches are sent by [RestClients], so they are retried, timed and logged the same way as uncached calls.
+///
+/// The least recently used responses beyond the maximum entry count are evicted. APIs that send proper HTTP caching headers can instead
+/// use a client created by [RestClients#newCachingClient(java.util.function.Consumer)], which uses the OkHttp [Cache] in the same directory.
+///
+/// The [shared][#shared()] cache lives in the directory given by the `jiotty.http.cache.dir` system property, `~/.jiotty/http-cache` by
+/// default; if the property is empty, it is kept in memory only.
+public final class HttpResponseCache {
+    public static final String DIRECTORY_PROPERTY = "jiotty.http.cache.dir";
+    private static final Logger logger = LoggerFactory.getLogger(HttpResponseCache.class);
+    private static final LogSampler responseLogSampler = LogSampling.sampler(logger);
+    private static final int FORMAT_VERSION = 1;
+    private static final int DEFAULT_MAX_ENTRIES = 1024;
+    private static final long OK_HTTP_CACHE_MAX_BYTES = 32L * 1024 * 1024;
+    /// files not used for this long are deleted when the cache is created
+    private static final Duration MAX_UNUSED_FILE_AGE = Duration.ofDays(30);
+    private static final int DEFAULT_RETRY_COUNT = 3;
+    private static final String FILE_SUFFIX = ".entry";
+
+    @Nullable
+    private static volatile HttpResponseCache shared;
+
+    @Nullable
+    private final Path directory;
+    private final int maxEntries;
+    private final LongSupplier currentTimeMillis;
+    /// access ordered for LRU eviction; guarded by itself
+    private final LinkedHashMap<String, Entry> entriesByKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, CompletableFuture<Entry>> fetchesByKey = new ConcurrentHashMap<>();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder staleHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder notModified = new LongAdder();
+    private final LongAdder staleOnError = new LongAdder();
+    @Nullable
+    private volatile Cache okHttpCache;
+
+    /// @param directory where the responses are kept, or `null` to keep them in memory only
+    HttpResponseCache(@Nullable Path directory, int maxEntries, LongSupplier currentTimeMillis) {
+        checkArgument(maxEntries > 0, "maxEntries must be positive: %s", maxEntries);
+        this.directory = directory;
+        this.maxEntries = maxEntries;
+        this.currentTimeMillis = checkNotNull(currentTimeMillis);
+        if (directory != null) {
+            deleteUnusedFiles(directory);
+        }
+    }
+
+    public static HttpResponseCache shared() {
+        HttpResponseCache cache = shared;
+        if (cache == null) {
+            synchronized (HttpResponseCache.class) {
+                cache = shared;
+                if (cache == null) {
+                    String directory = System.getProperty(DIRECTORY_PROPERTY, Path.of(System.getProperty("user.home"), ".jiotty", "http-cache").toString());
+                    cache = new HttpResponseCache(directory.isEmpty() ? null : Path.of(directory), DEFAULT_MAX_ENTRIES, System::currentTimeMillis);
+                    logger.info("Created shared {}", cache);
+                    shared = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public <T> CompletableFuture<T> call(OkHttpClient client, Request request, Class<? extends T> responseType, HttpCachePolicy policy) {
+        return call(client, request, TypeToken.of(responseType), policy);
+    }
+
+    public <T> CompletableFuture<T> call(OkHttpClient client, Request request, TypeToken<? extends T> responseType, HttpCachePolicy policy) {
+        checkArgument("GET".equals(request.method()), "Only GET requests can be cached, but got %s", request);
+        return get(policy, request.url().toString(), request.header("Authorization"), responseType, (etag, lastModified) -> {
+            Request.Builder builder = request.newBuilder();
+            if (etag != null) {
+                builder.header("If-None-Match", etag);
+            }
+            if (lastModified != null) {
+                builder.header("If-Modified-Since", lastModified);
+            }
+            return RestClients.call(client.newCall(builder.build()), DEFAULT_RETRY_COUNT, HttpResponseCache::toFetched);
+        });
+    }
+
+    /// The OkHttp cache in this cache's directory, for clients that should cache as allowed by HTTP caching headers; `null` if this cache is
+    /// kept in memory only.
+    @Nullable
+    public Cache okHttpCache() {
+        if (directory == null) {
+            return null;
+        }
+        Cache cache = okHttpCache;
+        if (cache == null) {
+            synchronized (this) {
+                cache = okHttpCache;
+                if (cache == null) {
+                    cache = new Cache(directory.resolve("okhttp").toFile(), OK_HTTP_CACHE_MAX_BYTES);
+                    okHttpCache = cache;
+                }
+            }
+        }
+        return cache;
+    }
+
+    public Stats stats() {
+        return new Stats(hits.sum(), staleHits.sum(), misses.sum(), notModified.sum(), staleOnError.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "HttpResponseCache{" + (directory == null ? "memory" : directory) + '}';
+    }
+
+    static boolean isSharedOkHttpCache(@Nullable Cache cache) {
+        HttpResponseCache sharedCache = shared;
+        return cache != null && sharedCache != null && cache == sharedCache.okHttpCache;
+    }
+
+    /// @param credentials what the request is authorised with, if anything
+    <T> CompletableFuture<T> get(HttpCachePolicy policy,
+                                 String url,
+                                 @Nullable String credentials,
+                                 TypeToken<? extends T> responseType,
+                                 Fetcher fetcher) {
+        String key = Hashing.sha256().hashString(policy.name() + ' ' + url + ' ' + (credentials == null ? "" : credentials), UTF_8).toString();
+        long now = currentTimeMillis.getAsLong();
+        Entry entry = lookUp(policy, key);
+        if (entry != null) {
+            long staleMillis = now - entry.fetchedAtMillis - policy.maxAge().toMillis();
+            boolean fresh = staleMillis <= 0;
+            if (fresh || staleMillis <= policy.staleWhileRevalidate().toMillis()) {
+                T value;
+                try {
+                    value = entry.parse(responseType);
+                } catch (RuntimeException e) {
+                    logger.warn("[{}] Dropping cached response to {} that cannot be parsed: {}", policy.name(), url, humanReadableMessage(e));
+                    remove(key);
+                    return get(policy, url, credentials, responseType, fetcher);
+                }
+                if (fresh) {
+                    record(policy, "hit", hits);
+                } else {
+                    record(policy, "stale", staleHits);
+                    fetch(policy, key, entry, fetcher).whenComplete((_, e) -> {
+                        if (e != null) {
+                            logger.info("[{}] Failed revalidating cached response to {}: {}", policy.name(), url, humanReadableMessage(e));
+                        }
+                    });
+                }
+                return CompletableFuture.completedFuture(value);
+            }
+        }
+        record(policy, "miss", misses);
+        return fetch(policy, key, entry, fetcher).handle((freshEntry, e) -> {
+            if (e == null) {
+                return freshEntry.parse(responseType);
+            }
+            if (entry != null && now - entry.fetchedAtMillis - policy.maxAge().toMillis() <= policy.staleIfError().toMillis()) {
+                record(policy, "stale_on_error", staleOnError);
+                logger.info("[{}] Serving stale response to {} as fetching failed: {}", policy.name(), url, humanReadableMessage(e));
+                return entry.parse(responseType);
+            }
+            throw new RuntimeException("Failed fetching " + url, e);
+        });
+    }
+
+    private CompletableFuture<Entry> fetch(HttpCachePolicy policy, String key, @Nullable Entry entry, Fetcher fetcher) {
+        var entryFuture = new CompletableFuture<Entry>();
+        CompletableFuture<Entry> existingFetch = fetchesByKey.putIfAbsent(key, entryFuture);
+        if (existingFetch != null) {
+            return existingFetch;
+        }
+        CompletableFuture<Fetched> fetchedFuture;
+        try {
+            fetchedFuture = fetcher.fetch(entry == null ? null : entry.etag, entry == null ? null : entry.lastModified);
+        } catch (RuntimeException e) {
+            fetchedFuture = CompletableFuture.failedFuture(e);
+        }
+        fetchedFuture.whenComplete((fetched, e) -> {
+            fetchesByKey.remove(key, entryFuture);
+            if (e != null) {
+                entryFuture.completeExceptionally(e);
+                return;
+            }
+            try {
+                Entry newEntry;
+                if (fetched.body() == null) {
+                    checkState(entry != null, "Not modified, but nothing was cached");
+                    record(policy, "not_modified", notModified);
+                    newEntry = new Entry(currentTimeMillis.getAsLong(), entry.etag, entry.lastModified, entry.body);
+                } else {
+                    newEntry = new Entry(currentTimeMillis.getAsLong(), fetched.etag(), fetched.lastModified(), fetched.body());
+                }
+                store(policy, key, newEntry);
+                entryFuture.complete(newEntry);
+            } catch (RuntimeException ex) {
+                entryFuture.completeExceptionally(ex);
+            }
+        });
+        return entryFuture;
+    }
+
+    @Nullable
+    private Entry lookUp(HttpCachePolicy policy, String key) {
+        synchronized (entriesByKey) {
+            Entry entry = entriesByKey.get(key);
+            if (entry != null || directory == null || policy.memoryOnly()) {
+                return entry;
+            }
+        }
+        Entry entry = read(key);
+        if (entry != null) {
+            synchronized (entriesByKey) {
+                // could have been fetched meanwhile
+                Entry existingEntry = entriesByKey.putIfAbsent(key, entry);
+                if (existingEntry != null) {
+                    return existingEntry;
+                }
+                evictIfNeeded();
+            }
+        }
+        return entry;
+    }
+
+    private void store(HttpCachePolicy policy, String key, Entry entry) {
+        synchronized (entriesByKey) {
+            entriesByKey.put(key, entry);
+            evictIfNeeded();
+        }
+        if (!policy.memoryOnly()) {
+            write(key, entry);
+        }
+    }
+
+    private void remove(String key) {
+        synchronized (entriesByKey) {
+            entriesByKey.remove(key);
+        }
+        delete(key);
+    }
+
+    /// guarded by entriesByKey
+    private void evictIfNeeded() {
+        while (entriesByKey.size() > maxEntries) {
+            var eldest = entriesByKey.entrySet().iterator();
+            String key = eldest.next().getKey();
+            eldest.remove();
+            delete(key);
+        }
+    }
+
+    @Nullable
+    private Entry read(String key) {
+        Path file = file(key);
+        if (file == null || !Files.exists(file)) {
+            return null;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int version = in.readInt();
+            if (version != FORMAT_VERSION) {
+                delete(key);
+                return null;
+            }
+            long fetchedAtMillis = in.readLong();
+            String etag = in.readBoolean() ? in.readUTF() : null;
+            String lastModified = in.readBoolean() ? in.readUTF() : null;
+            byte[] body = in.readNBytes(in.readInt());
+            // the file's modification time tells when it was last used
+            Files.setLastModifiedTime(file, FileTime.fromMillis(currentTimeMillis.getAsLong()));
+            return new Entry(fetchedAtMillis, etag, lastModified, body);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Failed reading cached response from {}: {}", file, humanReadableMessage(e));
+            delete(key);
+            return null;
+        }
+    }
+
+    private void write(String key, Entry entry) {
+        Path file = file(key);
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), key, ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeLong(entry.fetchedAtMillis);
+                writeNullable(out, entry.etag);
+                writeNullable(out, entry.lastModified);
+                out.writeInt(entry.body.length);
+                out.write(entry.body);
+            }
+            Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            // the cache is best effort
+            logger.warn("Failed writing cached response to {}: {}", file, humanReadableMessage(e));
+        }
+    }
+
+    private void delete(String key) {
+        Path file = file(key);
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("Failed deleting cached response {}: {}", file, humanReadableMessage(e));
+            }
+        }
+    }
+
+    @Nullable
+    private Path file(String key) {
+        return directory == null ? null : directory.resolve(key + FILE_SUFFIX);
+    }
+
+    private void deleteUnusedFiles(Path directory) {
+        if (!Files.isDirectory(directory)) {
+            return;
+        }
+        long oldestUseMillis = currentTimeMillis.getAsLong() - MAX_UNUSED_FILE_AGE.toMillis();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*{" + FILE_SUFFIX + ",.tmp}")) {
+            for (Path file : files) {
+                if (Files.getLastModifiedTime(file).toMillis() < oldestUseMillis || file.toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed cleaning up {}: {}", directory, humanReadableMessage(e));
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, @Nullable String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void record(HttpCachePolicy policy, String result, LongAdder counter) {
+        counter.increment();
+        if (Metrics.enabled()) {
+            Metrics.registry().counter("jiotty_http_cache_lookups_total", Map.of("cache", policy.name(), "result", result)).increment();
+        }
+    }
+
+    private static Fetched toFetched(int requestId, Response response) throws IOException {
+        if (response.code() == 304) {
+            return new Fetched(null, null, null);
+        }
+        ResponseBody responseBody = requireNonNull(response.body());
+        if (!response.isSuccessful()) {
+            throw new RuntimeException("Response code " + response.code() + ", body: " + RestClients.safelyReadPrefix(responseBody));
+        }
+        byte[] body = responseBody.bytes();
+        if (logger.isDebugEnabled() && responseLogSampler.sample()) {
+            logger.debug("[{}] Response code {}, {} bytes", requestId, response.code(), body.length);
+        }
+        return new Fetched(response.header("ETag"), response.header("Last-Modified"), body);
+    }
+
+    /// Fetches a response, conditionally if any of the validators are given.
+    interface Fetcher {
+        CompletableFuture<Fetched> fetch(@Nullable String etag, @Nullable String lastModified);
+    }
+
+    /// @param body `null` if not modified
+    record Fetched(@Nullable String etag, @Nullable String lastModified, @Nullable byte[] body) {}
+
+    public record Stats(long hits, long staleHits, long misses, long notModified, long staleOnError) {}
+
+    private static final class Entry {
+        private final long fetchedAtMillis;
+        @Nullable
+        private final String etag;
+        @Nullable
+        private final String lastModified;
+        private final byte[] body;
+        Entry(long fetchedAtMillis, @Nullable String etag, @Nullable String lastModified, byte[] body) {
+            this.fetchedAtMillis = fetchedAtMillis;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.body = checkNotNull(body);
+        }
+
+        /// Parsed for each caller, as the parsed values are not necessarily immutable.
+        <T> T parse(TypeToken<? extends T> type) {
+            InputStream in = new ByteArrayInputStream(body);
+            return Json.parse(in, type);
+        }
+
+        @Override
+        public String toString() {
+            return "Entry{fetchedAt=" + Instant.ofEpochMilli(fetchedAtMillis) + ", etag=" + etag + ", lastModified=" + lastModified + ", " + body.length + " bytes}";
+        }
+    }
+}
@@ -2,16 +2,28 @@ package net.yudichev.jiotty.common.rest;
 
 import io.javalin.Javalin;
 import io.javalin.http.Handler;
+import io.javalin.http.NotFoundResponse;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.lang.Closeable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.google.common.base.Preconditions.checkState;
+
 final class JavalinRestServer extends BaseLifecycleComponent implements RestServer {
     private static final Logger logger = LoggerFactory.getLogger(JavalinRestServer.class);
+    /// Javalin cannot remove routes, so each GET path is routed once and dispatched to whichever handler serves it at the time
+    private final Map<String, Handler> getHandlersByPath = new ConcurrentHashMap<>();
+    private final Set<String> routedGetPaths = ConcurrentHashMap.newKeySet();
     private volatile Javalin javalin;
 
     @Override
     public void doStart() {
+        routedGetPaths.clear();
         javalin = Javalin.create().start(4567);
         logger.info("REST service started on port 4567: {}", javalin);
     }
@@ -23,9 +35,19 @@ final class JavalinRestServer extends BaseLifecycleComponent implements RestServ
     }
 
     @Override
-    public void get(String path, Handler handler) {
+    public Closeable get(String path, Handler handler) {
         checkStarted();
-        javalin.get(path, handler);
+        checkState(getHandlersByPath.putIfAbsent(path, handler) == null, "GET %s is already served", path);
+        if (routedGetPaths.add(path)) {
+            javalin.get(path, context -> {
+                Handler currentHandler = getHandlersByPath.get(path);
+                if (currentHandler == null) {
+                    throw new NotFoundResponse();
+                }
+                currentHandler.handle(context);
+            });
+        }
+        return Closeable.idempotent(() -> getHandlersByPath.remove(path, handler));
     }
 
     @Override
@@ -0,0 +1,73 @@
+package net.yudichev.jiotty.common.rest;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/// Passes the stream through, keeping a copy of up to `limit` first bytes read, so that a streamed body can still be logged or reported
+/// (in bounded form) after it has been consumed.
+final class PrefixRecordingInputStream extends FilterInputStream {
+    private final byte[] prefix;
+    private int prefixLength;
+    private long bytesRead;
+
+    PrefixRecordingInputStream(InputStream in, int limit) {
+        super(in);
+        checkArgument(limit > 0, "limit must be positive: %s", limit);
+        prefix = new byte[limit];
+    }
+
+    @Override
+    public int read() throws IOException {
+        int b = super.read();
+        if (b >= 0) {
+            if (prefixLength < prefix.length) {
+                prefix[prefixLength++] = (byte) b;
+            }
+            bytesRead++;
+        }
+        return b;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        int count = super.read(b, off, len);
+        if (count > 0) {
+            int toRecord = Math.min(count, prefix.length - prefixLength);
+            if (toRecord > 0) {
+                System.arraycopy(b, off, prefix, prefixLength, toRecord);
+                prefixLength += toRecord;
+            }
+            bytesRead += count;
+        }
+        return count;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        byte[] buffer = new byte[(int) Math.min(n, 8192)];
+        long skipped = 0;
+        while (skipped < n) {
+            int count = read(buffer, 0, (int) Math.min(buffer.length, n - skipped));
+            if (count < 0) {
+                break;
+            }
+            skipped += count;
+        }
+        return skipped;
+    }
+
+    @Override
+    public boolean markSupported() {
+        return false;
+    }
+
+    /// @return the recorded prefix, with a note of the total number of bytes read if they didn't all fit into the prefix
+    String describe(Charset charset) {
+        String prefixString = new String(prefix, 0, prefixLength, charset);
+        return bytesRead > prefixLength ? prefixString + "...<" + bytesRead + " bytes read>" : prefixString;
+    }
+}
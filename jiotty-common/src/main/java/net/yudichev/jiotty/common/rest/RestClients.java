@@ -4,31 +4,51 @@ import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.reflect.TypeToken;
 import com.google.common.util.concurrent.MoreExecutors;
 import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
+import net.yudichev.jiotty.common.metrics.Metrics;
 import okhttp3.Call;
 import okhttp3.Callback;
+import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
+import okhttp3.Request;
 import okhttp3.Response;
 import okhttp3.ResponseBody;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
 import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkState;
+import static java.nio.charset.StandardCharsets.UTF_16;
+import static java.nio.charset.StandardCharsets.UTF_16BE;
+import static java.nio.charset.StandardCharsets.UTF_16LE;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.Objects.requireNonNull;
 import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
 import static net.yudichev.jiotty.common.lang.HumanReadableExceptionMessage.humanReadableMessage;
+import static net.yudichev.jiotty.common.metrics.Histogram.DURATION_SECONDS_BUCKETS;
 
 public final class RestClients {
     private static final Logger logger = LoggerFactory.getLogger(RestClients.class);
+    private static final LogSampler responseLogSampler = LogSampling.sampler(logger);
 
     private static final int DEFAULT_CALL_RETRY_COUNT = 3;
     private static final Duration DEFAULT_HTTP_TIMEOUT = Duration.ofSeconds(60);
     private static final AtomicInteger requestIdGenerator = new AtomicInteger();
+    /// how much of a response body is kept for debug logging and error reporting
+    private static final int BODY_PREFIX_LIMIT = 4096;
+    /// charsets that Jackson detects by itself when reading bytes
+    private static final Set<Charset> UNICODE_CHARSETS = Set.of(UTF_8, UTF_16, UTF_16BE, UTF_16LE);
+    private static final String CALL_DURATION_METRIC = "jiotty_http_client_request_duration_seconds";
 
     private RestClients() {
     }
@@ -37,16 +57,27 @@ public final class RestClients {
         return newClient(_ -> {});
     }
 
+    /// Creates a client that shares the dispatcher and the connection pool of the [SharedHttpClient] (unless overridden by the
+    /// `customizer`). The client must be passed to [#shutdown(OkHttpClient)] when no longer needed.
     public static OkHttpClient newClient(Consumer<? super OkHttpClient.Builder> customizer) {
-        OkHttpClient.Builder builder = new OkHttpClient.Builder()
-                .followRedirects(true)
-                .followSslRedirects(true)
-                .connectTimeout(DEFAULT_HTTP_TIMEOUT)
-                .callTimeout(DEFAULT_HTTP_TIMEOUT)
-                .readTimeout(DEFAULT_HTTP_TIMEOUT)
-                .writeTimeout(DEFAULT_HTTP_TIMEOUT);
-        customizer.accept(builder);
-        return builder.build();
+        return SharedHttpClient.derive(builder -> {
+            builder.followRedirects(true)
+                   .followSslRedirects(true)
+                   .connectTimeout(DEFAULT_HTTP_TIMEOUT)
+                   .callTimeout(DEFAULT_HTTP_TIMEOUT)
+                   .readTimeout(DEFAULT_HTTP_TIMEOUT)
+                   .writeTimeout(DEFAULT_HTTP_TIMEOUT);
+            customizer.accept(builder);
+        });
+    }
+
+    /// Like [#newClient(Consumer)], but responses are cached in the OkHttp cache of the [shared][HttpResponseCache#shared()]
+    /// [HttpResponseCache] as far as their HTTP caching headers allow, and revalidated with `ETag` / `Last-Modified`.
+    public static OkHttpClient newCachingClient(Consumer<? super OkHttpClient.Builder> customizer) {
+        return newClient(builder -> {
+            builder.cache(HttpResponseCache.shared().okHttpCache());
+            customizer.accept(builder);
+        });
     }
 
     public static <T> CompletableFuture<T> call(Call theCall, Class<? extends T> responseType) {
@@ -66,80 +97,120 @@ public final class RestClients {
     }
 
     public static <T> CompletableFuture<T> call(Call theCall, TypeToken<? extends T> responseType, int retryCount, boolean attemptParsingUnsuccessfulResponse) {
-        int requestId = requestIdGenerator.incrementAndGet();
-        CompletableFuture<T> future = new CompletableFuture<>();
+        return call(theCall, retryCount, (requestId, response) -> {
+            ResponseBody responseBody = requireNonNull(response.body());
+            if (response.isSuccessful()) {
+                if (response.code() == 204) { // no body
+                    logger.debug("[{}] Response code 204", requestId);
+                    checkState(responseType.getType() == Void.class,
+                               "Response is successful but empty, however expected response type is %s", responseType);
+                    return null;
+                }
+                return parse(requestId, responseBody, response.code(), responseType);
+            }
+            if (attemptParsingUnsuccessfulResponse) {
+                return parse(requestId, responseBody, response.code(), responseType);
+            }
+            String responseString = safelyReadPrefix(responseBody);
+            logger.debug("[{}] Response code {}: {}", requestId, response.code(), responseString);
+            throw new RuntimeException("Response code " + response.code() + ", body: " + responseString);
+        });
+    }
+
+    /// Sends the call, retrying it up to `retryCount` times if no response is received, and completes with what `responseHandler` makes
+    /// of the response. Each attempt is timed in the `jiotty_http_client_request_duration_seconds` histogram and recorded as an
+    /// [HttpCallEvent].
+    static <T> CompletableFuture<T> call(Call theCall, int retryCount, ResponseHandler<? extends T> responseHandler) {
+        var future = new CompletableFuture<T>();
+        enqueue(theCall, requestIdGenerator.incrementAndGet(), retryCount, responseHandler, future);
+        return future;
+    }
+
+    /// A bounded prefix of the body, for logging and error reporting.
+    static String safelyReadPrefix(ResponseBody responseBody) {
+        Charset charset = charsetOf(responseBody);
+        var body = new PrefixRecordingInputStream(responseBody.byteStream(), BODY_PREFIX_LIMIT);
+        try {
+            body.skip(Long.MAX_VALUE);
+        } catch (IOException | RuntimeException e) {
+            return body.describe(charset) + "<failed to read body: " + humanReadableMessage(e) + ">";
+        }
+        return body.describe(charset);
+    }
+
+    private static <T> void enqueue(Call theCall, int requestId, int retryCount, ResponseHandler<? extends T> responseHandler, CompletableFuture<T> future) {
         logger.debug("[{}] Sending {} {}", requestId, theCall.request().method(), theCall.request().url());
+        // both are negligible next to an HTTP call
+        var event = new HttpCallEvent();
+        event.begin();
+        long startNanos = System.nanoTime();
         theCall.enqueue(new Callback() {
             @Override
             public void onFailure(Call call, IOException e) {
+                recordCall(call.request(), "error", retryCount, startNanos, event);
                 logger.debug("[{}] Call failed: {}, retries left: {}", requestId, call, retryCount, e);
                 if (retryCount == 0) {
                     future.completeExceptionally(new RuntimeException("call failed: " + call.request(), e));
                 } else {
-                    call(call.clone(), responseType, retryCount - 1)
-                            .whenComplete((result, exception) -> {
-                                if (exception == null) {
-                                    future.complete(result);
-                                } else {
-                                    future.completeExceptionally(exception);
-                                }
-                            });
+                    enqueue(call.clone(), requestId, retryCount - 1, responseHandler, future);
                 }
             }
 
             @Override
             public void onResponse(Call call, Response response) {
-                try (ResponseBody responseBody = response.body()) {
-                    try {
-                        if (response.isSuccessful()) {
-                            if (response.code() == 204) { // no body
-                                logger.debug("[{}] Response code 204", requestId);
-                                if (responseType.getType() == Void.class) {
-                                    future.complete(null);
-                                } else {
-                                    future.completeExceptionally(new RuntimeException(
-                                            "Response is successful but empty, however expected response type is " + responseType));
-                                }
-                            } else {
-                                String responseString = requireNonNull(responseBody).string();
-                                logger.debug("[{}] Response code {}: {}", requestId, response.code(), responseString);
-                                parseAndCompleteFuture(responseString);
-                            }
-                        } else {
-                            String responseString = safelyToString(responseBody);
-                            logger.debug("[{}] Response code {}: {}", requestId, response.code(), responseString);
-                            if (attemptParsingUnsuccessfulResponse) {
-                                parseAndCompleteFuture(responseString);
-                            } else {
-                                future.completeExceptionally(new RuntimeException(
-                                        "Response code " + response.code() + ", body: " + responseString));
-                            }
-                        }
-                    } catch (RuntimeException | IOException e) {
-                        future.completeExceptionally(new RuntimeException("failed to process response body", e));
-                    }
-                }
-            }
-
-            private void parseAndCompleteFuture(String responseString) {
-                T responseData;
-                try {
-                    responseData = Json.parse(responseString, responseType);
-                    future.complete(responseData);
+                recordCall(call.request(), Integer.toString(response.code()), retryCount, startNanos, event);
+                try (response) {
+                    future.complete(responseHandler.handle(requestId, response));
+                } catch (IOException e) {
+                    future.completeExceptionally(new RuntimeException("failed reading response", e));
                 } catch (RuntimeException e) {
-                    future.completeExceptionally(new RuntimeException("Failed parsing response " + responseString, e));
-                }
-            }
-
-            private static String safelyToString(ResponseBody responseBody) {
-                try {
-                    return responseBody.string();
-                } catch (Exception e) {
-                    return "<failed to read body: " + humanReadableMessage(e) + ">";
+                    future.completeExceptionally(e);
                 }
             }
         });
-        return future;
+    }
+
+    /// Binds straight from the body stream; only a bounded prefix of the body is kept for logging and error reporting.
+    private static <T> T parse(int requestId, ResponseBody responseBody, int responseCode, TypeToken<T> responseType) {
+        Charset charset = charsetOf(responseBody);
+        var body = new PrefixRecordingInputStream(responseBody.byteStream(), BODY_PREFIX_LIMIT);
+        T responseData;
+        try {
+            responseData = UNICODE_CHARSETS.contains(charset)
+                           ? Json.parse(body, responseType)
+                           : Json.parse(new InputStreamReader(body, charset), responseType);
+        } catch (RuntimeException e) {
+            String responseString = body.describe(charset);
+            logger.debug("[{}] Response code {}: {}", requestId, responseCode, responseString);
+            throw new RuntimeException("Failed parsing response " + responseString, e);
+        }
+        if (logger.isDebugEnabled() && responseLogSampler.sample()) {
+            logger.debug("[{}] Response code {}: {}", requestId, responseCode, body.describe(charset));
+        }
+        return responseData;
+    }
+
+    private static Charset charsetOf(ResponseBody responseBody) {
+        MediaType contentType = responseBody.contentType();
+        return contentType == null ? UTF_8 : contentType.charset(UTF_8);
+    }
+
+    private static void recordCall(Request request, String status, int retriesLeft, long startNanos, HttpCallEvent event) {
+        event.end();
+        String host = request.url().host();
+        if (Metrics.enabled()) {
+            // looked up per call as the tags vary; the registry lookup is cheap compared to an HTTP call
+            Metrics.registry()
+                   .histogram(CALL_DURATION_METRIC, Map.of("host", host, "status", status), DURATION_SECONDS_BUCKETS)
+                   .recordNanos(System.nanoTime() - startNanos);
+        }
+        if (event.shouldCommit()) {
+            event.method = request.method();
+            event.host = host;
+            event.status = status;
+            event.retriesLeft = retriesLeft;
+            event.commit();
+        }
     }
 
     public static JsonNode getRequiredNode(JsonNode parentNode, String nodeName) {
@@ -174,11 +245,23 @@ public final class RestClients {
     public static void shutdown(OkHttpClient client, Duration timeout) {
         try {
             logger.debug("Shutting down {}", client);
-            MoreExecutors.shutdownAndAwaitTermination(client.dispatcher().executorService(), timeout);
-            client.connectionPool().evictAll();
-            closeSafelyIfNotNull(logger, client.cache());
+            if (!SharedHttpClient.sharesDispatcher(client)) {
+                MoreExecutors.shutdownAndAwaitTermination(client.dispatcher().executorService(), timeout);
+            }
+            if (!SharedHttpClient.sharesConnectionPool(client)) {
+                client.connectionPool().evictAll();
+            }
+            if (!HttpResponseCache.isSharedOkHttpCache(client.cache())) {
+                closeSafelyIfNotNull(logger, client.cache());
+            }
+            SharedHttpClient.release(client);
         } catch (RuntimeException e) {
             logger.warn("Failed to gracefully shut down client {} in {}", client, timeout, e);
         }
     }
+
+    /// Makes the result of a call of a response; called on an OkHttp thread, and the response is closed after.
+    interface ResponseHandler<T> {
+        T handle(int requestId, Response response) throws IOException;
+    }
 }
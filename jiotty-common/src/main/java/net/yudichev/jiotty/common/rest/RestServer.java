@@ -1,9 +1,11 @@
 package net.yudichev.jiotty.common.rest;
 
 import io.javalin.http.Handler;
+import net.yudichev.jiotty.common.lang.Closeable;
 
 public interface RestServer {
     void post(String url, Handler handler);
 
-    void get(String path, Handler handler);
+    /// @return closing it stops serving the path, so that it can be served again, e.g. by the same component once restarted
+    Closeable get(String path, Handler handler);
 }
@@ -0,0 +1,199 @@
+package net.yudichev.jiotty.common.rest;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import okhttp3.ConnectionPool;
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.lang.ref.Cleaner;
+import java.time.Duration;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Process-wide [OkHttpClient] that clients created by [RestClients#newClient] are derived from via [OkHttpClient#newBuilder], so that all of
+/// them share one dispatcher thread pool and one connection pool instead of each connector instance owning a pair.
+///
+/// The shared client is reference counted: it is created along with the first derived client and shut down when the last derived client is
+/// passed to [RestClients#shutdown]. A derived client that becomes unreachable without being shut down releases its lease when it is
+/// garbage collected.
+///
+/// The request [Limits] are those of the one shared dispatcher, so they are process-wide: `maxRequestsPerHost` is the number of calls that
+/// all derived clients together may have in flight to one host. A client that needs its own budget should be given its own dispatcher in the
+/// `customizer` of [RestClients#newClient(java.util.function.Consumer)]; it then shares the connection pool only.
+public final class SharedHttpClient {
+    private static final Logger logger = LoggerFactory.getLogger(SharedHttpClient.class);
+    private static final Duration SHUTDOWN_TIMEOUT = Duration.ofSeconds(10);
+
+    private static final Object lock = new Object();
+    private static final Cleaner cleaner = Cleaner.create(new ThreadFactoryBuilder().setNameFormat("shared-http-cleaner").setDaemon(true).build());
+    /// weak keys: OkHttpClient has identity equality, and a lease does not keep its client reachable
+    private static final Map<OkHttpClient, Lease> leases = new WeakHashMap<>();
+    private static int leaseCount;
+    private static Limits limits = Limits.DEFAULT;
+    private static OkHttpClient root;
+
+    static {
+        gauge("jiotty_http_client_leases", Stats::leases);
+        gauge("jiotty_http_client_running_calls", Stats::runningCalls);
+        gauge("jiotty_http_client_queued_calls", Stats::queuedCalls);
+        gauge("jiotty_http_client_connections", Stats::connections);
+        gauge("jiotty_http_client_idle_connections", Stats::idleConnections);
+    }
+
+    private SharedHttpClient() {
+    }
+
+    /// Sets the limits of the shared client. Request limits apply immediately; connection pool limits apply from the next time the shared
+    /// client is created.
+    public static void setLimits(Limits limits) {
+        checkNotNull(limits);
+        synchronized (lock) {
+            SharedHttpClient.limits = limits;
+            if (root != null) {
+                root.dispatcher().setMaxRequests(limits.maxRequests());
+                root.dispatcher().setMaxRequestsPerHost(limits.maxRequestsPerHost());
+            }
+        }
+        logger.info("Limits set to {}", limits);
+    }
+
+    public static Stats stats() {
+        synchronized (lock) {
+            if (root == null) {
+                return Stats.IDLE;
+            }
+            return new Stats(leaseCount,
+                             root.dispatcher().runningCallsCount(),
+                             root.dispatcher().queuedCallsCount(),
+                             root.connectionPool().connectionCount(),
+                             root.connectionPool().idleConnectionCount());
+        }
+    }
+
+    /// Builds a client derived from the shared one, creating the shared client if needed, and takes a lease on it for the built client.
+    static OkHttpClient derive(Consumer<? super OkHttpClient.Builder> customizer) {
+        synchronized (lock) {
+            if (root == null) {
+                root = createRoot(limits);
+                logger.debug("Created shared client {} with {}", root, limits);
+            }
+            OkHttpClient.Builder builder = root.newBuilder();
+            customizer.accept(builder);
+            OkHttpClient client = builder.build();
+            var lease = new Lease();
+            lease.cleanable = cleaner.register(client, lease);
+            leases.put(client, lease);
+            leaseCount++;
+            return client;
+        }
+    }
+
+    static boolean sharesDispatcher(OkHttpClient client) {
+        synchronized (lock) {
+            return root != null && client.dispatcher() == root.dispatcher();
+        }
+    }
+
+    static boolean sharesConnectionPool(OkHttpClient client) {
+        synchronized (lock) {
+            return root != null && client.connectionPool() == root.connectionPool();
+        }
+    }
+
+    /// Releases the client's lease on the shared client (no-op if the client has none), shutting the shared client down if this was the last one.
+    static void release(OkHttpClient client) {
+        Lease lease;
+        synchronized (lock) {
+            lease = leases.remove(client);
+        }
+        if (lease != null) {
+            lease.released = true;
+            lease.cleanable.clean();
+        }
+    }
+
+    private static void releaseLease() {
+        OkHttpClient clientToShutDown = null;
+        synchronized (lock) {
+            if (--leaseCount == 0) {
+                clientToShutDown = root;
+                root = null;
+            }
+        }
+        if (clientToShutDown != null) {
+            logger.debug("Last lease released, shutting down shared client {}", clientToShutDown);
+            MoreExecutors.shutdownAndAwaitTermination(clientToShutDown.dispatcher().executorService(), SHUTDOWN_TIMEOUT);
+            clientToShutDown.connectionPool().evictAll();
+        }
+    }
+
+    /// registered for the lifetime of the process: [#stats()] reports [Stats#IDLE] while there is no shared client
+    private static void gauge(String name, ToIntFunction<Stats> stat) {
+        Metrics.gauge(name, Map.of(), () -> stat.applyAsInt(stats()));
+    }
+
+    private static OkHttpClient createRoot(Limits limits) {
+        var executor = new ThreadPoolExecutor(0, Integer.MAX_VALUE, 60, TimeUnit.SECONDS, new SynchronousQueue<>(),
+                                              new ThreadFactoryBuilder().setNameFormat("shared-http-%s").setDaemon(true).build());
+        var dispatcher = new Dispatcher(executor);
+        dispatcher.setMaxRequests(limits.maxRequests());
+        dispatcher.setMaxRequestsPerHost(limits.maxRequestsPerHost());
+        return new OkHttpClient.Builder()
+                .dispatcher(dispatcher)
+                .connectionPool(new ConnectionPool(limits.maxIdleConnections(), limits.keepAlive().toMillis(), TimeUnit.MILLISECONDS))
+                .build();
+    }
+
+    /// @param maxRequests        max concurrently executing calls across all hosts, of all derived clients together; more calls are queued
+    /// @param maxRequestsPerHost max concurrently executing calls to any one host, of all derived clients together; more calls to that host
+    ///                           are queued
+    /// @param maxIdleConnections max idle connections kept in the pool
+    /// @param keepAlive          how long an idle connection is kept in the pool
+    public record Limits(int maxRequests, int maxRequestsPerHost, int maxIdleConnections, Duration keepAlive) {
+        /// OkHttp's own defaults, except for the per-host limit: OkHttp's 5 is meant for one client, while here it is shared by all the
+        /// connectors, several of which may call the same host (e.g. the Google APIs)
+        public static final Limits DEFAULT = new Limits(64, 16, 5, Duration.ofMinutes(5));
+
+        public Limits {
+            checkArgument(maxRequests > 0, "maxRequests must be positive: %s", maxRequests);
+            checkArgument(maxRequestsPerHost > 0, "maxRequestsPerHost must be positive: %s", maxRequestsPerHost);
+            checkArgument(maxIdleConnections >= 0, "maxIdleConnections must not be negative: %s", maxIdleConnections);
+            checkArgument(keepAlive.isPositive(), "keepAlive must be positive: %s", keepAlive);
+        }
+    }
+
+    /// @param leases          clients currently derived from the shared client and neither shut down nor garbage collected
+    /// @param runningCalls    calls currently executing on the shared dispatcher
+    /// @param queuedCalls     calls waiting for the shared dispatcher's request limits
+    /// @param connections     connections in the shared pool
+    /// @param idleConnections idle connections in the shared pool
+    private static final class Lease implements Runnable {
+        volatile boolean released;
+        Cleaner.Cleanable cleanable;
+
+        /// Runs once: on [#release] or, failing that, when the client is garbage collected.
+        @Override
+        public void run() {
+            if (!released) {
+                logger.warn("A client derived from the shared client became unreachable without being shut down, releasing its lease");
+            }
+            releaseLease();
+        }
+    }
+
+    public record Stats(int leases, int runningCalls, int queuedCalls, int connections, int idleConnections) {
+        static final Stats IDLE = new Stats(0, 0, 0, 0, 0);
+    }
+}
@@ -0,0 +1,215 @@
+package net.yudichev.jiotty.common.varstore;
+
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.datatype.guava.GuavaModule;
+import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.google.common.reflect.TypeToken;
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.lang.MoreThrowables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.Files.createDirectories;
+import static java.nio.file.Files.isRegularFile;
+import static java.nio.file.Files.move;
+import static java.nio.file.Files.readAllBytes;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static net.yudichev.jiotty.common.lang.Locks.inLock;
+
+/// [VarStore] that keeps all values parsed in memory and persists each save as one small record appended to a memory-mapped journal, so a read
+/// is a hash lookup and a write does not touch the other keys.
+///
+/// - The snapshot is the same `data.json` file [VarStoreImpl] uses, so switching between the two implementations is transparent. The journal
+///   lives next to it in `data.json.journal`.
+/// - Journal record: `length (int) | CRC32 of payload (int) | key length (int) | key (UTF-8) | value (JSON)`. The length is written last, and
+///   a zero length marks the end of the journal, so a record torn by a crash is never replayed.
+/// - The journal is compacted into the snapshot on load, on stop and whenever it fills up. The snapshot is replaced atomically and is
+///   written before the journal is cleared; replaying the journal again over a snapshot that already contains it is harmless.
+/// - Journal appends are not forced to disk: they survive a process crash, but the most recent ones may be lost on a power failure, same
+///   as with the un-synced file renames of [VarStoreImpl].
+public final class JournaledVarStore extends BaseLifecycleComponent implements VarStore {
+    private static final Logger logger = LoggerFactory.getLogger(JournaledVarStore.class);
+
+    private static final int INITIAL_JOURNAL_CAPACITY = 1024 * 1024;
+    private static final int RECORD_HEADER_SIZE = 2 * Integer.BYTES;
+
+    private static final ObjectMapper mapper = new ObjectMapper()
+            .registerModule(new Jdk8Module())
+            .registerModule(new JavaTimeModule())
+            .registerModule(new GuavaModule());
+    private static final ObjectWriter snapshotWriter = mapper.writer(SerializationFeature.INDENT_OUTPUT);
+
+    private final Path storeFile;
+    private final Path storeFileTmp;
+    private final Path journalFile;
+    private final Map<String, JsonNode> nodesByKey = new ConcurrentHashMap<>();
+    private final Lock writeLock = new ReentrantLock();
+
+    private FileChannel journalChannel;
+    private MappedByteBuffer journal;
+    private int journalPosition;
+
+    @Inject
+    public JournaledVarStore(@VarStoreImpl.StoreFile Path storeFile) {
+        this.storeFile = checkNotNull(storeFile);
+        storeFileTmp = storeFile.resolveSibling("data.tmp");
+        journalFile = storeFile.resolveSibling(storeFile.getFileName() + ".journal");
+        logger.info("Using store file {} with journal {}", storeFile.toAbsolutePath(), journalFile.toAbsolutePath());
+        // load eagerly: components may read their state before the lifecycle starts
+        inLock(writeLock, () -> MoreThrowables.asUnchecked(this::load));
+    }
+
+    @Override
+    public void saveValue(String key, Object value) {
+        JsonNode valueNode = mapper.valueToTree(value);
+        inLock(writeLock, () -> MoreThrowables.asUnchecked(() -> {
+            if (journalChannel == null) {
+                // saving after a stop: the journal was compacted then, so it only needs opening again
+                openJournal();
+            }
+            append(key, mapper.writeValueAsBytes(valueNode));
+            nodesByKey.put(key, valueNode);
+        }));
+    }
+
+    @Override
+    public <T> Optional<T> readValue(TypeToken<T> type, String key) {
+        JavaType javaType = mapper.constructType(type.getType());
+        return Optional.ofNullable(nodesByKey.get(key))
+                       .map(valueNode -> MoreThrowables.getAsUnchecked(() -> mapper.readerFor(javaType).readValue(valueNode)));
+    }
+
+    @Override
+    protected void doStop() {
+        inLock(writeLock, () -> MoreThrowables.asUnchecked(() -> {
+            if (journalChannel != null) {
+                compact();
+                journalChannel.close();
+                journalChannel = null;
+                // a mapping cannot be unmapped explicitly; it is released once the buffer is collected
+                journal = null;
+            }
+        }));
+    }
+
+    private void load() throws IOException {
+        createDirectories(storeFile.toAbsolutePath().getParent());
+        if (isRegularFile(storeFile)) {
+            byte[] contents = readAllBytes(storeFile);
+            if (contents.length > 0) {
+                mapper.readValue(contents, ObjectNode.class).properties().forEach(entry -> nodesByKey.put(entry.getKey(), entry.getValue()));
+            }
+        }
+        openJournal();
+        int replayedCount = replayJournal();
+        // whatever follows the last valid record (a torn append, or records after a corrupt one) must never be replayed later
+        journal.put(journalPosition, new byte[journal.capacity() - journalPosition]);
+        logger.info("Loaded {} values, {} of them updated by the journal", nodesByKey.size(), replayedCount);
+        compact();
+    }
+
+    private int replayJournal() throws IOException {
+        int replayedCount = 0;
+        while (journalPosition + RECORD_HEADER_SIZE <= journal.capacity()) {
+            int length = journal.getInt(journalPosition);
+            if (length <= 0 || journalPosition + RECORD_HEADER_SIZE + length > journal.capacity()) {
+                break;
+            }
+            byte[] payload = new byte[length];
+            journal.get(journalPosition + RECORD_HEADER_SIZE, payload);
+            if (crc32(ByteBuffer.wrap(payload)) != journal.getInt(journalPosition + Integer.BYTES)) {
+                logger.warn("Journal record at {} is corrupt, ignoring it and everything after it", journalPosition);
+                break;
+            }
+            int keyLength = (payload[0] & 0xFF) << 24 | (payload[1] & 0xFF) << 16 | (payload[2] & 0xFF) << 8 | payload[3] & 0xFF;
+            String key = new String(payload, Integer.BYTES, keyLength, UTF_8);
+            int valueOffset = Integer.BYTES + keyLength;
+            nodesByKey.put(key, mapper.readTree(payload, valueOffset, length - valueOffset));
+            journalPosition += RECORD_HEADER_SIZE + length;
+            replayedCount++;
+        }
+        return replayedCount;
+    }
+
+    private void append(String key, byte[] value) throws IOException {
+        byte[] keyBytes = key.getBytes(UTF_8);
+        int length = Integer.BYTES + keyBytes.length + value.length;
+        int recordSize = RECORD_HEADER_SIZE + length;
+        if (journalPosition + recordSize > journal.capacity()) {
+            compact();
+            if (recordSize > journal.capacity()) {
+                mapJournal(Math.max(journal.capacity() * 2, recordSize));
+            }
+        }
+
+        int payloadPosition = journalPosition + RECORD_HEADER_SIZE;
+        journal.putInt(payloadPosition, keyBytes.length);
+        journal.put(payloadPosition + Integer.BYTES, keyBytes);
+        journal.put(payloadPosition + Integer.BYTES + keyBytes.length, value);
+        journal.putInt(journalPosition + Integer.BYTES, crc32(journal.slice(payloadPosition, length)));
+        // the length goes last: until it is written, the record is beyond the end of the journal
+        journal.putInt(journalPosition, length);
+        journalPosition += recordSize;
+    }
+
+    private void compact() throws IOException {
+        if (journalPosition == 0 && isRegularFile(storeFile)) {
+            return;
+        }
+        ObjectNode snapshot = mapper.createObjectNode();
+        nodesByKey.forEach(snapshot::set);
+        try (var channel = FileChannel.open(storeFileTmp, CREATE, WRITE, TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.wrap(snapshotWriter.writeValueAsBytes(snapshot)));
+            channel.force(true);
+        }
+        move(storeFileTmp, storeFile, REPLACE_EXISTING, ATOMIC_MOVE);
+
+        // clear from the start, so that if interrupted, the journal is already empty as far as replay is concerned
+        journal.putInt(0, 0);
+        journal.put(Integer.BYTES, new byte[Math.max(journalPosition - Integer.BYTES, 0)]);
+        journal.force();
+        logger.debug("Compacted {} bytes of journal into {} values", journalPosition, nodesByKey.size());
+        journalPosition = 0;
+    }
+
+    private void openJournal() throws IOException {
+        journalChannel = FileChannel.open(journalFile, CREATE, READ, WRITE);
+        mapJournal(Math.max(INITIAL_JOURNAL_CAPACITY, Math.toIntExact(journalChannel.size())));
+    }
+
+    private void mapJournal(int capacity) throws IOException {
+        journal = journalChannel.map(FileChannel.MapMode.READ_WRITE, 0, capacity);
+    }
+
+    private static int crc32(ByteBuffer bytes) {
+        var crc32 = new CRC32();
+        crc32.update(bytes);
+        return (int) crc32.getValue();
+    }
+}
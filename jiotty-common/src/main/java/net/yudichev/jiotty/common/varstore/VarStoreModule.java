@@ -12,9 +12,15 @@ import static com.google.common.base.Preconditions.checkNotNull;
 
 public final class VarStoreModule extends BaseLifecycleComponentModule implements ExposedKeyModule<VarStore> {
     private final BindingSpec<Path> pathSpec;
+    private final boolean journaled;
 
     public VarStoreModule(BindingSpec<Path> pathSpec) {
+        this(pathSpec, false);
+    }
+
+    private VarStoreModule(BindingSpec<Path> pathSpec, boolean journaled) {
         this.pathSpec = checkNotNull(pathSpec);
+        this.journaled = journaled;
     }
 
     @Override
@@ -22,7 +28,11 @@ public final class VarStoreModule extends BaseLifecycleComponentModule implement
         pathSpec.bind(Path.class)
                 .annotatedWith(VarStoreImpl.StoreFile.class)
                 .installedBy(this::installLifecycleComponentModule);
-        bind(getExposedKey()).to(VarStoreImpl.class).in(Singleton.class);
+        if (journaled) {
+            bind(getExposedKey()).to(registerLifecycleComponent(JournaledVarStore.class));
+        } else {
+            bind(getExposedKey()).to(VarStoreImpl.class).in(Singleton.class);
+        }
         expose(getExposedKey());
     }
 
@@ -33,6 +43,7 @@ public final class VarStoreModule extends BaseLifecycleComponentModule implement
     public static final class Builder implements TypedBuilder<ExposedKeyModule<VarStore>> {
 
         private BindingSpec<Path> pathSpec;
+        private boolean journaled;
 
         private Builder() {
         }
@@ -42,9 +53,16 @@ public final class VarStoreModule extends BaseLifecycleComponentModule implement
             return this;
         }
 
+        /// Use [JournaledVarStore]: values cached in memory, each save appended to a journal. Reads the same store file, so can be switched
+        /// on for an existing store.
+        public Builder withJournal() {
+            journaled = true;
+            return this;
+        }
+
         @Override
         public ExposedKeyModule<VarStore> build() {
-            return new VarStoreModule(pathSpec);
+            return new VarStoreModule(pathSpec, journaled);
         }
     }
 }
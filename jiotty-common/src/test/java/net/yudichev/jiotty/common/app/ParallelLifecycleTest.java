@@ -0,0 +1,104 @@
+package net.yudichev.jiotty.common.app;
+
+import net.yudichev.jiotty.common.inject.LifecycleComponent;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ParallelLifecycleTest {
+    private final List<String> events = Collections.synchronizedList(new ArrayList<>());
+
+    @Test
+    void startsIndependentComponentsConcurrentlyAndDependentsAfterTheirDependencies() throws InterruptedException {
+        // a and b only start if they run at the same time
+        var bothRunning = new CountDownLatch(2);
+        Runnable awaitOther = () -> {
+            bothRunning.countDown();
+            try {
+                assertThat(bothRunning.await(5, SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new RuntimeException(e);
+            }
+        };
+        var a = new TestComponent("a", awaitOther);
+        var b = new TestComponent("b", awaitOther);
+        var c = new TestComponent("c");
+        var lifecycle = new ParallelLifecycle(List.of(a, b, c), Map.of(c, List.of(a, b)));
+
+        List<LifecycleComponent> attempted = Collections.synchronizedList(new ArrayList<>());
+        lifecycle.start(attempted::add);
+
+        assertThat(events.indexOf("start c")).isGreaterThan(events.indexOf("start a"));
+        assertThat(events.indexOf("start c")).isGreaterThan(events.indexOf("start b"));
+        assertThat(attempted).containsExactlyInAnyOrder(a, b, c);
+
+        lifecycle.stop();
+        assertThat(events.indexOf("stop c")).isLessThan(events.indexOf("stop a"));
+        assertThat(events.indexOf("stop c")).isLessThan(events.indexOf("stop b"));
+    }
+
+    @Test
+    void ignoresDependenciesOnLaterComponents() throws InterruptedException {
+        var a = new TestComponent("a");
+        var b = new TestComponent("b");
+        var lifecycle = new ParallelLifecycle(List.of(a, b), Map.of(a, List.of(b), b, List.of(a)));
+
+        lifecycle.start(_ -> {});
+
+        assertThat(events.indexOf("start b")).isGreaterThan(events.indexOf("start a"));
+    }
+
+    @Test
+    void doesNotStartDependentsOfFailedComponentAndStopsOnlyAttemptedOnes() {
+        var failure = new IllegalStateException("oops");
+        var a = new TestComponent("a", () -> {throw failure;});
+        var b = new TestComponent("b");
+        var lifecycle = new ParallelLifecycle(List.of(a, b), Map.of(b, List.of(a)));
+
+        var thrown = assertThrows(IllegalStateException.class, () -> lifecycle.start(_ -> {}));
+
+        assertThat(thrown).isSameAs(failure);
+        assertThat(events).containsExactly("start a");
+
+        lifecycle.stop();
+        assertThat(events).containsExactly("start a", "stop a");
+    }
+
+    private final class TestComponent implements LifecycleComponent {
+        private final String name;
+        private final Runnable onStart;
+
+        TestComponent(String name) {
+            this(name, () -> {});
+        }
+
+        TestComponent(String name, Runnable onStart) {
+            this.name = name;
+            this.onStart = onStart;
+        }
+
+        @Override
+        public void start() {
+            events.add("start " + name);
+            onStart.run();
+        }
+
+        @Override
+        public void stop() {
+            events.add("stop " + name);
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package net.yudichev.jiotty.common.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static java.util.stream.Collectors.toList;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class ActorSchedulingExecutorTest {
+    private VirtualThreadExecutorFactory factory;
+    private SchedulingExecutor executor;
+
+    @BeforeEach
+    void setUp() {
+        factory = new VirtualThreadExecutorFactory();
+        executor = factory.createSingleThreadedSchedulingExecutor("test");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+        factory.close();
+    }
+
+    @Test
+    void executesTasksSeriallyInSubmissionOrder() throws Exception {
+        List<Integer> executed = Collections.synchronizedList(new ArrayList<>());
+        AtomicInteger concurrentTasks = new AtomicInteger();
+        AtomicBoolean overlapDetected = new AtomicBoolean();
+        int taskCount = 1000;
+        for (int i = 0; i < taskCount; i++) {
+            int taskNumber = i;
+            executor.execute(() -> {
+                if (concurrentTasks.incrementAndGet() > 1) {
+                    overlapDetected.set(true);
+                }
+                executed.add(taskNumber);
+                concurrentTasks.decrementAndGet();
+            });
+        }
+        executor.submit(() -> {}).get(5, SECONDS);
+
+        assertThat(overlapDetected.get(), is(false));
+        assertThat(executed, is(IntStream.range(0, taskCount).boxed().collect(toList())));
+    }
+
+    @Test
+    void runsAllTasksOnTheSameThread() throws Exception {
+        Set<Thread> threads = ConcurrentHashMap.newKeySet();
+        for (int i = 0; i < 200; i++) {
+            executor.execute(() -> threads.add(Thread.currentThread()));
+            if (i % 50 == 0) {
+                // let the mailbox run empty in between
+                executor.submit(() -> {}).get(5, SECONDS);
+            }
+        }
+        CountDownLatch latch = new CountDownLatch(1);
+        executor.schedule(Duration.ofMillis(10), () -> {
+            threads.add(Thread.currentThread());
+            latch.countDown();
+        });
+        assertThat(latch.await(5, SECONDS), is(true));
+
+        assertThat(threads.size(), is(1));
+    }
+
+    @Test
+    void submitReturnsResult() throws Exception {
+        assertThat(executor.submit(() -> 42).get(5, SECONDS), is(42));
+    }
+
+    @Test
+    void runsScheduledTask() throws Exception {
+        CountDownLatch latch = new CountDownLatch(1);
+
+        executor.schedule(Duration.ofMillis(10), latch::countDown);
+
+        assertThat(latch.await(5, SECONDS), is(true));
+    }
+
+    @Test
+    void doesNotRunCancelledScheduledTask() throws Exception {
+        AtomicBoolean executed = new AtomicBoolean();
+
+        executor.schedule(Duration.ofMillis(50), () -> executed.set(true)).close();
+
+        Thread.sleep(200);
+        executor.submit(() -> {}).get(5, SECONDS);
+        assertThat(executed.get(), is(false));
+    }
+
+    @Test
+    void runsPeriodicTaskUntilCancelled() throws Exception {
+        CountDownLatch latch = new CountDownLatch(3);
+
+        var handle = executor.scheduleAtFixedRate(Duration.ofMillis(5), latch::countDown);
+
+        assertThat(latch.await(5, SECONDS), is(true));
+        handle.close();
+    }
+
+    @Test
+    void executesAlreadyQueuedTasksOnCloseAndRejectsNewOnes() {
+        AtomicInteger executedCount = new AtomicInteger();
+        for (int i = 0; i < 100; i++) {
+            executor.execute(executedCount::incrementAndGet);
+        }
+
+        executor.close();
+
+        assertThat(executedCount.get(), is(100));
+        assertThrows(RejectedExecutionException.class, () -> executor.execute(() -> {}));
+    }
+}
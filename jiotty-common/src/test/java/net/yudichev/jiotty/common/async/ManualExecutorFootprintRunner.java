@@ -0,0 +1,64 @@
+package net.yudichev.jiotty.common.async;
+
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+
+/// Compares footprint of [ExecutorFactoryImpl] and [VirtualThreadExecutorFactory]: time to create N executors and get each of them to run a
+/// task and arm a periodic timer, then resident set size and live thread count with all of them idle.
+///
+/// RSS is only meaningful for the first measurement in a JVM, so run one configuration per JVM:
+/// `ManualExecutorFootprintRunner platform|virtual 10|100|1000`. Linux only (reads `/proc/self/status`).
+final class ManualExecutorFootprintRunner {
+    static void main(String[] args) throws Exception {
+        ExecutorFactory factory = switch (args[0]) {
+            case "platform" -> new ExecutorFactoryImpl();
+            case "virtual" -> new VirtualThreadExecutorFactory();
+            default -> throw new IllegalArgumentException("unknown factory type " + args[0]);
+        };
+        int executorCount = Integer.parseInt(args[1]);
+
+        System.gc();
+        long rssBeforeKb = readRssKb();
+        int threadsBefore = Thread.activeCount();
+
+        long startNanos = System.nanoTime();
+        List<SchedulingExecutor> executors = new ArrayList<>(executorCount);
+        List<Closeable> timers = new ArrayList<>(executorCount);
+        List<CompletableFuture<Void>> firstTasks = new ArrayList<>(executorCount);
+        for (int i = 0; i < executorCount; i++) {
+            SchedulingExecutor executor = factory.createSingleThreadedSchedulingExecutor("executor-" + i);
+            executors.add(executor);
+            firstTasks.add(executor.submit(() -> {}));
+            timers.add(executor.scheduleAtFixedRate(Duration.ofMinutes(1), () -> {}));
+        }
+        CompletableFuture.allOf(firstTasks.toArray(CompletableFuture[]::new)).get(1, SECONDS);
+        long startupMillis = (System.nanoTime() - startNanos) / 1_000_000;
+
+        System.gc();
+        Thread.sleep(1000);
+        long rssAfterKb = readRssKb();
+
+        System.out.printf("%s x %d: startup %d ms, RSS +%d KiB (%d KiB total), live threads +%d%n",
+                          args[0], executorCount, startupMillis, rssAfterKb - rssBeforeKb, rssAfterKb, Thread.activeCount() - threadsBefore);
+
+        Closeable.forCloseables(timers).close();
+        Closeable.forCloseables(executors).close();
+    }
+
+    private static long readRssKb() throws IOException {
+        return Files.readAllLines(Paths.get("/proc/self/status")).stream()
+                    .filter(line -> line.startsWith("VmRSS:"))
+                    .mapToLong(line -> Long.parseLong(line.replaceAll("\\D", "")))
+                    .findFirst()
+                    .orElseThrow();
+    }
+}
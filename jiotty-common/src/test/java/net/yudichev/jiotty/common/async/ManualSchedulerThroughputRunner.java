@@ -0,0 +1,60 @@
+package net.yudichev.jiotty.common.async;
+
+import net.yudichev.jiotty.common.lang.Closeable;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+/// Schedule+cancel throughput of [SingleThreadedSchedulingExecutor] vs [TimingWheelScheduler] vs the executors of
+/// [VirtualThreadExecutorFactory] (which use the wheel), with a configurable number of long timers kept outstanding in the background to
+/// mimic a busy application.
+///
+/// `ManualSchedulerThroughputRunner [outstandingTimers]`
+final class ManualSchedulerThroughputRunner {
+    private static final int WARMUP_ITERATIONS = 5;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int OPERATIONS_PER_ITERATION = 1_000_000;
+    private static final Duration DELAY = Duration.ofMinutes(1);
+
+    static void main(String[] args) {
+        int outstandingTimers = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+
+        try (var executor = new SingleThreadedSchedulingExecutor("benchmark")) {
+            measure("SingleThreadedSchedulingExecutor", executor, outstandingTimers);
+        }
+        try (var wheel = new TimingWheelScheduler("benchmark")) {
+            measure("TimingWheelScheduler", wheel, outstandingTimers);
+        }
+        try (var factory = new VirtualThreadExecutorFactory();
+             var executor = factory.createSingleThreadedSchedulingExecutor("benchmark")) {
+            measure("VirtualThreadExecutorFactory executor", executor, outstandingTimers);
+        }
+    }
+
+    private static void measure(String name, Scheduler scheduler, int outstandingTimers) {
+        List<Closeable> background = new ArrayList<>(outstandingTimers);
+        for (int i = 0; i < outstandingTimers; i++) {
+            background.add(scheduler.schedule(DELAY.plusMillis(i), () -> {}));
+        }
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            scheduleAndCancel(scheduler);
+        }
+        long totalNanos = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            totalNanos += scheduleAndCancel(scheduler);
+        }
+        System.out.printf("%-40s %,12.0f schedule+cancel ops/s (%,d outstanding timers)%n",
+                          name, (double) OPERATIONS_PER_ITERATION * MEASURED_ITERATIONS * 1e9 / totalNanos, outstandingTimers);
+        Closeable.forCloseables(background).close();
+    }
+
+    private static long scheduleAndCancel(Scheduler scheduler) {
+        Runnable task = () -> {};
+        long start = System.nanoTime();
+        for (int i = 0; i < OPERATIONS_PER_ITERATION; i++) {
+            scheduler.schedule(DELAY, task).close();
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,125 @@
+package net.yudichev.jiotty.common.async;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SingleFlightTest {
+    private final List<CompletableFuture<String>> calls = new ArrayList<>();
+    private long nowNanos = 1_000;
+
+    @Test
+    void sharesCallInFlightForSameKey() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ZERO, () -> nowNanos);
+
+        var first = singleFlight.get("a", call());
+        var second = singleFlight.get("a", call());
+        var other = singleFlight.get("b", call());
+
+        assertThat(calls).hasSize(2);
+        calls.get(0).complete("result a");
+        assertThat(first.join()).isEqualTo("result a");
+        assertThat(second.join()).isEqualTo("result a");
+        assertThat(other.isDone()).isFalse();
+        assertThat(singleFlight.stats()).isEqualTo(new SingleFlight.Stats(2, 1, 0));
+    }
+
+    @Test
+    void issuesNewCallOnceCompletedWithoutTtl() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ZERO, () -> nowNanos);
+
+        singleFlight.get("a", call());
+        calls.get(0).complete("first");
+        var second = singleFlight.get("a", call());
+
+        assertThat(calls).hasSize(2);
+        calls.get(1).complete("second");
+        assertThat(second.join()).isEqualTo("second");
+    }
+
+    @Test
+    void servesResultWithinTtl() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofNanos(100), () -> nowNanos);
+
+        singleFlight.get("a", call());
+        calls.get(0).complete("first");
+        nowNanos += 99;
+        var cached = singleFlight.get("a", call());
+        nowNanos += 1;
+        var expired = singleFlight.get("a", call());
+
+        assertThat(cached.join()).isEqualTo("first");
+        assertThat(calls).hasSize(2);
+        assertThat(expired.isDone()).isFalse();
+        assertThat(singleFlight.stats()).isEqualTo(new SingleFlight.Stats(2, 0, 1));
+    }
+
+    @Test
+    void doesNotKeepFailures() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofNanos(100), () -> nowNanos);
+
+        var failed = singleFlight.get("a", call());
+        var failure = new RuntimeException("oops");
+        calls.get(0).completeExceptionally(failure);
+        singleFlight.get("a", call());
+
+        var thrown = assertThrows(CompletionException.class, failed::join);
+        assertThat(thrown.getCause()).isSameAs(failure);
+        assertThat(calls).hasSize(2);
+    }
+
+    @Test
+    void callThrowingFailsOnlyThatFlight() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ZERO, () -> nowNanos);
+        var failure = new IllegalStateException("oops");
+
+        var failed = singleFlight.get("a", () -> {throw failure;});
+        var next = singleFlight.get("a", call());
+
+        var thrown = assertThrows(CompletionException.class, failed::join);
+        assertThat(thrown.getCause()).isSameAs(failure);
+        assertThat(calls).hasSize(1);
+        assertThat(next.isDone()).isFalse();
+    }
+
+    @Test
+    void cancellingOneCallerDoesNotAffectOthers() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ZERO, () -> nowNanos);
+
+        var first = singleFlight.get("a", call());
+        var second = singleFlight.get("a", call());
+        first.cancel(false);
+        calls.get(0).complete("result");
+
+        assertThat(second.join()).isEqualTo("result");
+        assertThat(calls.get(0).isCancelled()).isFalse();
+    }
+
+    @Test
+    void invalidateDropsKeptResult() {
+        SingleFlight<String, String> singleFlight = new SingleFlight<>("test", Duration.ofMinutes(1), () -> nowNanos);
+
+        singleFlight.get("a", call());
+        calls.get(0).complete("first");
+        singleFlight.invalidate("a");
+        singleFlight.get("a", call());
+
+        assertThat(calls).hasSize(2);
+    }
+
+    private Supplier<CompletableFuture<String>> call() {
+        return () -> {
+            var future = new CompletableFuture<String>();
+            calls.add(future);
+            return future;
+        };
+    }
+}
@@ -0,0 +1,109 @@
+package net.yudichev.jiotty.common.async;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+
+class TimingWheelSchedulerTest {
+    private TimingWheelScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        // small wheel so that delays span multiple rounds
+        scheduler = new TimingWheelScheduler("test-wheel", Duration.ofMillis(1), 8);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scheduler.close();
+    }
+
+    @Test
+    void firesNoEarlierThanDelay() throws InterruptedException {
+        int timeoutCount = 1000;
+        CountDownLatch latch = new CountDownLatch(timeoutCount);
+        AtomicInteger firedEarlyCount = new AtomicInteger();
+        Random random = new Random(1);
+        for (int i = 0; i < timeoutCount; i++) {
+            long delayNanos = Duration.ofMillis(random.nextInt(50)).toNanos();
+            long scheduledAtNanos = System.nanoTime();
+            scheduler.schedule(Duration.ofNanos(delayNanos), () -> {
+                if (System.nanoTime() - scheduledAtNanos < delayNanos) {
+                    firedEarlyCount.incrementAndGet();
+                }
+                latch.countDown();
+            });
+        }
+
+        assertThat(latch.await(5, SECONDS), is(true));
+        assertThat(firedEarlyCount.get(), is(0));
+    }
+
+    @Test
+    void doesNotFireCancelledTimeout() throws InterruptedException {
+        AtomicBoolean fired = new AtomicBoolean();
+        CountDownLatch laterTimeoutFired = new CountDownLatch(1);
+
+        scheduler.schedule(Duration.ofMillis(20), () -> fired.set(true)).close();
+        scheduler.schedule(Duration.ofMillis(40), laterTimeoutFired::countDown);
+
+        assertThat(laterTimeoutFired.await(5, SECONDS), is(true));
+        assertThat(fired.get(), is(false));
+    }
+
+    @Test
+    void firesPeriodicallyUntilCancelled() throws InterruptedException {
+        AtomicInteger firedCount = new AtomicInteger();
+        CountDownLatch firedThreeTimes = new CountDownLatch(3);
+
+        var handle = scheduler.scheduleAtFixedRate(Duration.ofMillis(5), () -> {
+            firedCount.incrementAndGet();
+            firedThreeTimes.countDown();
+        });
+        assertThat(firedThreeTimes.await(5, SECONDS), is(true));
+        handle.close();
+        int firedCountAfterCancel = firedCount.get();
+        Thread.sleep(50);
+
+        // at most one execution may have been in flight while cancelling
+        assertThat(firedCountAfterCancel + 1, greaterThanOrEqualTo(firedCount.get()));
+    }
+
+    @Test
+    void firesAfterBeingIdle() throws InterruptedException {
+        CountDownLatch first = new CountDownLatch(1);
+        scheduler.schedule(Duration.ofMillis(1), first::countDown);
+        assertThat(first.await(5, SECONDS), is(true));
+        Thread.sleep(50);
+
+        CountDownLatch second = new CountDownLatch(1);
+        scheduler.schedule(Duration.ofMillis(1), second::countDown);
+
+        assertThat(second.await(5, SECONDS), is(true));
+    }
+
+    @Test
+    void acceptsDelaysTooLongForNanoseconds() throws InterruptedException {
+        AtomicBoolean fired = new AtomicBoolean();
+        CountDownLatch laterTimeoutFired = new CountDownLatch(1);
+
+        scheduler.schedule(ChronoUnit.FOREVER.getDuration(), () -> fired.set(true));
+        scheduler.scheduleAtFixedRate(Duration.ofMillis(1), ChronoUnit.FOREVER.getDuration(), () -> {});
+        scheduler.schedule(Duration.ofMillis(20), laterTimeoutFired::countDown);
+
+        assertThat(laterTimeoutFired.await(5, SECONDS), is(true));
+        assertThat(fired.get(), is(false));
+    }
+}
@@ -0,0 +1,198 @@
+package net.yudichev.jiotty.common.graph;
+
+import net.yudichev.jiotty.common.async.ProgrammableClock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GraphParallelWaveTest {
+    private final List<String> afterWaveNodes = new ArrayList<>();
+    private final List<RuntimeException> exceptions = new ArrayList<>();
+    private final Set<String> waveThreads = ConcurrentHashMap.newKeySet();
+    private ForkJoinPool pool;
+    private Graph graph;
+
+    @BeforeEach
+    void setUp() {
+        pool = new ForkJoinPool(4);
+        graph = new Graph(new ProgrammableClock(), exceptions::add, pool);
+    }
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+    }
+
+    @Test
+    void executesParallelSafeNodesOfSameRankConcurrently() {
+        // the 4 middle nodes only complete if all of them run at the same time
+        CountDownLatch allMiddleNodesRunning = new CountDownLatch(4);
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        List<TestNode> middleNodes = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            TestNode node = graph.registerNode("m" + i, new TestNode("m" + i, true, awaitAll(allMiddleNodesRunning)));
+            node.subscribeTo(root);
+            middleNodes.add(node);
+        }
+        TestNode sink = graph.registerNode("sink", new TestNode("sink", false, node -> {}));
+        middleNodes.forEach(sink::subscribeTo);
+
+        graph.runWaves();
+
+        assertThat(exceptions).isEmpty();
+        assertThat(afterWaveNodes).containsExactly("root", "m0", "m1", "m2", "m3", "sink");
+        assertThat(waveThreads.size()).isGreaterThan(1);
+    }
+
+    @Test
+    void nonParallelSafeNodesRunOnGraphThread() {
+        String graphThread = Thread.currentThread().getName();
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        for (int i = 0; i < 4; i++) {
+            graph.registerNode("n" + i, new TestNode("n" + i, false, node -> {})).subscribeTo(root);
+        }
+
+        graph.runWaves();
+
+        assertThat(waveThreads).containsExactly(graphThread);
+        assertThat(afterWaveNodes).containsExactly("root", "n0", "n1", "n2", "n3");
+    }
+
+    @Test
+    void failureInParallelNodeStopsWaveAndIsReported() {
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        TestNode child = graph.registerNode("child", new TestNode("child", false, node -> {}));
+        TestNode failing = graph.registerNode("failing", new TestNode("failing", true, node -> {throw new IllegalStateException("boom");}));
+        TestNode ok = graph.registerNode("ok", new TestNode("ok", true, node -> {}));
+        failing.subscribeTo(root);
+        ok.subscribeTo(root);
+        child.subscribeTo(ok);
+
+        graph.runWaves();
+
+        assertThat(exceptions).hasSize(1);
+        assertThat(exceptions.getFirst()).hasMessageContaining("boom");
+        assertThat(afterWaveNodes).containsExactly("root", "failing", "ok");
+    }
+
+    @Test
+    void failureInParallelNodeLeavesLaterNodesOfBatchPendingWithoutTriggeringTheirChildren() {
+        AtomicBoolean failing = new AtomicBoolean(true);
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        TestNode flaky = graph.registerNode("flaky", new TestNode("flaky", true, node -> {
+            if (failing.get()) {
+                throw new IllegalStateException("boom");
+            }
+        }));
+        TestNode ok = graph.registerNode("ok", new TestNode("ok", true, node -> {}));
+        TestNode child = graph.registerNode("child", new TestNode("child", false, node -> {}));
+        flaky.subscribeTo(root);
+        ok.subscribeTo(root);
+        child.subscribeTo(ok);
+        graph.runWaves();
+        assertThat(exceptions).hasSize(1);
+
+        afterWaveNodes.clear();
+        failing.set(false);
+        graph.runWaves();
+
+        assertThat(exceptions).hasSize(1);
+        assertThat(afterWaveNodes).containsExactly("flaky", "ok", "child");
+    }
+
+    @Test
+    void graphCannotBeCalledFromOtherThreadsDuringParallelBatch() {
+        List<Throwable> otherThreadFailures = new CopyOnWriteArrayList<>();
+        Consumer<TestNode> callGraphFromOtherThread = node -> {
+            var thread = new Thread(() -> {
+                try {
+                    node.graph().waveId();
+                } catch (AssertionError e) {
+                    otherThreadFailures.add(e);
+                }
+            });
+            thread.start();
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        graph.registerNode("a", new TestNode("a", true, callGraphFromOtherThread)).subscribeTo(root);
+        graph.registerNode("b", new TestNode("b", true, callGraphFromOtherThread)).subscribeTo(root);
+
+        graph.runWaves();
+
+        assertThat(exceptions).isEmpty();
+        assertThat(otherThreadFailures).hasSize(2);
+    }
+
+    @Test
+    void parallelNodeCannotTriggerOtherNodes() {
+        TestNode root = graph.registerNode("root", new TestNode("root", false, node -> {}));
+        TestNode other = graph.registerNode("other", new TestNode("other", true, node -> {}));
+        TestNode triggering = graph.registerNode("triggering", new TestNode("triggering", true, node -> other.nodeContext().triggerInNextWave()));
+        other.subscribeTo(root);
+        triggering.subscribeTo(root);
+
+        graph.runWaves();
+
+        assertThat(exceptions).hasSize(1);
+        assertThat(exceptions.getFirst()).hasMessageContaining("parallel-safe");
+    }
+
+    private static Consumer<TestNode> awaitAll(CountDownLatch latch) {
+        return node -> {
+            latch.countDown();
+            try {
+                assertThat(latch.await(5, SECONDS)).isTrue();
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            }
+        };
+    }
+
+    private final class TestNode extends BaseNode {
+        private final String name;
+        private final boolean parallelSafe;
+        private final Consumer<TestNode> action;
+
+        TestNode(String name, boolean parallelSafe, Consumer<TestNode> action) {
+            this.name = name;
+            this.parallelSafe = parallelSafe;
+            this.action = action;
+        }
+
+        @Override
+        public boolean isParallelSafe() {
+            return parallelSafe;
+        }
+
+        @Override
+        public boolean wave() {
+            waveThreads.add(Thread.currentThread().getName());
+            assertThat(graph().waveTime()).isNotNull();
+            action.accept(this);
+            return true;
+        }
+
+        @Override
+        public void afterWave() {
+            afterWaveNodes.add(name);
+        }
+    }
+}
@@ -231,6 +231,33 @@ class GraphTest {
         assertThatThrownBy(() -> node3.subscribeTo(node1)).hasMessageContaining("cycle");
     }
 
+    @Test
+    void rejectedCycleLeavesGraphIntact() {
+        createNodes();
+        graph.runWaves();
+        triggeredNodes.clear();
+
+        assertThatThrownBy(() -> node1.subscribeTo(node3)).hasMessageContaining("cycle");
+        assertThatThrownBy(() -> node2.subscribeTo(node2)).hasMessageContaining("cycle");
+
+        node1.trigger();
+        node5.trigger();
+        assertThat(graph.wave()).isFalse();
+        assertThat(triggeredNodes).containsExactly("1", "5", "2", "4", "3");
+    }
+
+    @Test
+    void pendingNodeIsReRankedWhenSubscribing() {
+        node1 = graph.registerNode("1", new TestNode("1"));
+        node2 = graph.registerNode("2", new TestNode("2"));
+        node3 = graph.registerNode("3", new TestNode("3"));
+        // all three are pending with rank 1; node 1 moves below node 3 while pending
+        node1.subscribeTo(node3);
+
+        assertThat(graph.wave()).isFalse();
+        assertThat(triggeredNodes).containsExactly("2", "3", "1");
+    }
+
     private void clearTriggers() {
         nodesToTriggerByTriggeringNodeName.clear();
         nodesToTriggerWithParentsByTriggeringNodeName.clear();
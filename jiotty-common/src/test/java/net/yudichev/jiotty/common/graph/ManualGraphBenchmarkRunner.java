@@ -0,0 +1,84 @@
+package net.yudichev.jiotty.common.graph;
+
+import net.yudichev.jiotty.common.async.ProgrammableClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/// Measures [Graph] construction time and wave latency on random DAGs of 10^2..10^5 nodes where every node subscribes to up to 3 random earlier
+/// nodes:
+/// - build: registering all nodes and subscriptions (ranking and cycle checks included);
+/// - full wave: every node triggered and propagating;
+/// - sparse wave: 10 random nodes triggered, not propagating - the typical "one input changed" case.
+///
+/// `ManualGraphBenchmarkRunner [maxNodeCount]`
+final class ManualGraphBenchmarkRunner {
+    private static final int REPETITIONS = 5;
+    private static final int SPARSE_WAVES = 1000;
+
+    static void main(String[] args) {
+        int maxNodeCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        for (int nodeCount = 100; nodeCount <= maxNodeCount; nodeCount *= 10) {
+            // first pass is a warm-up
+            for (int i = 0; i <= REPETITIONS; i++) {
+                measure(nodeCount, i > 0);
+            }
+        }
+    }
+
+    private static void measure(int nodeCount, boolean print) {
+        Random random = new Random(nodeCount);
+        Graph graph = new Graph(new ProgrammableClock(), e -> {throw e;});
+        List<BenchmarkNode> nodes = new ArrayList<>(nodeCount);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < nodeCount; i++) {
+            BenchmarkNode node = graph.registerNode(Integer.toString(i), new BenchmarkNode());
+            if (i > 0) {
+                int parentCount = 1 + random.nextInt(3);
+                for (int j = 0; j < parentCount; j++) {
+                    BenchmarkNode parent = nodes.get(random.nextInt(i));
+                    if (!node.parents.contains(parent)) {
+                        node.parents.add(parent);
+                        node.subscribeTo(parent);
+                    }
+                }
+            }
+            nodes.add(node);
+        }
+        long buildNanos = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        graph.runWaves();
+        long fullWaveNanos = System.nanoTime() - start;
+
+        nodes.forEach(node -> node.propagate = false);
+        start = System.nanoTime();
+        for (int i = 0; i < SPARSE_WAVES; i++) {
+            for (int j = 0; j < 10; j++) {
+                nodes.get(random.nextInt(nodeCount)).trigger();
+            }
+            graph.runWaves();
+        }
+        long sparseWaveNanos = (System.nanoTime() - start) / SPARSE_WAVES;
+
+        if (print) {
+            System.out.printf("%,8d nodes: build %,10.2f ms, full wave %,10.2f ms, sparse wave %,10.2f us%n",
+                              nodeCount, buildNanos / 1e6, fullWaveNanos / 1e6, sparseWaveNanos / 1e3);
+        }
+        graph.close();
+    }
+
+    private static final class BenchmarkNode extends BaseNode {
+        private final List<BenchmarkNode> parents = new ArrayList<>(3);
+        private boolean propagate = true;
+        private long counter;
+
+        @Override
+        public boolean wave() {
+            counter++;
+            return propagate;
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package net.yudichev.jiotty.common.graph;
+
+import net.yudichev.jiotty.common.async.ProgrammableClock;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+/// Wave latency of a wide graph (root -> N parallel-safe CPU-bound nodes -> sink) executed sequentially vs on [ForkJoinPool#commonPool()].
+///
+/// `ManualParallelWaveBenchmarkRunner [workIterationsPerNode]`
+final class ManualParallelWaveBenchmarkRunner {
+    private static final int WAVES = 50;
+
+    static void main(String[] args) {
+        int workIterations = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        System.out.printf("parallelism %d, %,d work iterations per node%n", ForkJoinPool.commonPool().getParallelism(), workIterations);
+        for (int width : new int[]{4, 16, 64, 256, 1024}) {
+            // warm-up
+            measure(width, workIterations, null);
+            measure(width, workIterations, ForkJoinPool.commonPool());
+
+            double sequentialMicros = measure(width, workIterations, null);
+            double parallelMicros = measure(width, workIterations, ForkJoinPool.commonPool());
+            System.out.printf("width %5d: sequential %,10.1f us, parallel %,10.1f us, speedup x%.2f%n",
+                              width, sequentialMicros, parallelMicros, sequentialMicros / parallelMicros);
+        }
+    }
+
+    private static double measure(int width, int workIterations, ForkJoinPool pool) {
+        Graph graph = new Graph(new ProgrammableClock(), e -> {throw e;}, pool);
+        WorkNode root = graph.registerNode("root", new WorkNode(0, false));
+        WorkNode sink = graph.registerNode("sink", new WorkNode(0, false));
+        List<WorkNode> middle = new ArrayList<>(width);
+        for (int i = 0; i < width; i++) {
+            WorkNode node = graph.registerNode("node" + i, new WorkNode(workIterations, true));
+            node.subscribeTo(root);
+            sink.subscribeTo(node);
+            middle.add(node);
+        }
+        graph.runWaves();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < WAVES; i++) {
+            root.trigger();
+            graph.runWaves();
+        }
+        double micros = (System.nanoTime() - start) / 1e3 / WAVES;
+        graph.close();
+        // consume results so that the work can't be optimised away
+        if (middle.stream().mapToDouble(node -> node.result).sum() == 42) {
+            System.out.println();
+        }
+        return micros;
+    }
+
+    private static final class WorkNode extends BaseNode {
+        private final int workIterations;
+        private final boolean parallelSafe;
+        private double result;
+
+        WorkNode(int workIterations, boolean parallelSafe) {
+            this.workIterations = workIterations;
+            this.parallelSafe = parallelSafe;
+        }
+
+        @Override
+        public boolean isParallelSafe() {
+            return parallelSafe;
+        }
+
+        @Override
+        public boolean wave() {
+            double value = result;
+            for (int i = 1; i <= workIterations; i++) {
+                value += Math.sqrt(i) / i;
+            }
+            result = value;
+            return true;
+        }
+    }
+}
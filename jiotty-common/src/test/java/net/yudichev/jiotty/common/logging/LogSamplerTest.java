@@ -0,0 +1,84 @@
+package net.yudichev.jiotty.common.logging;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class LogSamplerTest {
+    private static final String LOGGER_NAME = "net.yudichev.jiotty.common.logging.LogSamplerTest.Logger";
+
+    @AfterEach
+    void tearDown() {
+        LogSampling.resetAllPolicies();
+    }
+
+    @Test
+    void samplesEverythingByDefault() {
+        var sampler = LogSampling.sampler(LOGGER_NAME);
+
+        assertThat(sampledCount(sampler, 10)).isEqualTo(10);
+    }
+
+    @Test
+    void samplesEveryNthMessageOfLoggerAndDescendants() {
+        var sampler = LogSampling.sampler(LOGGER_NAME);
+        LogSampling.setPolicy("net.yudichev.jiotty.common.logging", SamplingPolicy.everyNth(4));
+
+        assertThat(sampledCount(sampler, 10)).isEqualTo(3);
+    }
+
+    @Test
+    void closestPolicyWins() {
+        var sampler = LogSampling.sampler(LOGGER_NAME);
+        LogSampling.setPolicy("net.yudichev", SamplingPolicy.perSecond(0));
+        LogSampling.setPolicy(LOGGER_NAME, SamplingPolicy.everyNth(2));
+
+        assertThat(sampledCount(sampler, 10)).isEqualTo(5);
+
+        LogSampling.resetPolicy(LOGGER_NAME);
+        assertThat(sampledCount(sampler, 10)).isEqualTo(0);
+    }
+
+    @Test
+    void limitsMessagesPerSecond() {
+        var sampler = LogSampling.sampler(LOGGER_NAME);
+        LogSampling.setPolicy(LOGGER_NAME, SamplingPolicy.perSecond(3));
+
+        // well within a second
+        assertThat(sampledCount(sampler, 100)).isEqualTo(3);
+    }
+
+    @Test
+    void parsesAndRendersPolicies() {
+        assertThat(SamplingPolicy.parse("all")).isEqualTo(SamplingPolicy.ALL);
+        assertThat(SamplingPolicy.parse("1/1")).isEqualTo(SamplingPolicy.ALL);
+        assertThat(SamplingPolicy.parse(" 1/100 ")).isEqualTo(SamplingPolicy.everyNth(100));
+        assertThat(SamplingPolicy.parse("5/s")).isEqualTo(SamplingPolicy.perSecond(5));
+        assertThat(SamplingPolicy.everyNth(100).toString()).isEqualTo("1/100");
+        assertThat(SamplingPolicy.perSecond(5).toString()).isEqualTo("5/s");
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.parse("2/3"));
+        assertThrows(IllegalArgumentException.class, () -> SamplingPolicy.parse("1/0"));
+    }
+
+    @Test
+    void abbreviatesPayloadsLazily() {
+        assertThat(LogPayloads.abbreviated("abcdef", 3).toString()).isEqualTo("abc...(6 chars)");
+        assertThat(LogPayloads.abbreviated("abc", 3).toString()).isEqualTo("abc");
+        assertThat(LogPayloads.abbreviated(new byte[]{'a', 'b', 'c', 'd'}).toString()).isEqualTo("abcd");
+        assertThat(LogPayloads.abbreviated(new byte[]{'a', 'b', 'c', 'd'}, UTF_8, 2).toString())
+                .isEqualTo("ab...(4 bytes)");
+    }
+
+    private static int sampledCount(LogSampler sampler, int messageCount) {
+        int sampled = 0;
+        for (int i = 0; i < messageCount; i++) {
+            if (sampler.sample()) {
+                sampled++;
+            }
+        }
+        return sampled;
+    }
+}
@@ -0,0 +1,45 @@
+package net.yudichev.jiotty.common.metrics;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MetricsTest {
+    @AfterEach
+    void tearDown() {
+        Metrics.setRegistry(MetricsRegistry.NOOP);
+    }
+
+    @Test
+    void instrumentsCreatedBeforeRegistryIsSetRecordIntoIt() {
+        Counter counter = Metrics.counter("metrics_test_counter");
+        counter.increment();
+        assertThat(Metrics.enabled()).isFalse();
+
+        var registry = new PrometheusMetricsRegistry();
+        Metrics.setRegistry(registry);
+        counter.add(2);
+
+        assertThat(Metrics.enabled()).isTrue();
+        assertThat(registry.scrape()).endsWith("metrics_test_counter 2\n");
+    }
+
+    @Test
+    void gaugesMoveOverToNewRegistryUntilClosed() {
+        var gauge = Metrics.gauge("metrics_test_gauge", Map.of("k", "v"), () -> 5);
+        var first = new PrometheusMetricsRegistry();
+        Metrics.setRegistry(first);
+        assertThat(first.scrape()).endsWith("metrics_test_gauge{k=\"v\"} 5\n");
+
+        var second = new PrometheusMetricsRegistry();
+        Metrics.setRegistry(second);
+        assertThat(first.scrape()).isEmpty();
+        assertThat(second.scrape()).endsWith("metrics_test_gauge{k=\"v\"} 5\n");
+
+        gauge.close();
+        assertThat(second.scrape()).isEmpty();
+    }
+}
@@ -0,0 +1,76 @@
+package net.yudichev.jiotty.common.metrics;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class PrometheusMetricsRegistryTest {
+    private final PrometheusMetricsRegistry registry = new PrometheusMetricsRegistry();
+
+    @Test
+    void rendersSeriesOfOneMetricTogetherUnderOneTypeLine() {
+        registry.counter("requests_total", Map.of("host", "b")).add(2);
+        registry.counter("errors_total", Map.of()).increment();
+        registry.counter("requests_total", Map.of("host", "a")).increment();
+
+        assertThat(registry.scrape()).isEqualTo("""
+                # TYPE errors_total counter
+                errors_total 1
+                # TYPE requests_total counter
+                requests_total{host="a"} 1
+                requests_total{host="b"} 2
+                """);
+    }
+
+    @Test
+    void rendersCumulativeHistogramBuckets() {
+        Histogram histogram = registry.histogram("latency_seconds", Map.of("op", "x"), ImmutableDoubleArray.of(0.1, 1));
+        histogram.record(0.05);
+        histogram.record(0.1);
+        histogram.record(0.5);
+        histogram.record(5);
+
+        assertThat(registry.scrape()).isEqualTo("""
+                # TYPE latency_seconds histogram
+                latency_seconds_bucket{op="x",le="0.1"} 2
+                latency_seconds_bucket{op="x",le="1.0"} 3
+                latency_seconds_bucket{op="x",le="+Inf"} 4
+                latency_seconds_sum{op="x"} 5.65
+                latency_seconds_count{op="x"} 4
+                """);
+    }
+
+    @Test
+    void sumsGaugeSourcesAndDropsClosedOnes() {
+        var first = registry.gauge("queue_depth", Map.of(), () -> 3);
+        registry.gauge("queue_depth", Map.of(), () -> 4);
+        assertThat(registry.scrape()).endsWith("queue_depth 7\n");
+
+        first.close();
+        assertThat(registry.scrape()).endsWith("queue_depth 4\n");
+    }
+
+    @Test
+    void escapesTagValues() {
+        registry.counter("c", Map.of("path", "a\"b\\c\nd")).increment();
+
+        assertThat(registry.scrape()).endsWith("c{path=\"a\\\"b\\\\c\\nd\"} 1\n");
+    }
+
+    @Test
+    void rejectsMetricOfDifferentTypeUnderSameName() {
+        registry.counter("thing", Map.of("a", "1"));
+
+        assertThrows(IllegalArgumentException.class, () -> registry.histogram("thing", Map.of("a", "2"), Histogram.SIZE_BUCKETS));
+    }
+
+    @Test
+    void rejectsInvalidNames() {
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("bad-name", Map.of()));
+        assertThrows(IllegalArgumentException.class, () -> registry.counter("good_name", Map.of("bad-tag", "v")));
+    }
+}
@@ -0,0 +1,207 @@
+package net.yudichev.jiotty.common.rest;
+
+import com.google.common.reflect.TypeToken;
+import net.yudichev.jiotty.common.rest.HttpResponseCache.Fetched;
+import net.yudichev.jiotty.common.rest.HttpResponseCache.Fetcher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HttpResponseCacheTest {
+    private static final TypeToken<Map<String, Integer>> TYPE = new TypeToken<>() {};
+    private static final HttpCachePolicy POLICY = HttpCachePolicy.of("test", Duration.ofMinutes(10))
+                                                                 .withStaleWhileRevalidate(Duration.ofMinutes(10))
+                                                                 .withStaleIfError(Duration.ofHours(1));
+    private static final String URL = "https://example.com/data";
+
+    private final List<String> fetches = new ArrayList<>();
+    private final List<CompletableFuture<Fetched>> pendingFetches = new ArrayList<>();
+    private Path directory;
+    private long nowMillis = 1_000_000;
+    private HttpResponseCache cache;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        directory = Files.createTempDirectory(getClass().getSimpleName());
+        cache = newCache(16);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.toList()) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(directory);
+    }
+
+    @Test
+    void servesFreshResponseWithoutFetchingAndKeepsItAcrossRestarts() {
+        CompletableFuture<Map<String, Integer>> first = get(URL);
+        completeFetch(new Fetched("\"v1\"", null, body(1)));
+        assertThat(first.join()).isEqualTo(Map.of("value", 1));
+
+        nowMillis += Duration.ofMinutes(5).toMillis();
+        assertThat(get(URL).join()).isEqualTo(Map.of("value", 1));
+
+        cache = newCache(16);
+        assertThat(get(URL).join()).isEqualTo(Map.of("value", 1));
+        assertThat(fetches).containsExactly("etag=null, lastModified=null");
+        assertThat(cache.stats()).isEqualTo(new HttpResponseCache.Stats(1, 0, 0, 0, 0));
+    }
+
+    @Test
+    void servesStaleResponseWhileRevalidatingWithValidators() {
+        get(URL);
+        completeFetch(new Fetched("\"v1\"", "Mon, 01 Jan 2024 00:00:00 GMT", body(1)));
+
+        nowMillis += Duration.ofMinutes(15).toMillis();
+        assertThat(get(URL).join()).isEqualTo(Map.of("value", 1));
+        // a second stale request joins the revalidation in flight
+        assertThat(get(URL).join()).isEqualTo(Map.of("value", 1));
+        assertThat(fetches).containsExactly("etag=null, lastModified=null",
+                                            "etag=\"v1\", lastModified=Mon, 01 Jan 2024 00:00:00 GMT");
+
+        completeFetch(new Fetched(null, null, null));
+        assertThat(get(URL).join()).isEqualTo(Map.of("value", 1));
+        assertThat(fetches).hasSize(2);
+        assertThat(cache.stats()).isEqualTo(new HttpResponseCache.Stats(1, 2, 1, 1, 0));
+    }
+
+    @Test
+    void waitsForFreshResponseOnceTooStale() {
+        get(URL);
+        completeFetch(new Fetched("\"v1\"", null, body(1)));
+
+        nowMillis += Duration.ofMinutes(25).toMillis();
+        CompletableFuture<Map<String, Integer>> result = get(URL);
+        assertThat(result.isDone()).isFalse();
+
+        completeFetch(new Fetched("\"v2\"", null, body(2)));
+        assertThat(result.join()).isEqualTo(Map.of("value", 2));
+    }
+
+    @Test
+    void servesStaleResponseIfFetchingFailsWithinStaleIfError() {
+        get(URL);
+        completeFetch(new Fetched(null, null, body(1)));
+
+        nowMillis += Duration.ofMinutes(30).toMillis();
+        CompletableFuture<Map<String, Integer>> withinStaleIfError = get(URL);
+        failFetch();
+        assertThat(withinStaleIfError.join()).isEqualTo(Map.of("value", 1));
+
+        nowMillis += Duration.ofHours(1).toMillis();
+        CompletableFuture<Map<String, Integer>> beyondStaleIfError = get(URL);
+        failFetch();
+        assertThrows(CompletionException.class, beyondStaleIfError::join);
+    }
+
+    @Test
+    void sharesOneFetchBetweenConcurrentMisses() {
+        CompletableFuture<Map<String, Integer>> first = get(URL);
+        CompletableFuture<Map<String, Integer>> second = get(URL);
+        completeFetch(new Fetched(null, null, body(1)));
+
+        assertThat(first.join()).isEqualTo(Map.of("value", 1));
+        assertThat(second.join()).isEqualTo(Map.of("value", 1));
+        assertThat(fetches).hasSize(1);
+    }
+
+    @Test
+    void givesEachCallerItsOwnParsedResponse() {
+        CompletableFuture<Map<String, Integer>> first = get(URL);
+        completeFetch(new Fetched(null, null, body(1)));
+
+        assertThat(get(URL).join()).isNotSameAs(first.join());
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedResponsesIncludingTheirFiles() throws IOException {
+        cache = newCache(2);
+        for (String url : List.of(URL + 1, URL + 2, URL + 3)) {
+            get(url);
+            completeFetch(new Fetched(null, null, body(1)));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(2L);
+        }
+
+        get(URL + 1);
+        assertThat(fetches).hasSize(4);
+    }
+
+    @Test
+    void keepsResponsesToDifferentCredentialsApart() {
+        get(POLICY, URL, "Basic alice");
+        completeFetch(new Fetched(null, null, body(1)));
+        CompletableFuture<Map<String, Integer>> other = get(POLICY, URL, "Basic bob");
+        completeFetch(new Fetched(null, null, body(2)));
+
+        assertThat(other.join()).isEqualTo(Map.of("value", 2));
+        assertThat(get(POLICY, URL, "Basic alice").join()).isEqualTo(Map.of("value", 1));
+        assertThat(fetches).hasSize(2);
+    }
+
+    @Test
+    void keepsResponsesOfMemoryOnlyPolicyOffDisk() throws IOException {
+        HttpCachePolicy memoryOnlyPolicy = POLICY.withMemoryOnly();
+        get(memoryOnlyPolicy, URL, null);
+        completeFetch(new Fetched(null, null, body(1)));
+
+        assertThat(get(memoryOnlyPolicy, URL, null).join()).isEqualTo(Map.of("value", 1));
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isEqualTo(0L);
+        }
+
+        cache = newCache(16);
+        get(memoryOnlyPolicy, URL, null);
+        assertThat(fetches).hasSize(2);
+    }
+
+    private HttpResponseCache newCache(int maxEntries) {
+        return new HttpResponseCache(directory, maxEntries, () -> nowMillis);
+    }
+
+    private CompletableFuture<Map<String, Integer>> get(String url) {
+        return get(POLICY, url, null);
+    }
+
+    private CompletableFuture<Map<String, Integer>> get(HttpCachePolicy policy, String url, String credentials) {
+        Fetcher fetcher = (etag, lastModified) -> {
+            fetches.add("etag=" + etag + ", lastModified=" + lastModified);
+            var future = new CompletableFuture<Fetched>();
+            pendingFetches.add(future);
+            return future;
+        };
+        return cache.get(policy, url, credentials, TYPE, fetcher);
+    }
+
+    private void completeFetch(Fetched fetched) {
+        pendingFetches.removeFirst().complete(fetched);
+    }
+
+    private void failFetch() {
+        pendingFetches.removeFirst().completeExceptionally(new IOException("unreachable"));
+    }
+
+    private static byte[] body(int value) {
+        return ("{\"value\":" + value + '}').getBytes(UTF_8);
+    }
+}
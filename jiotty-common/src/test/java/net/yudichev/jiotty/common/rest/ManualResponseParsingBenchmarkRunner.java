@@ -0,0 +1,79 @@
+package net.yudichev.jiotty.common.rest;
+
+import com.google.common.reflect.TypeToken;
+import net.yudichev.jiotty.common.lang.Json;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.time.Instant;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Time and allocation per parsed response of the way [RestClients#call] reads response bodies now (binding from the stream, recording a
+/// bounded prefix) vs before (`ResponseBody.string()` then parsing the String), over a large price-list-like payload.
+///
+/// `ManualResponseParsingBenchmarkRunner [entries] [iterations]`
+final class ManualResponseParsingBenchmarkRunner {
+    private static final TypeToken<Page> PAGE_TYPE = TypeToken.of(Page.class);
+
+    static void main(String[] args) throws IOException {
+        int entries = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int iterations = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        byte[] body = payload(entries);
+        System.out.printf("payload: %d entries, %d KiB%n", entries, body.length / 1024);
+
+        var threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 3; round++) {
+            for (boolean viaString : new boolean[]{true, false}) {
+                long allocatedBefore = threadMxBean.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long checksum = 0;
+                for (int i = 0; i < iterations; i++) {
+                    Page page = viaString ? parseViaString(new ByteArrayInputStream(body)) : parseStreaming(new ByteArrayInputStream(body));
+                    checksum += page.results().size();
+                }
+                long nanos = System.nanoTime() - start;
+                long allocated = threadMxBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                System.out.printf("round %d %-10s %8.2f ms/op %9.1f KiB/op (checksum %d)%n",
+                                  round, viaString ? "string" : "streaming",
+                                  nanos / 1e6 / iterations, allocated / 1024.0 / iterations, checksum);
+            }
+        }
+    }
+
+    private static Page parseViaString(InputStream in) throws IOException {
+        // what ResponseBody.string() does: read all bytes, then decode
+        String responseString = new String(in.readAllBytes(), UTF_8);
+        return Json.parse(responseString, PAGE_TYPE);
+    }
+
+    private static Page parseStreaming(InputStream in) {
+        var body = new PrefixRecordingInputStream(in, 4096);
+        return Json.parse(body, PAGE_TYPE);
+    }
+
+    private static byte[] payload(int entries) {
+        var sb = new StringBuilder(entries * 120).append("{\"count\":").append(entries).append(",\"results\":[");
+        Instant from = Instant.parse("2025-01-01T00:00:00Z");
+        for (int i = 0; i < entries; i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            sb.append("{\"valueExcVat\":").append(10 + i % 37 * 0.731)
+              .append(",\"valueIncVat\":").append(10.5 + i % 37 * 0.768)
+              .append(",\"validFrom\":\"").append(from.plusSeconds(i * 1800L))
+              .append("\",\"validTo\":\"").append(from.plusSeconds(i * 1800L + 1800))
+              .append("\",\"paymentMethod\":null}");
+        }
+        return sb.append("]}").toString().getBytes(UTF_8);
+    }
+
+    record Page(int count, List<Price> results) {
+    }
+
+    record Price(double valueExcVat, double valueIncVat, String validFrom, String validTo, String paymentMethod) {
+    }
+}
@@ -0,0 +1,33 @@
+package net.yudichev.jiotty.common.rest;
+
+import com.google.common.reflect.TypeToken;
+import net.yudichev.jiotty.common.lang.Json;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PrefixRecordingInputStreamTest {
+    @Test
+    void recordsWholeBodyThatFitsIntoPrefix() {
+        var stream = new PrefixRecordingInputStream(new ByteArrayInputStream("[1,2,3]".getBytes(UTF_8)), 16);
+
+        assertThat(Json.parse(stream, new TypeToken<List<Integer>>() {})).containsExactly(1, 2, 3);
+        assertThat(stream.describe(UTF_8)).isEqualTo("[1,2,3]");
+    }
+
+    @Test
+    void recordsBoundedPrefixOfLongerBody() throws IOException {
+        var stream = new PrefixRecordingInputStream(new ByteArrayInputStream("0123456789".getBytes(UTF_8)), 4);
+
+        assertThat(stream.read()).isEqualTo((int) '0');
+        assertThat(stream.read(new byte[2], 0, 2)).isEqualTo(2);
+        assertThat(stream.skip(100)).isEqualTo(7L);
+
+        assertThat(stream.describe(UTF_8)).isEqualTo("0123...<10 bytes read>");
+    }
+}
@@ -0,0 +1,85 @@
+package net.yudichev.jiotty.common.rest;
+
+import okhttp3.Dispatcher;
+import okhttp3.OkHttpClient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SharedHttpClientTest {
+    @AfterEach
+    void tearDown() {
+        SharedHttpClient.setLimits(SharedHttpClient.Limits.DEFAULT);
+    }
+
+    @Test
+    void derivedClientsShareDispatcherAndConnectionPoolUntilLastIsShutDown() {
+        OkHttpClient client1 = RestClients.newClient();
+        OkHttpClient client2 = RestClients.newClient(builder -> builder.readTimeout(Duration.ofSeconds(1)));
+        assertThat(client2.dispatcher()).isSameAs(client1.dispatcher());
+        assertThat(client2.connectionPool()).isSameAs(client1.connectionPool());
+        assertThat(SharedHttpClient.stats().leases()).isEqualTo(2);
+
+        RestClients.shutdown(client1);
+        RestClients.shutdown(client1); // idempotent
+        assertThat(client2.dispatcher().executorService().isShutdown()).isFalse();
+        assertThat(SharedHttpClient.stats().leases()).isEqualTo(1);
+
+        RestClients.shutdown(client2);
+        assertThat(client2.dispatcher().executorService().isShutdown()).isTrue();
+        assertThat(SharedHttpClient.stats()).isEqualTo(SharedHttpClient.Stats.IDLE);
+
+        OkHttpClient client3 = RestClients.newClient();
+        assertThat(client3.dispatcher()).isNotSameAs(client1.dispatcher());
+        RestClients.shutdown(client3);
+    }
+
+    @Test
+    void clientWithOwnDispatcherSharesConnectionPoolOnly() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        OkHttpClient sharing = RestClients.newClient();
+        OkHttpClient own = RestClients.newClient(builder -> builder.dispatcher(new Dispatcher(executor)));
+        assertThat(own.connectionPool()).isSameAs(sharing.connectionPool());
+
+        RestClients.shutdown(own);
+        assertThat(executor.isShutdown()).isTrue();
+        assertThat(sharing.dispatcher().executorService().isShutdown()).isFalse();
+
+        RestClients.shutdown(sharing);
+    }
+
+    @Test
+    void releasesLeaseOfClientGarbageCollectedWithoutShutdown() throws InterruptedException {
+        OkHttpClient kept = RestClients.newClient();
+        createAndForgetClient();
+        assertThat(SharedHttpClient.stats().leases()).isEqualTo(2);
+
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (SharedHttpClient.stats().leases() > 1 && System.nanoTime() < deadline) {
+            System.gc();
+            Thread.sleep(10);
+        }
+
+        assertThat(SharedHttpClient.stats().leases()).isEqualTo(1);
+        RestClients.shutdown(kept);
+        assertThat(SharedHttpClient.stats()).isEqualTo(SharedHttpClient.Stats.IDLE);
+    }
+
+    @Test
+    void appliesRequestLimitsToSharedDispatcher() {
+        OkHttpClient client = RestClients.newClient();
+        SharedHttpClient.setLimits(new SharedHttpClient.Limits(16, 2, 5, Duration.ofMinutes(1)));
+        assertThat(client.dispatcher().getMaxRequests()).isEqualTo(16);
+        assertThat(client.dispatcher().getMaxRequestsPerHost()).isEqualTo(2);
+        RestClients.shutdown(client);
+    }
+
+    private static void createAndForgetClient() {
+        RestClients.newClient();
+    }
+}
@@ -0,0 +1,122 @@
+package net.yudichev.jiotty.common.varstore;
+
+import com.google.common.reflect.TypeToken;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class JournaledVarStoreTest {
+    @TempDir
+    Path dir;
+    private Path storeFile;
+    private Path journalFile;
+
+    @BeforeEach
+    void setUp() {
+        storeFile = dir.resolve("data.json");
+        journalFile = dir.resolve("data.json.journal");
+    }
+
+    @Test
+    void readsExistingStoreFile() throws IOException {
+        Files.writeString(storeFile, "{\"number\": 42, \"list\": [\"a\", \"b\"]}");
+
+        var store = new JournaledVarStore(storeFile);
+
+        assertThat(store.readValue(Integer.class, "number")).hasValue(42);
+        assertThat(store.readValue(new TypeToken<List<String>>() {}, "list")).hasValue(List.of("a", "b"));
+        assertThat(store.readValue(String.class, "absent")).isEmpty();
+    }
+
+    @Test
+    void recoversValuesSavedBeforeCrash() {
+        var store = new JournaledVarStore(storeFile);
+        store.saveValue("key1", "value1");
+        store.saveValue("key2", 2);
+        store.saveValue("key1", "value1-updated");
+
+        // not stopped: values only exist in the journal
+        var recovered = new JournaledVarStore(storeFile);
+
+        assertThat(recovered.readValue(String.class, "key1")).hasValue("value1-updated");
+        assertThat(recovered.readValue(Integer.class, "key2")).hasValue(2);
+    }
+
+    @Test
+    void ignoresTornRecordAtEndOfJournal() throws IOException {
+        var store = new JournaledVarStore(storeFile);
+        store.saveValue("key", "before");
+        long endOfValidRecords;
+        try (var file = new RandomAccessFile(journalFile.toFile(), "rw")) {
+            endOfValidRecords = findEndOfJournal(file);
+            // a record whose length made it to disk but whose payload didn't
+            file.seek(endOfValidRecords);
+            file.writeInt(100);
+            file.writeInt(12345);
+            file.write("garbage".getBytes(UTF_8));
+        }
+
+        var recovered = new JournaledVarStore(storeFile);
+
+        assertThat(recovered.readValue(String.class, "key")).hasValue("before");
+        recovered.saveValue("key", "after");
+        assertThat(new JournaledVarStore(storeFile).readValue(String.class, "key")).hasValue("after");
+    }
+
+    @Test
+    void compactsWhenJournalIsFull() {
+        var store = new JournaledVarStore(storeFile);
+        String bigValue = "x".repeat(10_000);
+        for (int i = 0; i < 500; i++) {
+            store.saveValue("key" + i % 10, bigValue + i);
+        }
+
+        assertThat(store.readValue(String.class, "key9")).hasValue(bigValue + 499);
+        assertThat(new JournaledVarStore(storeFile).readValue(String.class, "key0")).hasValue(bigValue + 490);
+    }
+
+    @Test
+    void stopWritesSnapshotReadableByVarStoreImpl() {
+        var store = new JournaledVarStore(storeFile);
+        store.start();
+        store.saveValue("key", "value");
+        store.stop();
+
+        assertThat(new VarStoreImpl(storeFile).readValue(String.class, "key")).hasValue("value");
+    }
+
+    @Test
+    void keepsSavingAfterRestart() {
+        var store = new JournaledVarStore(storeFile);
+        store.start();
+        store.saveValue("key1", "value1");
+        store.stop();
+        store.start();
+        store.saveValue("key2", "value2");
+
+        // not stopped again: the second value only exists in the journal
+        var recovered = new JournaledVarStore(storeFile);
+        assertThat(recovered.readValue(String.class, "key1")).hasValue("value1");
+        assertThat(recovered.readValue(String.class, "key2")).hasValue("value2");
+        store.stop();
+    }
+
+    private static long findEndOfJournal(RandomAccessFile file) throws IOException {
+        long position = 0;
+        int length;
+        while ((length = file.readInt()) != 0) {
+            position += 2 * Integer.BYTES + length;
+            file.seek(position);
+        }
+        return position;
+    }
+}
@@ -0,0 +1,310 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.util.Comparator.reverseOrder;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
+
+/// Sends alerts by email off the threads that raise them:
+/// - alerts are put into a bounded buffer, which never blocks; those that do not fit are dropped and their number reported in the next
+/// email;
+/// - alerts arriving within the digest window of the first one are sent as one email, with their counts per logger and message template;
+/// - emails are spooled to disk before being sent and only deleted once sent, so they survive restarts, and sending is retried with
+/// exponential backoff while it fails, e.g. while the network is down.
+final class AlertDispatcher {
+    private static final String SPOOL_FILE_SUFFIX = ".alert";
+    private static final String TEMP_SPOOL_FILE_SUFFIX = SPOOL_FILE_SUFFIX + ".tmp";
+    /// offered on stop to wake the thread up if it is waiting for alerts
+    private static final Alert WAKE_UP = new Alert(0, "", "", "", "");
+    private static final int MAX_SPOOLED_EMAILS = 1000;
+    private static final int MAX_ALERTS_IN_DIGEST_BODY = 20;
+    private static final Duration MAX_BACKOFF = Duration.ofMinutes(30);
+
+    private final String subjectPrefix;
+    private final Sender sender;
+    private final Path spoolDirectory;
+    private final long digestWindowNanos;
+    private final long initialBackoffNanos;
+    private final BiConsumer<String, Throwable> errorLogger;
+    private final BlockingQueue<Alert> buffer;
+    private final AtomicLong droppedCount = new AtomicLong();
+    private final Thread thread;
+    private volatile boolean stopping;
+
+    // the rest is confined to the thread
+    private final Digest digest = new Digest();
+    private final Deque<SpooledEmail> spooledEmails = new ArrayDeque<>();
+    private long digestDeadlineNanos;
+    private long backoffNanos;
+    private long nextAttemptNanos;
+    private long spoolSequence;
+
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    AlertDispatcher(String name,
+                    String subjectPrefix,
+                    Sender sender,
+                    Path spoolDirectory,
+                    int bufferCapacity,
+                    Duration digestWindow,
+                    Duration initialBackoff,
+                    BiConsumer<String, Throwable> errorLogger) {
+        this.subjectPrefix = checkNotNull(subjectPrefix);
+        this.sender = checkNotNull(sender);
+        this.spoolDirectory = checkNotNull(spoolDirectory);
+        checkArgument(!digestWindow.isNegative(), "digestWindow must not be negative: %s", digestWindow);
+        digestWindowNanos = digestWindow.toNanos();
+        checkArgument(initialBackoff.isPositive(), "initialBackoff must be positive: %s", initialBackoff);
+        initialBackoffNanos = initialBackoff.toNanos();
+        this.errorLogger = checkNotNull(errorLogger);
+        buffer = new ArrayBlockingQueue<>(bufferCapacity);
+        thread = new Thread(this::run, "AlertDispatcher-" + name);
+        thread.setDaemon(true);
+    }
+
+    void start() {
+        thread.start();
+    }
+
+    /// @return `false` if the buffer is full and the alert has been dropped
+    boolean offer(Alert alert) {
+        if (buffer.offer(alert)) {
+            return true;
+        }
+        droppedCount.incrementAndGet();
+        return false;
+    }
+
+    /// Spools whatever has been offered and makes one more attempt to send all spooled emails; if that takes longer than the timeout, the
+    /// thread is interrupted, and the emails still spooled are sent on the next start.
+    void stop(Duration timeout) throws InterruptedException {
+        stopping = true;
+        // if the buffer is full, the thread is not waiting and sees the flag after taking the next alert
+        buffer.offer(WAKE_UP);
+        thread.join(timeout.toMillis());
+        if (thread.isAlive()) {
+            thread.interrupt();
+        }
+    }
+
+    private void run() {
+        loadSpooledEmails();
+        while (!stopping) {
+            try {
+                if (!spooledEmails.isEmpty() && (backoffNanos == 0 || System.nanoTime() - nextAttemptNanos >= 0)) {
+                    sendSpooledEmails();
+                }
+                Alert alert = pollBuffer();
+                if (alert != null && alert != WAKE_UP) {
+                    addToDigest(alert);
+                }
+                if (!digest.isEmpty() && System.nanoTime() - digestDeadlineNanos >= 0) {
+                    spoolDigest();
+                }
+            } catch (InterruptedException e) {
+                // stopping
+            } catch (RuntimeException e) {
+                errorLogger.accept("Unexpected failure dispatching alerts", e);
+            }
+        }
+        for (Alert alert = buffer.poll(); alert != null; alert = buffer.poll()) {
+            if (alert != WAKE_UP) {
+                addToDigest(alert);
+            }
+        }
+        if (!digest.isEmpty() || droppedCount.get() > 0) {
+            spoolDigest();
+        }
+        sendSpooledEmails();
+    }
+
+    @Nullable
+    private Alert pollBuffer() throws InterruptedException {
+        long nowNanos = System.nanoTime();
+        long waitNanos = Long.MAX_VALUE;
+        if (!digest.isEmpty()) {
+            waitNanos = digestDeadlineNanos - nowNanos;
+        }
+        if (!spooledEmails.isEmpty()) {
+            waitNanos = Math.min(waitNanos, backoffNanos == 0 ? 0 : nextAttemptNanos - nowNanos);
+        }
+        return waitNanos == Long.MAX_VALUE ? buffer.take() : buffer.poll(Math.max(0, waitNanos), NANOSECONDS);
+    }
+
+    private void addToDigest(Alert alert) {
+        if (digest.isEmpty()) {
+            digestDeadlineNanos = System.nanoTime() + digestWindowNanos;
+        }
+        digest.add(alert);
+    }
+
+    private void spoolDigest() {
+        Email email = digest.toEmail(subjectPrefix, droppedCount.getAndSet(0));
+        digest.clear();
+        String fileName = String.format("%d-%06d", System.currentTimeMillis(), spoolSequence++);
+        Path file = spoolDirectory.resolve(fileName + SPOOL_FILE_SUFFIX);
+        Path tempFile = spoolDirectory.resolve(fileName + TEMP_SPOOL_FILE_SUFFIX);
+        try {
+            Files.createDirectories(spoolDirectory);
+            Files.writeString(tempFile, email.subject() + '\n' + email.body(), UTF_8);
+            Files.move(tempFile, file, ATOMIC_MOVE);
+        } catch (IOException e) {
+            errorLogger.accept("Unable to spool alert email to " + file + ", it will be lost if not sent before the application stops", e);
+            file = null;
+        }
+        spooledEmails.addLast(new SpooledEmail(file, email));
+        while (spooledEmails.size() > MAX_SPOOLED_EMAILS) {
+            SpooledEmail oldest = spooledEmails.removeFirst();
+            errorLogger.accept("Too many unsent alert emails, deleting the oldest: " + oldest.email().subject(), null);
+            deleteSpoolFile(oldest.file());
+        }
+    }
+
+    private void sendSpooledEmails() {
+        while (!spooledEmails.isEmpty()) {
+            SpooledEmail spooledEmail = spooledEmails.peekFirst();
+            try {
+                sender.send(spooledEmail.email().subject(), spooledEmail.email().body());
+            } catch (IOException | RuntimeException e) {
+                backoffNanos = backoffNanos == 0 ? initialBackoffNanos : Math.min(backoffNanos * 2, MAX_BACKOFF.toNanos());
+                nextAttemptNanos = System.nanoTime() + backoffNanos;
+                errorLogger.accept("Unable to send alert email, " + spooledEmails.size() + " pending, retrying in " + Duration.ofNanos(backoffNanos), e);
+                return;
+            }
+            backoffNanos = 0;
+            spooledEmails.removeFirst();
+            deleteSpoolFile(spooledEmail.file());
+        }
+    }
+
+    private void loadSpooledEmails() {
+        if (!Files.isDirectory(spoolDirectory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(spoolDirectory, "*{" + SPOOL_FILE_SUFFIX + ',' + TEMP_SPOOL_FILE_SUFFIX + '}')) {
+            for (Path file : stream) {
+                // left by spooling interrupted by a crash
+                if (file.toString().endsWith(TEMP_SPOOL_FILE_SUFFIX)) {
+                    deleteSpoolFile(file);
+                } else {
+                    files.add(file);
+                }
+            }
+        } catch (IOException e) {
+            errorLogger.accept("Unable to list spooled alert emails in " + spoolDirectory, e);
+        }
+        // named by time, so this is the order they were spooled in
+        files.sort(null);
+        for (Path file : files) {
+            try {
+                String content = Files.readString(file, UTF_8);
+                int subjectEnd = content.indexOf('\n');
+                spooledEmails.addLast(new SpooledEmail(file, new Email(content.substring(0, subjectEnd), content.substring(subjectEnd + 1))));
+            } catch (IOException | RuntimeException e) {
+                errorLogger.accept("Unable to read spooled alert email " + file + ", deleting it", e);
+                deleteSpoolFile(file);
+            }
+        }
+    }
+
+    private void deleteSpoolFile(@Nullable Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                errorLogger.accept("Unable to delete spooled alert email " + file, e);
+            }
+        }
+    }
+
+    interface Sender {
+        void send(String subject, String body) throws IOException;
+    }
+
+    /// @param messageTemplate the message before parameters are substituted, which is what alerts are counted by
+    /// @param text            the alert as formatted by the layout
+    record Alert(long timeMillis, String level, String loggerName, String messageTemplate, String text) {}
+
+    record Email(String subject, String body) {}
+
+    private record Source(String loggerName, String messageTemplate) {}
+
+    /// Only keeps the first alerts in full, so that a burst does not fill the memory.
+    private static final class Digest {
+        private final List<Alert> firstAlerts = new ArrayList<>(MAX_ALERTS_IN_DIGEST_BODY);
+        private final Map<Source, Long> countsBySource = new LinkedHashMap<>();
+        private final Set<String> levels = new LinkedHashSet<>();
+        private int size;
+        private long lastTimeMillis;
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        void add(Alert alert) {
+            if (firstAlerts.size() < MAX_ALERTS_IN_DIGEST_BODY) {
+                firstAlerts.add(alert);
+            }
+            countsBySource.merge(new Source(alert.loggerName(), alert.messageTemplate()), 1L, Long::sum);
+            levels.add(alert.level());
+            size++;
+            lastTimeMillis = alert.timeMillis();
+        }
+
+        void clear() {
+            firstAlerts.clear();
+            countsBySource.clear();
+            levels.clear();
+            size = 0;
+        }
+
+        Email toEmail(String subjectPrefix, long dropped) {
+            if (size == 1 && dropped == 0) {
+                Alert alert = firstAlerts.getFirst();
+                return new Email(subjectPrefix + alert.level(), alert.text());
+            }
+            if (size == 0) {
+                return new Email(subjectPrefix + dropped + " dropped events", dropped + " events dropped as the buffer was full\n");
+            }
+            var body = new StringBuilder(4096);
+            body.append(size).append(" events from ").append(Instant.ofEpochMilli(firstAlerts.getFirst().timeMillis()))
+                .append(" to ").append(Instant.ofEpochMilli(lastTimeMillis));
+            if (dropped > 0) {
+                body.append(", ").append(dropped).append(" more dropped as the buffer was full");
+            }
+            body.append("\n\n");
+            countsBySource.entrySet().stream()
+                          .sorted(Map.Entry.comparingByValue(reverseOrder()))
+                          .forEach(entry -> body.append(String.format("%7d  %s: %s\n", entry.getValue(), entry.getKey().loggerName(), entry.getKey().messageTemplate())));
+            body.append("\nFirst ").append(firstAlerts.size()).append(" of them:\n\n");
+            firstAlerts.forEach(alert -> body.append(alert.text()));
+            return new Email(subjectPrefix + size + ' ' + String.join("/", levels) + " events", body.toString());
+        }
+    }
+
+    /// @param file `null` if it could not be spooled
+    private record SpooledEmail(@Nullable Path file, Email email) {}
+}
@@ -9,6 +9,7 @@ import jakarta.mail.Session;
 import jakarta.mail.internet.InternetAddress;
 import jakarta.mail.internet.MimeMessage;
 import net.yudichev.jiotty.connector.google.common.GoogleAuthorization;
+import net.yudichev.jiotty.connector.google.gmail.AlertDispatcher.Alert;
 import org.apache.logging.log4j.core.Appender;
 import org.apache.logging.log4j.core.Core;
 import org.apache.logging.log4j.core.Filter;
@@ -29,54 +30,45 @@ import java.net.InetAddress;
 import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.time.Duration;
 import java.util.Properties;
-import java.util.concurrent.locks.Lock;
-import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.TimeUnit;
 
 import static com.google.api.services.gmail.GmailScopes.GMAIL_SEND;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.io.BaseEncoding.base64;
 import static java.lang.Boolean.TRUE;
-import static net.yudichev.jiotty.common.lang.Locks.inLock;
 import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
 import static net.yudichev.jiotty.connector.google.gmail.Constants.ME;
 
-// TODO ensure it queues emails for a significant amount of time if unable to send, think internet connection interrupted
+/// Emails log events, typically errors, to the given address. Events are handed over to an [AlertDispatcher], so logging never waits
+/// for the network: events arriving within `digestWindowSeconds` of each other are sent as one email, and emails that cannot be sent are
+/// kept in `spoolDir` and retried, also after a restart.
 @Plugin(name = "GmailAppender",
         category = Core.CATEGORY_NAME,
         elementType = Appender.ELEMENT_TYPE)
 public final class GmailAppender extends AbstractAppender {
-    private final String emailAddress;
-    private final Path authDataStorePath;
-    private final String applicationName;
-    private final URL credentialsUrl;
-    private final Lock lock = new ReentrantLock();
-    private Gmail service;
+    private static final int DEFAULT_BUFFER_SIZE = 1024;
+    private static final int DEFAULT_DIGEST_WINDOW_SECONDS = 30;
+    private static final Duration INITIAL_BACKOFF = Duration.ofSeconds(10);
+    private static final Duration DEFAULT_STOP_TIMEOUT = Duration.ofSeconds(10);
+
+    private final AlertDispatcher dispatcher;
 
     @SuppressWarnings("ConstructorWithTooManyParameters")
-    private GmailAppender(String name,
-                          Filter filter,
-                          Layout<? extends Serializable> layout,
-                          boolean ignoreExceptions,
-                          String emailAddress,
-                          String authDataStoreRootDir,
-                          String applicationName,
-                          Boolean addHostNameToSubject,
-                          String credentialsResourcePath,
-                          Property[] properties) {
+    GmailAppender(String name,
+                  Filter filter,
+                  Layout<? extends Serializable> layout,
+                  boolean ignoreExceptions,
+                  Property[] properties,
+                  AlertDispatcher.Sender sender,
+                  String subjectPrefix,
+                  Path spoolDirectory,
+                  int bufferSize,
+                  Duration digestWindow) {
         super(name, filter, layout, ignoreExceptions, properties);
-        this.emailAddress = checkNotNull(emailAddress, "emailAddress attribute is required");
-        checkNotNull(credentialsResourcePath);
-        credentialsUrl = GmailAppender.class.getClassLoader().getResource(credentialsResourcePath);
-        checkArgument(credentialsUrl != null, "Credentials resource not found at %s", credentialsResourcePath);
-        this.applicationName = checkNotNull(applicationName, "applicationName attribute is required")
-                + (TRUE.equals(addHostNameToSubject) ? " @ " + getAsUnchecked(() -> InetAddress.getLocalHost().getHostName()) : "");
-        authDataStorePath = authDataStoreRootDir == null ?
-                Paths.get(System.getProperty("user.home"))
-                     .resolve("." + applicationName)
-                     .resolve("googletokens") :
-                Paths.get(authDataStoreRootDir);
+        dispatcher = new AlertDispatcher(name, subjectPrefix, sender, spoolDirectory, bufferSize, digestWindow, INITIAL_BACKOFF, LOGGER::error);
     }
 
     @SuppressWarnings({"BooleanParameter", "MethodWithTooManyParameters"})
@@ -88,60 +80,120 @@ public final class GmailAppender extends AbstractAppender {
                                                @PluginAttribute("applicationName") String applicationName,
                                                @PluginAttribute("addHostNameToSubject") Boolean addHostNameToSubject,
                                                @PluginAttribute("credentialsResourcePath") String credentialsResourcePath,
+                                               @PluginAttribute("spoolDir") String spoolDir,
+                                               @PluginAttribute(value = "bufferSize", defaultInt = DEFAULT_BUFFER_SIZE) int bufferSize,
+                                               @PluginAttribute(value = "digestWindowSeconds", defaultInt = DEFAULT_DIGEST_WINDOW_SECONDS)
+                                               int digestWindowSeconds,
                                                @PluginElement("Layout") Layout<? extends Serializable> layout,
                                                @PluginElement("Filters") Filter filter) {
 
         checkArgument(name != null, "No name provided for %s", GmailAppender.class.getSimpleName());
+        checkNotNull(emailAddress, "emailAddress attribute is required");
+        checkNotNull(applicationName, "applicationName attribute is required");
+        checkNotNull(credentialsResourcePath);
+        URL credentialsUrl = GmailAppender.class.getClassLoader().getResource(credentialsResourcePath);
+        checkArgument(credentialsUrl != null, "Credentials resource not found at %s", credentialsResourcePath);
 
         if (layout == null) {
             layout = PatternLayout.createDefaultLayout();
         }
+        Path applicationDirectory = Paths.get(System.getProperty("user.home")).resolve("." + applicationName);
+        Path authDataStorePath = authDataStoreRootDir == null ? applicationDirectory.resolve("googletokens") : Paths.get(authDataStoreRootDir);
+        String subjectPrefix = applicationName
+                + (TRUE.equals(addHostNameToSubject) ? " @ " + getAsUnchecked(() -> InetAddress.getLocalHost().getHostName()) : "")
+                + " alert: ";
         return new GmailAppender(name,
                                  filter,
                                  layout,
                                  ignoreExceptions,
-                                 emailAddress,
-                                 authDataStoreRootDir,
-                                 applicationName,
-                                 addHostNameToSubject,
-                                 credentialsResourcePath,
-                                 null);
+                                 null,
+                                 new GmailSender(emailAddress, authDataStorePath, credentialsUrl),
+                                 subjectPrefix,
+                                 spoolDir == null ? applicationDirectory.resolve("alert-spool") : Paths.get(spoolDir),
+                                 bufferSize,
+                                 Duration.ofSeconds(digestWindowSeconds));
     }
 
     @Override
-    public void append(LogEvent event) {
+    public void start() {
+        dispatcher.start();
+        super.start();
+    }
+
+    @Override
+    public boolean stop(long timeout, TimeUnit timeUnit) {
+        setStopping();
+        boolean stopped = super.stop(timeout, timeUnit, false);
         try {
-            Properties props = new Properties();
-            Session session = Session.getDefaultInstance(props, null);
-
-            MimeMessage email = new MimeMessage(session);
-
-            email.setFrom(new InternetAddress(emailAddress));
-            email.addRecipient(RecipientType.TO, new InternetAddress(emailAddress));
-            email.setSubject(applicationName + " alert: " + event.getLevel());
-            email.setText(toSerializable(event).toString());
-
-            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
-            email.writeTo(buffer);
-            byte[] bytes = buffer.toByteArray();
-            String encodedEmail = base64().encode(bytes);
-            Message message = new Message();
-            message.setRaw(encodedEmail);
-            inLock(lock, () -> {
-                if (service == null) {
-                    var googleAuthorization = GoogleAuthorization.builder()
-                                                                 .setHttpTransport(getAsUnchecked(GoogleNetHttpTransport::newTrustedTransport))
-                                                                 .setAuthDataStoreRootDir(authDataStorePath)
-                                                                 .setCredentialsUrl(credentialsUrl)
-                                                                 .addRequiredScope(GMAIL_SEND)
-                                                                 .build();
-                    service = GmailProvider.createService(googleAuthorization);
-                }
-                return service;
-            }).users().messages().send(ME, message).execute();
-        } catch (MessagingException | IOException e) {
-            //noinspection CallToPrintStackTrace OK for appender
-            e.printStackTrace();
+            dispatcher.stop(timeout > 0 ? Duration.ofNanos(timeUnit.toNanos(timeout)) : DEFAULT_STOP_TIMEOUT);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            stopped = false;
+        }
+        setStopped();
+        return stopped;
+    }
+
+    @Override
+    public void append(LogEvent event) {
+        // the event may be reused once this returns, so everything needed is taken now
+        String messageTemplate = event.getMessage().getFormat();
+        dispatcher.offer(new Alert(event.getTimeMillis(),
+                                   event.getLevel().name(),
+                                   event.getLoggerName(),
+                                   messageTemplate == null ? event.getMessage().getFormattedMessage() : messageTemplate,
+                                   toSerializable(event).toString()));
+    }
+
+    private static final class GmailSender implements AlertDispatcher.Sender {
+        private final String emailAddress;
+        private final Path authDataStorePath;
+        private final URL credentialsUrl;
+        /// only used by the dispatcher thread
+        private Gmail service;
+
+        GmailSender(String emailAddress, Path authDataStorePath, URL credentialsUrl) {
+            this.emailAddress = checkNotNull(emailAddress);
+            this.authDataStorePath = checkNotNull(authDataStorePath);
+            this.credentialsUrl = checkNotNull(credentialsUrl);
+        }
+
+        @Override
+        public void send(String subject, String body) throws IOException {
+            try {
+                Properties props = new Properties();
+                Session session = Session.getDefaultInstance(props, null);
+
+                MimeMessage email = new MimeMessage(session);
+
+                email.setFrom(new InternetAddress(emailAddress));
+                email.addRecipient(RecipientType.TO, new InternetAddress(emailAddress));
+                email.setSubject(subject);
+                email.setText(body);
+
+                ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+                email.writeTo(buffer);
+                byte[] bytes = buffer.toByteArray();
+                String encodedEmail = base64().encode(bytes);
+                Message message = new Message();
+                message.setRaw(encodedEmail);
+                service().users().messages().send(ME, message).execute();
+            } catch (MessagingException e) {
+                throw new IOException(e);
+            }
+        }
+
+        private Gmail service() {
+            if (service == null) {
+                var googleAuthorization = GoogleAuthorization.builder()
+                                                             .setHttpTransport(getAsUnchecked(GoogleNetHttpTransport::newTrustedTransport))
+                                                             .setAuthDataStoreRootDir(authDataStorePath)
+                                                             .setCredentialsUrl(credentialsUrl)
+                                                             .addRequiredScope(GMAIL_SEND)
+                                                             .build();
+                service = GmailProvider.createService(googleAuthorization);
+            }
+            return service;
         }
     }
 }
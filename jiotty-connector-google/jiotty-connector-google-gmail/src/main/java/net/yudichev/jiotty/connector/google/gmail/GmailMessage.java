@@ -16,6 +16,8 @@ public interface GmailMessage {
         return getHeader(name).orElseThrow(() -> new IllegalStateException("No header '" + name + "' in the message"));
     }
 
+    /// The first call on a message blocks the calling thread while the message is loaded in full, as delivered messages only come with
+    /// their headers.
     Collection<GmailMessageAttachment> getAttachments(Predicate<? super String> mimeTypePredicate);
 
     CompletableFuture<Void> applyLabels(LabelsChange labelsChange);
@@ -27,11 +27,13 @@ import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
 import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
 import static net.yudichev.jiotty.connector.google.gmail.Constants.ME;
 
+/// Wraps a message loaded in the `metadata` format, which has the headers; the `full` one is only loaded if the attachments are needed.
 final class InternalGmailMessage implements GmailMessage {
     private static final Set<String> TO_STRING_HEADERS = ImmutableSet.of("From", "To", "Subject", "Date");
     private final Gmail gmail;
     private final InternalGmailObjectFactory internalGmailObjectFactory;
     private final Message message;
+    private volatile Message fullMessage;
     private String asString;
 
     @Inject
@@ -54,10 +56,11 @@ final class InternalGmailMessage implements GmailMessage {
 
     @Override
     public Collection<GmailMessageAttachment> getAttachments(Predicate<? super String> mimeTypePredicate) {
-        return message.getPayload().getParts().stream()
-                      .filter(messagePart -> mimeTypePredicate.test(messagePart.getMimeType()))
-                      .map(messagePart -> internalGmailObjectFactory.createAttachment(message, messagePart))
-                      .collect(toImmutableList());
+        Message full = fullMessage();
+        return full.getPayload().getParts().stream()
+                   .filter(messagePart -> mimeTypePredicate.test(messagePart.getMimeType()))
+                   .map(messagePart -> internalGmailObjectFactory.createAttachment(full, messagePart))
+                   .collect(toImmutableList());
     }
 
     @Override
@@ -109,6 +112,16 @@ final class InternalGmailMessage implements GmailMessage {
         return asString;
     }
 
+    private Message fullMessage() {
+        Message result = fullMessage;
+        if (result == null) {
+            // racing threads may both load it, which is harmless
+            result = getAsUnchecked(() -> gmail.users().messages().get(ME, message.getId()).setFormat("full").execute());
+            fullMessage = result;
+        }
+        return result;
+    }
+
     private static List<String> toListOfIds(Collection<GmailLabel> labelsToAdd) {
         return labelsToAdd.stream().map(gmailLabel -> ((InternalGmailLabel) gmailLabel).getId()).collect(toList());
     }
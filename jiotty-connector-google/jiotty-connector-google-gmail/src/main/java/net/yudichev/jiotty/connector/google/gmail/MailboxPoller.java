@@ -0,0 +1,340 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import com.google.api.client.googleapis.batch.BatchRequest;
+import com.google.api.client.googleapis.batch.json.JsonBatchCallback;
+import com.google.api.client.googleapis.json.GoogleJsonError;
+import com.google.api.client.googleapis.json.GoogleJsonResponseException;
+import com.google.api.client.http.HttpHeaders;
+import com.google.api.services.gmail.Gmail;
+import com.google.api.services.gmail.model.History;
+import com.google.api.services.gmail.model.HistoryLabelAdded;
+import com.google.api.services.gmail.model.HistoryMessageAdded;
+import com.google.api.services.gmail.model.ListHistoryResponse;
+import com.google.api.services.gmail.model.ListMessagesResponse;
+import com.google.api.services.gmail.model.Message;
+import com.google.common.collect.Lists;
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.metrics.Counter;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.math.BigInteger;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.stream.Collectors.groupingBy;
+import static java.util.stream.Collectors.toList;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
+import static net.yudichev.jiotty.common.lang.Runnables.guarded;
+import static net.yudichev.jiotty.connector.google.gmail.Constants.ME;
+
+/// Delivers messages matching the subscribed queries, doing one full listing per query when a subscription is added and then following
+/// the mailbox's `users.history` feed, so that the cost of a poll depends on the amount of new mail rather than on the size of the mailbox.
+///
+/// Besides new messages, the history tells which messages got a label (e.g. were moved to a folder, or out of spam), so that those that
+/// come to match a query after they arrived are delivered too, as a listing of the query would; a message may thus be delivered again, if
+/// it matched a query before it got the label.
+///
+/// The history feed is mailbox-wide, so one poll serves all subscriptions: changed messages are loaded once, in the `metadata` format, and
+/// each distinct query is only listed to tell which of them it matches, restricted to the dates of the changed messages. Gmail evaluates
+/// queries server-side, so subscriptions only share a listing if their queries are the same.
+///
+/// Listeners may be added and removed from any thread; everything else must be called from one thread at a time.
+final class MailboxPoller {
+    private static final Logger logger = LoggerFactory.getLogger(MailboxPoller.class);
+    /// the maximum number of calls in a Gmail batch
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final List<String> HISTORY_TYPES = List.of("messageAdded", "labelAdded");
+    /// `after:` compares seconds with the message date, which may be a bit off its internal date
+    private static final long AFTER_MARGIN_SECONDS = 60;
+    private static final int HTTP_NOT_FOUND = 404;
+    private static final Counter PROFILE_CALLS = apiCallCounter("users.getProfile");
+    private static final Counter HISTORY_LIST_CALLS = apiCallCounter("users.history.list");
+    private static final Counter MESSAGES_LIST_CALLS = apiCallCounter("users.messages.list");
+    private static final Counter MESSAGES_GET_CALLS = apiCallCounter("users.messages.get");
+
+    private final Gmail gmail;
+    private final Function<Message, GmailMessage> messageFactory;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+    /// where the next poll of the history starts; `null` while there are no listeners
+    @Nullable
+    private BigInteger historyId;
+
+    MailboxPoller(Gmail gmail, Function<Message, GmailMessage> messageFactory) {
+        this.gmail = checkNotNull(gmail);
+        this.messageFactory = checkNotNull(messageFactory);
+    }
+
+    /// The listener gets all messages currently matching the query on the next [#synchronizeNewListeners()] or [#poll()], and new ones
+    /// after that.
+    Listener addListener(String query, Consumer<GmailMessage> handler) {
+        var listener = new Listener(query, handler);
+        listeners.add(listener);
+        return listener;
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    void removeAllListeners() {
+        listeners.clear();
+    }
+
+    ApiCalls synchronizeNewListeners() {
+        var calls = new ApiCallCounter();
+        asUnchecked(() -> synchronizeNewListeners(calls));
+        return calls.report("synchronizing new subscriptions");
+    }
+
+    ApiCalls poll() {
+        var calls = new ApiCallCounter();
+        asUnchecked(() -> {
+            synchronizeNewListeners(calls);
+            if (listeners.isEmpty()) {
+                historyId = null;
+            } else if (historyId != null) {
+                pollHistory(calls);
+            }
+        });
+        return calls.report("polling");
+    }
+
+    private void synchronizeNewListeners(ApiCallCounter calls) throws IOException {
+        Map<String, List<Listener>> newListenersByQuery = listeners.stream()
+                                                                   .filter(listener -> listener.startHistoryId == null)
+                                                                   .collect(groupingBy(listener -> listener.query, LinkedHashMap::new, toList()));
+        if (newListenersByQuery.isEmpty()) {
+            return;
+        }
+        // taken before listing, so that anything arriving during the listing is in the history after it
+        BigInteger startHistoryId = getCurrentHistoryId(calls);
+        for (Map.Entry<String, List<Listener>> entry : newListenersByQuery.entrySet()) {
+            List<String> messageIds = listMessageIds(entry.getKey(), null, calls);
+            logger.debug("Initial listing of '{}' returned {} messages", entry.getKey(), messageIds.size());
+            List<GmailMessage> messages = getMetadata(messageIds, calls).stream().map(messageFactory).toList();
+            for (Listener listener : entry.getValue()) {
+                messages.forEach(listener::deliver);
+                listener.startHistoryId = startHistoryId;
+                listener.initiallyListedIds = new HashSet<>(messageIds);
+            }
+        }
+        if (historyId == null) {
+            historyId = startHistoryId;
+        }
+    }
+
+    private void pollHistory(ApiCallCounter calls) throws IOException {
+        logger.debug("Polling history from {}", historyId);
+        Map<String, BigInteger> changedHistoryIdsByMessageId = new LinkedHashMap<>();
+        BigInteger newHistoryId;
+        String pageToken = null;
+        try {
+            do {
+                ListHistoryResponse response = gmail.users().history().list(ME)
+                                                    .setStartHistoryId(historyId)
+                                                    .setHistoryTypes(HISTORY_TYPES)
+                                                    .setPageToken(pageToken)
+                                                    .execute();
+                calls.historyList++;
+                if (response.getHistory() != null) {
+                    for (History historyRecord : response.getHistory()) {
+                        if (historyRecord.getMessagesAdded() != null) {
+                            for (HistoryMessageAdded added : historyRecord.getMessagesAdded()) {
+                                changedHistoryIdsByMessageId.putIfAbsent(added.getMessage().getId(), historyRecord.getId());
+                            }
+                        }
+                        if (historyRecord.getLabelsAdded() != null) {
+                            for (HistoryLabelAdded labelAdded : historyRecord.getLabelsAdded()) {
+                                changedHistoryIdsByMessageId.putIfAbsent(labelAdded.getMessage().getId(), historyRecord.getId());
+                            }
+                        }
+                    }
+                }
+                newHistoryId = response.getHistoryId();
+                pageToken = response.getNextPageToken();
+            } while (pageToken != null);
+        } catch (GoogleJsonResponseException e) {
+            if (e.getStatusCode() != HTTP_NOT_FOUND) {
+                throw e;
+            }
+            // the history is only kept for a limited time
+            logger.warn("History from {} is no longer available, listing all subscribed queries again", historyId);
+            relistAll(calls);
+            return;
+        }
+
+        if (!changedHistoryIdsByMessageId.isEmpty()) {
+            List<Message> messages = getMetadata(new ArrayList<>(changedHistoryIdsByMessageId.keySet()), calls);
+            if (!messages.isEmpty()) {
+                long afterSeconds = messages.stream().mapToLong(Message::getInternalDate).min().orElseThrow() / 1000 - AFTER_MARGIN_SECONDS;
+                Set<String> changedMessageIds = new HashSet<>(changedHistoryIdsByMessageId.keySet());
+                Map<String, Set<String>> matchingIdsByQuery = new HashMap<>();
+                for (Listener listener : listeners) {
+                    if (listener.startHistoryId != null && !matchingIdsByQuery.containsKey(listener.query)) {
+                        matchingIdsByQuery.put(listener.query, listMatchingIds(listener.query, afterSeconds, changedMessageIds, calls));
+                    }
+                }
+                for (Message message : messages) {
+                    BigInteger changedHistoryId = changedHistoryIdsByMessageId.get(message.getId());
+                    GmailMessage gmailMessage = null;
+                    for (Listener listener : listeners) {
+                        if (listener.startHistoryId != null
+                                && changedHistoryId.compareTo(listener.startHistoryId) > 0
+                                && !listener.initiallyListedIds.contains(message.getId())
+                                && matchingIdsByQuery.get(listener.query).contains(message.getId())) {
+                            if (gmailMessage == null) {
+                                gmailMessage = messageFactory.apply(message);
+                            }
+                            listener.deliver(gmailMessage);
+                        }
+                    }
+                }
+            }
+        }
+        // anything listed initially and added since has now been seen in the history
+        listeners.forEach(listener -> listener.initiallyListedIds = Set.of());
+        historyId = newHistoryId;
+    }
+
+    /// Falls back to what the history would have told: the messages that changed since [#historyId].
+    private void relistAll(ApiCallCounter calls) throws IOException {
+        BigInteger newHistoryId = getCurrentHistoryId(calls);
+        Map<String, List<Listener>> listenersByQuery = listeners.stream()
+                                                                .filter(listener -> listener.startHistoryId != null)
+                                                                .collect(groupingBy(listener -> listener.query, LinkedHashMap::new, toList()));
+        for (Map.Entry<String, List<Listener>> entry : listenersByQuery.entrySet()) {
+            for (Message message : getMetadata(listMessageIds(entry.getKey(), null, calls), calls)) {
+                if (message.getHistoryId().compareTo(historyId) > 0) {
+                    GmailMessage gmailMessage = messageFactory.apply(message);
+                    entry.getValue().forEach(listener -> listener.deliver(gmailMessage));
+                }
+            }
+            entry.getValue().forEach(listener -> listener.initiallyListedIds = Set.of());
+        }
+        historyId = newHistoryId;
+    }
+
+    private BigInteger getCurrentHistoryId(ApiCallCounter calls) throws IOException {
+        calls.profile++;
+        return gmail.users().getProfile(ME).execute().getHistoryId();
+    }
+
+    /// @param wantedIds if not `null`, the listing stops once all of them are found
+    private List<String> listMessageIds(String query, @Nullable Set<String> wantedIds, ApiCallCounter calls) throws IOException {
+        List<String> messageIds = new ArrayList<>();
+        int wantedFound = 0;
+        String pageToken = null;
+        do {
+            ListMessagesResponse response = gmail.users().messages().list(ME)
+                                                 .setQ(query)
+                                                 .setPageToken(pageToken)
+                                                 .execute();
+            calls.messagesList++;
+            if (response.getMessages() == null) {
+                break;
+            }
+            for (Message message : response.getMessages()) {
+                messageIds.add(message.getId());
+                if (wantedIds != null && wantedIds.contains(message.getId())) {
+                    wantedFound++;
+                }
+            }
+            pageToken = response.getNextPageToken();
+        } while (pageToken != null && (wantedIds == null || wantedFound < wantedIds.size()));
+        return messageIds;
+    }
+
+    private Set<String> listMatchingIds(String query, long afterSeconds, Set<String> messageIds, ApiCallCounter calls) throws IOException {
+        Set<String> matchingIds = new HashSet<>(listMessageIds('(' + query + ") after:" + afterSeconds, messageIds, calls));
+        matchingIds.retainAll(messageIds);
+        return matchingIds;
+    }
+
+    /// @return the messages in the order of the IDs, without those that could not be loaded, e.g. because they have been deleted since
+    private List<Message> getMetadata(List<String> messageIds, ApiCallCounter calls) throws IOException {
+        List<Message> messages = new ArrayList<>(messageIds.size());
+        JsonBatchCallback<Message> callback = new JsonBatchCallback<>() {
+            @Override
+            public void onSuccess(Message message, HttpHeaders responseHeaders) {
+                messages.add(message);
+            }
+
+            @Override
+            public void onFailure(GoogleJsonError e, HttpHeaders responseHeaders) {
+                logger.warn("Unable to load message: {}, response headers: {}", e, responseHeaders);
+            }
+        };
+        for (List<String> batchIds : Lists.partition(messageIds, MAX_BATCH_SIZE)) {
+            BatchRequest batch = gmail.batch();
+            for (String messageId : batchIds) {
+                gmail.users().messages().get(ME, messageId)
+                     .setFormat("metadata")
+                     .queue(batch, callback);
+            }
+            calls.messagesGet += batchIds.size();
+            batch.execute();
+        }
+        return messages;
+    }
+
+    private static Counter apiCallCounter(String method) {
+        return Metrics.counter("jiotty_gmail_api_calls_total", Map.of("method", method));
+    }
+
+    /// Gmail API calls made by one poll; calls in a batch are counted individually, as they are by the quota.
+    record ApiCalls(int profile, int historyList, int messagesList, int messagesGet) {
+        int total() {
+            return profile + historyList + messagesList + messagesGet;
+        }
+    }
+
+    static final class Listener {
+        private final String query;
+        private final Consumer<GmailMessage> handler;
+        /// `null` until the initial listing is done
+        @Nullable
+        private BigInteger startHistoryId;
+        /// may show up again in the first poll of the history after the initial listing
+        private Set<String> initiallyListedIds = Set.of();
+
+        Listener(String query, Consumer<GmailMessage> handler) {
+            this.query = checkNotNull(query);
+            this.handler = checkNotNull(handler);
+        }
+
+        void deliver(GmailMessage message) {
+            guarded(logger, "handling gmail message", () -> handler.accept(message)).run();
+        }
+    }
+
+    private static final class ApiCallCounter {
+        int profile;
+        int historyList;
+        int messagesList;
+        int messagesGet;
+
+        ApiCalls report(String activity) {
+            var calls = new ApiCalls(profile, historyList, messagesList, messagesGet);
+            if (calls.total() > 0) {
+                PROFILE_CALLS.add(profile);
+                HISTORY_LIST_CALLS.add(historyList);
+                MESSAGES_LIST_CALLS.add(messagesList);
+                MESSAGES_GET_CALLS.add(messagesGet);
+                logger.debug("Gmail API calls made {}: {}", activity, calls);
+            }
+            return calls;
+        }
+    }
+}
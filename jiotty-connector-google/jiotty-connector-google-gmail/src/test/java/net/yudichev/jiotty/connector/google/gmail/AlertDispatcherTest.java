@@ -0,0 +1,195 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import net.yudichev.jiotty.connector.google.gmail.AlertDispatcher.Alert;
+import net.yudichev.jiotty.connector.google.gmail.AlertDispatcher.Email;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.nullValue;
+
+class AlertDispatcherTest {
+    private final BlockingQueue<Email> sentEmails = new LinkedBlockingQueue<>();
+    private final List<AlertDispatcher> dispatchers = new ArrayList<>();
+    @TempDir
+    Path spoolDirectory;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        for (AlertDispatcher dispatcher : dispatchers) {
+            dispatcher.stop(Duration.ofSeconds(5));
+        }
+    }
+
+    @Test
+    void sendsSingleAlertAsIs() throws InterruptedException {
+        var dispatcher = start(Duration.ZERO, 16, this::send);
+
+        dispatcher.offer(alert("x", "Failed {}", "failed 1\n"));
+
+        assertThat(sentEmails.poll(5, SECONDS), equalTo(new Email("app alert: ERROR", "failed 1\n")));
+    }
+
+    @Test
+    void coalescesAlertsWithinDigestWindow() throws InterruptedException {
+        var dispatcher = start(Duration.ofMillis(500), 16, this::send);
+
+        for (int i = 0; i < 3; i++) {
+            dispatcher.offer(alert("x", "Failed {}", "failed " + i + '\n'));
+        }
+        dispatcher.offer(alert("y", "Disconnected", "disconnected\n"));
+        dispatcher.offer(alert("y", "Disconnected", "disconnected\n"));
+
+        Email email = sentEmails.poll(5, SECONDS);
+        assertThat(email.subject(), is("app alert: 5 ERROR events"));
+        assertThat(email.body(), containsString("      3  x: Failed {}"));
+        assertThat(email.body(), containsString("      2  y: Disconnected"));
+        assertThat(email.body(), containsString("failed 2\ndisconnected\n"));
+        assertThat(sentEmails.poll(200, MILLISECONDS), nullValue());
+    }
+
+    @Test
+    void sendsSpooledEmailsAfterRestart() throws InterruptedException, IOException {
+        var failingDispatcher = start(Duration.ZERO, 16, (_, _) -> {throw new IOException("network down");});
+        failingDispatcher.offer(alert("x", "Failed", "failed\n"));
+        awaitSpooledFileCount(1);
+        failingDispatcher.stop(Duration.ofSeconds(5));
+
+        start(Duration.ZERO, 16, this::send);
+
+        assertThat(sentEmails.poll(5, SECONDS), equalTo(new Email("app alert: ERROR", "failed\n")));
+        awaitSpooledFileCount(0);
+    }
+
+    @Test
+    void deletesSpoolFilesLeftIncompleteByCrash() throws InterruptedException, IOException {
+        Path tempFile = Files.writeString(spoolDirectory.resolve("1-000000.alert.tmp"), "app alert: ERROR\nfail");
+
+        var dispatcher = start(Duration.ZERO, 16, this::send);
+        dispatcher.offer(alert("x", "Failed", "failed\n"));
+
+        assertThat(sentEmails.poll(5, SECONDS), equalTo(new Email("app alert: ERROR", "failed\n")));
+        assertThat(Files.exists(tempFile), is(false));
+    }
+
+    @Test
+    void letsSendingFinishOnStop() throws InterruptedException {
+        var sending = new CountDownLatch(1);
+        var attempts = new AtomicInteger();
+        var dispatcher = start(Duration.ZERO, 16, (subject, body) -> {
+            attempts.incrementAndGet();
+            sending.countDown();
+            try {
+                Thread.sleep(200);
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            send(subject, body);
+        });
+        dispatcher.offer(alert("x", "Failed", "failed\n"));
+        assertThat(sending.await(5, SECONDS), is(true));
+
+        dispatcher.stop(Duration.ofSeconds(5));
+
+        assertThat(sentEmails.poll(), equalTo(new Email("app alert: ERROR", "failed\n")));
+        assertThat(attempts.get(), is(1));
+    }
+
+    @Test
+    void retriesSendingWithBackoff() throws InterruptedException {
+        var attempts = new AtomicInteger();
+        var dispatcher = start(Duration.ZERO, 16, (subject, body) -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("network down");
+            }
+            send(subject, body);
+        });
+
+        dispatcher.offer(alert("x", "Failed", "failed\n"));
+
+        assertThat(sentEmails.poll(5, SECONDS), equalTo(new Email("app alert: ERROR", "failed\n")));
+        assertThat(attempts.get(), is(2));
+    }
+
+    @Test
+    void dropsAlertsThatDoNotFitTheBufferAndReportsThem() throws InterruptedException {
+        var sending = new CountDownLatch(1);
+        var release = new CountDownLatch(1);
+        var dispatcher = start(Duration.ZERO, 1, (subject, body) -> {
+            sending.countDown();
+            try {
+                assertThat(release.await(5, SECONDS), is(true));
+            } catch (InterruptedException e) {
+                throw new IOException(e);
+            }
+            send(subject, body);
+        });
+        dispatcher.offer(alert("x", "Failed", "failed 1\n"));
+        assertThat(sending.await(5, SECONDS), is(true));
+
+        assertThat(dispatcher.offer(alert("x", "Failed", "failed 2\n")), is(true));
+        assertThat(dispatcher.offer(alert("x", "Failed", "failed 3\n")), is(false));
+        assertThat(dispatcher.offer(alert("x", "Failed", "failed 4\n")), is(false));
+        release.countDown();
+
+        assertThat(sentEmails.poll(5, SECONDS).body(), is("failed 1\n"));
+        Email digest = sentEmails.poll(5, SECONDS);
+        assertThat(digest.subject(), is("app alert: 1 ERROR events"));
+        assertThat(digest.body(), containsString(", 2 more dropped as the buffer was full"));
+    }
+
+    private AlertDispatcher start(Duration digestWindow, int bufferCapacity, AlertDispatcher.Sender sender) {
+        var dispatcher = new AlertDispatcher("test",
+                                             "app alert: ",
+                                             sender,
+                                             spoolDirectory,
+                                             bufferCapacity,
+                                             digestWindow,
+                                             Duration.ofMillis(50),
+                                             (_, _) -> {});
+        dispatchers.add(dispatcher);
+        dispatcher.start();
+        return dispatcher;
+    }
+
+    private void send(String subject, String body) {
+        sentEmails.add(new Email(subject, body));
+    }
+
+    private void awaitSpooledFileCount(int expectedCount) throws InterruptedException, IOException {
+        long deadline = System.nanoTime() + SECONDS.toNanos(5);
+        long count;
+        do {
+            try (Stream<Path> files = Files.list(spoolDirectory)) {
+                count = files.filter(file -> file.toString().endsWith(".alert")).count();
+            }
+            if (count == expectedCount) {
+                return;
+            }
+            Thread.sleep(10);
+        } while (System.nanoTime() < deadline);
+        assertThat(count, is((long) expectedCount));
+    }
+
+    private static Alert alert(String loggerName, String messageTemplate, String text) {
+        return new Alert(System.currentTimeMillis(), "ERROR", loggerName, messageTemplate, text);
+    }
+}
@@ -0,0 +1,163 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import com.google.api.client.http.GenericUrl;
+import com.google.api.client.http.LowLevelHttpRequest;
+import com.google.api.client.http.LowLevelHttpResponse;
+import com.google.api.client.json.Json;
+import com.google.api.client.testing.http.MockHttpTransport;
+import com.google.api.client.testing.http.MockLowLevelHttpRequest;
+import com.google.api.client.testing.http.MockLowLevelHttpResponse;
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.util.stream.Collectors.joining;
+
+/// Serves the part of the Gmail API used by [MailboxPoller] from an in-memory mailbox, including batches. Queries are not parsed: each
+/// message is given the queries it matches, optionally with an `after:` restriction added by the poller.
+@SuppressWarnings("HardcodedLineSeparator")
+final class FakeGmailTransport extends MockHttpTransport {
+    private static final String BOUNDARY = "batch_fake_boundary";
+    private static final Pattern BATCH_PART_REQUEST = Pattern.compile("GET (\\S+) HTTP/1\\.1");
+    private static final Pattern QUERY_WITH_AFTER = Pattern.compile("\\((.*)\\) after:(\\d+)");
+
+    private final Map<String, FakeMessage> messagesById = new LinkedHashMap<>();
+    private final List<HistoryRecord> history = new ArrayList<>();
+    private final List<String> requestedUrls = Collections.synchronizedList(new ArrayList<>());
+    private long historyId = 100;
+    private boolean historyExpired;
+
+    void addMessage(String id, long internalDateMillis, String... matchingQueries) {
+        historyId++;
+        messagesById.put(id, new FakeMessage(id, historyId, internalDateMillis, Set.of(matchingQueries)));
+        history.add(new HistoryRecord(historyId, "messagesAdded", id));
+    }
+
+    /// labels an existing message, which makes it match the given queries too
+    void addLabel(String id, String... newlyMatchingQueries) {
+        historyId++;
+        FakeMessage message = messagesById.get(id);
+        Set<String> matchingQueries = new HashSet<>(message.matchingQueries);
+        matchingQueries.addAll(Arrays.asList(newlyMatchingQueries));
+        messagesById.put(id, new FakeMessage(id, historyId, message.internalDateMillis, matchingQueries));
+        history.add(new HistoryRecord(historyId, "labelsAdded", id));
+    }
+
+    /// makes `users.history.list` respond as if the start history ID was too old
+    void expireHistory() {
+        historyExpired = true;
+    }
+
+    List<String> requestedUrls() {
+        return List.copyOf(requestedUrls);
+    }
+
+    @Override
+    public LowLevelHttpRequest buildRequest(String method, String url) {
+        return new MockLowLevelHttpRequest(url) {
+            @Override
+            public LowLevelHttpResponse execute() throws IOException {
+                if (new GenericUrl(url).getRawPath().startsWith("/batch/")) {
+                    return batchResponse(getContentAsString());
+                }
+                requestedUrls.add(url);
+                String json = respond(new GenericUrl(url));
+                return json == null ? notFound() : new MockLowLevelHttpResponse().setContentType(Json.MEDIA_TYPE).setContent(json);
+            }
+        };
+    }
+
+    @Nullable
+    private String respond(GenericUrl url) {
+        String path = url.getRawPath();
+        if (path.endsWith("/profile")) {
+            return "{\"emailAddress\":\"me@example.com\",\"historyId\":\"" + historyId + "\"}";
+        }
+        if (path.endsWith("/history")) {
+            if (historyExpired) {
+                return null;
+            }
+            long startHistoryId = Long.parseLong((String) url.getFirst("startHistoryId"));
+            return "{\"history\":[" +
+                    history.stream()
+                           .filter(historyRecord -> historyRecord.id > startHistoryId)
+                           .map(HistoryRecord::toJson)
+                           .collect(joining(",")) +
+                    "],\"historyId\":\"" + historyId + "\"}";
+        }
+        if (path.endsWith("/messages")) {
+            String query = (String) url.getFirst("q");
+            long afterSeconds = 0;
+            Matcher matcher = QUERY_WITH_AFTER.matcher(query);
+            if (matcher.matches()) {
+                query = matcher.group(1);
+                afterSeconds = Long.parseLong(matcher.group(2));
+            }
+            String matchingQuery = query;
+            long matchingAfterSeconds = afterSeconds;
+            List<FakeMessage> matching = messagesById.values().stream()
+                                                     .filter(message -> message.matchingQueries.contains(matchingQuery)
+                                                             && message.internalDateMillis / 1000 > matchingAfterSeconds)
+                                                     .toList();
+            // newest first, like Gmail
+            return "{\"messages\":[" +
+                    matching.reversed().stream()
+                            .map(message -> "{\"id\":\"" + message.id + "\",\"threadId\":\"" + message.id + "\"}")
+                            .collect(joining(",")) +
+                    "],\"resultSizeEstimate\":" + matching.size() + "}";
+        }
+        int messagePathIndex = path.lastIndexOf("/messages/");
+        if (messagePathIndex >= 0) {
+            FakeMessage message = messagesById.get(path.substring(messagePathIndex + "/messages/".length()));
+            return message == null ? null : message.toJson("full".equals(url.getFirst("format")));
+        }
+        throw new UnsupportedOperationException("Unexpected request: " + url);
+    }
+
+    private LowLevelHttpResponse batchResponse(String batchContent) {
+        var content = new StringBuilder();
+        Matcher matcher = BATCH_PART_REQUEST.matcher(batchContent);
+        while (matcher.find()) {
+            String url = matcher.group(1);
+            requestedUrls.add(url);
+            String json = respond(new GenericUrl(url));
+            content.append("--").append(BOUNDARY).append("\r\n")
+                   .append("Content-Type: application/http\r\n\r\n")
+                   .append(json == null ? "HTTP/1.1 404 Not Found\r\n" : "HTTP/1.1 200 OK\r\n")
+                   .append("Content-Type: application/json; charset=UTF-8\r\n\r\n")
+                   .append(json == null ? "{\"error\":{\"code\":404,\"message\":\"Not Found\"}}" : json).append("\r\n");
+        }
+        content.append("--").append(BOUNDARY).append("--\r\n");
+        return new MockLowLevelHttpResponse().setContentType("multipart/mixed; boundary=" + BOUNDARY).setContent(content.toString());
+    }
+
+    private static LowLevelHttpResponse notFound() {
+        return new MockLowLevelHttpResponse().setStatusCode(404)
+                                             .setReasonPhrase("Not Found")
+                                             .setContentType(Json.MEDIA_TYPE)
+                                             .setContent("{\"error\":{\"code\":404,\"message\":\"Not Found\"}}");
+    }
+
+    private record HistoryRecord(long id, String type, String messageId) {
+        String toJson() {
+            return "{\"id\":\"" + id + "\",\"" + type + "\":[{\"message\":{\"id\":\"" + messageId + "\"}}]}";
+        }
+    }
+
+    private record FakeMessage(String id, long historyId, long internalDateMillis, Set<String> matchingQueries) {
+        String toJson(boolean full) {
+            return "{\"id\":\"" + id + "\",\"threadId\":\"" + id + "\",\"historyId\":\"" + historyId + "\",\"internalDate\":\"" + internalDateMillis +
+                    "\",\"payload\":{\"headers\":[{\"name\":\"Subject\",\"value\":\"" + id + "\"}]" + (full ? ",\"parts\":[]" : "") + "}}";
+        }
+    }
+}
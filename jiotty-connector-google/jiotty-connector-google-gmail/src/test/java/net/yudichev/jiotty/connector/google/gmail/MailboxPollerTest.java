@@ -0,0 +1,142 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import com.google.api.client.json.jackson2.JacksonFactory;
+import com.google.api.services.gmail.Gmail;
+import net.yudichev.jiotty.connector.google.gmail.MailboxPoller.ApiCalls;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.everyItem;
+import static org.hamcrest.Matchers.not;
+
+@ExtendWith(MockitoExtension.class)
+class MailboxPollerTest {
+    private static final long NOW_MILLIS = 1_700_000_000_000L;
+
+    private final FakeGmailTransport transport = new FakeGmailTransport();
+    private final List<String> received = new ArrayList<>();
+    @Mock
+    private InternalGmailObjectFactory objectFactory;
+    private MailboxPoller poller;
+
+    @BeforeEach
+    void setUp() {
+        Gmail gmail = new Gmail.Builder(transport, JacksonFactory.getDefaultInstance(), null).setApplicationName("test").build();
+        poller = new MailboxPoller(gmail, message -> new InternalGmailMessage(gmail, objectFactory, message));
+    }
+
+    @Test
+    void initialSynchronizationDeliversAllMatchingMessagesLoadingOnlyTheirMetadata() {
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+        transport.addMessage("m2", NOW_MILLIS, "label:b");
+        transport.addMessage("m3", NOW_MILLIS, "label:a");
+        poller.addListener("label:a", handler("a"));
+
+        ApiCalls calls = poller.synchronizeNewListeners();
+
+        assertThat(received, contains("a:m3", "a:m1"));
+        assertThat(calls, equalTo(new ApiCalls(1, 0, 1, 2)));
+        assertThat(transport.requestedUrls(), everyItem(not(containsString("format=full"))));
+    }
+
+    @Test
+    void pollWithoutNewMailMakesOneCall() {
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+        poller.addListener("label:a", handler("a"));
+        poller.synchronizeNewListeners();
+        received.clear();
+
+        ApiCalls calls = poller.poll();
+
+        assertThat(received, empty());
+        assertThat(calls, equalTo(new ApiCalls(0, 1, 0, 0)));
+    }
+
+    @Test
+    void pollDeliversOnlyNewMatchingMessages() {
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+        poller.addListener("label:a", handler("a"));
+        poller.synchronizeNewListeners();
+        received.clear();
+        transport.addMessage("m2", NOW_MILLIS + 1000, "label:a");
+        transport.addMessage("m3", NOW_MILLIS + 2000, "label:b");
+
+        ApiCalls calls = poller.poll();
+
+        assertThat(received, contains("a:m2"));
+        assertThat(calls, equalTo(new ApiCalls(0, 1, 1, 2)));
+        assertThat(poller.poll(), equalTo(new ApiCalls(0, 1, 0, 0)));
+        assertThat(received, contains("a:m2"));
+    }
+
+    @Test
+    void pollDeliversMessagesThatCameToMatchByGettingLabel() {
+        transport.addMessage("m1", NOW_MILLIS, "label:b");
+        poller.addListener("label:a", handler("a"));
+        poller.synchronizeNewListeners();
+        transport.addLabel("m1", "label:a");
+
+        poller.poll();
+
+        assertThat(received, contains("a:m1"));
+    }
+
+    @Test
+    void subscriptionsShareOnePollAndSameQueriesShareOneListing() {
+        poller.addListener("label:a", handler("a1"));
+        poller.addListener("label:a", handler("a2"));
+        poller.addListener("label:b", handler("b"));
+        assertThat(poller.synchronizeNewListeners(), equalTo(new ApiCalls(1, 0, 2, 0)));
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+
+        ApiCalls calls = poller.poll();
+
+        assertThat(received, contains("a1:m1", "a2:m1"));
+        assertThat(calls, equalTo(new ApiCalls(0, 1, 2, 1)));
+    }
+
+    @Test
+    void listenerAddedLaterOnlyGetsMessagesAddedAfterItsInitialListingOnce() {
+        poller.addListener("label:a", handler("first"));
+        poller.synchronizeNewListeners();
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+        poller.addListener("label:a", handler("second"));
+        poller.synchronizeNewListeners();
+        transport.addMessage("m2", NOW_MILLIS, "label:a");
+
+        poller.poll();
+
+        assertThat(received, contains("second:m1", "first:m1", "first:m2", "second:m2"));
+    }
+
+    @Test
+    void listsQueriesAgainIfHistoryIsNoLongerAvailable() {
+        transport.addMessage("m1", NOW_MILLIS, "label:a");
+        poller.addListener("label:a", handler("a"));
+        poller.synchronizeNewListeners();
+        received.clear();
+        transport.addMessage("m2", NOW_MILLIS, "label:a");
+        transport.expireHistory();
+
+        ApiCalls calls = poller.poll();
+
+        assertThat(received, contains("a:m2"));
+        assertThat(calls, equalTo(new ApiCalls(1, 1, 1, 2)));
+    }
+
+    private Consumer<GmailMessage> handler(String name) {
+        return message -> received.add(name + ':' + message.getRequiredHeader("Subject"));
+    }
+}
@@ -0,0 +1,120 @@
+package net.yudichev.jiotty.connector.google.gmail;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.Layout;
+import org.apache.logging.log4j.core.impl.Log4jLogEvent;
+import org.apache.logging.log4j.core.layout.PatternLayout;
+import org.apache.logging.log4j.message.ParameterizedMessage;
+
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/// Latency seen by threads logging a burst of errors through [GmailAppender], with sending an email simulated by a sleep: what the
+/// appender did before (sending each event synchronously, under a lock) vs handing events over to the [AlertDispatcher].
+///
+/// `ManualGmailAppenderBurstRunner [events] [threads] [sendMillis]`
+final class ManualGmailAppenderBurstRunner {
+    /// the synchronous variant takes `sendMillis` per event, so it is only run for this many
+    private static final int SYNCHRONOUS_EVENTS = 40;
+
+    static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 10_000;
+        int threadCount = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        long sendMillis = args.length > 2 ? Long.parseLong(args[2]) : 300;
+        Layout<? extends Serializable> layout = PatternLayout.newBuilder().withPattern("%d %p [%t] %c %m%n%ex").build();
+        var exception = new IllegalStateException("simulated failure");
+        var sentEmails = new AtomicInteger();
+        AlertDispatcher.Sender sender = (_, _) -> {
+            try {
+                Thread.sleep(sendMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+            sentEmails.incrementAndGet();
+        };
+
+        Lock lock = new ReentrantLock();
+        long[] synchronousLatencies = burst(Math.min(SYNCHRONOUS_EVENTS, eventCount), threadCount, i -> {
+            String text = layout.toSerializable(event(i, exception)).toString();
+            lock.lock();
+            try {
+                sender.send("alert", text);
+            } finally {
+                lock.unlock();
+            }
+        });
+        report("synchronous send under lock", synchronousLatencies);
+
+        Path spoolDirectory = Files.createTempDirectory(ManualGmailAppenderBurstRunner.class.getSimpleName());
+        var appender = new GmailAppender("burst", null, layout, true, null, sender, "alert: ", spoolDirectory, 1024, Duration.ofSeconds(5));
+        appender.start();
+        sentEmails.set(0);
+        long[] asyncLatencies = burst(eventCount, threadCount, i -> appender.append(event(i, exception)));
+        report("async, digest window 5s", asyncLatencies);
+        appender.stop(30, TimeUnit.SECONDS);
+        System.out.printf("%,d events sent as %d emails%n", eventCount, sentEmails.get());
+        Files.deleteIfExists(spoolDirectory);
+    }
+
+    private static Log4jLogEvent event(int i, Throwable exception) {
+        return Log4jLogEvent.newBuilder()
+                            .setLoggerName("net.yudichev.jiotty.benchmark.Component" + i % 4)
+                            .setLevel(Level.ERROR)
+                            .setMessage(new ParameterizedMessage("Failed to process request {}", i))
+                            .setThrown(exception)
+                            .setTimeMillis(System.currentTimeMillis())
+                            .build();
+    }
+
+    private static long[] burst(int eventCount, int threadCount, EventSource eventSource) throws InterruptedException {
+        long[] latencies = new long[eventCount];
+        var nextEvent = new AtomicInteger();
+        var done = new CountDownLatch(threadCount);
+        for (int t = 0; t < threadCount; t++) {
+            Thread.ofPlatform().start(() -> {
+                try {
+                    for (int i = nextEvent.getAndIncrement(); i < eventCount; i = nextEvent.getAndIncrement()) {
+                        long start = System.nanoTime();
+                        eventSource.log(i);
+                        latencies[i] = System.nanoTime() - start;
+                    }
+                } catch (Exception e) {
+                    throw new RuntimeException(e);
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        done.await();
+        return latencies;
+    }
+
+    private static void report(String name, long[] latencies) {
+        Arrays.sort(latencies);
+        System.out.printf("%-30s %,7d events: p50 %,12.1f us, p99 %,12.1f us, p99.9 %,12.1f us, max %,12.1f us%n",
+                          name,
+                          latencies.length,
+                          percentile(latencies, 0.5),
+                          percentile(latencies, 0.99),
+                          percentile(latencies, 0.999),
+                          latencies[latencies.length - 1] / 1000.0);
+    }
+
+    private static double percentile(long[] sortedLatencies, double percentile) {
+        return sortedLatencies[(int) Math.min(sortedLatencies.length - 1, Math.round(percentile * sortedLatencies.length))] / 1000.0;
+    }
+
+    private interface EventSource {
+        void log(int i) throws Exception;
+    }
+}
@@ -19,4 +19,10 @@ final class Bindings {
     @Retention(RUNTIME)
     @interface ApiKey {
     }
+
+    @BindingAnnotation
+    @Target({FIELD, PARAMETER, METHOD})
+    @Retention(RUNTIME)
+    @interface CacheTtl {
+    }
 }
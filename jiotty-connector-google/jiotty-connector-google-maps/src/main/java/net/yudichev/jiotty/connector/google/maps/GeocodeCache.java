@@ -0,0 +1,184 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.geo.LatLon;
+import net.yudichev.jiotty.common.geo.LatLonRectangle;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.LongSupplier;
+import java.util.regex.Pattern;
+
+/// Geocoding results by normalised address, with a grid index of their locations to find the addresses geocoded near a location.
+final class GeocodeCache {
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+    private static final Pattern WHITESPACE_AROUND_COMMA = Pattern.compile(" ?, ?");
+    /// about a kilometre of latitude
+    private static final double GRID_CELL_DEGREES = 0.01;
+    private static final double EARTH_RADIUS_METRES = 6371000;
+    private static final MapsCache.Codec<Geocode> CODEC = new MapsCache.Codec<>() {
+        @Override
+        public void write(DataOutput out, Geocode geocode) throws IOException {
+            out.writeUTF(geocode.address());
+            out.writeInt(geocode.locations().size());
+            for (LatLon location : geocode.locations()) {
+                out.writeDouble(location.lat());
+                out.writeDouble(location.lon());
+            }
+        }
+
+        @Override
+        public Geocode read(DataInput in) throws IOException {
+            String address = in.readUTF();
+            int locationCount = in.readInt();
+            List<LatLon> locations = new ArrayList<>(locationCount);
+            for (int i = 0; i < locationCount; i++) {
+                locations.add(new LatLon(in.readDouble(), in.readDouble()));
+            }
+            return new Geocode(address, List.copyOf(locations));
+        }
+    };
+
+    private final MapsCache<Geocode> cache;
+    private final long ttlMillis;
+    private final LongSupplier currentTimeMillis;
+    /// both guarded by this
+    private final Map<String, IndexedGeocode> geocodesByKey = new HashMap<>();
+    private final Map<GridCell, Set<String>> keysByGridCell = new HashMap<>();
+
+    GeocodeCache(@Nullable Path directory, Duration ttl, int maxMemoryEntries, int maxEntries, LongSupplier currentTimeMillis) {
+        cache = new MapsCache<>("geocode", directory, CODEC, ttl, maxMemoryEntries, maxEntries, currentTimeMillis, this::unindex);
+        ttlMillis = ttl.toMillis();
+        this.currentTimeMillis = currentTimeMillis;
+        cache.load(this::index);
+    }
+
+    /// Addresses differing only in case or whitespace are the same.
+    static String normalise(String address) {
+        String collapsed = WHITESPACE.matcher(address.strip()).replaceAll(" ");
+        return WHITESPACE_AROUND_COMMA.matcher(collapsed).replaceAll(",").toLowerCase(Locale.ROOT);
+    }
+
+    Optional<List<LatLon>> get(String address) {
+        return cache.get(normalise(address)).map(Geocode::locations);
+    }
+
+    /// Like [#get(String)], but a geocode not kept in memory is read on the given executor.
+    CompletableFuture<Optional<List<LatLon>>> get(String address, Executor diskReadExecutor) {
+        return cache.get(normalise(address), diskReadExecutor).thenApply(geocode -> geocode.map(Geocode::locations));
+    }
+
+    /// Indexes before caching, under the lock that evictions unindex under, so that an eviction cannot leave the geocode indexed.
+    synchronized void put(String address, List<LatLon> locations) {
+        String key = normalise(address);
+        var geocode = new Geocode(address, List.copyOf(locations));
+        index(key, geocode, currentTimeMillis.getAsLong());
+        cache.put(key, geocode);
+    }
+
+    /// @return nearest first; expired geocodes are left out even if not evicted yet
+    List<NearbyGeocode> findNear(LatLon location, double radiusMetres) {
+        LatLonRectangle rectangle = LatLonRectangle.create(location, radiusMetres);
+        long oldestStoredAtMillis = currentTimeMillis.getAsLong() - ttlMillis;
+        List<NearbyGeocode> result = new ArrayList<>();
+        synchronized (this) {
+            Collection<String> candidateKeys;
+            long minLatIndex = gridIndex(rectangle.minLat());
+            long maxLatIndex = gridIndex(rectangle.maxLat());
+            long minLonIndex = gridIndex(rectangle.minLon());
+            long maxLonIndex = gridIndex(rectangle.maxLon());
+            if ((maxLatIndex - minLatIndex + 1) * (maxLonIndex - minLonIndex + 1) > geocodesByKey.size()) {
+                candidateKeys = geocodesByKey.keySet();
+            } else {
+                candidateKeys = new HashSet<>();
+                for (long latIndex = minLatIndex; latIndex <= maxLatIndex; latIndex++) {
+                    for (long lonIndex = minLonIndex; lonIndex <= maxLonIndex; lonIndex++) {
+                        candidateKeys.addAll(keysByGridCell.getOrDefault(new GridCell(latIndex, lonIndex), Set.of()));
+                    }
+                }
+            }
+            for (String key : candidateKeys) {
+                IndexedGeocode indexedGeocode = geocodesByKey.get(key);
+                if (indexedGeocode.storedAtMillis() <= oldestStoredAtMillis) {
+                    continue;
+                }
+                Geocode geocode = indexedGeocode.geocode();
+                for (LatLon candidateLocation : geocode.locations()) {
+                    double distanceMetres = distanceMetres(location, candidateLocation);
+                    if (distanceMetres <= radiusMetres) {
+                        result.add(new NearbyGeocode(geocode.address(), candidateLocation, distanceMetres));
+                    }
+                }
+            }
+        }
+        result.sort(Comparator.comparingDouble(NearbyGeocode::distanceMetres));
+        return result;
+    }
+
+    MapsCache.Stats stats() {
+        return cache.stats();
+    }
+
+    @Override
+    public String toString() {
+        return "GeocodeCache{" + cache + '}';
+    }
+
+    static double distanceMetres(LatLon from, LatLon to) {
+        double deltaLat = Math.toRadians(to.lat() - from.lat());
+        double deltaLon = Math.toRadians(to.lon() - from.lon());
+        double a = Math.sin(deltaLat / 2) * Math.sin(deltaLat / 2)
+                + Math.cos(Math.toRadians(from.lat())) * Math.cos(Math.toRadians(to.lat())) * Math.sin(deltaLon / 2) * Math.sin(deltaLon / 2);
+        return 2 * EARTH_RADIUS_METRES * Math.atan2(Math.sqrt(a), Math.sqrt(1 - a));
+    }
+
+    private synchronized void index(String key, Geocode geocode, long storedAtMillis) {
+        unindex(key);
+        geocodesByKey.put(key, new IndexedGeocode(geocode, storedAtMillis));
+        geocode.locations().forEach(location -> keysByGridCell.computeIfAbsent(gridCell(location), _ -> new HashSet<>()).add(key));
+    }
+
+    private synchronized void unindex(String key) {
+        IndexedGeocode indexedGeocode = geocodesByKey.remove(key);
+        if (indexedGeocode != null) {
+            indexedGeocode.geocode().locations().forEach(location -> {
+                GridCell gridCell = gridCell(location);
+                Set<String> keys = keysByGridCell.get(gridCell);
+                // null if the same location was listed twice
+                if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                    keysByGridCell.remove(gridCell);
+                }
+            });
+        }
+    }
+
+    private static GridCell gridCell(LatLon location) {
+        return new GridCell(gridIndex(location.lat()), gridIndex(location.lon()));
+    }
+
+    private static long gridIndex(double degrees) {
+        return (long) Math.floor(degrees / GRID_CELL_DEGREES);
+    }
+
+    /// @param address as given when it was geocoded
+    private record Geocode(String address, List<LatLon> locations) {}
+
+    private record IndexedGeocode(Geocode geocode, long storedAtMillis) {}
+
+    private record GridCell(long latIndex, long lonIndex) {}
+}
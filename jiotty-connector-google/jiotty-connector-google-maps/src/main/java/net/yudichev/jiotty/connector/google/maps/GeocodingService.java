@@ -9,4 +9,11 @@ public interface GeocodingService {
     /// @return list of latitude and longitude coordinates for the given address; multiple entries in the list mean more than one match; no entries mean no
     /// match
     CompletableFuture<List<LatLon>> geocode(String address);
+
+    /// Looks up the addresses geocoded earlier that are still cached, without calling the API.
+    ///
+    /// @return locations of cached addresses within the radius of the given location, nearest first; empty if there is no cache
+    default List<NearbyGeocode> findCachedNear(LatLon location, double radiusMetres) {
+        return List.of();
+    }
 }
@@ -5,39 +5,85 @@ import com.google.maps.GeoApiContext;
 import com.google.maps.GeocodingApi;
 import com.google.maps.PendingResult;
 import com.google.maps.model.GeocodingResult;
+import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.geo.LatLon;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Closeable;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static net.yudichev.jiotty.connector.google.maps.Bindings.ApiKey;
+import static net.yudichev.jiotty.connector.google.maps.Bindings.CacheTtl;
 
 public final class GeocodingServiceImpl extends BaseLifecycleComponent implements GeocodingService {
     private static final Logger logger = LoggerFactory.getLogger(GeocodingServiceImpl.class);
 
+    private static final int MAX_CACHED_IN_MEMORY = 1000;
+    private static final int MAX_CACHED = 10_000;
+
     private final String apiKey;
+    private final Duration cacheTtl;
     private final AtomicInteger reqIdGen = new AtomicInteger();
+    private final SingleFlight<String, List<LatLon>> geocodeFlight = SingleFlight.create("geocode");
     private GeoApiContext context;
+    @Nullable
+    private volatile GeocodeCache cache;
+    private volatile ExecutorService diskReadExecutor;
+
+    public GeocodingServiceImpl(String apiKey) {
+        this(apiKey, Duration.ZERO);
+    }
 
+    /// @param cacheTtl for how long geocodes are cached, locally on disk; zero to not cache them
     @Inject
-    public GeocodingServiceImpl(@ApiKey String apiKey) {
+    public GeocodingServiceImpl(@ApiKey String apiKey, @CacheTtl Duration cacheTtl) {
         this.apiKey = checkNotNull(apiKey);
+        checkArgument(!cacheTtl.isNegative(), "cacheTtl must not be negative: %s", cacheTtl);
+        this.cacheTtl = cacheTtl;
     }
 
     @Override
     protected void doStart() {
         context = new GeoApiContext.Builder().apiKey(apiKey).build();
+        if (cacheTtl.isPositive()) {
+            diskReadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("geocode-cache-", 0).factory());
+            cache = new GeocodeCache(MapsCache.directory("geocodes"), cacheTtl, MAX_CACHED_IN_MEMORY, MAX_CACHED, System::currentTimeMillis);
+        }
     }
 
     @Override
     public CompletableFuture<List<LatLon>> geocode(String address) {
+        GeocodeCache cache = this.cache;
+        if (cache == null) {
+            return fetch(address);
+        }
+        return cache.get(address, diskReadExecutor)
+                    .thenCompose(cachedLocations -> cachedLocations.map(CompletableFuture::completedFuture)
+                                                                   .orElseGet(() -> geocodeFlight.get(GeocodeCache.normalise(address),
+                                                                                                      () -> fetch(address).thenApply(locations -> {
+                                                                                                          cache.put(address, locations);
+                                                                                                          return locations;
+                                                                                                      }))));
+    }
+
+    @Override
+    public List<NearbyGeocode> findCachedNear(LatLon location, double radiusMetres) {
+        GeocodeCache cache = this.cache;
+        return cache == null ? List.of() : cache.findNear(location, radiusMetres);
+    }
+
+    private CompletableFuture<List<LatLon>> fetch(String address) {
         var resultFut = new CompletableFuture<List<LatLon>>();
         int reqId = reqIdGen.incrementAndGet();
         logger.debug("[{}] Requesting geocode of address '{}'", reqId, address);
@@ -69,5 +115,10 @@ public final class GeocodingServiceImpl extends BaseLifecycleComponent implement
     @Override
     protected void doStop() {
         Closeable.closeSafelyIfNotNull(logger, context);
+        cache = null;
+        if (diskReadExecutor != null) {
+            diskReadExecutor.close();
+            diskReadExecutor = null;
+        }
     }
 }
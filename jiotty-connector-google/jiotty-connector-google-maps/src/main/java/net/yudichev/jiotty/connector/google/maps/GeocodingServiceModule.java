@@ -8,15 +8,24 @@ import net.yudichev.jiotty.common.inject.HasWithAnnotation;
 import net.yudichev.jiotty.common.inject.SpecifiedAnnotation;
 import net.yudichev.jiotty.common.lang.TypedBuilder;
 
+import java.time.Duration;
+
 import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
 
 public final class GeocodingServiceModule extends BaseLifecycleComponentModule implements ExposedKeyModule<GeocodingService> {
     private final BindingSpec<String> apiKeySpec;
+    private final BindingSpec<Duration> cacheTtlSpec;
     private final Key<GeocodingService> exposedKey;
 
     public GeocodingServiceModule(SpecifiedAnnotation specifiedAnnotation, BindingSpec<String> apiKeySpec) {
+        this(specifiedAnnotation, apiKeySpec, literally(Duration.ZERO));
+    }
+
+    public GeocodingServiceModule(SpecifiedAnnotation specifiedAnnotation, BindingSpec<String> apiKeySpec, BindingSpec<Duration> cacheTtlSpec) {
         exposedKey = specifiedAnnotation.specify(ExposedKeyModule.super.getExposedKey().getTypeLiteral());
         this.apiKeySpec = checkNotNull(apiKeySpec);
+        this.cacheTtlSpec = checkNotNull(cacheTtlSpec);
     }
 
     @Override
@@ -27,6 +36,7 @@ public final class GeocodingServiceModule extends BaseLifecycleComponentModule i
     @Override
     protected void configure() {
         apiKeySpec.bind(String.class).annotatedWith(Bindings.ApiKey.class).installedBy(this::installLifecycleComponentModule);
+        cacheTtlSpec.bind(Duration.class).annotatedWith(Bindings.CacheTtl.class).installedBy(this::installLifecycleComponentModule);
 
         bind(exposedKey).to(registerLifecycleComponent(GeocodingServiceImpl.class));
         expose(exposedKey);
@@ -38,6 +48,7 @@ public final class GeocodingServiceModule extends BaseLifecycleComponentModule i
 
     public static final class Builder implements TypedBuilder<ExposedKeyModule<GeocodingService>>, HasWithAnnotation {
         private BindingSpec<String> apiKeySpec;
+        private BindingSpec<Duration> cacheTtlSpec = literally(Duration.ZERO);
         private SpecifiedAnnotation specifiedAnnotation = SpecifiedAnnotation.forNoAnnotation();
 
         public Builder setApiKey(BindingSpec<String> apiKeySpec) {
@@ -45,6 +56,13 @@ public final class GeocodingServiceModule extends BaseLifecycleComponentModule i
             return this;
         }
 
+        /// For how long geocodes are cached locally, in memory and on disk; zero, the default, to not cache them. The Maps Platform terms allow
+        /// caching geocodes for up to 30 days.
+        public Builder withCacheTtl(BindingSpec<Duration> cacheTtlSpec) {
+            this.cacheTtlSpec = checkNotNull(cacheTtlSpec);
+            return this;
+        }
+
         @Override
         public Builder withAnnotation(SpecifiedAnnotation specifiedAnnotation) {
             this.specifiedAnnotation = checkNotNull(specifiedAnnotation);
@@ -53,7 +71,7 @@ public final class GeocodingServiceModule extends BaseLifecycleComponentModule i
 
         @Override
         public ExposedKeyModule<GeocodingService> build() {
-            return new GeocodingServiceModule(specifiedAnnotation, apiKeySpec);
+            return new GeocodingServiceModule(specifiedAnnotation, apiKeySpec, cacheTtlSpec);
         }
     }
 }
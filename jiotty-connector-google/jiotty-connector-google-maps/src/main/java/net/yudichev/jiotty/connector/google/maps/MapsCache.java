@@ -0,0 +1,339 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import com.google.common.hash.Hashing;
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.metrics.Counter;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInput;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static net.yudichev.jiotty.common.lang.HumanReadableExceptionMessage.humanReadableMessage;
+
+/// Cache of Maps API results that expire after a TTL, in two tiers: the most recently used values are kept in memory, so that a hit costs
+/// a map lookup, and all of them are kept on disk, one file per entry, so that they survive restarts. Beyond the maximum number of entries
+/// of each tier, the least recently used ones are evicted from it. The keys of all entries and when they were stored are kept in memory,
+/// so that a miss or an expired entry costs no disk access. The cache is best effort: failing to read or write a file makes a miss.
+///
+/// Counter `jiotty_maps_cache_lookups_total` tagged with the cache `name` counts lookups by `result`: `memory_hit`, `disk_hit` or
+/// `miss`.
+final class MapsCache<V> {
+    /// the `jiotty.maps.cache.dir` system property, `~/.jiotty/maps-cache` by default; an empty one makes the caches memory only
+    static final String DIRECTORY_PROPERTY = "jiotty.maps.cache.dir";
+    private static final Logger logger = LoggerFactory.getLogger(MapsCache.class);
+    private static final int FORMAT_VERSION = 1;
+    private static final String FILE_SUFFIX = ".entry";
+
+    private final String name;
+    @Nullable
+    private final Path directory;
+    private final Codec<V> codec;
+    private final long ttlMillis;
+    private final int maxMemoryEntries;
+    private final int maxEntries;
+    private final LongSupplier currentTimeMillis;
+    private final Consumer<String> evictionListener;
+    /// both access ordered for LRU eviction and guarded by this
+    private final LinkedHashMap<String, StoredValue<V>> memoryEntriesByKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String, Long> storedAtMillisByKey = new LinkedHashMap<>(16, 0.75f, true);
+    private final LongAdder memoryHits = new LongAdder();
+    private final LongAdder diskHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final Counter memoryHitCounter;
+    private final Counter diskHitCounter;
+    private final Counter missCounter;
+
+    /// @param directory        where the entries are kept, or `null` to keep them in memory only, in which case `maxEntries` of them are
+    ///                         kept in memory
+    /// @param evictionListener called with the key of each entry that was evicted or expired, including at loading
+    @SuppressWarnings("ConstructorWithTooManyParameters")
+    MapsCache(String name,
+              @Nullable Path directory,
+              Codec<V> codec,
+              Duration ttl,
+              int maxMemoryEntries,
+              int maxEntries,
+              LongSupplier currentTimeMillis,
+              Consumer<String> evictionListener) {
+        this.name = checkNotNull(name);
+        this.directory = directory;
+        this.codec = checkNotNull(codec);
+        checkArgument(ttl.isPositive(), "ttl must be positive: %s", ttl);
+        ttlMillis = ttl.toMillis();
+        checkArgument(maxMemoryEntries > 0 && maxMemoryEntries <= maxEntries,
+                      "maxMemoryEntries must be positive and not greater than maxEntries %s: %s", maxEntries, maxMemoryEntries);
+        this.maxMemoryEntries = directory == null ? maxEntries : maxMemoryEntries;
+        this.maxEntries = maxEntries;
+        this.currentTimeMillis = checkNotNull(currentTimeMillis);
+        this.evictionListener = checkNotNull(evictionListener);
+        memoryHitCounter = counter(name, "memory_hit");
+        diskHitCounter = counter(name, "disk_hit");
+        missCounter = counter(name, "miss");
+    }
+
+    /// @param subdirectory of the directory given by [#DIRECTORY_PROPERTY]
+    /// @return `null` if the caches are to be kept in memory only
+    @Nullable
+    static Path directory(String subdirectory) {
+        String directory = System.getProperty(DIRECTORY_PROPERTY, Path.of(System.getProperty("user.home"), ".jiotty", "maps-cache").toString());
+        return directory.isEmpty() ? null : Path.of(directory, subdirectory);
+    }
+
+    /// Reads the entries stored on disk, calling the consumer with each valid one; the most recently used ones are also kept in memory.
+    void load(LoadedEntryConsumer<V> consumer) {
+        if (directory == null || !Files.isDirectory(directory)) {
+            return;
+        }
+        List<Path> files = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, "*{" + FILE_SUFFIX + ",.tmp}")) {
+            for (Path file : stream) {
+                if (file.toString().endsWith(".tmp")) {
+                    Files.deleteIfExists(file);
+                } else {
+                    files.add(file);
+                }
+            }
+            // the modification time of a file tells when it was last used
+            files.sort(Comparator.comparing(MapsCache::lastModifiedMillis));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[{}] Failed listing cached entries in {}: {}", name, directory, humanReadableMessage(e));
+        }
+        long nowMillis = currentTimeMillis.getAsLong();
+        int loadedCount = 0;
+        for (Path file : files) {
+            Entry<V> entry = read(file, false);
+            if (entry == null || nowMillis - entry.value().storedAtMillis() >= ttlMillis) {
+                delete(file);
+            } else {
+                synchronized (this) {
+                    memoryEntriesByKey.put(entry.key(), entry.value());
+                    storedAtMillisByKey.put(entry.key(), entry.value().storedAtMillis());
+                }
+                loadedCount++;
+                consumer.accept(entry.key(), entry.value().value(), entry.value().storedAtMillis());
+            }
+        }
+        evict();
+        logger.debug("[{}] Loaded {} cached entries", name, loadedCount);
+    }
+
+    Optional<V> get(String key) {
+        Optional<V> value = getFromMemory(key);
+        return value == null ? getFromDisk(key) : value;
+    }
+
+    /// Like [#get(String)], but the file of an entry is read on the given executor, so that the caller does not wait for the disk.
+    CompletableFuture<Optional<V>> get(String key, Executor diskReadExecutor) {
+        Optional<V> value = getFromMemory(key);
+        return value == null ? CompletableFuture.supplyAsync(() -> getFromDisk(key), diskReadExecutor) : CompletableFuture.completedFuture(value);
+    }
+
+    /// @return `null` if the entry is to be read from disk
+    @SuppressWarnings("OptionalAssignedToNull") // intended
+    @Nullable
+    private Optional<V> getFromMemory(String key) {
+        long nowMillis = currentTimeMillis.getAsLong();
+        synchronized (this) {
+            StoredValue<V> storedValue = memoryEntriesByKey.get(key);
+            if (storedValue != null && nowMillis - storedValue.storedAtMillis() < ttlMillis) {
+                // keeps the disk tier's order of use up to date
+                storedAtMillisByKey.get(key);
+                record(memoryHits, memoryHitCounter);
+                return Optional.of(storedValue.value());
+            }
+            Long storedAtMillis = storedAtMillisByKey.get(key);
+            if (storedAtMillis != null && nowMillis - storedAtMillis >= ttlMillis) {
+                memoryEntriesByKey.remove(key);
+                storedAtMillisByKey.remove(key);
+            } else if (storedAtMillis == null || directory == null) {
+                record(misses, missCounter);
+                return Optional.empty();
+            } else {
+                return null;
+            }
+        }
+        // expired
+        delete(file(key));
+        evictionListener.accept(key);
+        record(misses, missCounter);
+        return Optional.empty();
+    }
+
+    private Optional<V> getFromDisk(String key) {
+        Entry<V> entry = read(file(key), true);
+        if (entry == null || !entry.key().equals(key)) {
+            record(misses, missCounter);
+            return Optional.empty();
+        }
+        synchronized (this) {
+            // unless evicted or replaced meanwhile
+            if (storedAtMillisByKey.containsKey(key)) {
+                memoryEntriesByKey.putIfAbsent(key, entry.value());
+            }
+        }
+        evict();
+        record(diskHits, diskHitCounter);
+        return Optional.of(entry.value().value());
+    }
+
+    void put(String key, V value) {
+        var storedValue = new StoredValue<>(currentTimeMillis.getAsLong(), value);
+        synchronized (this) {
+            memoryEntriesByKey.put(key, storedValue);
+            storedAtMillisByKey.put(key, storedValue.storedAtMillis());
+        }
+        write(new Entry<>(key, storedValue));
+        evict();
+    }
+
+    Stats stats() {
+        return new Stats(memoryHits.sum(), diskHits.sum(), misses.sum());
+    }
+
+    @Override
+    public String toString() {
+        return "MapsCache{" + name + ", " + (directory == null ? "memory" : directory) + '}';
+    }
+
+    private void evict() {
+        List<String> evictedKeys = new ArrayList<>();
+        synchronized (this) {
+            while (memoryEntriesByKey.size() > maxMemoryEntries) {
+                var eldest = memoryEntriesByKey.entrySet().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+            while (storedAtMillisByKey.size() > maxEntries) {
+                var eldest = storedAtMillisByKey.entrySet().iterator();
+                String key = eldest.next().getKey();
+                eldest.remove();
+                memoryEntriesByKey.remove(key);
+                evictedKeys.add(key);
+            }
+        }
+        for (String key : evictedKeys) {
+            delete(file(key));
+            evictionListener.accept(key);
+        }
+    }
+
+    /// @param markUsed whether to record that the entry has been used, in the modification time of the file
+    @Nullable
+    private Entry<V> read(@Nullable Path file, boolean markUsed) {
+        if (file == null) {
+            return null;
+        }
+        try (var in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                return null;
+            }
+            String key = in.readUTF();
+            long storedAtMillis = in.readLong();
+            V value = codec.read(in);
+            if (markUsed) {
+                Files.setLastModifiedTime(file, FileTime.fromMillis(currentTimeMillis.getAsLong()));
+            }
+            return new Entry<>(key, new StoredValue<>(storedAtMillis, value));
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[{}] Failed reading cached entry from {}: {}", name, file, humanReadableMessage(e));
+            delete(file);
+            return null;
+        }
+    }
+
+    private void write(Entry<V> entry) {
+        Path file = file(entry.key());
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            Path tempFile = Files.createTempFile(file.getParent(), "entry", ".tmp");
+            try (var out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile)))) {
+                out.writeInt(FORMAT_VERSION);
+                out.writeUTF(entry.key());
+                out.writeLong(entry.value().storedAtMillis());
+                codec.write(out, entry.value().value());
+            }
+            Files.move(tempFile, file, REPLACE_EXISTING, ATOMIC_MOVE);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("[{}] Failed writing cached entry to {}: {}", name, file, humanReadableMessage(e));
+        }
+    }
+
+    private void delete(@Nullable Path file) {
+        if (file != null) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                logger.warn("[{}] Failed deleting cached entry {}: {}", name, file, humanReadableMessage(e));
+            }
+        }
+    }
+
+    @Nullable
+    private Path file(String key) {
+        return directory == null ? null : directory.resolve(Hashing.sha256().hashString(key, UTF_8) + FILE_SUFFIX);
+    }
+
+    private static long lastModifiedMillis(Path file) {
+        try {
+            return Files.getLastModifiedTime(file).toMillis();
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void record(LongAdder adder, Counter counter) {
+        adder.increment();
+        counter.increment();
+    }
+
+    private static Counter counter(String name, String result) {
+        return Metrics.counter("jiotty_maps_cache_lookups_total", Map.of("cache", name, "result", result));
+    }
+
+    interface Codec<V> {
+        void write(DataOutput out, V value) throws IOException;
+
+        V read(DataInput in) throws IOException;
+    }
+
+    interface LoadedEntryConsumer<V> {
+        void accept(String key, V value, long storedAtMillis);
+    }
+
+    record Stats(long memoryHits, long diskHits, long misses) {}
+
+    private record StoredValue<V>(long storedAtMillis, V value) {}
+
+    private record Entry<V>(String key, StoredValue<V> value) {}
+}
@@ -0,0 +1,6 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+
+/// @param address as it was given to [GeocodingService#geocode(String)]
+public record NearbyGeocode(String address, LatLon location, double distanceMetres) {}
@@ -19,38 +19,149 @@ import io.grpc.ForwardingClientCall;
 import io.grpc.Metadata;
 import io.grpc.MethodDescriptor;
 import io.grpc.netty.shaded.io.grpc.netty.NettyChannelBuilder;
+import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.geo.LatLon;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Either;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
 import java.time.Duration;
 import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.util.concurrent.MoreExecutors.directExecutor;
 import static net.yudichev.jiotty.connector.google.maps.Bindings.ApiKey;
+import static net.yudichev.jiotty.connector.google.maps.Bindings.CacheTtl;
 
-public final class RoutesServiceImpl implements RoutesService {
+public final class RoutesServiceImpl extends BaseLifecycleComponent implements RoutesService {
     private static final Logger logger = LoggerFactory.getLogger(RoutesServiceImpl.class);
     private static final Duration CALL_DEADLINE = Duration.ofSeconds(10);
+    /// traffic-aware routes are only reused for departures or arrivals within the same bucket of time
+    private static final Duration CACHE_TIME_BUCKET = Duration.ofMinutes(15);
+    /// about 11 metres
+    private static final double CACHE_LOCATION_QUANTUM_DEGREES = 0.0001;
+    private static final int MAX_CACHED_IN_MEMORY = 256;
+    private static final int MAX_CACHED = 2000;
+    private static final MapsCache.Codec<Routes> CACHE_CODEC = new MapsCache.Codec<>() {
+        @Override
+        public void write(DataOutput out, Routes routes) throws IOException {
+            out.writeInt(routes.routes().size());
+            for (Route route : routes.routes()) {
+                out.writeInt(route.distanceMetres());
+                out.writeLong(route.duration().getSeconds());
+                out.writeInt(route.duration().getNano());
+            }
+        }
+
+        @Override
+        public Routes read(DataInput in) throws IOException {
+            int routeCount = in.readInt();
+            List<Route> routes = new ArrayList<>(routeCount);
+            for (int i = 0; i < routeCount; i++) {
+                routes.add(Route.builder()
+                                .setDistanceMetres(in.readInt())
+                                .setDuration(Duration.ofSeconds(in.readLong(), in.readInt()))
+                                .build());
+            }
+            return Routes.builder().setRoutes(routes).build();
+        }
+    };
+
     private final AtomicInteger requestIdGen = new AtomicInteger();
     private final RoutesGrpc.RoutesFutureStub stub;
+    private final Duration cacheTtl;
+    private final SingleFlight<String, Routes> computeRoutesFlight = SingleFlight.create("compute-routes");
+    @Nullable
+    private volatile MapsCache<Routes> cache;
+    private volatile ExecutorService diskReadExecutor;
+
+    public RoutesServiceImpl(String apiKey) {
+        this(apiKey, Duration.ZERO);
+    }
 
+    /// @param cacheTtl for how long routes are cached, locally on disk, from when this is started; zero to not cache them
     @Inject
-    public RoutesServiceImpl(@ApiKey String apiKey) {
+    public RoutesServiceImpl(@ApiKey String apiKey, @CacheTtl Duration cacheTtl) {
         Channel channel = NettyChannelBuilder.forAddress("routes.googleapis.com", 443).build();
         channel = ClientInterceptors.intercept(channel, new RoutesInterceptor(apiKey));
         stub = RoutesGrpc.newFutureStub(channel);
+        checkArgument(!cacheTtl.isNegative(), "cacheTtl must not be negative: %s", cacheTtl);
+        this.cacheTtl = cacheTtl;
+    }
+
+    @Override
+    protected void doStart() {
+        if (cacheTtl.isPositive()) {
+            diskReadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("routes-cache-", 0).factory());
+            var newCache = new MapsCache<>("routes", MapsCache.directory("routes"), CACHE_CODEC, cacheTtl, MAX_CACHED_IN_MEMORY, MAX_CACHED,
+                                           System::currentTimeMillis, _ -> {});
+            newCache.load((_, _, _) -> {});
+            cache = newCache;
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        cache = null;
+        if (diskReadExecutor != null) {
+            diskReadExecutor.close();
+            diskReadExecutor = null;
+        }
     }
 
     @Override
     public CompletableFuture<Routes> computeRoutes(RouteParameters parameters) {
+        MapsCache<Routes> cache = this.cache;
+        if (cache == null) {
+            return compute(parameters);
+        }
+        String key = cacheKey(parameters, Instant.now());
+        return cache.get(key, diskReadExecutor)
+                    .thenCompose(cachedRoutes -> cachedRoutes.map(CompletableFuture::completedFuture)
+                                                             .orElseGet(() -> computeRoutesFlight.get(key, () -> compute(parameters).thenApply(routes -> {
+                                                                 cache.put(key, routes);
+                                                                 return routes;
+                                                             }))));
+    }
+
+    /// Origin and destination quantised, and departure or arrival time (now if neither is given) bucketed, so that requests made for about
+    /// the same trip share the routes.
+    static String cacheKey(RouteParameters parameters, Instant now) {
+        var key = new StringBuilder(96);
+        appendCacheKey(key, parameters.originLocation()).append('|');
+        appendCacheKey(key, parameters.destinationLocation()).append('|');
+        parameters.arrivalTime().ifPresentOrElse(
+                arrival -> key.append("arrive@").append(timeBucket(arrival)),
+                () -> key.append("depart@").append(timeBucket(parameters.departureTime().orElse(now))));
+        return key.toString();
+    }
+
+    private static StringBuilder appendCacheKey(StringBuilder key, Either<String, LatLon> location) {
+        return location.map(address -> key.append("address:").append(GeocodeCache.normalise(address)),
+                            latLon -> key.append("latlon:")
+                                         .append(Math.round(latLon.lat() / CACHE_LOCATION_QUANTUM_DEGREES))
+                                         .append(',')
+                                         .append(Math.round(latLon.lon() / CACHE_LOCATION_QUANTUM_DEGREES)));
+    }
+
+    private static long timeBucket(Instant time) {
+        return Math.floorDiv(time.toEpochMilli(), CACHE_TIME_BUCKET.toMillis());
+    }
+
+    private CompletableFuture<Routes> compute(RouteParameters parameters) {
         var builder = ComputeRoutesRequest.newBuilder()
                                           .setOrigin(createWaypoint(parameters.originLocation()))
                                           .setDestination(createWaypoint(parameters.destinationLocation()))
@@ -8,22 +8,32 @@ import net.yudichev.jiotty.common.inject.HasWithAnnotation;
 import net.yudichev.jiotty.common.inject.SpecifiedAnnotation;
 import net.yudichev.jiotty.common.lang.TypedBuilder;
 
+import java.time.Duration;
+
 import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
 
 public final class RoutesServiceModule extends BaseLifecycleComponentModule implements ExposedKeyModule<RoutesService> {
     private final BindingSpec<String> apiKeySpec;
+    private final BindingSpec<Duration> cacheTtlSpec;
     private final Key<RoutesService> exposedKey;
 
     public RoutesServiceModule(SpecifiedAnnotation specifiedAnnotation, BindingSpec<String> apiKeySpec) {
+        this(specifiedAnnotation, apiKeySpec, literally(Duration.ZERO));
+    }
+
+    public RoutesServiceModule(SpecifiedAnnotation specifiedAnnotation, BindingSpec<String> apiKeySpec, BindingSpec<Duration> cacheTtlSpec) {
         this.apiKeySpec = checkNotNull(apiKeySpec);
         exposedKey = specifiedAnnotation.specify(ExposedKeyModule.super.getExposedKey().getTypeLiteral());
+        this.cacheTtlSpec = checkNotNull(cacheTtlSpec);
     }
 
     @Override
     protected void configure() {
         apiKeySpec.bind(String.class).annotatedWith(Bindings.ApiKey.class).installedBy(this::installLifecycleComponentModule);
+        cacheTtlSpec.bind(Duration.class).annotatedWith(Bindings.CacheTtl.class).installedBy(this::installLifecycleComponentModule);
 
-        bind(exposedKey).to(RoutesServiceImpl.class);
+        bind(exposedKey).to(registerLifecycleComponent(RoutesServiceImpl.class));
         expose(exposedKey);
     }
 
@@ -38,6 +48,7 @@ public final class RoutesServiceModule extends BaseLifecycleComponentModule impl
 
     public static final class Builder implements TypedBuilder<ExposedKeyModule<RoutesService>>, HasWithAnnotation {
         private BindingSpec<String> apiKeySpec;
+        private BindingSpec<Duration> cacheTtlSpec = literally(Duration.ZERO);
         private SpecifiedAnnotation specifiedAnnotation = SpecifiedAnnotation.forNoAnnotation();
 
         public Builder setApiKey(BindingSpec<String> apiKeySpec) {
@@ -45,6 +56,13 @@ public final class RoutesServiceModule extends BaseLifecycleComponentModule impl
             return this;
         }
 
+        /// For how long routes are cached locally, in memory and on disk; zero, the default, to not cache them. As routes are traffic-aware,
+        /// this should not be more than a few minutes.
+        public Builder withCacheTtl(BindingSpec<Duration> cacheTtlSpec) {
+            this.cacheTtlSpec = checkNotNull(cacheTtlSpec);
+            return this;
+        }
+
         @Override
         public Builder withAnnotation(SpecifiedAnnotation specifiedAnnotation) {
             this.specifiedAnnotation = checkNotNull(specifiedAnnotation);
@@ -53,7 +71,7 @@ public final class RoutesServiceModule extends BaseLifecycleComponentModule impl
 
         @Override
         public ExposedKeyModule<RoutesService> build() {
-            return new RoutesServiceModule(specifiedAnnotation, apiKeySpec);
+            return new RoutesServiceModule(specifiedAnnotation, apiKeySpec, cacheTtlSpec);
         }
     }
 }
@@ -0,0 +1,91 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class GeocodeCacheTest {
+    private static final LatLon WESTMINSTER_ABBEY = new LatLon(51.4993, -0.1273);
+    private static final LatLon BIG_BEN = new LatLon(51.5007, -0.1246);
+    private static final LatLon LONDON_BRIDGE = new LatLon(51.5079, -0.0877);
+    private static final Duration TTL = Duration.ofDays(30);
+
+    private final AtomicLong currentTimeMillis = new AtomicLong(1_700_000_000_000L);
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void normalisesAddresses() {
+        assertThat(GeocodeCache.normalise("  10 Downing St ,\tLondon  SW1A 2AA "), is("10 downing st,london sw1a 2aa"));
+        assertThat(GeocodeCache.normalise("10 downing st,london sw1a 2aa"), is("10 downing st,london sw1a 2aa"));
+    }
+
+    @Test
+    void servesSameLocationsForAddressesDifferingInCaseAndWhitespace() {
+        GeocodeCache cache = create(10);
+        cache.put("Westminster Abbey, London", List.of(WESTMINSTER_ABBEY));
+
+        assertThat(cache.get("westminster abbey,  london"), is(Optional.of(List.of(WESTMINSTER_ABBEY))));
+    }
+
+    @Test
+    void findsNearbyAddressesNearestFirst() {
+        GeocodeCache cache = create(10);
+        cache.put("London Bridge", List.of(LONDON_BRIDGE));
+        cache.put("Big Ben", List.of(BIG_BEN));
+        cache.put("Westminster Abbey", List.of(WESTMINSTER_ABBEY));
+
+        List<NearbyGeocode> nearby = cache.findNear(new LatLon(51.4995, -0.1270), 500);
+
+        assertThat(nearby.stream().map(NearbyGeocode::address).toList(), contains("Westminster Abbey", "Big Ben"));
+        assertThat(cache.findNear(new LatLon(51.4995, -0.1270), 50_000).size(), is(3));
+        assertThat(cache.findNear(new LatLon(48.8584, 2.2945), 500), is(empty()));
+    }
+
+    @Test
+    void indexesLoadedEntriesAndForgetsEvictedOnes() {
+        GeocodeCache cache = create(2);
+        cache.put("Westminster Abbey", List.of(WESTMINSTER_ABBEY));
+        cache.put("Big Ben", List.of(BIG_BEN));
+
+        GeocodeCache restartedCache = create(2);
+        restartedCache.put("London Bridge", List.of(LONDON_BRIDGE));
+
+        assertThat(restartedCache.findNear(WESTMINSTER_ABBEY, 50_000).stream().map(NearbyGeocode::address).toList(),
+                   contains("Big Ben", "London Bridge"));
+    }
+
+    @Test
+    void leavesOutExpiredGeocodesWhenFindingNearby() {
+        GeocodeCache cache = create(10);
+        cache.put("Westminster Abbey", List.of(WESTMINSTER_ABBEY));
+        currentTimeMillis.addAndGet(TTL.toMillis() / 2);
+        cache.put("Big Ben", List.of(BIG_BEN));
+        currentTimeMillis.addAndGet(TTL.toMillis() / 2);
+
+        assertThat(cache.findNear(WESTMINSTER_ABBEY, 500).stream().map(NearbyGeocode::address).toList(), contains("Big Ben"));
+        assertThat(create(10).findNear(WESTMINSTER_ABBEY, 500).stream().map(NearbyGeocode::address).toList(), contains("Big Ben"));
+    }
+
+    @Test
+    void computesDistances() {
+        double distanceMetres = GeocodeCache.distanceMetres(WESTMINSTER_ABBEY, LONDON_BRIDGE);
+        assertThat(distanceMetres > 2850 && distanceMetres < 2950, is(true));
+    }
+
+    private GeocodeCache create(int maxEntries) {
+        return new GeocodeCache(directory, TTL, 1, maxEntries, currentTimeMillis::get);
+    }
+}
@@ -0,0 +1,55 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/// Latency of [GeocodeCache] lookups served from memory, from disk and of nearby lookups, for comparison with a geocoding API call, which
+/// takes tens to hundreds of milliseconds.
+///
+/// `ManualGeocodeCacheRunner [addresses] [lookups]`
+final class ManualGeocodeCacheRunner {
+    static void main(String[] args) throws IOException {
+        int addressCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000;
+        int lookupCount = args.length > 1 ? Integer.parseInt(args[1]) : 100_000;
+        Path directory = Files.createTempDirectory(ManualGeocodeCacheRunner.class.getSimpleName());
+        var random = ThreadLocalRandom.current();
+        var cache = new GeocodeCache(directory, Duration.ofDays(30), addressCount, addressCount, System::currentTimeMillis);
+        for (int i = 0; i < addressCount; i++) {
+            cache.put(address(i), List.of(new LatLon(51.3 + random.nextDouble(0.4), -0.5 + random.nextDouble(0.7))));
+        }
+
+        report("memory hit", lookupCount, () -> cache.get(address(random.nextInt(addressCount))));
+        var diskCache = new GeocodeCache(directory, Duration.ofDays(30), 1, addressCount, System::currentTimeMillis);
+        report("disk hit", Math.min(lookupCount, addressCount), () -> diskCache.get(address(random.nextInt(addressCount))));
+        report("nearby within 500 m", lookupCount / 10,
+               () -> cache.findNear(new LatLon(51.3 + random.nextDouble(0.4), -0.5 + random.nextDouble(0.7)), 500));
+        System.out.println(cache.stats() + ", " + diskCache.stats());
+    }
+
+    private static String address(int i) {
+        return i + " Some Street, London";
+    }
+
+    private static void report(String name, int count, Runnable lookup) {
+        long[] latencies = new long[count];
+        for (int i = 0; i < count; i++) {
+            long start = System.nanoTime();
+            lookup.run();
+            latencies[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-20s %,8d lookups: p50 %,10.1f us, p99 %,10.1f us, max %,10.1f us%n",
+                          name,
+                          count,
+                          latencies[count / 2] / 1000.0,
+                          latencies[(int) Math.min(count - 1, Math.round(count * 0.99))] / 1000.0,
+                          latencies[count - 1] / 1000.0);
+    }
+}
@@ -0,0 +1,145 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import jakarta.annotation.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+
+class MapsCacheTest {
+    private static final Duration TTL = Duration.ofMinutes(10);
+    private static final MapsCache.Codec<String> CODEC = new MapsCache.Codec<>() {
+        @Override
+        public void write(DataOutput out, String value) throws IOException {
+            out.writeUTF(value);
+        }
+
+        @Override
+        public String read(DataInput in) throws IOException {
+            return in.readUTF();
+        }
+    };
+
+    private final AtomicLong currentTimeMillis = new AtomicLong(1_700_000_000_000L);
+    private final List<String> evictedKeys = new ArrayList<>();
+    @TempDir
+    Path directory;
+
+    @Test
+    void servesFromMemoryThenFromDisk() {
+        MapsCache<String> cache = create(directory, 1, 10);
+        cache.put("a", "A");
+        cache.put("b", "B");
+
+        assertThat(cache.get("b"), is(Optional.of("B")));
+        assertThat(cache.get("a"), is(Optional.of("A")));
+        assertThat(cache.get("c"), is(Optional.empty()));
+        assertThat(cache.stats(), equalTo(new MapsCache.Stats(1, 1, 1)));
+    }
+
+    @Test
+    void readsDiskTierOnGivenExecutorOnly() {
+        MapsCache<String> cache = create(directory, 1, 10);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        List<Runnable> diskReads = new ArrayList<>();
+
+        assertThat(cache.get("b", diskReads::add).join(), is(Optional.of("B")));
+        assertThat(cache.get("c", diskReads::add).join(), is(Optional.empty()));
+        assertThat(diskReads, is(empty()));
+
+        CompletableFuture<Optional<String>> diskHit = cache.get("a", diskReads::add);
+        assertThat(diskHit.isDone(), is(false));
+        diskReads.forEach(Runnable::run);
+        assertThat(diskHit.join(), is(Optional.of("A")));
+        assertThat(cache.stats(), equalTo(new MapsCache.Stats(1, 1, 1)));
+    }
+
+    @Test
+    void expiresEntries() throws IOException {
+        MapsCache<String> cache = create(directory, 10, 10);
+        cache.put("a", "A");
+
+        currentTimeMillis.addAndGet(TTL.toMillis());
+
+        assertThat(cache.get("a"), is(Optional.empty()));
+        assertThat(evictedKeys, contains("a"));
+        assertThat(entryFileCount(), is(0L));
+    }
+
+    @Test
+    void evictsLeastRecentlyUsedEntries() throws IOException {
+        MapsCache<String> cache = create(directory, 1, 2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.get("a");
+
+        cache.put("c", "C");
+
+        assertThat(evictedKeys, contains("b"));
+        assertThat(cache.get("b"), is(Optional.empty()));
+        assertThat(cache.get("a"), is(Optional.of("A")));
+        assertThat(cache.get("c"), is(Optional.of("C")));
+        assertThat(entryFileCount(), is(2L));
+    }
+
+    @Test
+    void survivesRestartsDroppingExpiredEntries() {
+        MapsCache<String> cache = create(directory, 10, 10);
+        cache.put("old", "OLD");
+        currentTimeMillis.addAndGet(TTL.toMillis() / 2);
+        cache.put("new", "NEW");
+        currentTimeMillis.addAndGet(TTL.toMillis() / 2);
+
+        MapsCache<String> restartedCache = create(directory, 10, 10);
+        Map<String, String> loaded = new LinkedHashMap<>();
+        restartedCache.load((key, value, _) -> loaded.put(key, value));
+
+        assertThat(loaded, equalTo(Map.of("new", "NEW")));
+        assertThat(restartedCache.get("new"), is(Optional.of("NEW")));
+        assertThat(restartedCache.get("old"), is(Optional.empty()));
+        assertThat(restartedCache.stats(), equalTo(new MapsCache.Stats(1, 0, 1)));
+    }
+
+    @Test
+    void keepsMaxEntriesInMemoryWithoutDirectory() {
+        MapsCache<String> cache = create(null, 1, 2);
+        cache.put("a", "A");
+        cache.put("b", "B");
+        cache.put("c", "C");
+
+        assertThat(cache.get("a"), is(Optional.empty()));
+        assertThat(cache.get("b"), is(Optional.of("B")));
+        assertThat(cache.get("c"), is(Optional.of("C")));
+        assertThat(evictedKeys, contains("a"));
+    }
+
+    private MapsCache<String> create(@Nullable Path directory, int maxMemoryEntries, int maxEntries) {
+        return new MapsCache<>("test", directory, CODEC, TTL, maxMemoryEntries, maxEntries, currentTimeMillis::get, evictedKeys::add);
+    }
+
+    private long entryFileCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".entry")).count();
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package net.yudichev.jiotty.connector.google.maps;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+import net.yudichev.jiotty.common.lang.Either;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static net.yudichev.jiotty.connector.google.maps.RoutesServiceImpl.cacheKey;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.not;
+
+class RoutesServiceImplTest {
+    private static final LatLon WESTMINSTER_ABBEY = new LatLon(51.4993, -0.1273);
+    private static final Instant TEN_AM = Instant.parse("2026-01-01T10:00:00Z");
+
+    @Test
+    void sharesKeyBetweenLocationsWithinQuantum() {
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), TEN_AM),
+                   is(cacheKey(departingAt(new LatLon(51.49932, -0.12728), TEN_AM), TEN_AM)));
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), TEN_AM),
+                   is(not(cacheKey(departingAt(new LatLon(51.4995, -0.1273), TEN_AM), TEN_AM))));
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), TEN_AM),
+                   is(not(cacheKey(departingAt(new LatLon(51.4993, -0.1271), TEN_AM), TEN_AM))));
+    }
+
+    @Test
+    void sharesKeyBetweenAddressesDifferingInCaseAndWhitespace() {
+        assertThat(cacheKey(parameters(Either.left("Westminster Abbey, London")).setDepartureTime(TEN_AM).build(), TEN_AM),
+                   is(cacheKey(parameters(Either.left("  westminster abbey,london ")).setDepartureTime(TEN_AM).build(), TEN_AM)));
+    }
+
+    @Test
+    void sharesKeyBetweenDeparturesWithinTimeBucket() {
+        String key = cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), TEN_AM);
+
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, Instant.parse("2026-01-01T10:14:59Z")), TEN_AM), is(key));
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, Instant.parse("2026-01-01T10:15:00Z")), TEN_AM), is(not(key)));
+        assertThat(cacheKey(departingAt(WESTMINSTER_ABBEY, Instant.parse("2026-01-01T09:59:59Z")), TEN_AM), is(not(key)));
+    }
+
+    @Test
+    void departsNowUnlessDepartureOrArrivalGiven() {
+        RouteParameters parameters = parameters(Either.right(WESTMINSTER_ABBEY)).build();
+
+        assertThat(cacheKey(parameters, TEN_AM), is(cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), Instant.EPOCH)));
+        assertThat(cacheKey(parameters, TEN_AM), is(not(cacheKey(parameters, Instant.parse("2026-01-01T10:15:00Z")))));
+    }
+
+    @Test
+    void distinguishesArrivalFromDeparture() {
+        RouteParameters arriving = parameters(Either.right(WESTMINSTER_ABBEY)).setArrivalTime(TEN_AM).build();
+
+        assertThat(cacheKey(arriving, TEN_AM), is(not(cacheKey(departingAt(WESTMINSTER_ABBEY, TEN_AM), TEN_AM))));
+        assertThat(cacheKey(RouteParameters.builder().from(arriving).setDepartureTime(Instant.EPOCH).build(), TEN_AM),
+                   is(cacheKey(arriving, TEN_AM)));
+    }
+
+    private static RouteParameters departingAt(LatLon origin, Instant departureTime) {
+        return parameters(Either.right(origin)).setDepartureTime(departureTime).build();
+    }
+
+    private static RouteParameters.Builder parameters(Either<String, LatLon> origin) {
+        return RouteParameters.builder()
+                              .setOriginLocation(origin)
+                              .setDestinationLocation(Either.left("London Bridge"));
+    }
+}
@@ -66,6 +66,25 @@ public interface GooglePhotosClient {
         return uploadMediaItem(albumId, file, ForkJoinPool.commonPool());
     }
 
+    /// Uploads the files and creates media items from them, a few files at a time, in resumable chunks and creating the items in batches.
+    /// Failed uploads and failed item creations are retried with backoff, and a file that still fails does not fail the others.
+    ///
+    /// @param manifestFile if present, where the progress is recorded as it is made, so that calling this again with the same files
+    ///                     after an interruption skips the files whose media items were already created and resumes the uploads of the
+    ///                     rest where possible
+    /// @return results in the order of `files`; fails only if the manifest cannot be written or the upload is interrupted
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // it's quite useful in this case
+    CompletableFuture<List<MediaUploadResult>> uploadMediaItems(Optional<String> albumId, List<Path> files, Optional<Path> manifestFile);
+
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // it's quite useful in this case
+    default CompletableFuture<List<MediaUploadResult>> uploadMediaItems(Optional<String> albumId, List<Path> files, Path manifestFile) {
+        return uploadMediaItems(albumId, files, Optional.of(manifestFile));
+    }
+
+    default CompletableFuture<List<MediaUploadResult>> uploadMediaItems(List<Path> files, Path manifestFile) {
+        return uploadMediaItems(Optional.empty(), files, Optional.of(manifestFile));
+    }
+
     CompletableFuture<GooglePhotosAlbum> createAlbum(String name, Executor executor);
 
     default CompletableFuture<GooglePhotosAlbum> createAlbum(String name) {
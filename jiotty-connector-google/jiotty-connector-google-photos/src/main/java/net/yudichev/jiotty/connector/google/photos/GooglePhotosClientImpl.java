@@ -2,6 +2,7 @@ package net.yudichev.jiotty.connector.google.photos;
 
 import com.google.api.gax.core.FixedCredentialsProvider;
 import com.google.api.gax.rpc.UnaryCallable;
+import com.google.auth.Credentials;
 import com.google.photos.library.v1.PhotosLibraryClient;
 import com.google.photos.library.v1.PhotosLibrarySettings;
 import com.google.photos.library.v1.proto.BatchCreateMediaItemsRequest;
@@ -9,8 +10,6 @@ import com.google.photos.library.v1.proto.CreateAlbumRequest;
 import com.google.photos.library.v1.proto.GetAlbumRequest;
 import com.google.photos.library.v1.proto.ListAlbumsRequest;
 import com.google.photos.library.v1.proto.NewMediaItemResult;
-import com.google.photos.library.v1.upload.UploadMediaItemRequest;
-import com.google.photos.library.v1.upload.UploadMediaItemResponse;
 import com.google.photos.types.proto.Album;
 import com.google.rpc.Code;
 import com.google.rpc.Status;
@@ -18,68 +17,77 @@ import jakarta.inject.Inject;
 import jakarta.inject.Provider;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.lang.backoff.ExponentialBackOff;
+import net.yudichev.jiotty.common.rest.RestClients;
 import net.yudichev.jiotty.connector.google.common.GoogleAuthorization;
+import net.yudichev.jiotty.connector.google.photos.Bindings.UploadParallelism;
+import okhttp3.OkHttpClient;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.function.IntConsumer;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static java.util.concurrent.CompletableFuture.supplyAsync;
 import static net.yudichev.jiotty.common.lang.Closeable.closeIfNotNull;
-import static net.yudichev.jiotty.common.lang.Closeable.idempotent;
+import static net.yudichev.jiotty.common.lang.Closeable.forActions;
 import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
 import static net.yudichev.jiotty.connector.google.common.impl.Bindings.Authorization;
 
 final class GooglePhotosClientImpl extends BaseLifecycleComponent implements GooglePhotosClient {
+    static final int DEFAULT_UPLOAD_PARALLELISM = 4;
+
     private static final Logger logger = LoggerFactory.getLogger(GooglePhotosClientImpl.class);
+    private static final int UPLOAD_CHUNK_SIZE = 32 * MediaUploadPipeline.CHUNK_GRANULARITY;
+    private static final int UPLOAD_MAX_ATTEMPTS = 5;
+    private static final Duration UPLOAD_HTTP_TIMEOUT = Duration.ofMinutes(5);
+
     private final Provider<GoogleAuthorization> googleAuthorizationProvider;
+    private final int uploadParallelism;
     private PhotosLibraryClient client;
+    private MediaUploadPipeline uploadPipeline;
     private Closeable closeable;
 
     @Inject
-    GooglePhotosClientImpl(@Authorization Provider<GoogleAuthorization> googleAuthorizationProvider) {
+    GooglePhotosClientImpl(@Authorization Provider<GoogleAuthorization> googleAuthorizationProvider,
+                           @UploadParallelism int uploadParallelism) {
         this.googleAuthorizationProvider = checkNotNull(googleAuthorizationProvider);
+        checkArgument(uploadParallelism > 0, "uploadParallelism must be positive: %s", uploadParallelism);
+        this.uploadParallelism = uploadParallelism;
     }
 
     @Override
     public CompletableFuture<String> uploadMediaData(Path file, Executor executor) {
         return whenStartedAndNotLifecycling(() -> {
-            var theClient = client;
+            var thePipeline = uploadPipeline;
             return supplyAsync(() -> {
                 checkStarted();
                 logger.debug("Started uploading {}", file);
-                UploadMediaItemResponse uploadResponse;
-                try (RandomAccessFile randomAccessFile = new RandomAccessFile(file.toFile(), "r")) {
-                    UploadMediaItemRequest uploadRequest = UploadMediaItemRequest.newBuilder()
-                                                                                 .setDataFile(randomAccessFile)
-                                                                                 .setMimeType("application/octet-stream")
-                                                                                 .build();
-                    uploadResponse = callClient(theClient.uploadMediaItemCallable(), uploadRequest);
-                } catch (IOException e) {
-                    throw new RuntimeException(e);
-                }
-                uploadResponse.getError().ifPresent(error -> {throw new RuntimeException("Failed uploading " + file, error.getCause());});
-                // guaranteed
-                @SuppressWarnings("OptionalGetWithoutIsPresent")
-                String uploadToken = uploadResponse.getUploadToken().get();
+                String uploadToken = getAsUnchecked(() -> thePipeline.upload(file));
                 logger.debug("Uploaded file {}, upload token {}", file, uploadToken);
                 return uploadToken;
             }, executor);
         });
     }
 
+    @Override
+    public CompletableFuture<List<MediaUploadResult>> uploadMediaItems(Optional<String> albumId, List<Path> files, Optional<Path> manifestFile) {
+        return whenStartedAndNotLifecycling(() -> uploadPipeline.upload(albumId, files, manifestFile.orElse(null)));
+    }
+
     @Override
     public CompletableFuture<List<MediaItemOrError>> createMediaItems(Optional<String> albumId,
                                                                       List<NewMediaItem> newMediaItems,
@@ -170,17 +178,31 @@ final class GooglePhotosClientImpl extends BaseLifecycleComponent implements Goo
 
     @Override
     protected void doStart() {
+        Credentials credentials = googleAuthorizationProvider.get().getCredentials();
         //noinspection resource it's closed
         client = getAsUnchecked(() -> PhotosLibraryClient.initialize(PhotosLibrarySettings.newBuilder()
-                                                                                          .setCredentialsProvider(FixedCredentialsProvider.create(
-                                                                                                  googleAuthorizationProvider.get().getCredentials()))
+                                                                                          .setCredentialsProvider(FixedCredentialsProvider.create(credentials))
                                                                                           .build()));
-        closeable = idempotent(() -> client.close());
+        OkHttpClient httpClient = RestClients.newClient(builder -> builder.callTimeout(UPLOAD_HTTP_TIMEOUT)
+                                                                          .readTimeout(UPLOAD_HTTP_TIMEOUT)
+                                                                          .writeTimeout(UPLOAD_HTTP_TIMEOUT));
+        ExecutorService uploadExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("google-photos-upload-", 0).factory());
+        uploadPipeline = new MediaUploadPipeline(new GooglePhotosUploadService(httpClient, credentials, client),
+                                                 uploadExecutor,
+                                                 uploadParallelism,
+                                                 UPLOAD_CHUNK_SIZE,
+                                                 UPLOAD_MAX_ATTEMPTS,
+                                                 () -> new ExponentialBackOff.Builder().setInitialIntervalMillis(1000)
+                                                                                       .setMaxIntervalMillis(60_000)
+                                                                                       .build(),
+                                                 System::currentTimeMillis);
+        var theClient = client;
+        closeable = forActions(uploadExecutor::shutdownNow, () -> RestClients.shutdown(httpClient), theClient::close);
     }
 
     // we must be interruptible; this is the only way (see https://github.com/google/java-photoslibrary/issues/43)
     // TODO simplify or remove if/when this is fixed
-    private static <Q, R> R callClient(UnaryCallable<Q, R> callable, Q request) {
+    static <Q, R> R callClient(UnaryCallable<Q, R> callable, Q request) {
         try {
             return callable.futureCall(request).get();
         } catch (InterruptedException e) {
@@ -5,9 +5,15 @@ import net.yudichev.jiotty.common.inject.ExposedKeyModule;
 import net.yudichev.jiotty.connector.google.common.GoogleAuthorization;
 import net.yudichev.jiotty.connector.google.common.impl.BaseGoogleServiceModule;
 
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
+
 public final class GooglePhotosModule extends BaseGoogleServiceModule implements ExposedKeyModule<GooglePhotosClient> {
-    private GooglePhotosModule(BindingSpec<GoogleAuthorization> googleAuthorizationSpec) {
+    private final BindingSpec<Integer> uploadParallelismSpec;
+
+    private GooglePhotosModule(BindingSpec<GoogleAuthorization> googleAuthorizationSpec, BindingSpec<Integer> uploadParallelismSpec) {
         super(googleAuthorizationSpec);
+        this.uploadParallelismSpec = checkNotNull(uploadParallelismSpec);
     }
 
     public static Builder builder() {
@@ -16,14 +22,25 @@ public final class GooglePhotosModule extends BaseGoogleServiceModule implements
 
     @Override
     protected void doConfigure() {
+        uploadParallelismSpec.bind(Integer.class)
+                             .annotatedWith(Bindings.UploadParallelism.class)
+                             .installedBy(this::installLifecycleComponentModule);
         bind(getExposedKey()).to(registerLifecycleComponent(GooglePhotosClientImpl.class));
         expose(getExposedKey());
     }
 
     public static final class Builder extends BaseBuilder<GooglePhotosClient, Builder> {
+        private BindingSpec<Integer> uploadParallelismSpec = literally(GooglePhotosClientImpl.DEFAULT_UPLOAD_PARALLELISM);
+
+        /// How many files [GooglePhotosClient#uploadMediaItems] uploads at a time.
+        public Builder withUploadParallelism(BindingSpec<Integer> uploadParallelismSpec) {
+            this.uploadParallelismSpec = checkNotNull(uploadParallelismSpec);
+            return this;
+        }
+
         @Override
         public ExposedKeyModule<GooglePhotosClient> build() {
-            return new GooglePhotosModule(getAuthorizationSpec());
+            return new GooglePhotosModule(getAuthorizationSpec(), uploadParallelismSpec);
         }
 
         @Override
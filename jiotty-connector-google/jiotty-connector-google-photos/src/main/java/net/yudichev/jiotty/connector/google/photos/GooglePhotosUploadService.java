@@ -0,0 +1,167 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import com.google.auth.Credentials;
+import com.google.photos.library.v1.PhotosLibraryClient;
+import com.google.photos.library.v1.proto.BatchCreateMediaItemsRequest;
+import com.google.photos.library.v1.proto.NewMediaItem;
+import com.google.photos.library.v1.proto.NewMediaItemResult;
+import com.google.photos.library.v1.proto.SimpleMediaItem;
+import com.google.rpc.Code;
+import com.google.rpc.Status;
+import okhttp3.MediaType;
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+
+/// [PhotosUploadService] over the [resumable upload protocol](https://developers.google.com/photos/library/guides/resumable-uploads)
+/// and the gRPC `batchCreate` call.
+final class GooglePhotosUploadService implements PhotosUploadService {
+    private static final String UPLOADS_URL = "https://photoslibrary.googleapis.com/v1/uploads";
+    private static final MediaType OCTET_STREAM = MediaType.get("application/octet-stream");
+    private static final RequestBody EMPTY_BODY = RequestBody.create(new byte[0], null);
+    private static final Set<Integer> RETRYABLE_CODES =
+            Set.of(Code.UNAVAILABLE_VALUE, Code.RESOURCE_EXHAUSTED_VALUE, Code.INTERNAL_VALUE, Code.DEADLINE_EXCEEDED_VALUE, Code.ABORTED_VALUE);
+
+    private final OkHttpClient httpClient;
+    private final Credentials credentials;
+    private final PhotosLibraryClient client;
+
+    GooglePhotosUploadService(OkHttpClient httpClient, Credentials credentials, PhotosLibraryClient client) {
+        this.httpClient = checkNotNull(httpClient);
+        this.credentials = checkNotNull(credentials);
+        this.client = checkNotNull(client);
+    }
+
+    @Override
+    public String startUpload(String fileName, long size) throws IOException {
+        try (Response response = call(new Request.Builder().url(UPLOADS_URL)
+                                                           .header("X-Goog-Upload-Command", "start")
+                                                           .header("X-Goog-Upload-Protocol", "resumable")
+                                                           .header("X-Goog-Upload-Content-Type", OCTET_STREAM.toString())
+                                                           .header("X-Goog-Upload-File-Name", fileName)
+                                                           .header("X-Goog-Upload-Raw-Size", Long.toString(size))
+                                                           .post(EMPTY_BODY))) {
+            return requiredHeader(response, "X-Goog-Upload-URL");
+        }
+    }
+
+    @Override
+    public long queryReceivedBytes(String uploadUrl) throws IOException {
+        try (Response response = call(new Request.Builder().url(uploadUrl)
+                                                           .header("X-Goog-Upload-Command", "query")
+                                                           .post(EMPTY_BODY))) {
+            String status = requiredHeader(response, "X-Goog-Upload-Status");
+            if (!"active".equals(status)) {
+                throw new IOException("Upload session " + uploadUrl + " is " + status);
+            }
+            try {
+                return Long.parseLong(requiredHeader(response, "X-Goog-Upload-Size-Received"));
+            } catch (NumberFormatException e) {
+                throw new IOException("Malformed response to query of upload session " + uploadUrl, e);
+            }
+        }
+    }
+
+    @Override
+    public Optional<String> uploadChunk(String uploadUrl, long offset, ByteBuffer chunk, boolean last) throws IOException {
+        try (Response response = call(new Request.Builder().url(uploadUrl)
+                                                           .header("X-Goog-Upload-Command", last ? "upload, finalize" : "upload")
+                                                           .header("X-Goog-Upload-Offset", Long.toString(offset))
+                                                           .post(new ByteBufferRequestBody(chunk)))) {
+            if (!last) {
+                return Optional.empty();
+            }
+            String uploadToken = response.body().string();
+            if (uploadToken.isEmpty()) {
+                throw new IOException("Empty upload token received for session " + uploadUrl);
+            }
+            return Optional.of(uploadToken);
+        }
+    }
+
+    @Override
+    public List<ItemCreation> batchCreateMediaItems(Optional<String> albumId, List<NewItem> items) {
+        BatchCreateMediaItemsRequest.Builder requestBuilder = BatchCreateMediaItemsRequest.newBuilder();
+        items.forEach(item -> requestBuilder.addNewMediaItems(
+                NewMediaItem.newBuilder()
+                            .setDescription(item.fileName())
+                            .setSimpleMediaItem(SimpleMediaItem.newBuilder()
+                                                               .setUploadToken(item.uploadToken())
+                                                               .setFileName(item.fileName()))));
+        albumId.ifPresent(requestBuilder::setAlbumId);
+        List<NewMediaItemResult> results = GooglePhotosClientImpl.callClient(client.batchCreateMediaItemsCallable(), requestBuilder.build())
+                                                                 .getNewMediaItemResultsList();
+        return results.stream()
+                      .map(result -> {
+                          Status status = result.getStatus();
+                          return status.getCode() == Code.OK_VALUE ?
+                                  ItemCreation.created(result.getMediaItem().getId()) :
+                                  ItemCreation.failed(status.getCode() + ": " + status.getMessage(), RETRYABLE_CODES.contains(status.getCode()));
+                      })
+                      .collect(toImmutableList());
+    }
+
+    private Response call(Request.Builder requestBuilder) throws IOException {
+        Map<String, List<String>> authHeaders = credentials.getRequestMetadata(URI.create(UPLOADS_URL));
+        authHeaders.forEach((name, values) -> values.forEach(value -> requestBuilder.addHeader(name, value)));
+        Request request = requestBuilder.build();
+        Response response = httpClient.newCall(request).execute();
+        if (!response.isSuccessful()) {
+            try (response) {
+                int code = response.code();
+                String message = "Upload call to " + request.url() + " failed: HTTP " + code + " " + response.body().string();
+                // timeouts, throttling and server errors are worth another try; other client errors are not
+                throw code == 408 || code == 429 || code >= 500 ? new IOException(message) : new NonRetryableException(message);
+            }
+        }
+        return response;
+    }
+
+    private static String requiredHeader(Response response, String name) throws IOException {
+        String value = response.header(name);
+        if (value == null) {
+            throw new IOException("Header " + name + " missing in response from " + response.request().url());
+        }
+        return value;
+    }
+
+    private static final class ByteBufferRequestBody extends RequestBody {
+        private final ByteBuffer buffer;
+
+        ByteBufferRequestBody(ByteBuffer buffer) {
+            this.buffer = checkNotNull(buffer);
+        }
+
+        @Override
+        public MediaType contentType() {
+            return OCTET_STREAM;
+        }
+
+        @Override
+        public long contentLength() {
+            return buffer.remaining();
+        }
+
+        /// may be called again if OkHttp retries the request
+        @Override
+        public void writeTo(BufferedSink sink) throws IOException {
+            ByteBuffer source = buffer.duplicate();
+            while (source.hasRemaining()) {
+                sink.write(source);
+            }
+        }
+    }
+}
@@ -0,0 +1,447 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.lang.backoff.BackOff;
+import net.yudichev.jiotty.common.metrics.Counter;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import net.yudichev.jiotty.connector.google.photos.PhotosUploadService.ItemCreation;
+import net.yudichev.jiotty.connector.google.photos.PhotosUploadService.NewItem;
+import net.yudichev.jiotty.connector.google.photos.UploadManifest.FileState;
+import net.yudichev.jiotty.connector.google.photos.UploadManifest.FileVersion;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+import static java.nio.channels.FileChannel.MapMode.READ_ONLY;
+import static java.nio.file.StandardOpenOption.READ;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
+
+/// Uploads files and creates media items from them:
+/// - up to `parallelism` files are uploaded at a time, each with the resumable upload protocol in chunks memory-mapped from the file, so
+///   the file is never read into the heap as a whole and a failed upload continues from where the service says it stopped;
+/// - upload tokens are collected into `batchCreate` calls of up to [#BATCH_SIZE] items, each made as soon as its batch fills up;
+/// - a failed upload, unless the service rejected it as not worth retrying, a failed `batchCreate` call and an item that failed to be
+///   created with a retryable error are retried with backoff up to `maxAttempts` times, without affecting the other files;
+/// - with a manifest, every step is recorded as it completes, so running the same upload again skips the files whose media items were
+///   created, creates the media items of the files whose upload tokens are still valid and resumes the upload sessions of the rest.
+///
+/// Counter `jiotty_google_photos_uploads_total` counts files by `result`: `uploaded`, `resumed` (created from the manifest) and `failed`.
+final class MediaUploadPipeline {
+    /// the `batchCreate` limit
+    static final int BATCH_SIZE = 50;
+    /// upload tokens are valid for a day; leaves a margin for the batch to be created
+    static final Duration UPLOAD_TOKEN_TTL = Duration.ofHours(23);
+    /// the service expects every chunk but the last to be a multiple of this
+    static final int CHUNK_GRANULARITY = 256 * 1024;
+
+    private static final Logger logger = LoggerFactory.getLogger(MediaUploadPipeline.class);
+    private static final Counter uploadedFiles = uploadCounter("uploaded");
+    private static final Counter resumedFiles = uploadCounter("resumed");
+    private static final Counter failedFiles = uploadCounter("failed");
+
+    private final PhotosUploadService service;
+    private final Executor executor;
+    private final int parallelism;
+    private final int chunkSize;
+    private final int maxAttempts;
+    private final Supplier<? extends BackOff> backOffFactory;
+    private final LongSupplier currentTimeMillis;
+
+    /// @param executor runs the uploads, one task per file being uploaded, which blocks on I/O
+    MediaUploadPipeline(PhotosUploadService service,
+                        Executor executor,
+                        int parallelism,
+                        int chunkSize,
+                        int maxAttempts,
+                        Supplier<? extends BackOff> backOffFactory,
+                        LongSupplier currentTimeMillis) {
+        this.service = checkNotNull(service);
+        this.executor = checkNotNull(executor);
+        checkArgument(parallelism > 0, "parallelism must be positive: %s", parallelism);
+        this.parallelism = parallelism;
+        checkArgument(chunkSize > 0 && chunkSize % CHUNK_GRANULARITY == 0, "chunkSize must be a positive multiple of %s: %s", CHUNK_GRANULARITY, chunkSize);
+        this.chunkSize = chunkSize;
+        checkArgument(maxAttempts > 0, "maxAttempts must be positive: %s", maxAttempts);
+        this.maxAttempts = maxAttempts;
+        this.backOffFactory = checkNotNull(backOffFactory);
+        this.currentTimeMillis = checkNotNull(currentTimeMillis);
+    }
+
+    /// Uploads one file on the calling thread, retrying as needed.
+    ///
+    /// @return the upload token
+    String upload(Path file) throws IOException {
+        long size = FileVersion.of(file).size();
+        return new FileUpload(file, size, null, _ -> {}).run();
+    }
+
+    /// @param manifestFile if not null, where the progress is recorded and resumed from
+    /// @return results in the order of `files`; fails only if the manifest cannot be written or the upload is interrupted
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // it's quite useful in this case
+    CompletableFuture<List<MediaUploadResult>> upload(Optional<String> albumId, List<Path> files, @Nullable Path manifestFile) {
+        checkNotNull(albumId);
+        List<Path> theFiles = List.copyOf(files);
+        return CompletableFuture.supplyAsync(() -> manifestFile == null ?
+                                                   null :
+                                                   getAsUnchecked(() -> UploadManifest.open(manifestFile, currentTimeMillis)), executor)
+                                .thenCompose(manifest -> new Run(albumId, theFiles, manifest).start());
+    }
+
+    private void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted", e);
+        }
+    }
+
+    private static Counter uploadCounter(String result) {
+        return Metrics.counter("jiotty_google_photos_uploads_total", Map.of("result", result));
+    }
+
+    private final class FileUpload {
+        private final Path file;
+        private final long size;
+        private final Consumer<String> sessionListener;
+        @Nullable
+        private String uploadUrl;
+
+        FileUpload(Path file, long size, @Nullable String uploadUrl, Consumer<String> sessionListener) {
+            this.file = checkNotNull(file);
+            this.size = size;
+            this.uploadUrl = uploadUrl;
+            this.sessionListener = checkNotNull(sessionListener);
+        }
+
+        String run() throws IOException {
+            BackOff backOff = null;
+            int attempt = 1;
+            while (true) {
+                try {
+                    return attempt();
+                } catch (PhotosUploadService.NonRetryableException e) {
+                    throw e;
+                } catch (IOException e) {
+                    if (attempt++ == maxAttempts) {
+                        throw e;
+                    }
+                    if (backOff == null) {
+                        backOff = backOffFactory.get();
+                    }
+                    long delayMillis = backOff.nextBackOffMillis();
+                    if (delayMillis == BackOff.STOP) {
+                        throw e;
+                    }
+                    logger.info("Retrying upload of {} in {}ms: {}", file, delayMillis, e.toString());
+                    sleep(delayMillis);
+                }
+            }
+        }
+
+        private String attempt() throws IOException {
+            long offset = 0;
+            if (uploadUrl != null) {
+                try {
+                    offset = service.queryReceivedBytes(uploadUrl);
+                    if (offset < 0 || offset > size) {
+                        logger.debug("Upload session of {} received {} of {} bytes, starting a new one", file, offset, size);
+                        offset = 0;
+                        uploadUrl = null;
+                    } else {
+                        logger.debug("Resuming upload of {} from byte {} of {}", file, offset, size);
+                    }
+                } catch (IOException e) {
+                    logger.debug("Upload session of {} cannot be resumed, starting a new one: {}", file, e.toString());
+                    uploadUrl = null;
+                }
+            }
+            if (uploadUrl == null) {
+                uploadUrl = service.startUpload(file.getFileName().toString(), size);
+                sessionListener.accept(uploadUrl);
+            }
+            try (FileChannel channel = FileChannel.open(file, READ)) {
+                while (true) {
+                    long length = Math.min(chunkSize, size - offset);
+                    boolean last = offset + length == size;
+                    Optional<String> uploadToken = service.uploadChunk(uploadUrl, offset, channel.map(READ_ONLY, offset, length), last);
+                    if (last) {
+                        return uploadToken.orElseThrow(() -> new IOException("No upload token received for " + file));
+                    }
+                    offset += length;
+                }
+            }
+        }
+    }
+
+    private final class Run {
+        private final Optional<String> albumId;
+        private final List<Path> files;
+        @Nullable
+        private final UploadManifest manifest;
+        private final MediaUploadResult[] results;
+        private final AtomicInteger nextFileIndex = new AtomicInteger();
+        private final Lock lock = new ReentrantLock();
+        // guarded by lock
+        private final List<PendingItem> pendingItems = new ArrayList<>();
+        private volatile boolean aborted;
+
+        @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // it's quite useful in this case
+        Run(Optional<String> albumId, List<Path> files, @Nullable UploadManifest manifest) {
+            this.albumId = checkNotNull(albumId);
+            this.files = checkNotNull(files);
+            this.manifest = manifest;
+            results = new MediaUploadResult[files.size()];
+        }
+
+        CompletableFuture<List<MediaUploadResult>> start() {
+            logger.info("Uploading {} file(s) to album {}, {} at a time, manifest {}", files.size(), albumId, parallelism, manifest);
+            CompletableFuture<?>[] workers = new CompletableFuture<?>[Math.min(parallelism, files.size())];
+            Arrays.setAll(workers, _ -> runAsync(this::work, executor));
+            return CompletableFuture.allOf(workers)
+                                    .thenApplyAsync(_ -> {
+                                        createPendingItems();
+                                        for (MediaUploadResult result : results) {
+                                            checkState(result != null, "missing result in %s", Arrays.asList(results));
+                                        }
+                                        return List.of(results);
+                                    }, executor)
+                                    .whenComplete((uploadResults, e) -> {
+                                        if (manifest != null) {
+                                            asUnchecked(manifest::close);
+                                        }
+                                        if (e == null) {
+                                            logger.info("Uploaded {} file(s), {} failed",
+                                                        uploadResults.size(), uploadResults.stream().filter(result -> !result.succeeded()).count());
+                                        }
+                                    });
+        }
+
+        private void work() {
+            int fileIndex;
+            while (!aborted && (fileIndex = nextFileIndex.getAndIncrement()) < files.size()) {
+                try {
+                    process(fileIndex);
+                } catch (ManifestWriteException e) {
+                    aborted = true;
+                    throw e;
+                } catch (RuntimeException e) {
+                    if (Thread.currentThread().isInterrupted()) {
+                        aborted = true;
+                        throw e;
+                    }
+                    logger.warn("Failed processing {}", files.get(fileIndex), e);
+                    fail(fileIndex, "Failed processing " + files.get(fileIndex) + ": " + e);
+                }
+            }
+        }
+
+        private void process(int fileIndex) {
+            Path file = files.get(fileIndex);
+            FileVersion version;
+            try {
+                version = FileVersion.of(file);
+            } catch (IOException e) {
+                fail(fileIndex, "Unable to read " + file + ": " + e);
+                return;
+            }
+            FileState state = manifest == null ? FileState.NONE : manifest.state(file, version);
+            if (state.mediaItemId() != null) {
+                logger.debug("Media item of {} was already created: {}", file, state.mediaItemId());
+                resumedFiles.increment();
+                results[fileIndex] = MediaUploadResult.created(file, state.mediaItemId());
+                return;
+            }
+
+            String uploadToken;
+            if (state.uploadToken() != null && currentTimeMillis.getAsLong() - state.uploadedAtMillis() < UPLOAD_TOKEN_TTL.toMillis()) {
+                logger.debug("{} was already uploaded", file);
+                uploadToken = state.uploadToken();
+            } else {
+                try {
+                    uploadToken = new FileUpload(file,
+                                                 version.size(),
+                                                 state.uploadUrl(),
+                                                 uploadUrl -> record(theManifest -> theManifest.sessionStarted(file, version, uploadUrl))).run();
+                } catch (IOException e) {
+                    logger.warn("Failed uploading {}", file, e);
+                    fail(fileIndex, "Failed uploading " + file + ": " + e);
+                    return;
+                }
+                logger.debug("Uploaded {}", file);
+                record(theManifest -> theManifest.uploaded(file, version, uploadToken));
+            }
+
+            List<PendingItem> batch = null;
+            lock.lock();
+            try {
+                pendingItems.add(new PendingItem(fileIndex, version, uploadToken));
+                if (pendingItems.size() >= BATCH_SIZE) {
+                    batch = takeBatch();
+                }
+            } finally {
+                lock.unlock();
+            }
+            if (batch != null) {
+                create(batch);
+            }
+        }
+
+        private void createPendingItems() {
+            while (true) {
+                List<PendingItem> batch;
+                lock.lock();
+                try {
+                    batch = takeBatch();
+                } finally {
+                    lock.unlock();
+                }
+                if (batch.isEmpty()) {
+                    return;
+                }
+                create(batch);
+            }
+        }
+
+        // guarded by lock
+        private List<PendingItem> takeBatch() {
+            List<PendingItem> itemsToTake = pendingItems.subList(0, Math.min(BATCH_SIZE, pendingItems.size()));
+            List<PendingItem> batch = List.copyOf(itemsToTake);
+            itemsToTake.clear();
+            return batch;
+        }
+
+        private void create(List<PendingItem> batch) {
+            List<NewItem> newItems = batch.stream()
+                                          .map(item -> new NewItem(item.uploadToken, files.get(item.fileIndex).getFileName().toString()))
+                                          .toList();
+            List<ItemCreation> creations = batchCreate(newItems);
+            List<PendingItem> itemsToRetry = new ArrayList<>();
+            long retryDelayMillis = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                PendingItem item = batch.get(i);
+                Path file = files.get(item.fileIndex);
+                ItemCreation creation = creations.get(i);
+                if (creation.mediaItemId() != null) {
+                    record(theManifest -> theManifest.created(file, item.version, creation.mediaItemId()));
+                    uploadedFiles.increment();
+                    results[item.fileIndex] = MediaUploadResult.created(file, creation.mediaItemId());
+                    continue;
+                }
+                long delayMillis = creation.retryable() && ++item.attempts < maxAttempts ? item.nextBackOffMillis() : BackOff.STOP;
+                if (delayMillis == BackOff.STOP) {
+                    logger.warn("Failed creating media item of {}: {}", file, creation.error());
+                    fail(item.fileIndex, "Failed creating media item of " + file + ": " + creation.error());
+                } else {
+                    logger.info("Will retry creating media item of {}: {}", file, creation.error());
+                    retryDelayMillis = Math.max(retryDelayMillis, delayMillis);
+                    itemsToRetry.add(item);
+                }
+            }
+            if (!itemsToRetry.isEmpty()) {
+                // only after the backoff, so that no other batch takes them before
+                sleep(retryDelayMillis);
+                lock.lock();
+                try {
+                    pendingItems.addAll(itemsToRetry);
+                } finally {
+                    lock.unlock();
+                }
+            }
+        }
+
+        private List<ItemCreation> batchCreate(List<NewItem> newItems) {
+            BackOff backOff = null;
+            int attempt = 1;
+            while (true) {
+                try {
+                    List<ItemCreation> creations = service.batchCreateMediaItems(albumId, newItems);
+                    checkState(creations.size() == newItems.size(), "expected %s results, got %s", newItems.size(), creations);
+                    return creations;
+                } catch (RuntimeException e) {
+                    if (backOff == null) {
+                        backOff = backOffFactory.get();
+                    }
+                    long delayMillis = attempt++ == maxAttempts ? BackOff.STOP : backOff.nextBackOffMillis();
+                    if (delayMillis == BackOff.STOP) {
+                        logger.warn("Failed creating {} media item(s)", newItems.size(), e);
+                        ItemCreation failure = ItemCreation.failed(e.toString(), false);
+                        return newItems.stream().map(_ -> failure).toList();
+                    }
+                    logger.info("Retrying creating {} media item(s) in {}ms: {}", newItems.size(), delayMillis, e.toString());
+                    sleep(delayMillis);
+                }
+            }
+        }
+
+        private void fail(int fileIndex, String error) {
+            failedFiles.increment();
+            results[fileIndex] = MediaUploadResult.failed(files.get(fileIndex), error);
+        }
+
+        private void record(ManifestWrite write) {
+            if (manifest != null) {
+                try {
+                    write.writeTo(manifest);
+                } catch (IOException e) {
+                    throw new ManifestWriteException(manifest, e);
+                }
+            }
+        }
+    }
+
+    private interface ManifestWrite {
+        void writeTo(UploadManifest manifest) throws IOException;
+    }
+
+    /// Fails the whole run, as it could not be resumed from the manifest.
+    private static final class ManifestWriteException extends RuntimeException {
+        ManifestWriteException(UploadManifest manifest, IOException cause) {
+            super("Unable to write " + manifest, cause);
+        }
+    }
+
+    private final class PendingItem {
+        final int fileIndex;
+        final FileVersion version;
+        final String uploadToken;
+        int attempts;
+        @Nullable
+        private BackOff backOff;
+
+        PendingItem(int fileIndex, FileVersion version, String uploadToken) {
+            this.fileIndex = fileIndex;
+            this.version = checkNotNull(version);
+            this.uploadToken = checkNotNull(uploadToken);
+        }
+
+        long nextBackOffMillis() {
+            if (backOff == null) {
+                backOff = backOffFactory.get();
+            }
+            return backOff.nextBackOffMillis();
+        }
+    }
+}
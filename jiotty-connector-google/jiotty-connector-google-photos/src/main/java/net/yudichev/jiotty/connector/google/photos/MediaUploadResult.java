@@ -0,0 +1,30 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import java.nio.file.Path;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Outcome of uploading one file with [GooglePhotosClient#uploadMediaItems].
+///
+/// @param mediaItemId present if the media item was created, either by this upload or by an earlier one recorded in the manifest
+/// @param error       present if the media item could not be created
+public record MediaUploadResult(Path file, Optional<String> mediaItemId, Optional<String> error) {
+    public MediaUploadResult {
+        checkNotNull(file);
+        checkArgument(mediaItemId.isPresent() != error.isPresent(), "exactly one of mediaItemId and error expected: %s, %s", mediaItemId, error);
+    }
+
+    public static MediaUploadResult created(Path file, String mediaItemId) {
+        return new MediaUploadResult(file, Optional.of(mediaItemId), Optional.empty());
+    }
+
+    public static MediaUploadResult failed(Path file, String error) {
+        return new MediaUploadResult(file, Optional.empty(), Optional.of(error));
+    }
+
+    public boolean succeeded() {
+        return mediaItemId.isPresent();
+    }
+}
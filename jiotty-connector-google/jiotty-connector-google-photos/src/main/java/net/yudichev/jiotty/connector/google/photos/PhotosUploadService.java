@@ -0,0 +1,54 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import jakarta.annotation.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Optional;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// The calls of the Photos Library API that [MediaUploadPipeline] is made of: the resumable upload protocol and `batchCreate`. All calls
+/// block the calling thread. An upload call failing with [NonRetryableException] would fail again if made again.
+interface PhotosUploadService {
+    /// Starts a resumable upload session.
+    ///
+    /// @return the URL of the session
+    String startUpload(String fileName, long size) throws IOException;
+
+    /// @return the number of bytes of the session the service has received
+    long queryReceivedBytes(String uploadUrl) throws IOException;
+
+    /// @param last whether `chunk` ends the file, which finalizes the session
+    /// @return the upload token if `last`
+    Optional<String> uploadChunk(String uploadUrl, long offset, ByteBuffer chunk, boolean last) throws IOException;
+
+    /// @return results in the order of `items`
+    @SuppressWarnings("OptionalUsedAsFieldOrParameterType") // it's quite useful in this case
+    List<ItemCreation> batchCreateMediaItems(Optional<String> albumId, List<NewItem> items);
+
+    record NewItem(String uploadToken, String fileName) {
+        public NewItem {
+            checkNotNull(uploadToken);
+            checkNotNull(fileName);
+        }
+    }
+
+    /// @param retryable whether creating the item from the same upload token again may succeed
+    record ItemCreation(@Nullable String mediaItemId, @Nullable String error, boolean retryable) {
+        static ItemCreation created(String mediaItemId) {
+            return new ItemCreation(checkNotNull(mediaItemId), null, false);
+        }
+
+        static ItemCreation failed(String error, boolean retryable) {
+            return new ItemCreation(null, checkNotNull(error), retryable);
+        }
+    }
+
+    final class NonRetryableException extends IOException {
+        NonRetryableException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import jakarta.annotation.Nullable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongSupplier;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.APPEND;
+
+/// Journal of the progress of uploading files, for an interrupted upload to be resumed without uploading again what was already uploaded.
+///
+/// Each step is appended as a tab-separated line: `<step> <recorded at millis> <file size> <file last modified millis> <value> <file>`,
+/// where the step is `S` for an upload session started (the value is the session URL), `T` for a file uploaded (the upload token) and `C`
+/// for a media item created (its ID). What is recorded for a file is ignored once the file's size or modification time changes, and so is a
+/// line torn by a crash. The journal is compacted to the last step of each file when opened.
+final class UploadManifest implements AutoCloseable {
+    private static final Logger logger = LoggerFactory.getLogger(UploadManifest.class);
+    private static final int FIELD_COUNT = 6;
+
+    private final Path path;
+    private final LongSupplier currentTimeMillis;
+    private final Lock lock = new ReentrantLock();
+    // guarded by lock
+    private final Map<String, FileState> statesByFile;
+    private final Writer writer;
+
+    private UploadManifest(Path path, LongSupplier currentTimeMillis, Map<String, FileState> statesByFile) throws IOException {
+        this.path = checkNotNull(path);
+        this.currentTimeMillis = checkNotNull(currentTimeMillis);
+        this.statesByFile = checkNotNull(statesByFile);
+        writer = Files.newBufferedWriter(path, UTF_8, APPEND);
+    }
+
+    static UploadManifest open(Path path, LongSupplier currentTimeMillis) throws IOException {
+        Map<String, FileState> statesByFile = new LinkedHashMap<>();
+        List<String> lines;
+        try {
+            lines = Files.readAllLines(path, UTF_8);
+        } catch (NoSuchFileException e) {
+            lines = List.of();
+        }
+        int ignoredLineCount = 0;
+        for (String line : lines) {
+            String[] fields = line.split("\t", FIELD_COUNT);
+            if (fields.length == FIELD_COUNT && apply(statesByFile, fields)) {
+                continue;
+            }
+            ignoredLineCount++;
+        }
+        if (ignoredLineCount > 0) {
+            logger.warn("Ignored {} malformed line(s) of upload manifest {}", ignoredLineCount, path);
+        }
+
+        Path parent = path.toAbsolutePath().getParent();
+        Files.createDirectories(parent);
+        Path tempFile = Files.createTempFile(parent, path.getFileName().toString(), ".tmp");
+        try (Writer tempWriter = Files.newBufferedWriter(tempFile, UTF_8)) {
+            for (Map.Entry<String, FileState> entry : statesByFile.entrySet()) {
+                writeState(tempWriter, entry.getKey(), entry.getValue());
+            }
+        }
+        Files.move(tempFile, path, REPLACE_EXISTING, ATOMIC_MOVE);
+        logger.debug("Opened upload manifest {} with {} file(s)", path, statesByFile.size());
+        return new UploadManifest(path, currentTimeMillis, statesByFile);
+    }
+
+    /// @return what is recorded for the file if it is still of this version
+    FileState state(Path file, FileVersion version) {
+        lock.lock();
+        try {
+            FileState state = statesByFile.get(key(file));
+            return state != null && state.version().equals(version) ? state : FileState.NONE;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    void sessionStarted(Path file, FileVersion version, String uploadUrl) throws IOException {
+        record(file, new FileState(version, uploadUrl, null, 0, null));
+    }
+
+    void uploaded(Path file, FileVersion version, String uploadToken) throws IOException {
+        record(file, new FileState(version, null, uploadToken, currentTimeMillis.getAsLong(), null));
+    }
+
+    void created(Path file, FileVersion version, String mediaItemId) throws IOException {
+        record(file, new FileState(version, null, null, 0, mediaItemId));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            writer.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "UploadManifest{" + path + '}';
+    }
+
+    private void record(Path file, FileState state) throws IOException {
+        String key = key(file);
+        lock.lock();
+        try {
+            statesByFile.put(key, state);
+            writeState(writer, key, state);
+            writer.flush();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private static boolean apply(Map<String, FileState> statesByFile, String[] fields) {
+        long recordedAtMillis;
+        FileVersion version;
+        try {
+            recordedAtMillis = Long.parseLong(fields[1]);
+            version = new FileVersion(Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+        } catch (NumberFormatException e) {
+            return false;
+        }
+        String value = fields[4];
+        FileState state = switch (fields[0]) {
+            case "S" -> new FileState(version, value, null, 0, null);
+            case "T" -> new FileState(version, null, value, recordedAtMillis, null);
+            case "C" -> new FileState(version, null, null, 0, value);
+            default -> null;
+        };
+        if (state == null || value.isEmpty()) {
+            return false;
+        }
+        statesByFile.put(fields[5], state);
+        return true;
+    }
+
+    private static void writeState(Writer writer, String key, FileState state) throws IOException {
+        if (state.mediaItemId() != null) {
+            writeLine(writer, "C", 0, state.version(), state.mediaItemId(), key);
+        } else if (state.uploadToken() != null) {
+            writeLine(writer, "T", state.uploadedAtMillis(), state.version(), state.uploadToken(), key);
+        } else if (state.uploadUrl() != null) {
+            writeLine(writer, "S", 0, state.version(), state.uploadUrl(), key);
+        }
+    }
+
+    private static void writeLine(Writer writer, String step, long recordedAtMillis, FileVersion version, String value, String key) throws IOException {
+        writer.write(step + '\t' + recordedAtMillis + '\t' + version.size() + '\t' + version.lastModifiedMillis() + '\t' + value + '\t' + key);
+        writer.write('\n');
+    }
+
+    private static String key(Path file) {
+        return file.toAbsolutePath().normalize().toString();
+    }
+
+    record FileVersion(long size, long lastModifiedMillis) {
+        static FileVersion of(Path file) throws IOException {
+            return new FileVersion(Files.size(file), Files.getLastModifiedTime(file).toMillis());
+        }
+    }
+
+    /// At most one of `uploadUrl`, `uploadToken` and `mediaItemId` is present: the last step recorded.
+    record FileState(@Nullable FileVersion version,
+                     @Nullable String uploadUrl,
+                     @Nullable String uploadToken,
+                     long uploadedAtMillis,
+                     @Nullable String mediaItemId) {
+        static final FileState NONE = new FileState(null, null, null, 0, null);
+    }
+}
@@ -0,0 +1,191 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/// Keeps what is uploaded in memory, enforcing the resumable upload protocol, and can be told to fail calls.
+final class InMemoryPhotosUploadService implements PhotosUploadService {
+    private final Map<String, Session> sessionsByUrl = new ConcurrentHashMap<>();
+    private final Map<String, Upload> uploadsByToken = new ConcurrentHashMap<>();
+    private final Map<String, Upload> mediaItemsById = new ConcurrentHashMap<>();
+    private final List<List<NewItem>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final Map<String, AtomicInteger> chunkFailures = new ConcurrentHashMap<>();
+    private final Map<String, ItemFailure> itemFailuresByFileName = new ConcurrentHashMap<>();
+    private final Map<String, Exception> startUploadFailuresByFileName = new ConcurrentHashMap<>();
+    private final Map<String, List<Long>> batchCreateNanoTimesByFileName = new ConcurrentHashMap<>();
+    private final AtomicLong overstatedReceivedByteCount = new AtomicLong();
+    private final AtomicInteger batchCreateFailures = new AtomicInteger();
+    private final AtomicInteger idGenerator = new AtomicInteger();
+    private final AtomicInteger startedSessionCount = new AtomicInteger();
+    private final AtomicInteger uploadedChunkCount = new AtomicInteger();
+    private final AtomicInteger concurrentUploadCount = new AtomicInteger();
+    private final AtomicInteger maxConcurrentUploadCount = new AtomicInteger();
+
+    @Override
+    public String startUpload(String fileName, long size) throws IOException {
+        startedSessionCount.incrementAndGet();
+        Exception failure = startUploadFailuresByFileName.get(fileName);
+        if (failure instanceof IOException e) {
+            throw e;
+        }
+        if (failure instanceof RuntimeException e) {
+            throw e;
+        }
+        String uploadUrl = "https://uploads/" + idGenerator.incrementAndGet();
+        sessionsByUrl.put(uploadUrl, new Session(fileName, new byte[Math.toIntExact(size)]));
+        return uploadUrl;
+    }
+
+    @Override
+    public long queryReceivedBytes(String uploadUrl) throws IOException {
+        Session session = session(uploadUrl);
+        synchronized (session) {
+            return session.receivedByteCount + overstatedReceivedByteCount.get();
+        }
+    }
+
+    @Override
+    public Optional<String> uploadChunk(String uploadUrl, long offset, ByteBuffer chunk, boolean last) throws IOException {
+        Session session = session(uploadUrl);
+        maxConcurrentUploadCount.accumulateAndGet(concurrentUploadCount.incrementAndGet(), Math::max);
+        try {
+            // for the uploads to overlap
+            Thread.sleep(1);
+            AtomicInteger remainingFailures = chunkFailures.get(session.fileName + '@' + (offset + chunk.remaining()));
+            if (remainingFailures != null && remainingFailures.getAndDecrement() > 0) {
+                // the service received some of the chunk
+                synchronized (session) {
+                    int receivedByteCount = chunk.remaining() / 2;
+                    chunk.duplicate().get(session.content, Math.toIntExact(offset), receivedByteCount);
+                    session.receivedByteCount = offset + receivedByteCount;
+                }
+                throw new IOException("connection reset uploading " + session.fileName + " at " + offset);
+            }
+            synchronized (session) {
+                checkState(offset <= session.receivedByteCount, "offset %s beyond received %s", offset, session.receivedByteCount);
+                chunk.duplicate().get(session.content, Math.toIntExact(offset), chunk.remaining());
+                session.receivedByteCount = offset + chunk.remaining();
+                uploadedChunkCount.incrementAndGet();
+                if (!last) {
+                    return Optional.empty();
+                }
+                checkState(session.receivedByteCount == session.content.length, "finalized at %s of %s", session.receivedByteCount, session.content.length);
+                sessionsByUrl.remove(uploadUrl);
+                String uploadToken = "token-" + idGenerator.incrementAndGet();
+                uploadsByToken.put(uploadToken, new Upload(session.fileName, session.content));
+                return Optional.of(uploadToken);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } finally {
+            concurrentUploadCount.decrementAndGet();
+        }
+    }
+
+    @Override
+    public List<ItemCreation> batchCreateMediaItems(Optional<String> albumId, List<NewItem> items) {
+        checkState(items.size() <= MediaUploadPipeline.BATCH_SIZE, "too many items: %s", items.size());
+        if (batchCreateFailures.getAndUpdate(failures -> Math.max(0, failures - 1)) > 0) {
+            throw new RuntimeException("UNAVAILABLE");
+        }
+        batches.add(List.copyOf(items));
+        long nanoTime = System.nanoTime();
+        items.forEach(item -> batchCreateNanoTimesByFileName.computeIfAbsent(item.fileName(), _ -> Collections.synchronizedList(new ArrayList<>()))
+                                                            .add(nanoTime));
+        return items.stream()
+                    .map(item -> {
+                        ItemFailure failure = itemFailuresByFileName.get(item.fileName());
+                        if (failure != null && failure.remaining.getAndDecrement() > 0) {
+                            return ItemCreation.failed("failed creating " + item.fileName(), failure.retryable);
+                        }
+                        Upload upload = uploadsByToken.get(item.uploadToken());
+                        if (upload == null) {
+                            return ItemCreation.failed("invalid upload token " + item.uploadToken(), false);
+                        }
+                        String mediaItemId = "item-" + idGenerator.incrementAndGet();
+                        mediaItemsById.put(mediaItemId, upload);
+                        return ItemCreation.created(mediaItemId);
+                    })
+                    .toList();
+    }
+
+    /// The service receives half of each failed chunk.
+    void failChunksEndingAt(String fileName, long endOffset, int times) {
+        chunkFailures.put(fileName + '@' + endOffset, new AtomicInteger(times));
+    }
+
+    void failBatchCreateCalls(int count) {
+        batchCreateFailures.set(count);
+    }
+
+    void failItemCreation(String fileName, int times, boolean retryable) {
+        itemFailuresByFileName.put(fileName, new ItemFailure(new AtomicInteger(times), retryable));
+    }
+
+    /// @param failure an [IOException] or a [RuntimeException]
+    void failStartingUploads(String fileName, Exception failure) {
+        startUploadFailuresByFileName.put(fileName, failure);
+    }
+
+    void overstateReceivedBytes(long byteCount) {
+        overstatedReceivedByteCount.set(byteCount);
+    }
+
+    List<Long> batchCreateNanoTimes(String fileName) {
+        return List.copyOf(batchCreateNanoTimesByFileName.getOrDefault(fileName, List.of()));
+    }
+
+    byte[] mediaItemContent(String mediaItemId) {
+        return mediaItemsById.get(mediaItemId).content();
+    }
+
+    List<List<NewItem>> batches() {
+        return List.copyOf(batches);
+    }
+
+    int startedSessionCount() {
+        return startedSessionCount.get();
+    }
+
+    int uploadedChunkCount() {
+        return uploadedChunkCount.get();
+    }
+
+    int maxConcurrentUploadCount() {
+        return maxConcurrentUploadCount.get();
+    }
+
+    private Session session(String uploadUrl) throws IOException {
+        Session session = sessionsByUrl.get(uploadUrl);
+        if (session == null) {
+            throw new IOException("no upload session " + uploadUrl);
+        }
+        return session;
+    }
+
+    private static final class Session {
+        final String fileName;
+        final byte[] content;
+        long receivedByteCount;
+
+        Session(String fileName, byte[] content) {
+            this.fileName = fileName;
+            this.content = content;
+        }
+    }
+
+    private record Upload(String fileName, byte[] content) {}
+
+    private record ItemFailure(AtomicInteger remaining, boolean retryable) {}
+}
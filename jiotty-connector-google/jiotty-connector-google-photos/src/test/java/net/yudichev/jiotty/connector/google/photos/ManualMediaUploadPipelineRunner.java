@@ -0,0 +1,99 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import net.yudichev.jiotty.common.lang.backoff.ExponentialBackOff;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Time to upload a set of files with [MediaUploadPipeline] to an in-memory service that takes `latencyMillis` per call, one file at a
+/// time (as uploading file by file with [GooglePhotosClient#uploadMediaItem] does) and with increasing parallelism.
+///
+/// `ManualMediaUploadPipelineRunner [files] [fileSizeBytes] [latencyMillis]`
+final class ManualMediaUploadPipelineRunner {
+    static void main(String[] args) throws IOException, ExecutionException, InterruptedException {
+        int fileCount = args.length > 0 ? Integer.parseInt(args[0]) : 500;
+        int fileSize = args.length > 1 ? Integer.parseInt(args[1]) : 3 * 1024 * 1024;
+        long latencyMillis = args.length > 2 ? Long.parseLong(args[2]) : 50;
+        Path directory = Files.createTempDirectory(ManualMediaUploadPipelineRunner.class.getSimpleName());
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            files.add(Files.write(directory.resolve(i + ".jpg"), new byte[fileSize]));
+        }
+
+        try (ExecutorService executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory())) {
+            for (int parallelism : new int[]{1, 4, 8, 16}) {
+                var service = new SlowService(new InMemoryPhotosUploadService(), latencyMillis);
+                var pipeline = new MediaUploadPipeline(service,
+                                                       executor,
+                                                       parallelism,
+                                                       16 * MediaUploadPipeline.CHUNK_GRANULARITY,
+                                                       5,
+                                                       ExponentialBackOff::new,
+                                                       System::currentTimeMillis);
+                long start = System.nanoTime();
+                List<MediaUploadResult> results = pipeline.upload(Optional.empty(), files, directory.resolve("manifest-" + parallelism)).get();
+                long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
+                System.out.printf("parallelism %2d: %,6d files in %,8d ms, %,5d batchCreate calls, %d failed%n",
+                                  parallelism,
+                                  results.size(),
+                                  elapsedMillis,
+                                  service.batchCreateCallCount.get(),
+                                  results.stream().filter(result -> !result.succeeded()).count());
+            }
+        }
+    }
+
+    private static final class SlowService implements PhotosUploadService {
+        private final PhotosUploadService delegate;
+        private final long latencyMillis;
+        private final AtomicInteger batchCreateCallCount = new AtomicInteger();
+
+        SlowService(PhotosUploadService delegate, long latencyMillis) {
+            this.delegate = delegate;
+            this.latencyMillis = latencyMillis;
+        }
+
+        @Override
+        public String startUpload(String fileName, long size) throws IOException {
+            sleep();
+            return delegate.startUpload(fileName, size);
+        }
+
+        @Override
+        public long queryReceivedBytes(String uploadUrl) throws IOException {
+            sleep();
+            return delegate.queryReceivedBytes(uploadUrl);
+        }
+
+        @Override
+        public Optional<String> uploadChunk(String uploadUrl, long offset, ByteBuffer chunk, boolean last) throws IOException {
+            sleep();
+            return delegate.uploadChunk(uploadUrl, offset, chunk, last);
+        }
+
+        @Override
+        public List<ItemCreation> batchCreateMediaItems(Optional<String> albumId, List<NewItem> items) {
+            sleep();
+            batchCreateCallCount.incrementAndGet();
+            return delegate.batchCreateMediaItems(albumId, items);
+        }
+
+        private void sleep() {
+            try {
+                Thread.sleep(latencyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException(e);
+            }
+        }
+    }
+}
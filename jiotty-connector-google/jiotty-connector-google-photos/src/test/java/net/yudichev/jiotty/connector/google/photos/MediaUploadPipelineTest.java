@@ -0,0 +1,229 @@
+package net.yudichev.jiotty.connector.google.photos;
+
+import net.yudichev.jiotty.common.lang.backoff.ExponentialBackOff;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static net.yudichev.jiotty.connector.google.photos.MediaUploadPipeline.CHUNK_GRANULARITY;
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.greaterThanOrEqualTo;
+import static org.hamcrest.Matchers.is;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+
+class MediaUploadPipelineTest {
+    private static final int PARALLELISM = 3;
+    private static final int MAX_ATTEMPTS = 3;
+
+    private final InMemoryPhotosUploadService service = new InMemoryPhotosUploadService();
+    private final AtomicLong currentTimeMillis = new AtomicLong(1_700_000_000_000L);
+    @TempDir
+    Path directory;
+    private ExecutorService executor;
+
+    @BeforeEach
+    void setUp() {
+        executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().factory());
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void uploadsInChunksAndCreatesItemsInBatchesOfFifty() throws Exception {
+        List<Path> files = createFiles(120, 100);
+        files.add(createFile("large.jpg", 2 * CHUNK_GRANULARITY + 7));
+
+        List<MediaUploadResult> results = pipeline().upload(Optional.of("album"), files, null).get();
+
+        assertAllCreatedWithContentOf(results, files);
+        assertThat(service.batches().stream().map(List::size).toList(), contains(50, 50, 21));
+        assertThat(service.uploadedChunkCount(), is(120 + 3));
+        assertThat(service.maxConcurrentUploadCount(), lessThanOrEqualTo(PARALLELISM));
+    }
+
+    @Test
+    void resumesFailedChunkUploadsWithinTheSameSession() throws Exception {
+        Path file = createFile("video.mp4", 3 * CHUNK_GRANULARITY);
+        service.failChunksEndingAt("video.mp4", 2 * CHUNK_GRANULARITY, 1);
+
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), List.of(file), null).get();
+
+        assertAllCreatedWithContentOf(results, List.of(file));
+        assertThat(service.startedSessionCount(), is(1));
+    }
+
+    @Test
+    void retriesRetryableItemFailuresAndReportsOthers() throws Exception {
+        List<Path> files = createFiles(4, 10);
+        service.failBatchCreateCalls(MAX_ATTEMPTS - 1);
+        service.failItemCreation("0.jpg", MAX_ATTEMPTS - 1, true);
+        service.failItemCreation("1.jpg", MAX_ATTEMPTS, true);
+        service.failItemCreation("2.jpg", 1, false);
+
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), files, null).get();
+
+        assertThat(results.stream().map(MediaUploadResult::succeeded).toList(), contains(true, false, false, true));
+        assertThat(results.get(1).error().orElseThrow().contains("failed creating 1.jpg"), is(true));
+    }
+
+    @Test
+    void retriesItemCreationOnlyAfterBackOff() throws Exception {
+        long backOffMillis = 300;
+        List<Path> files = createFiles(2 * MediaUploadPipeline.BATCH_SIZE, 10);
+        service.failItemCreation("0.jpg", 1, true);
+
+        List<MediaUploadResult> results = pipeline(backOffMillis).upload(Optional.empty(), files, null).get();
+
+        assertAllCreatedWithContentOf(results, files);
+        List<Long> batchCreateNanoTimes = service.batchCreateNanoTimes("0.jpg");
+        assertThat(batchCreateNanoTimes.size(), is(2));
+        assertThat(batchCreateNanoTimes.getLast() - batchCreateNanoTimes.getFirst(), greaterThanOrEqualTo(backOffMillis * 1_000_000));
+    }
+
+    @Test
+    void failsOnlyFileWhoseUploadFailedUnexpectedly() throws Exception {
+        List<Path> files = createFiles(3, 10);
+        service.failStartingUploads("1.jpg", new IllegalStateException("bug"));
+
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), files, null).get();
+
+        assertThat(results.stream().map(MediaUploadResult::succeeded).toList(), contains(true, false, true));
+        assertThat(results.get(1).error().orElseThrow().contains("bug"), is(true));
+    }
+
+    @Test
+    void doesNotRetryUploadRejectedAsNonRetryable() throws Exception {
+        Path file = createFile("video.mp4", 10);
+        service.failStartingUploads("video.mp4", new PhotosUploadService.NonRetryableException("HTTP 400"));
+
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), List.of(file), null).get();
+
+        assertThat(results.getFirst().succeeded(), is(false));
+        assertThat(service.startedSessionCount(), is(1));
+    }
+
+    @Test
+    void resumesFromManifestWithoutUploadingAgain() throws Exception {
+        Path manifestFile = directory.resolve("upload.manifest");
+        List<Path> files = createFiles(60, 10);
+        for (int i = 0; i < 10; i++) {
+            service.failItemCreation(i + ".jpg", 1, false);
+        }
+
+        List<MediaUploadResult> firstResults = pipeline().upload(Optional.empty(), files, manifestFile).get();
+        assertThat(firstResults.stream().filter(MediaUploadResult::succeeded).count(), is(50L));
+        int sessionCount = service.startedSessionCount();
+
+        List<MediaUploadResult> secondResults = pipeline().upload(Optional.empty(), files, manifestFile).get();
+        assertAllCreatedWithContentOf(secondResults, files);
+        assertThat(service.startedSessionCount(), is(sessionCount));
+        assertThat(secondResults.subList(10, 60), equalTo(firstResults.subList(10, 60)));
+        assertThat(service.batches().getLast().size(), is(10));
+
+        int batchCount = service.batches().size();
+        assertThat(pipeline().upload(Optional.empty(), files, manifestFile).get(), equalTo(secondResults));
+        assertThat(service.batches().size(), is(batchCount));
+    }
+
+    @Test
+    void resumesUploadSessionFromManifest() throws Exception {
+        Path manifestFile = directory.resolve("upload.manifest");
+        Path file = createFile("video.mp4", 3 * CHUNK_GRANULARITY);
+        service.failChunksEndingAt("video.mp4", 3 * CHUNK_GRANULARITY, MAX_ATTEMPTS);
+
+        assertThat(pipeline().upload(Optional.empty(), List.of(file), manifestFile).get().getFirst().succeeded(), is(false));
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), List.of(file), manifestFile).get();
+
+        assertAllCreatedWithContentOf(results, List.of(file));
+        assertThat(service.startedSessionCount(), is(1));
+    }
+
+    @Test
+    void startsNewSessionWhenServiceReportsMoreBytesReceivedThanFileHas() throws Exception {
+        Path manifestFile = directory.resolve("upload.manifest");
+        Path file = createFile("video.mp4", 3 * CHUNK_GRANULARITY);
+        service.failChunksEndingAt("video.mp4", 3 * CHUNK_GRANULARITY, MAX_ATTEMPTS);
+        assertThat(pipeline().upload(Optional.empty(), List.of(file), manifestFile).get().getFirst().succeeded(), is(false));
+
+        service.overstateReceivedBytes(3 * CHUNK_GRANULARITY);
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), List.of(file), manifestFile).get();
+
+        assertAllCreatedWithContentOf(results, List.of(file));
+        assertThat(service.startedSessionCount(), is(2));
+    }
+
+    @Test
+    void uploadsAgainWhenFileChangedOrUploadTokenExpired() throws Exception {
+        Path manifestFile = directory.resolve("upload.manifest");
+        List<Path> files = createFiles(2, 10);
+        service.failBatchCreateCalls(MAX_ATTEMPTS);
+        pipeline().upload(Optional.empty(), files, manifestFile).get();
+        assertThat(service.startedSessionCount(), is(2));
+
+        Files.write(files.getFirst(), new byte[20]);
+        service.failBatchCreateCalls(MAX_ATTEMPTS);
+        pipeline().upload(Optional.empty(), files, manifestFile).get();
+        assertThat(service.startedSessionCount(), is(3));
+
+        currentTimeMillis.addAndGet(MediaUploadPipeline.UPLOAD_TOKEN_TTL.toMillis());
+        List<MediaUploadResult> results = pipeline().upload(Optional.empty(), files, manifestFile).get();
+        assertThat(service.startedSessionCount(), is(5));
+        assertAllCreatedWithContentOf(results, files);
+    }
+
+    private MediaUploadPipeline pipeline() {
+        return pipeline(1);
+    }
+
+    private MediaUploadPipeline pipeline(long backOffMillis) {
+        return new MediaUploadPipeline(service,
+                                       executor,
+                                       PARALLELISM,
+                                       CHUNK_GRANULARITY,
+                                       MAX_ATTEMPTS,
+                                       () -> new ExponentialBackOff.Builder().setInitialIntervalMillis(backOffMillis)
+                                                                             .setMaxIntervalMillis(backOffMillis)
+                                                                             .setRandomizationFactor(0)
+                                                                             .build(),
+                                       currentTimeMillis::get);
+    }
+
+    private void assertAllCreatedWithContentOf(List<MediaUploadResult> results, List<Path> files) throws IOException {
+        assertThat(results.stream().map(MediaUploadResult::file).toList(), equalTo(files));
+        for (MediaUploadResult result : results) {
+            assertThat(result.toString(), result.succeeded(), is(true));
+            assertThat(service.mediaItemContent(result.mediaItemId().orElseThrow()), equalTo(Files.readAllBytes(result.file())));
+        }
+    }
+
+    private List<Path> createFiles(int count, int size) throws IOException {
+        List<Path> files = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            files.add(createFile(i + ".jpg", size));
+        }
+        return files;
+    }
+
+    private Path createFile(String name, int size) throws IOException {
+        byte[] content = new byte[size];
+        ThreadLocalRandom.current().nextBytes(content);
+        return Files.write(directory.resolve(name), content);
+    }
+}
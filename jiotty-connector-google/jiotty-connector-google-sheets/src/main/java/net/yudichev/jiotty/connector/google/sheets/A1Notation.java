@@ -0,0 +1,167 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/// The bits of the [A1 notation](https://developers.google.com/sheets/api/guides/concepts#cell) needed to batch cell updates: parsing
+/// single cells like `B3` or `'My Sheet'!$B$3`, telling which sheet a range is on, and merging cells into rectangular ranges.
+final class A1Notation {
+    private static final Pattern CELL = Pattern.compile("(?:(?<sheet>'(?:[^']|'')+'|[^'!:]+)!)?\\$?(?<column>[A-Za-z]{1,3})\\$?(?<row>[1-9]\\d{0,6})");
+
+    private A1Notation() {
+    }
+
+    static Optional<Cell> parseCell(String range) {
+        Matcher matcher = CELL.matcher(range);
+        if (!matcher.matches()) {
+            return Optional.empty();
+        }
+        String sheet = matcher.group("sheet");
+        return Optional.of(new Cell(sheet == null ? "" : sheet + '!',
+                                    sheet == null ? null : unquote(sheet),
+                                    parseColumn(matcher.group("column")),
+                                    Integer.parseInt(matcher.group("row"))));
+    }
+
+    /// @return the name of the sheet the range explicitly refers to; empty for ranges on the first sheet, whole sheets and named ranges
+    static Optional<String> sheetOf(String range) {
+        if (range.startsWith("'")) {
+            for (int i = 1; i < range.length() - 1; i++) {
+                if (range.charAt(i) == '\'') {
+                    if (range.charAt(i + 1) == '\'') {
+                        i++;
+                    } else {
+                        return range.charAt(i + 1) == '!' ? Optional.of(unquote(range.substring(0, i + 1))) : Optional.empty();
+                    }
+                }
+            }
+            return Optional.empty();
+        }
+        int sheetEnd = range.indexOf('!');
+        return sheetEnd > 0 ? Optional.of(range.substring(0, sheetEnd)) : Optional.empty();
+    }
+
+    /// Conservative: `true` unless both ranges explicitly refer to different sheets.
+    static boolean mayOverlap(String range, String otherRange) {
+        Optional<String> sheet = sheetOf(range);
+        Optional<String> otherSheet = sheetOf(otherRange);
+        return sheet.isEmpty() || otherSheet.isEmpty() || sheet.get().equalsIgnoreCase(otherSheet.get());
+    }
+
+    /// Merges single cells of the same sheet into as few rectangular ranges as simply possible: first cells adjacent in a row, then rows
+    /// of the same columns adjacent in a column. Ranges that are not single cells are passed through as they are. The values of the same
+    /// cell written more than once must have been reduced to one by the caller.
+    static List<RangeValues> merge(List<CellValue> cellValues) {
+        List<RangeValues> result = new ArrayList<>();
+        Map<Optional<String>, List<ParsedCellValue>> cellValuesBySheet = new LinkedHashMap<>();
+        for (CellValue cellValue : cellValues) {
+            parseCell(cellValue.range()).ifPresentOrElse(
+                    cell -> cellValuesBySheet.computeIfAbsent(Optional.ofNullable(cell.sheet()), _ -> new ArrayList<>())
+                                             .add(new ParsedCellValue(cell, cellValue.value())),
+                    () -> result.add(new RangeValues(cellValue.range(), List.of(singletonRow(cellValue.value())))));
+        }
+        cellValuesBySheet.values().forEach(sheetCellValues -> mergeSheet(sheetCellValues, result));
+        return result;
+    }
+
+    private static void mergeSheet(List<ParsedCellValue> cellValues, List<RangeValues> result) {
+        String sheetPrefix = cellValues.getFirst().cell().sheetPrefix();
+        cellValues.sort(Comparator.comparingInt((ParsedCellValue cellValue) -> cellValue.cell().row())
+                                  .thenComparingInt(cellValue -> cellValue.cell().column()));
+        List<Block> blocks = new ArrayList<>();
+        Map<Long, Block> openBlocksBySpan = new LinkedHashMap<>();
+        int i = 0;
+        while (i < cellValues.size()) {
+            Cell first = cellValues.get(i).cell();
+            List<Object> rowValues = new ArrayList<>();
+            int lastColumn = first.column() - 1;
+            while (i < cellValues.size()
+                    && cellValues.get(i).cell().row() == first.row()
+                    && cellValues.get(i).cell().column() == lastColumn + 1) {
+                rowValues.add(cellValues.get(i).value());
+                lastColumn++;
+                i++;
+            }
+            long span = (long) first.column() << 32 | lastColumn;
+            Block block = openBlocksBySpan.get(span);
+            if (block != null && block.lastRow == first.row() - 1) {
+                block.rows.add(rowValues);
+                block.lastRow++;
+            } else {
+                block = new Block(first.column(), lastColumn, first.row(), rowValues);
+                blocks.add(block);
+                openBlocksBySpan.put(span, block);
+            }
+        }
+        blocks.forEach(block -> result.add(block.toRangeValues(sheetPrefix)));
+    }
+
+    static int parseColumn(String letters) {
+        int column = 0;
+        for (int i = 0; i < letters.length(); i++) {
+            column = column * 26 + Character.toUpperCase(letters.charAt(i)) - 'A' + 1;
+        }
+        return column;
+    }
+
+    static String formatColumn(int column) {
+        checkArgument(column > 0, "column must be positive: %s", column);
+        var letters = new StringBuilder(3);
+        for (int remaining = column; remaining > 0; remaining = (remaining - 1) / 26) {
+            letters.append((char) ('A' + (remaining - 1) % 26));
+        }
+        return letters.reverse().toString();
+    }
+
+    private static String unquote(String sheet) {
+        return sheet.startsWith("'") ? sheet.substring(1, sheet.length() - 1).replace("''", "'") : sheet;
+    }
+
+    private static List<Object> singletonRow(Object value) {
+        List<Object> row = new ArrayList<>(1);
+        row.add(value);
+        return row;
+    }
+
+    /// @param sheetPrefix the sheet as written in the range, including the `!`, or an empty string
+    /// @param sheet       the name of the sheet, or `null` if not specified
+    record Cell(String sheetPrefix, String sheet, int column, int row) {}
+
+    record CellValue(String range, Object value) {}
+
+    record RangeValues(String range, List<List<Object>> values) {}
+
+    private record ParsedCellValue(Cell cell, Object value) {}
+
+    private static final class Block {
+        final int firstColumn;
+        final int lastColumn;
+        final int firstRow;
+        final List<List<Object>> rows = new ArrayList<>();
+        int lastRow;
+
+        Block(int firstColumn, int lastColumn, int firstRow, List<Object> firstRowValues) {
+            this.firstColumn = firstColumn;
+            this.lastColumn = lastColumn;
+            this.firstRow = firstRow;
+            lastRow = firstRow;
+            rows.add(firstRowValues);
+        }
+
+        RangeValues toRangeValues(String sheetPrefix) {
+            String range = sheetPrefix + formatColumn(firstColumn) + firstRow;
+            if (lastColumn != firstColumn || lastRow != firstRow) {
+                range += ':' + formatColumn(lastColumn) + lastRow;
+            }
+            return new RangeValues(range, rows);
+        }
+    }
+}
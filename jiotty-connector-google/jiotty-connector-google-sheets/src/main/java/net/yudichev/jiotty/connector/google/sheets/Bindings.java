@@ -17,4 +17,16 @@ final class Bindings {
     @Retention(RUNTIME)
     @interface Internal {
     }
+
+    @BindingAnnotation
+    @Target({FIELD, PARAMETER, METHOD})
+    @Retention(RUNTIME)
+    @interface WriteBatchWindow {
+    }
+
+    @BindingAnnotation
+    @Target({FIELD, PARAMETER, METHOD})
+    @Retention(RUNTIME)
+    @interface ReadCacheTtl {
+    }
 }
@@ -8,9 +8,21 @@ import net.yudichev.jiotty.common.inject.ExposedKeyModule;
 import net.yudichev.jiotty.connector.google.common.GoogleAuthorization;
 import net.yudichev.jiotty.connector.google.common.impl.BaseGoogleServiceModule;
 
+import java.time.Duration;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
+
 public final class GoogleSheetsModule extends BaseGoogleServiceModule implements ExposedKeyModule<GoogleSheetsClient> {
-    private GoogleSheetsModule(BindingSpec<GoogleAuthorization> googleAuthorizationSpec) {
+    private final BindingSpec<Duration> writeBatchWindowSpec;
+    private final BindingSpec<Duration> readCacheTtlSpec;
+
+    private GoogleSheetsModule(BindingSpec<GoogleAuthorization> googleAuthorizationSpec,
+                               BindingSpec<Duration> writeBatchWindowSpec,
+                               BindingSpec<Duration> readCacheTtlSpec) {
         super(googleAuthorizationSpec);
+        this.writeBatchWindowSpec = checkNotNull(writeBatchWindowSpec);
+        this.readCacheTtlSpec = checkNotNull(readCacheTtlSpec);
     }
 
     public static Builder builder() {
@@ -20,6 +32,14 @@ public final class GoogleSheetsModule extends BaseGoogleServiceModule implements
     @Override
     protected void doConfigure() {
         bind(Sheets.class).annotatedWith(Bindings.Internal.class).toProvider(SheetsProvider.class).in(Singleton.class);
+        writeBatchWindowSpec.bind(Duration.class)
+                            .annotatedWith(Bindings.WriteBatchWindow.class)
+                            .installedBy(this::installLifecycleComponentModule);
+        readCacheTtlSpec.bind(Duration.class)
+                        .annotatedWith(Bindings.ReadCacheTtl.class)
+                        .installedBy(this::installLifecycleComponentModule);
+        bind(SheetsValuesService.class).to(GoogleSheetsValuesService.class);
+        registerLifecycleComponent(SpreadsheetValues.class);
 
         install(new FactoryModuleBuilder()
                         .implement(GoogleSpreadsheet.class, InternalGoogleSpreadsheet.class)
@@ -29,9 +49,26 @@ public final class GoogleSheetsModule extends BaseGoogleServiceModule implements
     }
 
     public static final class Builder extends BaseBuilder<GoogleSheetsClient, Builder> {
+        private BindingSpec<Duration> writeBatchWindowSpec = literally(Duration.ZERO);
+        private BindingSpec<Duration> readCacheTtlSpec = literally(Duration.ZERO);
+
+        /// Buffers [GoogleSpreadsheet#updateRange(String, Object)] calls made within this window after the first one and writes them in
+        /// one batch. Zero, the default, writes each update on its own as soon as it is made.
+        public Builder withWriteBatchWindow(BindingSpec<Duration> writeBatchWindowSpec) {
+            this.writeBatchWindowSpec = checkNotNull(writeBatchWindowSpec);
+            return this;
+        }
+
+        /// Serves [GoogleSpreadsheet#getRangeValues(String)] results for this long, unless the sheet is written to by this client. Zero,
+        /// the default, reads the values every time.
+        public Builder withReadCacheTtl(BindingSpec<Duration> readCacheTtlSpec) {
+            this.readCacheTtlSpec = checkNotNull(readCacheTtlSpec);
+            return this;
+        }
+
         @Override
         public ExposedKeyModule<GoogleSheetsClient> build() {
-            return new GoogleSheetsModule(getAuthorizationSpec());
+            return new GoogleSheetsModule(getAuthorizationSpec(), writeBatchWindowSpec, readCacheTtlSpec);
         }
 
         @Override
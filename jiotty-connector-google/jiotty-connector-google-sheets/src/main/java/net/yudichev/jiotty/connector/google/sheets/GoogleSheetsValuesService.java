@@ -0,0 +1,51 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import com.google.api.services.sheets.v4.Sheets;
+import com.google.api.services.sheets.v4.model.BatchUpdateValuesRequest;
+import com.google.api.services.sheets.v4.model.ValueRange;
+import com.google.common.collect.ImmutableList;
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.RangeValues;
+
+import java.io.IOException;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.connector.google.sheets.Bindings.Internal;
+
+final class GoogleSheetsValuesService implements SheetsValuesService {
+    private static final String VALUE_INPUT_OPTION = "USER_ENTERED";
+
+    private final Sheets sheets;
+
+    @Inject
+    GoogleSheetsValuesService(@Internal Sheets sheets) {
+        this.sheets = checkNotNull(sheets);
+    }
+
+    @Override
+    public void update(String spreadsheetId, String range, Object value) throws IOException {
+        sheets.spreadsheets().values()
+              .update(spreadsheetId, range, new ValueRange().setValues(ImmutableList.of(ImmutableList.of(value))))
+              .setValueInputOption(VALUE_INPUT_OPTION)
+              .execute();
+    }
+
+    @Override
+    public void batchUpdate(String spreadsheetId, List<RangeValues> data) throws IOException {
+        List<ValueRange> valueRanges = data.stream()
+                                           .map(rangeValues -> new ValueRange().setRange(rangeValues.range()).setValues(rangeValues.values()))
+                                           .toList();
+        sheets.spreadsheets().values()
+              .batchUpdate(spreadsheetId, new BatchUpdateValuesRequest().setValueInputOption(VALUE_INPUT_OPTION).setData(valueRanges))
+              .execute();
+    }
+
+    @Override
+    public List<List<Object>> get(String spreadsheetId, String range) throws IOException {
+        return sheets.spreadsheets().values()
+                     .get(spreadsheetId, range)
+                     .execute()
+                     .getValues();
+    }
+}
@@ -6,8 +6,12 @@ import java.util.concurrent.CompletableFuture;
 import static com.google.common.collect.Iterables.getOnlyElement;
 
 public interface GoogleSpreadsheet {
+    /// If the client is configured with a write batch window, the update is buffered and the future completes once the batch it is
+    /// written in has landed; see [GoogleSheetsModule.Builder#withWriteBatchWindow].
     CompletableFuture<Void> updateRange(String range, Object value);
 
+    /// If the client is configured with a read cache, the lists returned are unmodifiable and shared by the callers reading the same
+    /// range; see [GoogleSheetsModule.Builder#withReadCacheTtl].
     CompletableFuture<List<List<Object>>> getRangeValues(String range);
 
     default CompletableFuture<Object> getSingleCellValue(String range) {
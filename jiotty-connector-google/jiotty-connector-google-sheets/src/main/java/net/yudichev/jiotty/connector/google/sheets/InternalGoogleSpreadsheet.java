@@ -1,9 +1,6 @@
 package net.yudichev.jiotty.connector.google.sheets;
 
-import com.google.api.services.sheets.v4.Sheets;
 import com.google.api.services.sheets.v4.model.Spreadsheet;
-import com.google.api.services.sheets.v4.model.ValueRange;
-import com.google.common.collect.ImmutableList;
 import com.google.inject.assistedinject.Assisted;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -23,22 +20,19 @@ import java.util.concurrent.CompletableFuture;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
-import static java.util.concurrent.CompletableFuture.supplyAsync;
-import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
 import static net.yudichev.jiotty.connector.google.common.impl.Bindings.Authorization;
-import static net.yudichev.jiotty.connector.google.sheets.Bindings.Internal;
 
 final class InternalGoogleSpreadsheet implements GoogleSpreadsheet {
-    private final Sheets sheets;
+    private final SpreadsheetValues values;
     private final Spreadsheet spreadsheet;
     private final Provider<GoogleAuthorization> googleAuthorizationProvider;
     private final OkHttpClient httpClient;
 
     @Inject
-    InternalGoogleSpreadsheet(@Internal Sheets sheets,
+    InternalGoogleSpreadsheet(SpreadsheetValues values,
                               @Assisted Spreadsheet spreadsheet,
                               @Authorization Provider<GoogleAuthorization> googleAuthorizationProvider) {
-        this.sheets = checkNotNull(sheets);
+        this.values = checkNotNull(values);
         this.spreadsheet = checkNotNull(spreadsheet);
         this.googleAuthorizationProvider = checkNotNull(googleAuthorizationProvider);
         httpClient = RestClients.newClient();
@@ -46,21 +40,12 @@ final class InternalGoogleSpreadsheet implements GoogleSpreadsheet {
 
     @Override
     public CompletableFuture<Void> updateRange(String range, Object value) {
-        return supplyAsync(() -> getAsUnchecked(() -> sheets.spreadsheets().values()
-                                                            .update(spreadsheet.getSpreadsheetId(),
-                                                                    range,
-                                                                    new ValueRange().setValues(ImmutableList.of(ImmutableList.of(value))))
-                                                            .setValueInputOption("USER_ENTERED")
-                                                            .execute()))
-                .thenApply(_ -> null);
+        return values.update(spreadsheet.getSpreadsheetId(), range, value);
     }
 
     @Override
     public CompletableFuture<List<List<Object>>> getRangeValues(String range) {
-        return supplyAsync(() -> getAsUnchecked(() -> sheets.spreadsheets().values()
-                                                            .get(spreadsheet.getSpreadsheetId(), range)
-                                                            .execute()))
-                .thenApply(ValueRange::getValues);
+        return values.get(spreadsheet.getSpreadsheetId(), range);
     }
 
     @Override
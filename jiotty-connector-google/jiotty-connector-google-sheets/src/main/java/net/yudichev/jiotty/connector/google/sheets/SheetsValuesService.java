@@ -0,0 +1,19 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.RangeValues;
+
+import java.io.IOException;
+import java.util.List;
+
+/// The calls of the Sheets values API that [SpreadsheetValues] is made of. All calls block the calling thread.
+interface SheetsValuesService {
+    void update(String spreadsheetId, String range, Object value) throws IOException;
+
+    /// Writes the ranges in one call.
+    void batchUpdate(String spreadsheetId, List<RangeValues> data) throws IOException;
+
+    /// @return `null` if the range is empty
+    @Nullable
+    List<List<Object>> get(String spreadsheetId, String range) throws IOException;
+}
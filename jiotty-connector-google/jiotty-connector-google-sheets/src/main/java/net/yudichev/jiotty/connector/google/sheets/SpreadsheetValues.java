@@ -0,0 +1,313 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import com.google.common.util.concurrent.MoreExecutors;
+import jakarta.annotation.Nullable;
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SchedulingExecutor;
+import net.yudichev.jiotty.common.async.SingleThreadedSchedulingExecutor;
+import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.metrics.Counter;
+import net.yudichev.jiotty.common.metrics.Metrics;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.CellValue;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.RangeValues;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.util.concurrent.CompletableFuture.runAsync;
+import static java.util.concurrent.CompletableFuture.supplyAsync;
+import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
+import static net.yudichev.jiotty.connector.google.sheets.Bindings.ReadCacheTtl;
+import static net.yudichev.jiotty.connector.google.sheets.Bindings.WriteBatchWindow;
+
+/// Reads and writes cell values of all spreadsheets obtained from the client. The blocking API calls are made on virtual threads of this
+/// component.
+///
+/// With a positive write batch window, updates are buffered: the first one schedules a flush after the window, and everything buffered
+/// by then is written with one `values.batchUpdate` call per spreadsheet, made on a dedicated thread. A cell updated more than once
+/// within the window is only written with the last value, and adjacent cells are merged into ranges. A range that may overlap one
+/// buffered before under a different notation (`A1` and `Sheet1!A1`, or a cell and a range containing it) starts another call, made
+/// after the first, so that the last update still wins. Each update's future completes once the batch that wrote it (or the value that
+/// superseded it) has landed.
+///
+/// With a positive read cache TTL, values read are served to subsequent reads of the same range until the TTL expires, and concurrent
+/// reads of the same range share one call. Local writes drop the cached ranges of the sheet written to, both when the write is made and
+/// when it lands, so a read made in between may still return the value before the write; changes made by others are only seen once the
+/// TTL expires.
+///
+/// Counter `jiotty_google_sheets_api_calls_total` counts values API calls by `method`.
+final class SpreadsheetValues extends BaseLifecycleComponent {
+    private static final Logger logger = LoggerFactory.getLogger(SpreadsheetValues.class);
+    /// keeps the request well below the API payload limit
+    static final int MAX_CELLS_PER_BATCH = 1000;
+    private static final Duration STOP_TIMEOUT = Duration.ofSeconds(10);
+    private static final Counter updateCalls = apiCallCounter("update");
+    private static final Counter batchUpdateCalls = apiCallCounter("batchUpdate");
+    private static final Counter getCalls = apiCallCounter("get");
+
+    private final SheetsValuesService service;
+    private final Duration writeBatchWindow;
+    private final long readCacheTtlNanos;
+    private final ConcurrentMap<ReadKey, CachedRead> cachedReads = new ConcurrentHashMap<>();
+    private final Lock lock = new ReentrantLock();
+    // guarded by lock
+    private Map<String, List<PendingBatch>> pendingBatchesBySpreadsheetId = new LinkedHashMap<>();
+    private int pendingCellCount;
+    private boolean flushScheduled;
+
+    private volatile ExecutorService callExecutor;
+    @Nullable
+    private volatile SchedulingExecutor writer;
+
+    @Inject
+    SpreadsheetValues(SheetsValuesService service,
+                      @WriteBatchWindow Duration writeBatchWindow,
+                      @ReadCacheTtl Duration readCacheTtl) {
+        this.service = checkNotNull(service);
+        checkArgument(!writeBatchWindow.isNegative(), "writeBatchWindow must not be negative: %s", writeBatchWindow);
+        this.writeBatchWindow = writeBatchWindow;
+        checkArgument(!readCacheTtl.isNegative(), "readCacheTtl must not be negative: %s", readCacheTtl);
+        readCacheTtlNanos = readCacheTtl.toNanos();
+    }
+
+    CompletableFuture<Void> update(String spreadsheetId, String range, Object value) {
+        return whenStartedAndNotLifecycling(() -> {
+            invalidateCachedReads(spreadsheetId, range);
+            if (writeBatchWindow.isZero()) {
+                return runAsync(() -> {
+                    updateCalls.increment();
+                    asUnchecked(() -> service.update(spreadsheetId, range, value));
+                }, callExecutor).whenComplete((_, _) -> invalidateCachedReads(spreadsheetId, range));
+            }
+            var future = new CompletableFuture<Void>();
+            lock.lock();
+            try {
+                Object key = A1Notation.parseCell(range)
+                                       .<Object>map(cell -> new CellKey(cell.sheet() == null ? null : cell.sheet().toLowerCase(Locale.ROOT),
+                                                                        cell.column(),
+                                                                        cell.row()))
+                                       .orElse(range);
+                List<PendingBatch> batches = pendingBatchesBySpreadsheetId.computeIfAbsent(spreadsheetId, _ -> new ArrayList<>());
+                if (batches.isEmpty() || !batches.getLast().canTakeInAnyOrder(key, range)) {
+                    batches.add(new PendingBatch());
+                }
+                PendingWrite pendingWrite = batches.getLast().pendingWrite(key, range);
+                if (pendingWrite.futures.isEmpty() && ++pendingCellCount == MAX_CELLS_PER_BATCH) {
+                    writer.execute(this::flush);
+                } else if (!flushScheduled) {
+                    flushScheduled = true;
+                    writer.schedule(writeBatchWindow, this::flush);
+                }
+                pendingWrite.range = range;
+                pendingWrite.value = value;
+                pendingWrite.futures.add(future);
+            } finally {
+                lock.unlock();
+            }
+            return future;
+        });
+    }
+
+    CompletableFuture<List<List<Object>>> get(String spreadsheetId, String range) {
+        return whenStartedAndNotLifecycling(() -> {
+            if (readCacheTtlNanos == 0) {
+                return fetch(spreadsheetId, range);
+            }
+            var key = new ReadKey(spreadsheetId, range);
+            long nowNanos = System.nanoTime();
+            CachedRead cachedRead = cachedReads.get(key);
+            if (cachedRead == null || !cachedRead.isUsable(nowNanos, readCacheTtlNanos)) {
+                var newRead = new CachedRead();
+                cachedRead = cachedReads.compute(key, (_, existing) -> existing != null && existing.isUsable(nowNanos, readCacheTtlNanos) ? existing : newRead);
+                if (cachedRead == newRead) {
+                    fetch(spreadsheetId, range).whenComplete((values, throwable) -> {
+                        if (throwable == null) {
+                            newRead.loadedAtNanos = System.nanoTime();
+                            newRead.values.complete(unmodifiable(values));
+                        } else {
+                            cachedReads.remove(key, newRead);
+                            newRead.values.completeExceptionally(throwable);
+                        }
+                    });
+                }
+            }
+            return cachedRead.values.copy();
+        });
+    }
+
+    @Override
+    protected void doStart() {
+        callExecutor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("google-sheets-", 0).factory());
+        if (writeBatchWindow.isPositive()) {
+            writer = new SingleThreadedSchedulingExecutor("google-sheets-writer");
+        }
+    }
+
+    @Override
+    protected void doStop() {
+        SchedulingExecutor currentWriter = writer;
+        if (currentWriter != null) {
+            // whatever is still buffered is written before the writer terminates
+            currentWriter.execute(this::flush);
+            closeSafelyIfNotNull(logger, currentWriter);
+            writer = null;
+        }
+        // waits for the calls in flight and for the futures of the last batch to be completed
+        if (!MoreExecutors.shutdownAndAwaitTermination(callExecutor, STOP_TIMEOUT)) {
+            logger.warn("API calls did not complete in {}", STOP_TIMEOUT);
+        }
+        cachedReads.clear();
+    }
+
+    private CompletableFuture<List<List<Object>>> fetch(String spreadsheetId, String range) {
+        return supplyAsync(() -> {
+            getCalls.increment();
+            return getAsUnchecked(() -> service.get(spreadsheetId, range));
+        }, callExecutor);
+    }
+
+    private void flush() {
+        Map<String, List<PendingBatch>> batchesBySpreadsheetId;
+        lock.lock();
+        try {
+            batchesBySpreadsheetId = pendingBatchesBySpreadsheetId;
+            pendingBatchesBySpreadsheetId = new LinkedHashMap<>();
+            pendingCellCount = 0;
+            flushScheduled = false;
+        } finally {
+            lock.unlock();
+        }
+        // in order, as a batch may overwrite what an earlier one wrote
+        batchesBySpreadsheetId.forEach((spreadsheetId, batches) -> batches.forEach(batch -> write(spreadsheetId, batch)));
+    }
+
+    private void write(String spreadsheetId, PendingBatch batch) {
+        List<CellValue> cellValues = new ArrayList<>(batch.writesByKey.size());
+        List<CompletableFuture<Void>> futures = new ArrayList<>(batch.writesByKey.size());
+        batch.writesByKey.values().forEach(pendingWrite -> {
+            cellValues.add(new CellValue(pendingWrite.range, pendingWrite.value));
+            futures.addAll(pendingWrite.futures);
+        });
+        List<RangeValues> data = A1Notation.merge(cellValues);
+        Throwable failure = null;
+        try {
+            batchUpdateCalls.increment();
+            service.batchUpdate(spreadsheetId, data);
+            logger.debug("Wrote {} update(s) of {} cell(s) in {} range(s) to spreadsheet {}", futures.size(), cellValues.size(), data.size(), spreadsheetId);
+        } catch (IOException | RuntimeException e) {
+            failure = e;
+        }
+        cellValues.forEach(cellValue -> invalidateCachedReads(spreadsheetId, cellValue.range()));
+        Throwable batchFailure = failure;
+        // so that whatever callers chain on their futures does not hold up the writer thread
+        callExecutor.execute(() -> futures.forEach(future -> {
+            if (batchFailure == null) {
+                future.complete(null);
+            } else {
+                future.completeExceptionally(new RuntimeException("Failed to write cells of spreadsheet " + spreadsheetId, batchFailure));
+            }
+        }));
+    }
+
+    private void invalidateCachedReads(String spreadsheetId, String writtenRange) {
+        if (!cachedReads.isEmpty()) {
+            // including the reads in flight, which may not have seen the write
+            cachedReads.keySet().removeIf(key -> key.spreadsheetId().equals(spreadsheetId) && A1Notation.mayOverlap(writtenRange, key.range()));
+        }
+    }
+
+    @Nullable
+    private static List<List<Object>> unmodifiable(@Nullable List<List<Object>> values) {
+        if (values == null) {
+            return null;
+        }
+        List<List<Object>> rows = new ArrayList<>(values.size());
+        values.forEach(row -> rows.add(Collections.unmodifiableList(new ArrayList<>(row))));
+        return Collections.unmodifiableList(rows);
+    }
+
+    private static Counter apiCallCounter(String method) {
+        return Metrics.counter("jiotty_google_sheets_api_calls_total", Map.of("method", method));
+    }
+
+    /// @param sheet in lower case as sheet names are case-insensitive; `null` if not specified
+    private record CellKey(@Nullable String sheet, int column, int row) {
+        long position() {
+            return (long) column << 32 | row;
+        }
+    }
+
+    private record ReadKey(String spreadsheetId, String range) {}
+
+    private static final class PendingWrite {
+        final List<CompletableFuture<Void>> futures = new ArrayList<>(1);
+        String range;
+        Object value;
+    }
+
+    /// Writes none of which may overlap another one of a different key, so that they can be merged and written in any order.
+    private static final class PendingBatch {
+        /// keys are [CellKey]s for single cells and range strings otherwise
+        final Map<Object, PendingWrite> writesByKey = new LinkedHashMap<>();
+        /// positions of the cells written with and without a sheet, as `A1` is `Sheet1!A1` if `Sheet1` is the first sheet
+        final Set<Long> qualifiedCellPositions = new HashSet<>();
+        final Set<Long> unqualifiedCellPositions = new HashSet<>();
+        final List<String> otherRanges = new ArrayList<>(0);
+
+        boolean canTakeInAnyOrder(Object key, String range) {
+            if (writesByKey.containsKey(key)) {
+                return true;
+            }
+            if (otherRanges.stream().anyMatch(otherRange -> A1Notation.mayOverlap(otherRange, range))) {
+                return false;
+            }
+            if (key instanceof CellKey cellKey) {
+                return !(cellKey.sheet() == null ? qualifiedCellPositions : unqualifiedCellPositions).contains(cellKey.position());
+            }
+            return writesByKey.values().stream().noneMatch(pendingWrite -> A1Notation.mayOverlap(pendingWrite.range, range));
+        }
+
+        PendingWrite pendingWrite(Object key, String range) {
+            return writesByKey.computeIfAbsent(key, _ -> {
+                if (key instanceof CellKey cellKey) {
+                    (cellKey.sheet() == null ? unqualifiedCellPositions : qualifiedCellPositions).add(cellKey.position());
+                } else {
+                    otherRanges.add(range);
+                }
+                return new PendingWrite();
+            });
+        }
+    }
+
+    private static final class CachedRead {
+        final CompletableFuture<List<List<Object>>> values = new CompletableFuture<>();
+        /// written before the values are completed, so visible to whoever sees them completed
+        volatile long loadedAtNanos;
+
+        boolean isUsable(long nowNanos, long ttlNanos) {
+            // a failed read is removed before it is completed, but may still be seen in between
+            return !values.isDone() || !values.isCompletedExceptionally() && nowNanos - loadedAtNanos < ttlNanos;
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.Cell;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.CellValue;
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.RangeValues;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.is;
+
+class A1NotationTest {
+    @Test
+    void parsesCells() {
+        assertThat(A1Notation.parseCell("B3"), is(Optional.of(new Cell("", null, 2, 3))));
+        assertThat(A1Notation.parseCell("Sheet1!$AA$10"), is(Optional.of(new Cell("Sheet1!", "Sheet1", 27, 10))));
+        assertThat(A1Notation.parseCell("'Bob''s sheet'!c1"), is(Optional.of(new Cell("'Bob''s sheet'!", "Bob's sheet", 3, 1))));
+        assertThat(A1Notation.parseCell("A1:B2"), is(Optional.empty()));
+        assertThat(A1Notation.parseCell("Sheet1"), is(Optional.empty()));
+        assertThat(A1Notation.parseCell("A0"), is(Optional.empty()));
+    }
+
+    @Test
+    void convertsColumns() {
+        assertThat(A1Notation.parseColumn("Z"), is(26));
+        assertThat(A1Notation.parseColumn("AZ"), is(52));
+        assertThat(A1Notation.formatColumn(52), is("AZ"));
+        assertThat(A1Notation.formatColumn(703), is("AAA"));
+    }
+
+    @Test
+    void tellsSheetOfRange() {
+        assertThat(A1Notation.sheetOf("Sheet1!A1:B2"), is(Optional.of("Sheet1")));
+        assertThat(A1Notation.sheetOf("'It''s!'!A1"), is(Optional.of("It's!")));
+        assertThat(A1Notation.sheetOf("A1:B2"), is(Optional.empty()));
+        assertThat(A1Notation.sheetOf("NamedRange"), is(Optional.empty()));
+    }
+
+    @Test
+    void rangesMayOverlapUnlessOnDifferentSheets() {
+        assertThat(A1Notation.mayOverlap("Sheet1!A1", "sheet1!C1:D5"), is(true));
+        assertThat(A1Notation.mayOverlap("Sheet1!A1", "NamedRange"), is(true));
+        assertThat(A1Notation.mayOverlap("A1", "Sheet2!A1"), is(true));
+        assertThat(A1Notation.mayOverlap("Sheet1!A1", "Sheet2!A1"), is(false));
+    }
+
+    @Test
+    void mergesAdjacentCellsIntoRectangles() {
+        List<RangeValues> merged = A1Notation.merge(List.of(new CellValue("S!B2", "b2"),
+                                                            new CellValue("S!A1", "a1"),
+                                                            new CellValue("S!B1", "b1"),
+                                                            new CellValue("S!A2", "a2"),
+                                                            new CellValue("S!D1", "d1")));
+
+        assertThat(merged, contains(new RangeValues("S!A1:B2", List.of(List.of("a1", "b1"), List.of("a2", "b2"))),
+                                    new RangeValues("S!D1", List.of(List.of("d1")))));
+    }
+
+    @Test
+    void mergesCellsOfEachSheetSeparatelyAndPassesOtherRangesThrough() {
+        List<RangeValues> merged = A1Notation.merge(List.of(new CellValue("A1", 1),
+                                                            new CellValue("Other!A2", 2),
+                                                            new CellValue("NamedRange", 3),
+                                                            new CellValue("A2", 4),
+                                                            new CellValue("'Other'!A3", 5)));
+
+        assertThat(merged, contains(new RangeValues("NamedRange", List.of(List.of(3))),
+                                    new RangeValues("A1:A2", List.of(List.of(1), List.of(4))),
+                                    new RangeValues("Other!A2:A3", List.of(List.of(2), List.of(5)))));
+    }
+
+    @Test
+    void doesNotMergeRowsOfDifferentColumns() {
+        List<RangeValues> merged = A1Notation.merge(List.of(new CellValue("A1", 1),
+                                                            new CellValue("B1", 2),
+                                                            new CellValue("A2", 3)));
+
+        assertThat(merged, contains(new RangeValues("A1:B1", List.of(List.of(1, 2))),
+                                    new RangeValues("A2", List.of(List.of(3)))));
+    }
+}
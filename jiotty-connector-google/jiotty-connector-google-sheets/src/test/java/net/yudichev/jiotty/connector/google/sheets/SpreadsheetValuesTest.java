@@ -0,0 +1,180 @@
+package net.yudichev.jiotty.connector.google.sheets;
+
+import net.yudichev.jiotty.connector.google.sheets.A1Notation.RangeValues;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.is;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SpreadsheetValuesTest {
+    private static final String SPREADSHEET_ID = "spreadsheet";
+    /// long enough for the updates of a test to be flushed only when the component stops, unless flushed early
+    private static final Duration LONG_WINDOW = Duration.ofMinutes(1);
+
+    private final FakeValuesService service = new FakeValuesService();
+    private SpreadsheetValues values;
+
+    @AfterEach
+    void tearDown() {
+        values.stop();
+    }
+
+    @Test
+    void writesEachUpdateOnItsOwnWithoutBatchWindow() {
+        start(Duration.ZERO, Duration.ZERO);
+
+        values.update(SPREADSHEET_ID, "A1", 1).join();
+        values.update(SPREADSHEET_ID, "A1", 2).join();
+
+        assertThat(service.updates, contains("A1=1", "A1=2"));
+        assertThat(service.batchUpdates, is(empty()));
+    }
+
+    @Test
+    void writesLastValueOfEachCellMergedIntoRangesInOneBatch() {
+        start(LONG_WINDOW, Duration.ZERO);
+
+        List<CompletableFuture<Void>> futures = List.of(values.update(SPREADSHEET_ID, "A1", 1),
+                                                        values.update(SPREADSHEET_ID, "B1", 2),
+                                                        values.update(SPREADSHEET_ID, "A2", 3),
+                                                        values.update(SPREADSHEET_ID, "A1", 4),
+                                                        values.update(SPREADSHEET_ID, "B2", 5));
+        assertThat(service.batchUpdates, is(empty()));
+        values.stop();
+
+        futures.forEach(CompletableFuture::join);
+        assertThat(service.batchUpdates, contains(List.of(new RangeValues("A1:B2", List.of(List.of(4, 2), List.of(3, 5))))));
+    }
+
+    @Test
+    void keepsLastUpdateLastAcrossNotationsOfTheSameCell() {
+        start(LONG_WINDOW, Duration.ZERO);
+
+        values.update(SPREADSHEET_ID, "A1", 1);
+        values.update(SPREADSHEET_ID, "Sheet1!A1", 2);
+        values.update(SPREADSHEET_ID, "Sheet1!B1", 3);
+        values.update(SPREADSHEET_ID, "A1", 4);
+        values.stop();
+
+        assertThat(service.batchUpdates, contains(List.of(new RangeValues("A1", List.of(List.of(1)))),
+                                                  List.of(new RangeValues("Sheet1!A1:B1", List.of(List.of(2, 3)))),
+                                                  List.of(new RangeValues("A1", List.of(List.of(4))))));
+    }
+
+    @Test
+    void keepsLastUpdateLastAcrossRangesOverlappingCells() {
+        start(LONG_WINDOW, Duration.ZERO);
+
+        values.update(SPREADSHEET_ID, "Sheet1!A1", 1);
+        values.update(SPREADSHEET_ID, "Sheet1!A1:B2", 2);
+        values.update(SPREADSHEET_ID, "Other!A1", 3);
+        values.update(SPREADSHEET_ID, "Sheet1!B2", 4);
+        values.stop();
+
+        assertThat(service.batchUpdates, contains(List.of(new RangeValues("Sheet1!A1", List.of(List.of(1)))),
+                                                  List.of(new RangeValues("Sheet1!A1:B2", List.of(List.of(2))),
+                                                          new RangeValues("Other!A1", List.of(List.of(3)))),
+                                                  List.of(new RangeValues("Sheet1!B2", List.of(List.of(4))))));
+    }
+
+    @Test
+    void flushesEarlyOnceBatchIsFull() {
+        start(LONG_WINDOW, Duration.ZERO);
+
+        List<CompletableFuture<Void>> futures = new ArrayList<>();
+        for (int row = 1; row <= SpreadsheetValues.MAX_CELLS_PER_BATCH; row++) {
+            futures.add(values.update(SPREADSHEET_ID, "A" + row, row));
+        }
+
+        futures.forEach(CompletableFuture::join);
+        assertThat(service.batchUpdates.size(), is(1));
+        assertThat(service.batchUpdates.getFirst().getFirst().range(), is("A1:A" + SpreadsheetValues.MAX_CELLS_PER_BATCH));
+    }
+
+    @Test
+    void failsUpdatesOfFailedBatch() {
+        start(LONG_WINDOW, Duration.ZERO);
+        service.failBatchUpdates.set(1);
+
+        CompletableFuture<Void> future = values.update(SPREADSHEET_ID, "A1", 1);
+        values.stop();
+
+        assertThrows(CompletionException.class, future::join);
+    }
+
+    @Test
+    void servesCachedReadsUntilSheetIsWritten() {
+        start(Duration.ZERO, LONG_WINDOW);
+
+        List<List<Object>> firstRead = values.get(SPREADSHEET_ID, "Sheet1!A1:B2").join();
+        assertThat(values.get(SPREADSHEET_ID, "Sheet1!A1:B2").join(), equalTo(firstRead));
+        assertThat(service.getCallCount.get(), is(1));
+
+        values.update(SPREADSHEET_ID, "Other!A1", 1).join();
+        values.get(SPREADSHEET_ID, "Sheet1!A1:B2").join();
+        assertThat(service.getCallCount.get(), is(1));
+
+        values.update(SPREADSHEET_ID, "Sheet1!C3", 1).join();
+        values.get(SPREADSHEET_ID, "Sheet1!A1:B2").join();
+        assertThat(service.getCallCount.get(), is(2));
+    }
+
+    @Test
+    void doesNotCacheFailedReads() {
+        start(Duration.ZERO, LONG_WINDOW);
+        service.failGets.set(1);
+
+        assertThrows(CompletionException.class, () -> values.get(SPREADSHEET_ID, "A1").join());
+        assertThat(values.get(SPREADSHEET_ID, "A1").join(), equalTo(List.of(List.of("A1#2"))));
+        assertThat(service.getCallCount.get(), is(2));
+    }
+
+    private void start(Duration writeBatchWindow, Duration readCacheTtl) {
+        values = new SpreadsheetValues(service, writeBatchWindow, readCacheTtl);
+        values.start();
+    }
+
+    private static final class FakeValuesService implements SheetsValuesService {
+        final List<String> updates = Collections.synchronizedList(new ArrayList<>());
+        final List<List<RangeValues>> batchUpdates = Collections.synchronizedList(new ArrayList<>());
+        final AtomicInteger getCallCount = new AtomicInteger();
+        final AtomicInteger failBatchUpdates = new AtomicInteger();
+        final AtomicInteger failGets = new AtomicInteger();
+
+        @Override
+        public void update(String spreadsheetId, String range, Object value) {
+            updates.add(range + '=' + value);
+        }
+
+        @Override
+        public void batchUpdate(String spreadsheetId, List<RangeValues> data) throws IOException {
+            if (failBatchUpdates.getAndDecrement() > 0) {
+                throw new IOException("UNAVAILABLE");
+            }
+            batchUpdates.add(List.copyOf(data));
+        }
+
+        @Override
+        public List<List<Object>> get(String spreadsheetId, String range) throws IOException {
+            int callCount = getCallCount.incrementAndGet();
+            if (failGets.getAndDecrement() > 0) {
+                throw new IOException("UNAVAILABLE");
+            }
+            return List.of(List.of(range + '#' + callCount));
+        }
+    }
+}
@@ -5,8 +5,11 @@ import com.google.common.reflect.TypeParameter;
 import com.google.common.reflect.TypeToken;
 import com.google.inject.BindingAnnotation;
 import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
 import net.yudichev.jiotty.common.rest.ContentTypes;
 import net.yudichev.jiotty.common.rest.RestClients;
 import okhttp3.MediaType;
@@ -35,9 +38,11 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
+import static net.yudichev.jiotty.common.logging.LogPayloads.abbreviated;
 
 public final class HomeAssistantClientImpl extends BaseLifecycleComponent implements HomeAssistantClient {
     private static final Logger logger = LoggerFactory.getLogger(HomeAssistantClientImpl.class);
+    private static final LogSampler responseLogSampler = LogSampling.sampler(logger);
 
     private final String baseUrl;
     private final String accessToken;
@@ -52,6 +57,8 @@ public final class HomeAssistantClientImpl extends BaseLifecycleComponent implem
     private final Domain<HADeviceLocationAttributes> deviceTracker = new BaseDomain<>("device_tracker") {};
 
     private final AtomicLong requestIdGenerator = new AtomicLong();
+    /// keyed by full entity ID; automations tend to read the same entities at the same time
+    private final SingleFlight<String, HAState<?>> getStateFlight = SingleFlight.create("home-assistant-get-state");
 
     private OkHttpClient client;
 
@@ -129,7 +136,12 @@ public final class HomeAssistantClientImpl extends BaseLifecycleComponent implem
     private <T> CompletableFuture<T> callAndLogResponse(Request request, long requestId, TypeToken<T> responseType) {
         return whenStartedAndNotLifecycling(
                 () -> RestClients.<T>call(client.newCall(request), responseType)
-                                 .whenComplete((o, throwable) -> logger.debug("[{}] Response {}", requestId, o, throwable)));
+                                 .whenComplete((response, throwable) -> {
+                                     // failures are not sampled
+                                     if (logger.isDebugEnabled() && (throwable != null || responseLogSampler.sample())) {
+                                         logger.debug("[{}] Response {}", requestId, abbreviated(response), throwable);
+                                     }
+                                 }));
     }
 
     @BindingAnnotation
@@ -156,8 +168,10 @@ public final class HomeAssistantClientImpl extends BaseLifecycleComponent implem
         }
 
         @Override
+        @SuppressWarnings("unchecked") // the key includes the domain, so the shared state has this domain's attribute type
         public CompletableFuture<HAState<A>> getState(String domainlessEntityId) {
-            return invokeGetState(domainlessEntityId);
+            return getStateFlight.get(domainId + '.' + domainlessEntityId, () -> invokeGetState(domainlessEntityId))
+                                 .thenApply(state -> (HAState<A>) state);
         }
 
         protected CompletableFuture<List<HAState<A>>> invokePostServices(String service, Object body) {
@@ -5,6 +5,8 @@ import net.yudichev.jiotty.common.lang.Closeable;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.BiConsumer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
+
 public interface Mqtt {
     Closeable subscribe(String topicFilter, int qos, BiConsumer<String, String> dataCallback);
 
@@ -12,5 +14,15 @@ public interface Mqtt {
         return subscribe(topicFilter, 2, dataCallback);
     }
 
+    /// Same as [#subscribe(String, int, BiConsumer)], but the payload is passed as is, without decoding it into a `String`. The array may be
+    /// shared with other subscribers of the same message and must not be modified.
+    default Closeable subscribeBytes(String topicFilter, int qos, BiConsumer<String, byte[]> dataCallback) {
+        return subscribe(topicFilter, qos, (topic, data) -> dataCallback.accept(topic, data.getBytes(UTF_8)));
+    }
+
+    default Closeable subscribeBytes(String topicFilter, BiConsumer<String, byte[]> dataCallback) {
+        return subscribeBytes(topicFilter, 2, dataCallback);
+    }
+
     CompletableFuture<Void> publish(String topic, String message);
 }
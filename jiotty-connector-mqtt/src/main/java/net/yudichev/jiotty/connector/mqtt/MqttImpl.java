@@ -15,6 +15,8 @@ import net.yudichev.jiotty.common.lang.backoff.ExponentialBackOff;
 import net.yudichev.jiotty.common.lang.backoff.NanoClock;
 import net.yudichev.jiotty.common.lang.backoff.SynchronizedBackOff;
 import net.yudichev.jiotty.common.lang.throttling.ThresholdThrottlingConsumerFactory;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
 import org.eclipse.paho.client.mqttv3.IMqttActionListener;
 import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.IMqttDeliveryToken;
@@ -23,7 +25,6 @@ import org.eclipse.paho.client.mqttv3.MqttCallbackExtended;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 import org.eclipse.paho.client.mqttv3.MqttException;
 import org.eclipse.paho.client.mqttv3.MqttMessage;
-import org.eclipse.paho.client.mqttv3.MqttTopic;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -55,12 +56,14 @@ import static net.yudichev.jiotty.common.lang.CompositeException.runForAll;
 import static net.yudichev.jiotty.common.lang.HumanReadableExceptionMessage.humanReadableMessage;
 import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
 import static net.yudichev.jiotty.common.lang.Runnables.guarded;
+import static net.yudichev.jiotty.common.logging.LogPayloads.abbreviated;
 
 class MqttImpl extends BaseLifecycleComponent implements Mqtt {
     private static final Logger logger = LoggerFactory.getLogger(MqttImpl.class);
+    private static final LogSampler messageLogSampler = LogSampling.sampler(logger);
     private final ThresholdThrottlingConsumerFactory<Throwable> throttledLoggerFactory;
     private final MqttConnectOptions mqttConnectOptions;
-    private final Map<String, MqttMessage> lastReceivedMessageByTopic = new HashMap<>();
+    private final TopicImageCache<Payload> lastReceivedPayloadByTopic;
     private final Map<String, Set<Subscription>> subscriptionsByFilter = new HashMap<>();
     private final IMqttAsyncClient client;
     private final ExecutorFactory executorFactory;
@@ -73,8 +76,15 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
     MqttImpl(IMqttAsyncClient client,
              ExecutorFactory executorFactory,
              @Dependency ThresholdThrottlingConsumerFactory<Throwable> throttledLoggerFactory,
-             @Dependency Consumer<MqttConnectOptions> mqttConnectOptionsCustomiser) {
-        this(client, executorFactory, throttledLoggerFactory, mqttConnectOptionsCustomiser, System::nanoTime, ExponentialBackOff.DEFAULT_RANDOMIZATION_FACTOR);
+             @Dependency Consumer<MqttConnectOptions> mqttConnectOptionsCustomiser,
+             @Dependency TopicImageCache.Limits imageCacheLimits) {
+        this(client,
+             executorFactory,
+             throttledLoggerFactory,
+             mqttConnectOptionsCustomiser,
+             imageCacheLimits,
+             System::nanoTime,
+             ExponentialBackOff.DEFAULT_RANDOMIZATION_FACTOR);
     }
 
     MqttImpl(IMqttAsyncClient client,
@@ -83,6 +93,22 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
              Consumer<MqttConnectOptions> mqttConnectOptionsCustomiser,
              NanoClock nanoClock,
              double connectBackoffRandmisationFactor) {
+        this(client,
+             executorFactory,
+             throttledLoggerFactory,
+             mqttConnectOptionsCustomiser,
+             TopicImageCache.Limits.DEFAULT,
+             nanoClock,
+             connectBackoffRandmisationFactor);
+    }
+
+    MqttImpl(IMqttAsyncClient client,
+             ExecutorFactory executorFactory,
+             ThresholdThrottlingConsumerFactory<Throwable> throttledLoggerFactory,
+             Consumer<MqttConnectOptions> mqttConnectOptionsCustomiser,
+             TopicImageCache.Limits imageCacheLimits,
+             NanoClock nanoClock,
+             double connectBackoffRandmisationFactor) {
         this.executorFactory = checkNotNull(executorFactory);
         this.throttledLoggerFactory = checkNotNull(throttledLoggerFactory);
         mqttConnectOptions = new MqttConnectOptions();
@@ -92,6 +118,7 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
         this.client = client;
         name = super.name() + " " + client.getClientId() + " " + client.getServerURI();
         this.nanoClock = checkNotNull(nanoClock);
+        lastReceivedPayloadByTopic = new TopicImageCache<>(imageCacheLimits, nanoClock);
         this.connectBackoffRandmisationFactor = connectBackoffRandmisationFactor;
     }
 
@@ -165,17 +192,28 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
 
     @Override
     public Closeable subscribe(String topicFilter, int qos, BiConsumer<String, String> dataCallback) {
+        checkNotNull(dataCallback);
+        return addSubscription(topicFilter, qos, (topic, payload) -> dataCallback.accept(topic, payload.asString()));
+    }
+
+    @Override
+    public Closeable subscribeBytes(String topicFilter, int qos, BiConsumer<String, byte[]> dataCallback) {
+        checkNotNull(dataCallback);
+        return addSubscription(topicFilter, qos, (topic, payload) -> dataCallback.accept(topic, payload.bytes()));
+    }
+
+    private Closeable addSubscription(String topicFilter, int qos, BiConsumer<String, Payload> dataCallback) {
         checkStarted();
-        BiConsumer<String, MqttMessage> callback = exceptionLogging(new MessageToStringDataCallback(dataCallback));
+        BiConsumer<String, Payload> callback = exceptionLogging(dataCallback);
         var subscription = new Subscription(qos, callback);
         executor.execute(() -> {
             deliverImage(topicFilter, callback);
             subscriptionsByFilter.computeIfAbsent(topicFilter, filter -> {
                 doSubscribe(filter,
-                            2, (topic, message) -> {
+                            2, (topic, payload) -> {
                             Set<Subscription> subscriptions = subscriptionsByFilter.get(filter);
                             if (!subscriptions.isEmpty()) {
-                                runForAll(subscriptions, sub -> sub.accept(topic, message));
+                                runForAll(subscriptions, sub -> sub.accept(topic, payload));
                             }
                         });
                 return new HashSet<>();
@@ -199,7 +237,9 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
     public CompletableFuture<Void> publish(String topic, String message) {
         checkStarted();
         return supplyAsync(() -> {
-            logger.debug("OUT topic: {}, msg: {}", topic, message);
+            if (logger.isDebugEnabled() && messageLogSampler.sample()) {
+                logger.debug("OUT topic: {}, msg: {}", topic, abbreviated(message));
+            }
             asUnchecked(() -> client.publish(topic, message.getBytes(UTF_8), 1, false));
             return null;
         }, executor);
@@ -229,19 +269,21 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
         };
     }
 
-    private void doSubscribe(String topicFilter, int qos, BiConsumer<String, MqttMessage> callback) {
+    private void doSubscribe(String topicFilter, int qos, BiConsumer<String, Payload> callback) {
         asUnchecked(() -> client.subscribe(topicFilter, qos, (topic, message) -> {
-            logger.debug("IN topic: {}, msg: {}", topic, message);
-            guarded(logger, "Notify client on MQTT message", () -> callback.accept(topic, message)).run();
+            if (logger.isDebugEnabled() && messageLogSampler.sample()) {
+                logger.debug("IN topic: {}, msg: {}", topic, abbreviated(message.getPayload()));
+            }
+            // one payload per message: subscribers share the bytes and the String decoded on first use
+            var payload = new Payload(message.getPayload());
+            guarded(logger, "Notify client on MQTT message", () -> callback.accept(topic, payload)).run();
         }));
     }
 
-    private void deliverImage(String topicFilter, BiConsumer<String, MqttMessage> callback) {
-        lastReceivedMessageByTopic.forEach((topic, message) -> {
-            if (MqttTopic.isMatched(topicFilter, topic)) {
-                logger.debug("Delivering last known message {} -> {}", topic, message);
-                guarded(logger, "deliver last known message", () -> callback.accept(topic, message)).run();
-            }
+    private void deliverImage(String topicFilter, BiConsumer<String, Payload> callback) {
+        lastReceivedPayloadByTopic.forEachMatching(topicFilter, (topic, payload) -> {
+            logger.debug("Delivering last known message {} -> {}", topic, payload);
+            guarded(logger, "deliver last known message", () -> callback.accept(topic, payload)).run();
         });
     }
 
@@ -251,18 +293,33 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
     @interface Dependency {
     }
 
-    private record MessageToStringDataCallback(BiConsumer<String, String> delegate) implements BiConsumer<String, MqttMessage> {
-        private MessageToStringDataCallback(BiConsumer<String, String> delegate) {
-            this.delegate = checkNotNull(delegate);
+    private static final class Payload {
+        private final byte[] bytes;
+        private String string;
+
+        Payload(byte[] bytes) {
+            this.bytes = checkNotNull(bytes);
+        }
+
+        byte[] bytes() {
+            return bytes;
+        }
+
+        String asString() {
+            String result = string;
+            if (result == null) {
+                // racy single-check is fine: String is immutable, at worst it's decoded twice
+                string = result = new String(bytes, UTF_8);
+            }
+            return result;
         }
 
         @Override
-        public void accept(String topic, MqttMessage message) {
-            delegate.accept(topic, new String(message.getPayload(), UTF_8));
+        public String toString() {
+            return asString();
         }
     }
 
-
     private class ResubscribeOnReconnectCallback implements MqttCallbackExtended {
         private final Consumer<Throwable> throttledErrorLogger = throttledLoggerFactory.create(5, Duration.ofMinutes(1), e ->
                 logger.error("{} lost connection to {} too often (suppressing this error for 1 minute)", client.getClientId(), client.getServerURI(), e));
@@ -310,8 +367,10 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
         @Override
         public void messageArrived(String topic, MqttMessage message) {
             executor.execute(() -> {
-                logger.debug("messageArrived: {}->{}", topic, message);
-                lastReceivedMessageByTopic.put(topic, message);
+                if (logger.isDebugEnabled() && messageLogSampler.sample()) {
+                    logger.debug("messageArrived: {}->{}", topic, abbreviated(message.getPayload()));
+                }
+                lastReceivedPayloadByTopic.put(topic, new Payload(message.getPayload()));
             });
         }
 
@@ -321,9 +380,9 @@ class MqttImpl extends BaseLifecycleComponent implements Mqtt {
         }
     }
 
-    private record Subscription(int qos, BiConsumer<String, MqttMessage> dataCallback) {
-        public void accept(String topic, MqttMessage message) {
-            dataCallback.accept(topic, message);
+    private record Subscription(int qos, BiConsumer<String, Payload> dataCallback) {
+        public void accept(String topic, Payload payload) {
+            dataCallback.accept(topic, payload);
         }
     }
 }
@@ -13,6 +13,8 @@ import net.yudichev.jiotty.common.lang.throttling.ThresholdThrottlingConsumerMod
 import org.eclipse.paho.client.mqttv3.IMqttAsyncClient;
 import org.eclipse.paho.client.mqttv3.MqttConnectOptions;
 
+import java.time.Duration;
+import java.util.Optional;
 import java.util.function.Consumer;
 
 import static com.google.common.base.Preconditions.checkNotNull;
@@ -23,15 +25,18 @@ public final class MqttModule extends BaseLifecycleComponentModule implements Ex
     private final String serverUri;
     private final String clientId;
     private final BindingSpec<Consumer<MqttConnectOptions>> connectionOptionsCustomiserSpec;
+    private final TopicImageCache.Limits imageCacheLimits;
     private final Key<Mqtt> exposedKey;
 
     private MqttModule(String serverUri,
                        String clientId,
                        BindingSpec<Consumer<MqttConnectOptions>> connectionOptionsCustomiserSpec,
+                       TopicImageCache.Limits imageCacheLimits,
                        SpecifiedAnnotation specifiedAnnotation) {
         this.serverUri = checkNotNull(serverUri);
         this.clientId = checkNotNull(clientId);
         this.connectionOptionsCustomiserSpec = checkNotNull(connectionOptionsCustomiserSpec);
+        this.imageCacheLimits = checkNotNull(imageCacheLimits);
         exposedKey = specifiedAnnotation.specify(ExposedKeyModule.super.getExposedKey().getTypeLiteral());
     }
 
@@ -49,6 +54,7 @@ public final class MqttModule extends BaseLifecycleComponentModule implements Ex
         bindConstant().annotatedWith(MqttClientProvider.ServerUri.class).to(serverUri);
         bindConstant().annotatedWith(MqttClientProvider.ClientId.class).to(clientId);
         bind(IMqttAsyncClient.class).toProvider(MqttClientProvider.class).in(Singleton.class);
+        bind(TopicImageCache.Limits.class).annotatedWith(MqttImpl.Dependency.class).toInstance(imageCacheLimits);
 
         connectionOptionsCustomiserSpec.bind(new TypeLiteral<>() {})
                                        .annotatedWith(MqttImpl.Dependency.class)
@@ -67,6 +73,7 @@ public final class MqttModule extends BaseLifecycleComponentModule implements Ex
         private String serverUri;
         private String clientId;
         private BindingSpec<Consumer<MqttConnectOptions>> connectionOptionsCustomiserSpec = BindingSpec.literally(ignored -> {});
+        private TopicImageCache.Limits imageCacheLimits = TopicImageCache.Limits.DEFAULT;
         private SpecifiedAnnotation specifiedAnnotation = forNoAnnotation();
 
         public Builder setServerUri(String serverUri) {
@@ -84,6 +91,13 @@ public final class MqttModule extends BaseLifecycleComponentModule implements Ex
             return this;
         }
 
+        /// Limits the last received messages kept to deliver to new subscribers: at most `maxTopics` topics (the least recently updated are
+        /// dropped first), and no older than `ttl`.
+        public Builder withImageCacheLimits(int maxTopics, Duration ttl) {
+            imageCacheLimits = new TopicImageCache.Limits(maxTopics, Optional.of(ttl));
+            return this;
+        }
+
         @Override
         public Builder withAnnotation(SpecifiedAnnotation specifiedAnnotation) {
             this.specifiedAnnotation = checkNotNull(specifiedAnnotation);
@@ -92,7 +106,7 @@ public final class MqttModule extends BaseLifecycleComponentModule implements Ex
 
         @Override
         public ExposedKeyModule<Mqtt> build() {
-            return new MqttModule(serverUri, clientId, connectionOptionsCustomiserSpec, specifiedAnnotation);
+            return new MqttModule(serverUri, clientId, connectionOptionsCustomiserSpec, imageCacheLimits, specifiedAnnotation);
         }
     }
 }
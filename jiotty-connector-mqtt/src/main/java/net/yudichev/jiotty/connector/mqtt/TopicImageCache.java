@@ -0,0 +1,151 @@
+package net.yudichev.jiotty.connector.mqtt;
+
+import net.yudichev.jiotty.common.lang.backoff.NanoClock;
+
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.BiConsumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Last received value per topic, stored in a trie of topic levels so that the values matching a wildcard filter are found by walking only
+/// the matching branches rather than testing every known topic.
+///
+/// Bounded by the number of topics and, optionally, by age: the least recently updated topics are evicted first. Not thread safe.
+final class TopicImageCache<V> {
+    private static final String LEVEL_SEPARATOR = "/";
+    private static final String SINGLE_LEVEL_WILDCARD = "+";
+    private static final String MULTI_LEVEL_WILDCARD = "#";
+
+    private final Node<V> root = new Node<>(null, null);
+    private final Map<String, Node<V>> nodesInUpdateOrder = new LinkedHashMap<>();
+    private final int maxTopics;
+    private final long ttlNanos;
+    private final NanoClock nanoClock;
+
+    TopicImageCache(Limits limits, NanoClock nanoClock) {
+        maxTopics = limits.maxTopics();
+        ttlNanos = limits.ttl().map(Duration::toNanos).orElse(Long.MAX_VALUE);
+        this.nanoClock = checkNotNull(nanoClock);
+    }
+
+    public void put(String topic, V value) {
+        long nowNanos = nanoClock.nanoTime();
+        Node<V> node = nodesInUpdateOrder.remove(topic);
+        if (node == null) {
+            node = root;
+            for (String level : topic.split(LEVEL_SEPARATOR, -1)) {
+                node = node.child(level);
+            }
+            node.topic = topic;
+        }
+        node.value = value;
+        node.updatedNanos = nowNanos;
+        nodesInUpdateOrder.put(topic, node);
+        evict(nowNanos);
+    }
+
+    public void forEachMatching(String topicFilter, BiConsumer<String, V> action) {
+        evict(nanoClock.nanoTime());
+        forEachMatching(root, topicFilter.split(LEVEL_SEPARATOR, -1), 0, action);
+    }
+
+    public int size() {
+        return nodesInUpdateOrder.size();
+    }
+
+    private static <V> void forEachMatching(Node<V> node, String[] filterLevels, int levelIdx, BiConsumer<String, V> action) {
+        if (levelIdx == filterLevels.length) {
+            node.acceptValue(action);
+            return;
+        }
+        String filterLevel = filterLevels[levelIdx];
+        if (MULTI_LEVEL_WILDCARD.equals(filterLevel)) {
+            // matches the parent level too: "a/#" matches "a"
+            node.acceptValueAndDescendants(action);
+        } else if (SINGLE_LEVEL_WILDCARD.equals(filterLevel)) {
+            if (node.children != null) {
+                for (Node<V> child : node.children.values()) {
+                    forEachMatching(child, filterLevels, levelIdx + 1, action);
+                }
+            }
+        } else if (node.children != null) {
+            Node<V> child = node.children.get(filterLevel);
+            if (child != null) {
+                forEachMatching(child, filterLevels, levelIdx + 1, action);
+            }
+        }
+    }
+
+    private void evict(long nowNanos) {
+        Iterator<Node<V>> iterator = nodesInUpdateOrder.values().iterator();
+        while (iterator.hasNext()) {
+            Node<V> eldest = iterator.next();
+            if (nodesInUpdateOrder.size() <= maxTopics && nowNanos - eldest.updatedNanos < ttlNanos) {
+                break;
+            }
+            iterator.remove();
+            eldest.removeValue();
+        }
+    }
+
+    /// @param ttl if present, values not updated for this long are evicted
+    record Limits(int maxTopics, Optional<Duration> ttl) {
+        static final Limits DEFAULT = new Limits(10_000, Optional.empty());
+
+        Limits {
+            checkArgument(maxTopics > 0, "maxTopics must be positive: %s", maxTopics);
+            ttl.ifPresent(duration -> checkArgument(!duration.isNegative() && !duration.isZero(), "ttl must be positive: %s", duration));
+        }
+    }
+
+    private static final class Node<V> {
+        private final Node<V> parent;
+        private final String level;
+        private Map<String, Node<V>> children;
+        private String topic;
+        private V value;
+        private long updatedNanos;
+
+        Node(Node<V> parent, String level) {
+            this.parent = parent;
+            this.level = level;
+        }
+
+        Node<V> child(String childLevel) {
+            if (children == null) {
+                children = new HashMap<>(4);
+            }
+            return children.computeIfAbsent(childLevel, l -> new Node<>(this, l));
+        }
+
+        void acceptValue(BiConsumer<String, V> action) {
+            if (value != null) {
+                action.accept(topic, value);
+            }
+        }
+
+        void acceptValueAndDescendants(BiConsumer<String, V> action) {
+            acceptValue(action);
+            if (children != null) {
+                children.values().forEach(child -> child.acceptValueAndDescendants(action));
+            }
+        }
+
+        void removeValue() {
+            value = null;
+            topic = null;
+            // prune the branch that no longer leads to any value
+            Node<V> node = this;
+            while (node.parent != null && node.value == null && (node.children == null || node.children.isEmpty())) {
+                node.parent.children.remove(node.level);
+                node = node.parent;
+            }
+        }
+    }
+}
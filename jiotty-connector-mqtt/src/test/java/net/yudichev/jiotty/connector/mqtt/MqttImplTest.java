@@ -137,6 +137,21 @@ class MqttImplTest {
         verify(client).unsubscribe(TOPIC_FILTER);
     }
 
+    @Test
+    void deliversRawPayloadToBytesSubscribers(@Mock BiConsumer<String, byte[]> bytesCallback) throws Exception {
+        mqttCallback.messageArrived("/topic/a", mqttMessage("msg1"));
+        mqttCallback.connectComplete(false, "serverUrl");
+        mqtt.subscribeBytes(TOPIC_FILTER, bytesCallback);
+        clock.tick();
+
+        verify(bytesCallback).accept("/topic/a", "msg1".getBytes(UTF_8));
+        verify(client).subscribe(eq(TOPIC_FILTER), eq(2), messageListenerArgumentCaptor.capture());
+
+        messageListenerArgumentCaptor.getValue().messageArrived("/topic/b", mqttMessage("msg2"));
+        clock.tick();
+        verify(bytesCallback).accept("/topic/b", "msg2".getBytes(UTF_8));
+    }
+
     private IMqttMessageListener doSubscribe() throws MqttException {
         mqttCallback.connectComplete(false, "serverUrl");
         mqtt.subscribe(TOPIC_FILTER, dataCallback);
@@ -0,0 +1,89 @@
+package net.yudichev.jiotty.connector.mqtt;
+
+import net.yudichev.jiotty.common.async.ProgrammableClock;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.is;
+
+class TopicImageCacheTest {
+    private ProgrammableClock clock;
+    private TopicImageCache<String> cache;
+
+    @BeforeEach
+    void setUp() {
+        clock = new ProgrammableClock();
+        cache = new TopicImageCache<>(new TopicImageCache.Limits(4, Optional.of(Duration.ofMinutes(1))), clock);
+    }
+
+    @Test
+    void matchesFiltersLikeMqtt() {
+        cache.put("/a/b", "1");
+        cache.put("/a/c", "2");
+        cache.put("/a/b/c", "3");
+        cache.put("a/b", "4");
+
+        assertThat(matching("/a/b"), containsInAnyOrder("/a/b=1"));
+        assertThat(matching("/a/+"), containsInAnyOrder("/a/b=1", "/a/c=2"));
+        assertThat(matching("/+/b/+"), containsInAnyOrder("/a/b/c=3"));
+        assertThat(matching("/a/#"), containsInAnyOrder("/a/b=1", "/a/c=2", "/a/b/c=3"));
+        assertThat(matching("/a/b/#"), containsInAnyOrder("/a/b=1", "/a/b/c=3"));
+        assertThat(matching("+/b"), containsInAnyOrder("a/b=4"));
+        assertThat(matching("#"), containsInAnyOrder("/a/b=1", "/a/c=2", "/a/b/c=3", "a/b=4"));
+        assertThat(matching("/a"), is(empty()));
+        assertThat(matching("/x/#"), is(empty()));
+    }
+
+    @Test
+    void replacesValueOfSameTopic() {
+        cache.put("/a", "1");
+        cache.put("/a", "2");
+
+        assertThat(matching("#"), containsInAnyOrder("/a=2"));
+        assertThat(cache.size(), is(1));
+    }
+
+    @Test
+    void evictsLeastRecentlyUpdatedTopicsBeyondMaxTopics() {
+        cache.put("/t/1", "1");
+        cache.put("/t/2", "2");
+        cache.put("/t/3", "3");
+        cache.put("/t/4", "4");
+        cache.put("/t/1", "1'");
+        cache.put("/t/5", "5");
+
+        assertThat(matching("/t/+"), containsInAnyOrder("/t/1=1'", "/t/3=3", "/t/4=4", "/t/5=5"));
+        assertThat(cache.size(), is(4));
+    }
+
+    @Test
+    void evictsExpiredTopics() {
+        cache.put("/a/1", "1");
+        clock.advanceTimeAndTick(Duration.ofSeconds(30));
+        cache.put("/a/2", "2");
+        clock.advanceTimeAndTick(Duration.ofSeconds(30));
+
+        assertThat(matching("/a/+"), containsInAnyOrder("/a/2=2"));
+
+        clock.advanceTimeAndTick(Duration.ofSeconds(30));
+        assertThat(matching("#"), is(empty()));
+        assertThat(cache.size(), is(0));
+
+        cache.put("/a/1", "1");
+        assertThat(matching("/a/1"), containsInAnyOrder("/a/1=1"));
+    }
+
+    private List<String> matching(String filter) {
+        List<String> result = new ArrayList<>();
+        cache.forEachMatching(filter, (topic, value) -> result.add(topic + '=' + value));
+        return result;
+    }
+}
@@ -6,6 +6,8 @@ import com.google.inject.BindingAnnotation;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.CompletableFutures;
+import net.yudichev.jiotty.common.rest.HttpCachePolicy;
+import net.yudichev.jiotty.common.rest.HttpResponseCache;
 import net.yudichev.jiotty.common.time.CurrentDateTimeProvider;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
@@ -15,6 +17,7 @@ import org.slf4j.LoggerFactory;
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.Instant;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
@@ -26,7 +29,6 @@ import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
-import static net.yudichev.jiotty.common.rest.RestClients.call;
 import static net.yudichev.jiotty.common.rest.RestClients.newClient;
 import static net.yudichev.jiotty.common.rest.RestClients.shutdown;
 
@@ -36,6 +38,13 @@ public final class OctopusEnergyImpl extends BaseLifecycleComponent implements O
     private static final Logger logger = LoggerFactory.getLogger(OctopusEnergyImpl.class);
 
     private static final String BASE_URL = "https://api.octopus.energy/v1";
+    /// the account only changes when the tariff does; it holds the customer's address, so it is not kept on disk
+    private static final HttpCachePolicy ACCOUNT_CACHE_POLICY = HttpCachePolicy.of("octopus-account", Duration.ofHours(12))
+                                                                               .withStaleIfError(Duration.ofDays(30))
+                                                                               .withMemoryOnly();
+    /// shorter than the retry period of the price service, which polls until the next day's prices are published
+    private static final HttpCachePolicy UNIT_RATES_CACHE_POLICY = HttpCachePolicy.of("octopus-unit-rates", Duration.ofMinutes(10))
+                                                                                  .withStaleIfError(Duration.ofHours(6));
 
     private final String apiKey;
     private final String accountId;
@@ -53,12 +62,14 @@ public final class OctopusEnergyImpl extends BaseLifecycleComponent implements O
     @Override
     protected void doStart() {
         client = newClient();
-        account = call(client.newCall(new Request.Builder()
-                                              .url(BASE_URL + "/accounts/" + accountId)
-                                              .header("Authorization", "Basic " + base64().encode(apiKey.getBytes(StandardCharsets.US_ASCII)))
-                                              .get()
-                                              .build()),
-                       new TypeToken<>() {});
+        account = HttpResponseCache.shared().call(client,
+                                                  new Request.Builder()
+                                                          .url(BASE_URL + "/accounts/" + accountId)
+                                                          .header("Authorization", "Basic " + base64().encode(apiKey.getBytes(StandardCharsets.US_ASCII)))
+                                                          .get()
+                                                          .build(),
+                                                  new TypeToken<OctopusAccount>() {},
+                                                  ACCOUNT_CACHE_POLICY);
         account.whenComplete(CompletableFutures.logErrorOnFailure(logger, "Failed to retrieve account info"));
     }
 
@@ -82,7 +93,8 @@ public final class OctopusEnergyImpl extends BaseLifecycleComponent implements O
 
     private CompletableFuture<StandardUnitRates> getStandardUnitRates(String url) {
         logger.debug("Calling {}", url);
-        return call(client.newCall(new Request.Builder().url(url).get().build()), new TypeToken<StandardUnitRates>() {})
+        var request = new Request.Builder().url(url).get().build();
+        return HttpResponseCache.shared().call(client, request, new TypeToken<StandardUnitRates>() {}, UNIT_RATES_CACHE_POLICY)
                 .thenCompose(standardUnitRates -> standardUnitRates
                         // if next page, recursively call it and concatenate
                         .nextUrl()
@@ -2,12 +2,14 @@ package net.yudichev.jiotty.connector.octopusenergy.agilepredict;
 
 import com.google.common.reflect.TypeToken;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
-import net.yudichev.jiotty.common.rest.RestClients;
+import net.yudichev.jiotty.common.rest.HttpCachePolicy;
+import net.yudichev.jiotty.common.rest.HttpResponseCache;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.atomic.AtomicInteger;
@@ -19,6 +21,10 @@ import static net.yudichev.jiotty.common.rest.RestClients.shutdown;
 
 public final class AgilePredictPriceServiceImpl extends BaseLifecycleComponent implements AgilePredictPriceService {
     private static final Logger logger = LoggerFactory.getLogger(AgilePredictPriceServiceImpl.class);
+    /// predictions are updated a few times a day
+    private static final HttpCachePolicy CACHE_POLICY = HttpCachePolicy.of("agilepredict-prices", Duration.ofMinutes(30))
+                                                                       .withStaleWhileRevalidate(Duration.ofHours(3))
+                                                                       .withStaleIfError(Duration.ofDays(1));
     private final AtomicInteger requestIdGenerator = new AtomicInteger();
     private OkHttpClient client;
 
@@ -39,11 +45,11 @@ public final class AgilePredictPriceServiceImpl extends BaseLifecycleComponent i
         var url = "https://agilepredict.com/api/" + region + "?days=" + dayCount + "&high_low=false";
         var requestId = requestIdGenerator.incrementAndGet();
         logger.debug("[{}] Calling {}", requestId, url);
-        return RestClients.call(client.newCall(new Request.Builder().url(url).get().build()),
-                                new TypeToken<List<AgilePredictPrices>>() {})
-                          .thenApply(agilePredictPricesList -> {
-                              logger.debug("[{}] Result: {}", requestId, agilePredictPricesList);
-                              return agilePredictPricesList.getFirst().prices();
-                          });
+        return HttpResponseCache.shared()
+                                .call(client, new Request.Builder().url(url).get().build(), new TypeToken<List<AgilePredictPrices>>() {}, CACHE_POLICY)
+                                .thenApply(agilePredictPricesList -> {
+                                    logger.debug("[{}] Result: {}", requestId, agilePredictPricesList);
+                                    return agilePredictPricesList.getFirst().prices();
+                                });
     }
 }
@@ -5,6 +5,9 @@ import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.async.DispatchedConsumer;
 import net.yudichev.jiotty.common.lang.Closeable;
 import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.common.lang.Listeners;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
 import net.yudichev.jiotty.connector.mqtt.Mqtt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -13,9 +16,15 @@ import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
 import java.util.function.Consumer;
+import java.util.function.Function;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -23,25 +32,33 @@ import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static net.yudichev.jiotty.common.lang.Closeable.closeIfNotNull;
+import static net.yudichev.jiotty.common.lang.Locks.inLock;
 
 final class OwnTracksImpl implements OwnTracks {
     private static final Logger logger = LoggerFactory.getLogger(OwnTracksImpl.class);
+    private static final LogSampler updateLogSampler = LogSampling.sampler(logger);
+    private static final int MAX_CACHED_TOPICS = 1024;
 
     private final Mqtt mqtt;
+    private final SharedSubscription<OwnTracksTransition, OwnTracksTransition> transitions;
+    private final SharedSubscription<OwnTracksLocationUpdateOrLwt, OwnTrackLocationUpdate> locationUpdates;
 
     @Inject
     OwnTracksImpl(@Dependency Mqtt mqtt) {
         this.mqtt = checkNotNull(mqtt);
+        transitions = new SharedSubscription<>("owntracks/+/+/event", OwnTracksTransition.class, Optional::of);
+        locationUpdates = new SharedSubscription<>("owntracks/+/+", OwnTracksLocationUpdateOrLwt.class, OwnTracksLocationUpdateOrLwt::asLocationUpdate);
     }
 
     @Override
     public Closeable subscribeToTransitions(Consumer<OwnTracksUpdate<OwnTracksTransition>> handler, Executor executor) {
-        return mqttSubscribe("owntracks/+/+/event", dispatched(parsed(orderProtected(handler), OwnTracksTransition.class), executor));
+        return transitions.subscribe(handler, executor);
     }
 
     @Override
     public Closeable subscribeToLocationUpdates(Consumer<OwnTracksUpdate<OwnTrackLocationUpdate>> handler, Executor executor) {
-        return mqttSubscribe("owntracks/+/+", dispatched(parsed(lwtIgnored(orderProtected(handler)), OwnTracksLocationUpdateOrLwt.class), executor));
+        return locationUpdates.subscribe(handler, executor);
     }
 
     @Override
@@ -50,14 +67,6 @@ final class OwnTracksImpl implements OwnTracks {
                             "{\"_type\":\"cmd\",\"action\":\"reportLocation\"}");
     }
 
-    private Closeable mqttSubscribe(String topic, Consumer<OwnTracksJsonMessage> consumer) {
-        return mqtt.subscribe(topic, (theTopic, data) -> {
-            logger.debug("IN {}: {}", theTopic, data);
-            DeviceKey deviceKey = parseTopic(theTopic);
-            consumer.accept(OwnTracksJsonMessage.of(deviceKey, data));
-        });
-    }
-
     private static DeviceKey parseTopic(String theTopic) {
         String[] topicParts = theTopic.split("/");
         checkState(topicParts.length >= 3,
@@ -65,50 +74,80 @@ final class OwnTracksImpl implements OwnTracks {
         return DeviceKey.of(topicParts[1], topicParts[2]);
     }
 
-    private static Consumer<OwnTracksUpdate<OwnTracksLocationUpdateOrLwt>> lwtIgnored(Consumer<OwnTracksUpdate<OwnTrackLocationUpdate>> handler) {
-        return updateOrLwt -> updateOrLwt.payload().asLocationUpdate().ifPresent(ownTrackLocationUpdate ->
-                                                                                         handler.accept(OwnTracksUpdate.of(updateOrLwt.deviceKey(),
-                                                                                                                           ownTrackLocationUpdate)));
-    }
-
-    private static <T extends HasFixTimestamp> Consumer<OwnTracksUpdate<T>> orderProtected(Consumer<OwnTracksUpdate<T>> delegate) {
-        return new OrderProtectingConsumer<>(delegate);
-    }
-
-    private static <T> Consumer<T> dispatched(Consumer<T> delegate, Executor executor) {
-        return new DispatchedConsumer<>(delegate, executor);
-    }
-
-    private static <T> Consumer<OwnTracksJsonMessage> parsed(Consumer<OwnTracksUpdate<T>> handler, Class<T> type) {
-        return ownTracksJsonMessage -> handler.accept(OwnTracksUpdate.of(ownTracksJsonMessage.deviceKey(), Json.parse(ownTracksJsonMessage.payload(), type)));
-    }
-
     @Retention(RUNTIME)
     @Target({FIELD, PARAMETER, METHOD})
     @BindingAnnotation
     @interface Dependency {
     }
 
-    private static class OrderProtectingConsumer<T extends HasFixTimestamp> implements Consumer<OwnTracksUpdate<T>> {
-        private final Consumer<OwnTracksUpdate<T>> delegate;
-        private final Map<DeviceKey, Long> latestTimestampByDeviceKey = new HashMap<>();
+    /// One MQTT subscription per topic filter, shared by all handlers: each message is parsed and checked for ordering once, and the resulting
+    /// update is then dispatched to every handler on its own executor. The subscription is made on the first handler and dropped with the last.
+    private final class SharedSubscription<M, T extends HasFixTimestamp> {
+        private final String topicFilter;
+        private final Class<M> messageType;
+        private final Function<? super M, Optional<T>> payloadExtractor;
+        private final ConcurrentMap<String, DeviceKey> deviceKeyByTopic = new ConcurrentHashMap<>();
+        private final Lock lock = new ReentrantLock();
+        private final Listeners<OwnTracksUpdate<T>> listeners = new Listeners<>();
+        /// latest in-order update per device, guarded by lock; replayed to handlers that subscribe later, like MQTT does with its topic image
+        private final Map<DeviceKey, OwnTracksUpdate<T>> latestUpdateByDeviceKey = new HashMap<>();
+        private Closeable mqttSubscription;
+
+        SharedSubscription(String topicFilter, Class<M> messageType, Function<? super M, Optional<T>> payloadExtractor) {
+            this.topicFilter = checkNotNull(topicFilter);
+            this.messageType = checkNotNull(messageType);
+            this.payloadExtractor = checkNotNull(payloadExtractor);
+        }
 
-        OrderProtectingConsumer(Consumer<OwnTracksUpdate<T>> delegate) {
-            this.delegate = checkNotNull(delegate);
+        Closeable subscribe(Consumer<OwnTracksUpdate<T>> handler, Executor executor) {
+            Consumer<OwnTracksUpdate<T>> listener = new DispatchedConsumer<>(handler, executor);
+            Closeable listenerRegistration = inLock(lock, () -> {
+                latestUpdateByDeviceKey.values().forEach(listener);
+                Closeable registration = listeners.addListener(listener);
+                if (mqttSubscription == null) {
+                    mqttSubscription = mqtt.subscribeBytes(topicFilter, this::onMessage);
+                }
+                return registration;
+            });
+            return Closeable.idempotent(() -> inLock(lock, () -> {
+                listenerRegistration.close();
+                if (listeners.isEmpty()) {
+                    closeIfNotNull(mqttSubscription);
+                    mqttSubscription = null;
+                    latestUpdateByDeviceKey.clear();
+                }
+            }));
         }
 
-        @Override
-        public void accept(OwnTracksUpdate<T> t) {
-            long timestamp = t.payload().fixTimestampSeconds();
-            latestTimestampByDeviceKey.compute(t.deviceKey(), (ignored, latestTimestamp) -> {
-                if (latestTimestamp == null || timestamp > latestTimestamp) {
-                    latestTimestamp = timestamp;
-                    delegate.accept(t);
+        private void onMessage(String topic, byte[] data) {
+            Optional<T> payload = payloadExtractor.apply(Json.parse(data, messageType));
+            if (payload.isEmpty()) {
+                return;
+            }
+            OwnTracksUpdate<T> update = OwnTracksUpdate.of(deviceKey(topic), payload.get());
+            if (logger.isDebugEnabled() && updateLogSampler.sample()) {
+                logger.debug("IN {}: {}", topic, update);
+            }
+            inLock(lock, () -> {
+                OwnTracksUpdate<T> latestUpdate = latestUpdateByDeviceKey.get(update.deviceKey());
+                if (latestUpdate == null || update.payload().fixTimestampSeconds() > latestUpdate.payload().fixTimestampSeconds()) {
+                    latestUpdateByDeviceKey.put(update.deviceKey(), update);
+                    listeners.notify(update);
                 } else {
-                    logger.debug("Ignoring out-of-order message {}, latest timestamp was {}", t, latestTimestamp);
+                    logger.debug("Ignoring out-of-order message {}, latest timestamp was {}", update, latestUpdate.payload().fixTimestampSeconds());
                 }
-                return latestTimestamp;
             });
         }
+
+        private DeviceKey deviceKey(String topic) {
+            DeviceKey deviceKey = deviceKeyByTopic.get(topic);
+            if (deviceKey == null) {
+                if (deviceKeyByTopic.size() >= MAX_CACHED_TOPICS) {
+                    deviceKeyByTopic.clear();
+                }
+                deviceKey = deviceKeyByTopic.computeIfAbsent(topic, OwnTracksImpl::parseTopic);
+            }
+            return deviceKey;
+        }
     }
 }
@@ -0,0 +1,111 @@
+package net.yudichev.jiotty.connector.owntracks;
+
+import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.connector.mqtt.Mqtt;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Time and allocation per location message delivered to 1, 10 and 50 handlers: [OwnTracksImpl] parsing once and fanning out vs the previous
+/// way of each handler having its own MQTT callback that split the topic, parsed the payload and kept its own ordering map.
+///
+/// `ManualOwnTracksFanOutBenchmarkRunner [messages]`
+final class ManualOwnTracksFanOutBenchmarkRunner {
+    private static final String[] TOPICS = {"owntracks/alice/phone", "owntracks/bob/phone", "owntracks/bob/watch"};
+
+    static void main(String[] args) {
+        int messageCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        byte[][] messages = new byte[messageCount][];
+        for (int i = 0; i < messageCount; i++) {
+            messages[i] = ("{\"batt\":25,\"lon\":-1.32,\"acc\":65,\"p\":100.78,\"vac\":10,\"lat\":1.42,\"t\":\"b\",\"conn\":\"w\",\"tst\":" + (1565556840 + i)
+                           + ",\"alt\":46,\"_type\":\"location\",\"tid\":\"EY\"}").getBytes(UTF_8);
+        }
+
+        var threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 3; round++) {
+            for (int handlerCount : new int[]{1, 10, 50}) {
+                for (boolean shared : new boolean[]{false, true}) {
+                    var mqtt = new DirectMqtt();
+                    var ownTracks = new OwnTracksImpl(mqtt);
+                    long[] checksum = new long[1];
+                    Consumer<OwnTracksUpdate<OwnTrackLocationUpdate>> handler = update -> checksum[0] += update.payload().fixTimestampSeconds();
+                    List<Closeable> subscriptions = new ArrayList<>(handlerCount);
+                    for (int i = 0; i < handlerCount; i++) {
+                        subscriptions.add(shared ? ownTracks.subscribeToLocationUpdates(handler) : perHandlerSubscription(mqtt, handler));
+                    }
+
+                    long allocatedBefore = threadMxBean.getCurrentThreadAllocatedBytes();
+                    long start = System.nanoTime();
+                    for (int i = 0; i < messageCount; i++) {
+                        mqtt.deliver(TOPICS[i % TOPICS.length], messages[i]);
+                    }
+                    long nanos = System.nanoTime() - start;
+                    long allocated = threadMxBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                    subscriptions.forEach(Closeable::close);
+                    System.out.printf("round %d %2d handlers %-11s %9.1f ns/msg %9.1f B/msg (checksum %d)%n",
+                                      round, handlerCount, shared ? "shared" : "per-handler",
+                                      (double) nanos / messageCount, (double) allocated / messageCount, checksum[0]);
+                }
+            }
+        }
+    }
+
+    /// what each subscription used to do on every message
+    private static Closeable perHandlerSubscription(Mqtt mqtt, Consumer<OwnTracksUpdate<OwnTrackLocationUpdate>> handler) {
+        Map<DeviceKey, Long> latestTimestampByDeviceKey = new HashMap<>();
+        return mqtt.subscribe("owntracks/+/+", (topic, data) -> {
+            String[] topicParts = topic.split("/");
+            DeviceKey deviceKey = DeviceKey.of(topicParts[1], topicParts[2]);
+            Json.parse(data, OwnTracksLocationUpdateOrLwt.class).asLocationUpdate().ifPresent(locationUpdate -> {
+                var update = OwnTracksUpdate.of(deviceKey, locationUpdate);
+                latestTimestampByDeviceKey.compute(deviceKey, (_, latestTimestamp) -> {
+                    if (latestTimestamp == null || locationUpdate.fixTimestampSeconds() > latestTimestamp) {
+                        handler.accept(update);
+                        return locationUpdate.fixTimestampSeconds();
+                    }
+                    return latestTimestamp;
+                });
+            });
+        });
+    }
+
+    /// delivers on the calling thread; like the real client, bytes are shared by all subscribers and decoded to a String once per message
+    private static final class DirectMqtt implements Mqtt {
+        private final List<BiConsumer<String, String>> stringCallbacks = new ArrayList<>();
+        private final List<BiConsumer<String, byte[]>> bytesCallbacks = new ArrayList<>();
+
+        @Override
+        public Closeable subscribe(String topicFilter, int qos, BiConsumer<String, String> dataCallback) {
+            stringCallbacks.add(dataCallback);
+            return () -> stringCallbacks.remove(dataCallback);
+        }
+
+        @Override
+        public Closeable subscribeBytes(String topicFilter, int qos, BiConsumer<String, byte[]> dataCallback) {
+            bytesCallbacks.add(dataCallback);
+            return () -> bytesCallbacks.remove(dataCallback);
+        }
+
+        @Override
+        public CompletableFuture<Void> publish(String topic, String message) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        void deliver(String topic, byte[] message) {
+            if (!stringCallbacks.isEmpty()) {
+                String messageString = new String(message, UTF_8);
+                stringCallbacks.forEach(callback -> callback.accept(topic, messageString));
+            }
+            bytesCallbacks.forEach(callback -> callback.accept(topic, message));
+        }
+    }
+}
@@ -0,0 +1,132 @@
+package net.yudichev.jiotty.connector.owntracks;
+
+import net.yudichev.jiotty.common.lang.Closeable;
+import net.yudichev.jiotty.connector.mqtt.Mqtt;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.*;
+
+class OwnTracksImplTest {
+    private static final DeviceKey DEVICE = DeviceKey.of("user", "phone");
+
+    private FakeMqtt mqtt;
+    private OwnTracksImpl ownTracks;
+
+    @BeforeEach
+    void setUp() {
+        mqtt = new FakeMqtt();
+        ownTracks = new OwnTracksImpl(mqtt);
+    }
+
+    @Test
+    void parsesEachMessageOnceForAllHandlers() {
+        List<OwnTracksUpdate<OwnTrackLocationUpdate>> updates1 = new ArrayList<>();
+        List<OwnTracksUpdate<OwnTrackLocationUpdate>> updates2 = new ArrayList<>();
+        ownTracks.subscribeToLocationUpdates(updates1::add);
+        ownTracks.subscribeToLocationUpdates(updates2::add);
+
+        assertThat(mqtt.callbacksByFilter.get("owntracks/+/+"), hasSize(1));
+
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", location(100));
+
+        assertThat(updates1, contains(OwnTracksUpdate.of(DEVICE, locationUpdate(100))));
+        assertThat(updates2.getFirst(), is(sameInstance(updates1.getFirst())));
+    }
+
+    @Test
+    void dropsOutOfOrderUpdatesAndLwt() {
+        List<OwnTracksUpdate<OwnTrackLocationUpdate>> updates = new ArrayList<>();
+        ownTracks.subscribeToLocationUpdates(updates::add);
+
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", location(100));
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", location(90));
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", "{\"tst\":\"110\",\"_type\":\"lwt\"}");
+        mqtt.deliver("owntracks/+/+", "owntracks/user/tablet", location(90));
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", location(110));
+
+        assertThat(updates, contains(OwnTracksUpdate.of(DEVICE, locationUpdate(100)),
+                                     OwnTracksUpdate.of(DeviceKey.of("user", "tablet"), locationUpdate(90)),
+                                     OwnTracksUpdate.of(DEVICE, locationUpdate(110))));
+    }
+
+    @Test
+    void replaysLatestUpdateToLateHandler() {
+        ownTracks.subscribeToLocationUpdates(_ -> {});
+        mqtt.deliver("owntracks/+/+", "owntracks/user/phone", location(100));
+
+        List<OwnTracksUpdate<OwnTrackLocationUpdate>> updates = new ArrayList<>();
+        ownTracks.subscribeToLocationUpdates(updates::add);
+
+        assertThat(updates, contains(OwnTracksUpdate.of(DEVICE, locationUpdate(100))));
+    }
+
+    @Test
+    void unsubscribesFromMqttWithLastHandler() {
+        Closeable subscription1 = ownTracks.subscribeToTransitions(_ -> {});
+        Closeable subscription2 = ownTracks.subscribeToTransitions(_ -> {});
+
+        subscription1.close();
+        assertThat(mqtt.callbacksByFilter.get("owntracks/+/+/event"), hasSize(1));
+
+        subscription2.close();
+        assertThat(mqtt.callbacksByFilter.get("owntracks/+/+/event"), is(empty()));
+    }
+
+    @Test
+    void deliversTransitions() {
+        List<OwnTracksUpdate<OwnTracksTransition>> updates = new ArrayList<>();
+        ownTracks.subscribeToTransitions(updates::add);
+
+        mqtt.deliver("owntracks/+/+/event", "owntracks/user/phone/event",
+                     "{\"_type\":\"transition\",\"lat\":1.42,\"lon\":-1.32,\"tst\":100,\"event\":\"enter\",\"desc\":\"home\"}");
+
+        assertThat(updates, contains(OwnTracksUpdate.of(DEVICE, OwnTracksTransition.builder()
+                                                                                   .setLatitude(1.42)
+                                                                                   .setLongitude(-1.32)
+                                                                                   .setFixTimestampSeconds(100)
+                                                                                   .setEvent("enter")
+                                                                                   .setWaypointName("home")
+                                                                                   .build())));
+    }
+
+    private static String location(long timestamp) {
+        return "{\"_type\":\"location\",\"lat\":1.42,\"lon\":-1.32,\"tst\":" + timestamp + '}';
+    }
+
+    private static OwnTrackLocationUpdate locationUpdate(long timestamp) {
+        return OwnTrackLocationUpdate.builder()
+                                     .setLatitude(1.42)
+                                     .setLongitude(-1.32)
+                                     .setFixTimestampSeconds(timestamp)
+                                     .build();
+    }
+
+    private static final class FakeMqtt implements Mqtt {
+        final Map<String, List<BiConsumer<String, String>>> callbacksByFilter = new ConcurrentHashMap<>();
+
+        @Override
+        public Closeable subscribe(String topicFilter, int qos, BiConsumer<String, String> dataCallback) {
+            List<BiConsumer<String, String>> callbacks = callbacksByFilter.computeIfAbsent(topicFilter, _ -> new ArrayList<>());
+            callbacks.add(dataCallback);
+            return () -> callbacks.remove(dataCallback);
+        }
+
+        @Override
+        public CompletableFuture<Void> publish(String topic, String message) {
+            return CompletableFuture.completedFuture(null);
+        }
+
+        void deliver(String topicFilter, String topic, String message) {
+            callbacksByFilter.get(topicFilter).forEach(callback -> callback.accept(topic, message));
+        }
+    }
+}
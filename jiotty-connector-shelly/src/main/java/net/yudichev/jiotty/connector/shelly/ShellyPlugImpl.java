@@ -6,6 +6,7 @@ import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.async.ExecutorFactory;
 import net.yudichev.jiotty.common.async.SchedulingExecutor;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.async.backoff.RetryableOperationExecutor;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Closeable;
@@ -52,6 +53,8 @@ class ShellyPlugImpl extends BaseLifecycleComponent implements ShellyPlug {
     private final Request requestPowerOff;
     private final Request requestGetStatus;
     private final CurrentDateTimeProvider timeProvider;
+    /// the consumption measurement and other consumers may poll the status at the same time
+    private final SingleFlight<String, SwitchStatus> getStatusFlight = SingleFlight.create("shelly-get-status");
     private OkHttpClient httpClient;
 
     private SchedulingExecutor executor;
@@ -122,8 +125,9 @@ class ShellyPlugImpl extends BaseLifecycleComponent implements ShellyPlug {
     }
 
     private CompletableFuture<SwitchStatus> getSwitchStatus() {
-        return retryableOperationExecutor.withBackOffAndRetry("Shelly-Switch.GetStatus-" + host,
-                                                              () -> call(httpClient.newCall(requestGetStatus), SwitchStatus.class, 0));
+        return getStatusFlight.get(host, () -> retryableOperationExecutor.withBackOffAndRetry(
+                "Shelly-Switch.GetStatus-" + host,
+                () -> call(httpClient.newCall(requestGetStatus), SwitchStatus.class, 0)));
     }
 
     @BindingAnnotation
@@ -5,6 +5,8 @@ import com.google.inject.assistedinject.Assisted;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.lang.Closeable;
 import net.yudichev.jiotty.common.lang.Json;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
 import net.yudichev.jiotty.connector.mqtt.Mqtt;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,10 +20,13 @@ import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
 import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.yudichev.jiotty.common.logging.LogPayloads.abbreviated;
 
 /// Feeds data from the MQTT dispatcher of the [Tesla Fleet Telemetry Server](https://github.com/teslamotors/fleet-telemetry)
 public final class MqttTeslaTelemetry implements TeslaTelemetry {
     private static final Logger logger = LoggerFactory.getLogger(MqttTeslaTelemetry.class);
+    private static final LogSampler metricLogSampler = LogSampling.sampler(logger);
 
     private final Mqtt mqtt;
     private final String vin;
@@ -41,29 +46,36 @@ public final class MqttTeslaTelemetry implements TeslaTelemetry {
     @Override
     public Closeable subscribeToMetrics(Consumer<TelemetryField> listener) {
         logger.debug("subscribing to {}", metricsTopicFilter);
-        return mqtt.subscribe(metricsTopicFilter, 1, (topic, data) -> {
-            //TODO:commerce this logs sensitive data (vin in the topic)
-            logger.debug("received metric: topic={}, data={}", topic, data);
+        // hot path: decode straight from the payload bytes, only build Strings for logging
+        return mqtt.subscribeBytes(metricsTopicFilter, 1, (topic, data) -> {
+            if (logger.isDebugEnabled() && metricLogSampler.sample()) {
+                //TODO:commerce this logs sensitive data (vin in the topic)
+                logger.debug("received metric: topic={}, data={}", topic, abbreviated(data));
+            }
             var idx = topic.lastIndexOf('/');
             if (idx < 0 || idx == topic.length() - 1) {
                 logger.warn("Unexpected topic name: {}", topic); //TODO:commerce this exposes VIN to the log file/alert
                 return;
             }
-            String fieldName = topic.substring(idx + 1);
-            if ("null".equals(data)) {
+            int fieldNameOffset = idx + 1;
+            if (TelemetryFieldDecoder.isJsonNull(data)) {
                 // suspect a bug in fleet-telemetry's mqtt dispatcher; 'null' is valid json
-                logger.debug("field {} has value 'null', ignoring", fieldName);
+                if (logger.isDebugEnabled()) {
+                    logger.debug("field {} has value 'null', ignoring", topic.substring(fieldNameOffset));
+                }
             } else {
                 TelemetryField field;
                 try {
-                    field = TelemetryFieldDecoder.decode(fieldName, data);
+                    field = TelemetryFieldDecoder.decode(topic, fieldNameOffset, data);
                 } catch (RuntimeException e) {
                     //TODO:commerce alert/antispam, also mask VIN
-                    logger.warn("[{}] failed decoding field data {}={}", vin, fieldName, data, e);
+                    logger.warn("[{}] failed decoding field data {}={}", vin, topic.substring(fieldNameOffset), new String(data, UTF_8), e);
                     return;
                 }
                 if (field == null) {
-                    logger.debug("Unsupported field: {}", fieldName);
+                    if (logger.isDebugEnabled()) {
+                        logger.debug("Unsupported field: {}", topic.substring(fieldNameOffset));
+                    }
                     return;
                 }
                 listener.accept(field);
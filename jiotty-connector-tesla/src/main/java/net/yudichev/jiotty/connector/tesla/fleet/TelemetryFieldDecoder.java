@@ -1,8 +1,13 @@
 package net.yudichev.jiotty.connector.tesla.fleet;
 
 import jakarta.annotation.Nullable;
+import net.yudichev.jiotty.common.geo.LatLon;
 import net.yudichev.jiotty.common.lang.Json;
 
+import java.util.function.Function;
+
+import static java.nio.charset.StandardCharsets.US_ASCII;
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TBatteryLevel;
 import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TChargeLimitSoc;
 import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TDetailedChargeState;
@@ -12,27 +17,325 @@ import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.THvacRigh
 import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TInsideTemp;
 import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TLocation;
 
+/// Decodes field values straight from the payload bytes, without intermediate Strings or a JSON tree: enum values are matched against
+/// pre-encoded literals and resolve to shared constants, numbers are parsed in place and the location object is scanned for its two
+/// coordinates.
+///
+/// Anything the byte-level path does not expect (string escapes, numbers too long to parse exactly, unusual location JSON) falls back to
+/// the String/Jackson based decoding, so the results and the failures are the same as before.
 final class TelemetryFieldDecoder {
+    private static final byte[] NULL = "null".getBytes(US_ASCII);
+    private static final byte[] LATITUDE = "latitude".getBytes(US_ASCII);
+    private static final byte[] LONGITUDE = "longitude".getBytes(US_ASCII);
+    private static final double[] POWERS_OF_TEN = {1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11, 1e12, 1e13, 1e14, 1e15, 1e16,
+                                                   1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    /// mantissas below this have at most 15 digits, and are exactly representable as a double
+    private static final long MAX_FAST_PATH_MANTISSA = 1_000_000_000_000_000L;
+    private static final TChargeLimitSoc[] CHARGE_LIMITS = new TChargeLimitSoc[101];
+
+    private static final Literal<THvacPower>[] HVAC_POWERS = literals(
+            new Literal<>("HvacPowerStateOff", THvacPower.OFF),
+            new Literal<>("HvacPowerStateOn", THvacPower.ON),
+            new Literal<>("HvacPowerStatePrecondition", THvacPower.PRECONDITION),
+            new Literal<>("HvacPowerStateOverheatProtect", THvacPower.OVERHEAT_PROTECT));
+    private static final Literal<TDetailedChargeState>[] CHARGE_STATES = literals(
+            new Literal<>("DetailedChargeStateDisconnected", TDetailedChargeState.DISCONNECTED),
+            new Literal<>("DetailedChargeStateNoPower", TDetailedChargeState.NO_POWER),
+            new Literal<>("DetailedChargeStateStarting", TDetailedChargeState.STARTING),
+            new Literal<>("DetailedChargeStateCharging", TDetailedChargeState.CHARGING),
+            new Literal<>("DetailedChargeStateComplete", TDetailedChargeState.COMPLETE),
+            new Literal<>("DetailedChargeStateStopped", TDetailedChargeState.STOPPED));
+
+    private static final FieldDecoder[] FIELD_DECODERS = {
+            new FieldDecoder(TDetailedChargeState.NAME, data -> decodeLiteral(data, CHARGE_STATES, TDetailedChargeState.UNKNOWN,
+                                                                               TDetailedChargeState::decode)),
+            new FieldDecoder(TBatteryLevel.NAME, data -> new TBatteryLevel(decodeDouble(data))),
+            new FieldDecoder(TChargeLimitSoc.NAME, data -> chargeLimitSoc(decodeInt(data))),
+            new FieldDecoder(TLocation.NAME, TelemetryFieldDecoder::decodeLocation),
+            new FieldDecoder(THvacPower.NAME, data -> decodeLiteral(data, HVAC_POWERS, THvacPower.UNKNOWN, THvacPower::decode)),
+            new FieldDecoder(TInsideTemp.NAME, data -> new TInsideTemp(decodeDouble(data))),
+            new FieldDecoder(THvacLeftTemperatureRequest.NAME, data -> new THvacLeftTemperatureRequest(decodeDouble(data))),
+            new FieldDecoder(THvacRightTemperatureRequest.NAME, data -> new THvacRightTemperatureRequest(decodeDouble(data))),
+    };
+
+    static {
+        for (int i = 0; i < CHARGE_LIMITS.length; i++) {
+            CHARGE_LIMITS[i] = new TChargeLimitSoc(i);
+        }
+    }
+
     /// @return `null` if the `fieldName` is unsupported
     public static @Nullable TelemetryField decode(String fieldName, String jsonData) {
-        return switch (fieldName) {
-            case TDetailedChargeState.NAME -> TDetailedChargeState.decode(jsonData);
-            case TBatteryLevel.NAME -> new TBatteryLevel(decodeDouble(jsonData));
-            case TChargeLimitSoc.NAME -> new TChargeLimitSoc(decodeInt(jsonData));
-            case TLocation.NAME -> TLocation.decode(Json.parse(jsonData, TelemetryLocation.class));
-            case THvacPower.NAME -> THvacPower.decode(jsonData);
-            case TInsideTemp.NAME -> new TInsideTemp(decodeDouble(jsonData));
-            case THvacLeftTemperatureRequest.NAME -> new THvacLeftTemperatureRequest(decodeDouble(jsonData));
-            case THvacRightTemperatureRequest.NAME -> new THvacRightTemperatureRequest(decodeDouble(jsonData));
-            default -> null;
-        };
+        return decode(fieldName, 0, jsonData.getBytes(UTF_8));
+    }
+
+    /// @param topic           the field name is the part of the topic starting at `fieldNameOffset`
+    /// @param fieldNameOffset where the field name starts in `topic`
+    /// @return `null` if the field is unsupported
+    public static @Nullable TelemetryField decode(String topic, int fieldNameOffset, byte[] jsonData) {
+        int fieldNameLength = topic.length() - fieldNameOffset;
+        for (FieldDecoder fieldDecoder : FIELD_DECODERS) {
+            if (fieldDecoder.name.length() == fieldNameLength && topic.regionMatches(fieldNameOffset, fieldDecoder.name, 0, fieldNameLength)) {
+                return fieldDecoder.decoder.apply(jsonData);
+            }
+        }
+        return null;
+    }
+
+    public static boolean isJsonNull(byte[] jsonData) {
+        return jsonData.length == NULL.length && regionEquals(jsonData, 0, NULL);
+    }
+
+    private static <T> T decodeLiteral(byte[] data, Literal<T>[] literals, T unknown, Function<String, T> fallback) {
+        int start = skipWhitespace(data, 0, data.length);
+        int end = trimWhitespace(data, start, data.length);
+        if (end - start < 2 || data[start] != '"' || data[end - 1] != '"' || indexOf(data, start + 1, end - 1, (byte) '\\') >= 0) {
+            return fallback.apply(new String(data, UTF_8));
+        }
+        int length = end - start - 2;
+        for (Literal<T> literal : literals) {
+            if (literal.bytes.length == length && regionEquals(data, start + 1, literal.bytes)) {
+                return literal.value;
+            }
+        }
+        return unknown;
+    }
+
+    private static TChargeLimitSoc chargeLimitSoc(int soc) {
+        return soc >= 0 && soc < CHARGE_LIMITS.length ? CHARGE_LIMITS[soc] : new TChargeLimitSoc(soc);
+    }
+
+    private static int decodeInt(byte[] data) {
+        int i = 0;
+        boolean negative = data.length > 0 && data[0] == '-';
+        if (negative) {
+            i++;
+        }
+        // up to 9 digits can't overflow
+        if (i == data.length || data.length - i > 9) {
+            return Integer.parseInt(new String(data, US_ASCII));
+        }
+        int result = 0;
+        for (; i < data.length; i++) {
+            int digit = data[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return Integer.parseInt(new String(data, US_ASCII));
+            }
+            result = result * 10 + digit;
+        }
+        return negative ? -result : result;
+    }
+
+    private static double decodeDouble(byte[] data) {
+        return parseDouble(data, 0, data.length);
+    }
+
+    /// Exact for up to 15 significant digits and decimal exponents within ±22 (the operands and the single multiplication or division are
+    /// then exact or correctly rounded), otherwise delegates to [Double#parseDouble].
+    private static double parseDouble(byte[] data, int start, int end) {
+        int i = start;
+        boolean negative = i < end && data[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long mantissa = 0;
+        int exponent = 0;
+        int digitCount = 0;
+        boolean inFraction = false;
+        for (; i < end; i++) {
+            byte b = data[i];
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                if (mantissa >= MAX_FAST_PATH_MANTISSA) {
+                    return parseDoubleSlowly(data, start, end);
+                }
+                if (inFraction) {
+                    exponent--;
+                }
+                digitCount++;
+            } else if (b == '.' && !inFraction) {
+                inFraction = true;
+            } else {
+                break;
+            }
+        }
+        if (i < end && (data[i] == 'e' || data[i] == 'E')) {
+            i++;
+            boolean negativeExponent = i < end && data[i] == '-';
+            if (i < end && (data[i] == '-' || data[i] == '+')) {
+                i++;
+            }
+            int explicitExponent = 0;
+            int exponentStart = i;
+            for (; i < end && data[i] >= '0' && data[i] <= '9' && i - exponentStart < 3; i++) {
+                explicitExponent = explicitExponent * 10 + (data[i] - '0');
+            }
+            if (i == exponentStart) {
+                return parseDoubleSlowly(data, start, end);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+        if (i != end || digitCount == 0 || exponent < -22 || exponent > 22) {
+            return parseDoubleSlowly(data, start, end);
+        }
+        double value = exponent < 0 ? mantissa / POWERS_OF_TEN[-exponent] : mantissa * POWERS_OF_TEN[exponent];
+        return negative ? -value : value;
     }
 
-    private static int decodeInt(String jsonData) {
-        return Integer.parseInt(jsonData);
+    private static double parseDoubleSlowly(byte[] data, int start, int end) {
+        return Double.parseDouble(new String(data, start, end - start, US_ASCII));
     }
 
-    private static double decodeDouble(String jsonData) {
-        return Double.parseDouble(jsonData);
+    private static TLocation decodeLocation(byte[] data) {
+        double latitude = Double.NaN;
+        double longitude = Double.NaN;
+        int end = data.length;
+        int i = skipWhitespace(data, 0, end);
+        if (i == end || data[i] != '{') {
+            return decodeLocationSlowly(data);
+        }
+        i = skipWhitespace(data, i + 1, end);
+        while (i < end && data[i] != '}') {
+            if (data[i] != '"') {
+                return decodeLocationSlowly(data);
+            }
+            int keyStart = i + 1;
+            int keyEnd = indexOf(data, keyStart, end, (byte) '"');
+            if (keyEnd < 0 || indexOf(data, keyStart, keyEnd, (byte) '\\') >= 0) {
+                return decodeLocationSlowly(data);
+            }
+            i = skipWhitespace(data, keyEnd + 1, end);
+            if (i == end || data[i] != ':') {
+                return decodeLocationSlowly(data);
+            }
+            int valueStart = skipWhitespace(data, i + 1, end);
+            int valueEnd = skipValue(data, valueStart, end);
+            if (valueEnd < 0) {
+                return decodeLocationSlowly(data);
+            }
+            int keyLength = keyEnd - keyStart;
+            boolean isLatitude = keyLength == LATITUDE.length && regionEquals(data, keyStart, LATITUDE);
+            boolean isLongitude = !isLatitude && keyLength == LONGITUDE.length && regionEquals(data, keyStart, LONGITUDE);
+            if (isLatitude || isLongitude) {
+                byte first = data[valueStart];
+                if (first != '-' && (first < '0' || first > '9')) {
+                    // quoted or null coordinates: leave the coercion rules to Jackson
+                    return decodeLocationSlowly(data);
+                }
+                if (isLatitude) {
+                    latitude = parseDouble(data, valueStart, valueEnd);
+                } else {
+                    longitude = parseDouble(data, valueStart, valueEnd);
+                }
+            }
+            i = skipWhitespace(data, valueEnd, end);
+            if (i < end && data[i] == ',') {
+                i = skipWhitespace(data, i + 1, end);
+            }
+        }
+        if (i == end || Double.isNaN(latitude) || Double.isNaN(longitude)) {
+            return decodeLocationSlowly(data);
+        }
+        return new TLocation(new LatLon(latitude, longitude));
     }
+
+    private static TLocation decodeLocationSlowly(byte[] data) {
+        return TLocation.decode(Json.parse(new String(data, UTF_8), TelemetryLocation.class));
+    }
+
+    /// @return the index after the JSON value starting at `start`, or -1 if it can't be skipped reliably
+    private static int skipValue(byte[] data, int start, int end) {
+        if (start == end) {
+            return -1;
+        }
+        byte first = data[start];
+        if (first == '"') {
+            for (int i = start + 1; i < end; i++) {
+                if (data[i] == '\\') {
+                    i++;
+                } else if (data[i] == '"') {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        if (first == '{' || first == '[') {
+            int depth = 0;
+            boolean inString = false;
+            for (int i = start; i < end; i++) {
+                byte b = data[i];
+                if (inString) {
+                    if (b == '\\') {
+                        i++;
+                    } else if (b == '"') {
+                        inString = false;
+                    }
+                } else if (b == '"') {
+                    inString = true;
+                } else if (b == '{' || b == '[') {
+                    depth++;
+                } else if ((b == '}' || b == ']') && --depth == 0) {
+                    return i + 1;
+                }
+            }
+            return -1;
+        }
+        // number or literal
+        int i = start;
+        while (i < end && data[i] != ',' && data[i] != '}' && data[i] != ']' && !isWhitespace(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static boolean regionEquals(byte[] data, int offset, byte[] expected) {
+        for (int i = 0; i < expected.length; i++) {
+            if (data[offset + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] data, int start, int end, byte value) {
+        for (int i = start; i < end; i++) {
+            if (data[i] == value) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static int skipWhitespace(byte[] data, int start, int end) {
+        int i = start;
+        while (i < end && isWhitespace(data[i])) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int trimWhitespace(byte[] data, int start, int end) {
+        int i = end;
+        while (i > start && isWhitespace(data[i - 1])) {
+            i--;
+        }
+        return i;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\n' || b == '\r';
+    }
+
+    @SafeVarargs
+    private static <T> Literal<T>[] literals(Literal<T>... literals) {
+        return literals;
+    }
+
+    private record Literal<T>(byte[] bytes, T value) {
+        Literal(String text, T value) {
+            this(text.getBytes(UTF_8), value);
+        }
+    }
+
+    private record FieldDecoder(String name, Function<byte[], TelemetryField> decoder) {}
 }
@@ -4,6 +4,7 @@ import com.google.common.reflect.TypeToken;
 import com.google.inject.BindingAnnotation;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Closeable;
 import net.yudichev.jiotty.common.lang.Json;
@@ -63,6 +64,8 @@ public final class TeslaFleetImpl extends BaseLifecycleComponent implements Tesl
     private final String telemetryConfigCreateUrl;
     private final String registerPartnerDomainUrl;
     private final @Nullable SslCustomisation sslCustomisation;
+    /// keyed by URL, which includes the VIN and the endpoints; vehicle handles are created per call, so this is shared by all of them
+    private final SingleFlight<String, Optional<VehicleData>> getVehicleDataFlight = SingleFlight.create("tesla-fleet-vehicle-data");
 
     private OkHttpClient httpClient;
     @Nullable
@@ -344,7 +347,7 @@ public final class TeslaFleetImpl extends BaseLifecycleComponent implements Tesl
              */
             // GET vehicle_data
             String url = getDataUrl + "?endpoints=" + URLEncoder.encode(endpoints.stream().map(Endpoint::id).collect(joining(";")), UTF_8);
-            return executeGetForData(url, GET_VEHICLE_DATA_RESPONSE_TYPE);
+            return getVehicleDataFlight.get(url, () -> executeGetForData(url, GET_VEHICLE_DATA_RESPONSE_TYPE));
         }
 
         @Override
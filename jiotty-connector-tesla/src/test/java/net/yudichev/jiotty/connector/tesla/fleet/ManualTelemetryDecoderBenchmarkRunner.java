@@ -0,0 +1,82 @@
+package net.yudichev.jiotty.connector.tesla.fleet;
+
+import net.yudichev.jiotty.common.lang.Json;
+
+import java.lang.management.ManagementFactory;
+import java.util.List;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Decoding throughput and allocation per message of [TelemetryFieldDecoder] vs the previous String/Jackson based decoding, over a mix of
+/// payloads as published by the fleet-telemetry MQTT dispatcher.
+///
+/// `ManualTelemetryDecoderBenchmarkRunner [iterations]`
+final class ManualTelemetryDecoderBenchmarkRunner {
+    private static final String TOPIC_BASE = "telemetry/5YJ3E1EA7KF000000/v/";
+    private static final List<Message> MESSAGES = List.of(
+            new Message("BatteryLevel", "72.53846153846153"),
+            new Message("ChargeLimitSoc", "80"),
+            new Message("DetailedChargeState", "\"DetailedChargeStateCharging\""),
+            new Message("HvacPower", "\"HvacPowerStateOn\""),
+            new Message("InsideTemp", "21.5"),
+            new Message("HvacLeftTemperatureRequest", "20.5"),
+            new Message("HvacRightTemperatureRequest", "20.5"),
+            new Message("Location", "{\"latitude\":51.501364,\"longitude\":-0.14189}"),
+            new Message("Odometer", "12345.6"));
+
+    static void main(String[] args) {
+        int iterations = args.length > 0 ? Integer.parseInt(args[0]) : 2_000_000;
+        var threadMxBean = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        for (int round = 0; round < 3; round++) {
+            for (boolean legacy : new boolean[]{true, false}) {
+                long allocatedBefore = threadMxBean.getCurrentThreadAllocatedBytes();
+                long start = System.nanoTime();
+                long checksum = run(iterations, legacy);
+                long nanos = System.nanoTime() - start;
+                long allocated = threadMxBean.getCurrentThreadAllocatedBytes() - allocatedBefore;
+                System.out.printf("round %d %-22s %7.1f ns/msg %7.1f B/msg (checksum %d)%n",
+                                  round, legacy ? "String + Jackson" : "TelemetryFieldDecoder",
+                                  (double) nanos / iterations, (double) allocated / iterations, checksum);
+            }
+        }
+    }
+
+    private static long run(int iterations, boolean legacy) {
+        long checksum = 0;
+        for (int i = 0; i < iterations; i++) {
+            Message message = MESSAGES.get(i % MESSAGES.size());
+            TelemetryField field = legacy ? decodeLegacy(message.topic, message.payload) : decode(message.topic, message.payload);
+            if (field != null) {
+                checksum += field.hashCode();
+            }
+        }
+        return checksum;
+    }
+
+    private static TelemetryField decode(String topic, byte[] payload) {
+        return TelemetryFieldDecoder.decode(topic, topic.lastIndexOf('/') + 1, payload);
+    }
+
+    /// What `MqttTeslaTelemetry` and `TelemetryFieldDecoder` did before decoding from bytes.
+    private static TelemetryField decodeLegacy(String topic, byte[] payload) {
+        String data = new String(payload, UTF_8);
+        String fieldName = topic.substring(topic.lastIndexOf('/') + 1);
+        return switch (fieldName) {
+            case TelemetryField.TDetailedChargeState.NAME -> TelemetryField.TDetailedChargeState.decode(data);
+            case TelemetryField.TBatteryLevel.NAME -> new TelemetryField.TBatteryLevel(Double.parseDouble(data));
+            case TelemetryField.TChargeLimitSoc.NAME -> new TelemetryField.TChargeLimitSoc(Integer.parseInt(data));
+            case TelemetryField.TLocation.NAME -> TelemetryField.TLocation.decode(Json.parse(data, TelemetryLocation.class));
+            case TelemetryField.THvacPower.NAME -> TelemetryField.THvacPower.decode(data);
+            case TelemetryField.TInsideTemp.NAME -> new TelemetryField.TInsideTemp(Double.parseDouble(data));
+            case TelemetryField.THvacLeftTemperatureRequest.NAME -> new TelemetryField.THvacLeftTemperatureRequest(Double.parseDouble(data));
+            case TelemetryField.THvacRightTemperatureRequest.NAME -> new TelemetryField.THvacRightTemperatureRequest(Double.parseDouble(data));
+            default -> null;
+        };
+    }
+
+    private record Message(String topic, byte[] payload) {
+        Message(String fieldName, String payload) {
+            this(TOPIC_BASE + fieldName, payload.getBytes(UTF_8));
+        }
+    }
+}
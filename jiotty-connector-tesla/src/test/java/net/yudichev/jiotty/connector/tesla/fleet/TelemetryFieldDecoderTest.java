@@ -0,0 +1,85 @@
+package net.yudichev.jiotty.connector.tesla.fleet;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.MethodSource;
+
+import java.util.Random;
+import java.util.stream.Stream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TBatteryLevel;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TChargeLimitSoc;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TDetailedChargeState;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.THvacLeftTemperatureRequest;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.THvacPower;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TInsideTemp;
+import static net.yudichev.jiotty.connector.tesla.fleet.TelemetryField.TLocation;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TelemetryFieldDecoderTest {
+    @Test
+    void decodesEnumsToSharedConstants() {
+        assertThat(TelemetryFieldDecoder.decode("HvacPower", "\"HvacPowerStateOn\"")).isSameAs(THvacPower.ON);
+        assertThat(TelemetryFieldDecoder.decode("HvacPower", " \"HvacPowerStateOverheatProtect\" ")).isSameAs(THvacPower.OVERHEAT_PROTECT);
+        assertThat(TelemetryFieldDecoder.decode("HvacPower", "\"HvacPowerStateSomethingNew\"")).isSameAs(THvacPower.UNKNOWN);
+        assertThat(TelemetryFieldDecoder.decode("DetailedChargeState", "\"DetailedChargeStateCharging\"")).isSameAs(TDetailedChargeState.CHARGING);
+        // escapes go through the full JSON parser
+        assertThat(TelemetryFieldDecoder.decode("DetailedChargeState", "\"DetailedChargeState\\u0043harging\"")).isSameAs(TDetailedChargeState.CHARGING);
+    }
+
+    @Test
+    void decodesNumbers() {
+        assertThat(TelemetryFieldDecoder.decode("BatteryLevel", "72.53")).isEqualTo(new TBatteryLevel(72.53));
+        assertThat(TelemetryFieldDecoder.decode("InsideTemp", "-3.5")).isEqualTo(new TInsideTemp(-3.5));
+        assertThat(TelemetryFieldDecoder.decode("HvacLeftTemperatureRequest", "2.05e1")).isEqualTo(new THvacLeftTemperatureRequest(20.5));
+        assertThat(TelemetryFieldDecoder.decode("ChargeLimitSoc", "80")).isSameAs(TelemetryFieldDecoder.decode("ChargeLimitSoc", "80"));
+        assertThat(TelemetryFieldDecoder.decode("ChargeLimitSoc", "80")).isEqualTo(new TChargeLimitSoc(80));
+        assertThat(TelemetryFieldDecoder.decode("ChargeLimitSoc", "1234")).isEqualTo(new TChargeLimitSoc(1234));
+        assertThatThrownBy(() -> TelemetryFieldDecoder.decode("ChargeLimitSoc", "8x")).isInstanceOf(NumberFormatException.class);
+        assertThatThrownBy(() -> TelemetryFieldDecoder.decode("BatteryLevel", "abc")).isInstanceOf(NumberFormatException.class);
+    }
+
+    @ParameterizedTest
+    @MethodSource
+    void parsesDoublesExactlyLikeDoubleParseDouble(String value) {
+        assertThat(TelemetryFieldDecoder.decode("BatteryLevel", value)).isEqualTo(new TBatteryLevel(Double.parseDouble(value)));
+    }
+
+    static Stream<String> parsesDoublesExactlyLikeDoubleParseDouble() {
+        var random = new Random(42);
+        return Stream.concat(Stream.of("0", "-0", "0.1", "1.", ".5", "123456789012345", "1234567890123456789", "0.30000000000000004",
+                                       "1e22", "1e23", "1E-5", "9007199254740993", "4.9e-324"),
+                             Stream.generate(() -> {
+                                 double value = random.nextDouble() * Math.pow(10, random.nextInt(8) - 2);
+                                 return random.nextBoolean() ? Double.toString(value) : String.format("%." + random.nextInt(10) + "f", value);
+                             }).limit(1000));
+    }
+
+    @Test
+    void decodesLocation() {
+        assertThat(TelemetryFieldDecoder.decode("Location", "{\"latitude\":51.501,\"longitude\":-0.142}"))
+                .isEqualTo(new TLocation(new LatLon(51.501, -0.142)));
+        assertThat(TelemetryFieldDecoder.decode("Location", """
+                                                            { "longitude" : -0.142, "extra": {"a": [1, "}"]}, "latitude": 51.501, "s": "x" }"""))
+                .isEqualTo(new TLocation(new LatLon(51.501, -0.142)));
+        assertThat(TelemetryFieldDecoder.decode("Location", "{\"latitude\":\"51.501\",\"longitude\":-0.142}"))
+                .isEqualTo(new TLocation(new LatLon(51.501, -0.142)));
+    }
+
+    @Test
+    void decodesFieldNameFromTopic() {
+        String topic = "telemetry/VIN/v/HvacPower";
+        assertThat(TelemetryFieldDecoder.decode(topic, topic.lastIndexOf('/') + 1, "\"HvacPowerStateOff\"".getBytes(UTF_8))).isSameAs(THvacPower.OFF);
+        assertThat(TelemetryFieldDecoder.decode(topic, topic.lastIndexOf('/'), "\"HvacPowerStateOff\"".getBytes(UTF_8))).isNull();
+        assertThat(TelemetryFieldDecoder.decode("Odometer", "12")).isNull();
+    }
+
+    @Test
+    void recognisesJsonNull() {
+        assertThat(TelemetryFieldDecoder.isJsonNull("null".getBytes(UTF_8))).isTrue();
+        assertThat(TelemetryFieldDecoder.isJsonNull("\"null\"".getBytes(UTF_8))).isFalse();
+    }
+}
@@ -2,7 +2,6 @@ package net.yudichev.jiotty.connector.tplinksmartplug;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.google.common.collect.ImmutableMap;
-import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import com.google.inject.BindingAnnotation;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.appliance.Appliance;
@@ -14,7 +13,6 @@ import net.yudichev.jiotty.common.async.SchedulingExecutor;
 import net.yudichev.jiotty.common.async.backoff.RetryableOperationExecutor;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.Closeable;
-import okhttp3.Dispatcher;
 import okhttp3.HttpUrl;
 import okhttp3.MediaType;
 import okhttp3.OkHttpClient;
@@ -30,7 +28,6 @@ import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletableFuture;
-import java.util.concurrent.ScheduledExecutorService;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
@@ -40,7 +37,6 @@ import static java.lang.annotation.ElementType.PARAMETER;
 import static java.lang.annotation.RetentionPolicy.RUNTIME;
 import static java.time.Duration.ZERO;
 import static java.time.Duration.ofDays;
-import static java.util.concurrent.Executors.newSingleThreadScheduledExecutor;
 import static net.yudichev.jiotty.appliance.PowerCommand.OFF;
 import static net.yudichev.jiotty.appliance.PowerCommand.ON;
 import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
@@ -52,6 +48,7 @@ import static net.yudichev.jiotty.common.rest.RestClients.getRequiredNode;
 import static net.yudichev.jiotty.common.rest.RestClients.getRequiredNodeInt;
 import static net.yudichev.jiotty.common.rest.RestClients.getRequiredNodeString;
 import static net.yudichev.jiotty.common.rest.RestClients.newClient;
+import static net.yudichev.jiotty.common.rest.RestClients.shutdown;
 import static net.yudichev.jiotty.connector.tplinksmartplug.Bindings.Dependency;
 import static net.yudichev.jiotty.connector.tplinksmartplug.Bindings.Name;
 
@@ -75,7 +72,6 @@ final class CloudTpLinkSmartPlug extends BaseLifecycleComponent implements Appli
     private SchedulingExecutor executor;
     private CompletableFuture<String> tokenFuture;
     private Closeable tokenRefreshSchedule = noop();
-    private ScheduledExecutorService clientExecutor;
 
     @Inject
     CloudTpLinkSmartPlug(@Username String username,
@@ -117,18 +113,14 @@ final class CloudTpLinkSmartPlug extends BaseLifecycleComponent implements Appli
 
     @Override
     protected void doStart() {
-        clientExecutor = newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
-                                                                  .setNameFormat(name + "-%d")
-                                                                  .setDaemon(true)
-                                                                  .build());
-        httpClient = newClient(builder -> builder.dispatcher(new Dispatcher(clientExecutor)));
+        httpClient = newClient();
         executor = executorFactory.createSingleThreadedSchedulingExecutor("tp-link-plug-" + name);
         tokenRefreshSchedule = executor.scheduleAtFixedRate(ZERO, TOKEN_REFRESH_PERIOD, this::refreshToken);
     }
 
     @Override
     protected void doStop() {
-        closeSafelyIfNotNull(logger, tokenRefreshSchedule, executor, clientExecutor);
+        closeSafelyIfNotNull(logger, tokenRefreshSchedule, executor, () -> shutdown(httpClient));
     }
 
     private void refreshToken() {
@@ -0,0 +1,65 @@
+package net.yudichev.jiotty.connector.world.sun;
+
+import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.geo.LatLon;
+import net.yudichev.jiotty.common.time.CurrentDateTimeProvider;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.concurrent.CompletableFuture;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.time.ZoneOffset.UTC;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.ASTRONOMICAL_TWILIGHT_ELEVATION;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.CIVIL_TWILIGHT_ELEVATION;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.NAUTICAL_TWILIGHT_ELEVATION;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.SUNRISE_SUNSET_ELEVATION;
+
+/// Computes the times with [SolarCalculator] for the current UTC date, the same day sunrise-sunset.org reports for. As with sunrise-sunset.org,
+/// an event that does not happen on that day (e.g. astronomical twilight in summer at high latitudes) is reported as
+/// `1970-01-01T00:00:01Z`.
+final class LocalSunriseSunsetTimes implements SunriseSunsetTimes {
+    private static final Instant NO_EVENT = Instant.ofEpochSecond(1);
+
+    private final CurrentDateTimeProvider timeProvider;
+
+    @Inject
+    LocalSunriseSunsetTimes(CurrentDateTimeProvider timeProvider) {
+        this.timeProvider = checkNotNull(timeProvider);
+    }
+
+    @Override
+    public CompletableFuture<SunriseSunsetData> getCurrentSunriseSunset(LatLon worldCoordinates) {
+        LocalDate date = LocalDate.ofInstant(timeProvider.currentInstant(), UTC);
+        Instant sunrise = rise(worldCoordinates, date, SUNRISE_SUNSET_ELEVATION);
+        Instant sunset = set(worldCoordinates, date, SUNRISE_SUNSET_ELEVATION);
+        int dayLengthSeconds;
+        if (sunrise != NO_EVENT && sunset != NO_EVENT) {
+            dayLengthSeconds = Math.toIntExact(Duration.between(sunrise, sunset).toSeconds());
+        } else {
+            boolean polarDay = SolarCalculator.elevation(worldCoordinates, SolarCalculator.solarNoon(worldCoordinates, date)) > SUNRISE_SUNSET_ELEVATION;
+            dayLengthSeconds = polarDay ? Math.toIntExact(Duration.ofDays(1).toSeconds()) : 0;
+        }
+        return CompletableFuture.completedFuture(SunriseSunsetData.builder()
+                                                                  .setSunrise(sunrise)
+                                                                  .setSunset(sunset)
+                                                                  .setSolarNoon(SolarCalculator.solarNoon(worldCoordinates, date))
+                                                                  .setDayLengthSeconds(dayLengthSeconds)
+                                                                  .setCivilTwilightBegin(rise(worldCoordinates, date, CIVIL_TWILIGHT_ELEVATION))
+                                                                  .setCivilTwilightEnd(set(worldCoordinates, date, CIVIL_TWILIGHT_ELEVATION))
+                                                                  .setNauticalTwilightBegin(rise(worldCoordinates, date, NAUTICAL_TWILIGHT_ELEVATION))
+                                                                  .setNauticalTwilightEnd(set(worldCoordinates, date, NAUTICAL_TWILIGHT_ELEVATION))
+                                                                  .setAstronomicalTwilightBegin(rise(worldCoordinates, date, ASTRONOMICAL_TWILIGHT_ELEVATION))
+                                                                  .setAstronomicalTwilightEnd(set(worldCoordinates, date, ASTRONOMICAL_TWILIGHT_ELEVATION))
+                                                                  .build());
+    }
+
+    private static Instant rise(LatLon coordinates, LocalDate date, double elevation) {
+        return SolarCalculator.rise(coordinates, date, elevation).orElse(NO_EVENT);
+    }
+
+    private static Instant set(LatLon coordinates, LocalDate date, double elevation) {
+        return SolarCalculator.set(coordinates, date, elevation).orElse(NO_EVENT);
+    }
+}
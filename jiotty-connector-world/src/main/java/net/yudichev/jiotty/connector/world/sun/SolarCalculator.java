@@ -0,0 +1,154 @@
+package net.yudichev.jiotty.connector.world.sun;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static java.lang.Math.acos;
+import static java.lang.Math.asin;
+import static java.lang.Math.cos;
+import static java.lang.Math.sin;
+import static java.lang.Math.tan;
+import static java.lang.Math.toDegrees;
+import static java.lang.Math.toRadians;
+
+/// Offline sun position and rise/set times, using the NOAA solar calculator equations (accurate to about a minute for latitudes within ±72°).
+///
+/// Sun declination and the equation of time only depend on time, not on location, so they are computed once per UTC day into a shared table,
+/// and interpolated from there; each rise/set computation for a location is then a handful of trigonometric operations.
+///
+/// Elevations are in degrees, with atmospheric refraction already accounted for in the thresholds below.
+public final class SolarCalculator {
+    /// apparent sunrise/sunset: upper limb of the sun touching the horizon
+    public static final double SUNRISE_SUNSET_ELEVATION = -0.833;
+    public static final double CIVIL_TWILIGHT_ELEVATION = -6;
+    public static final double NAUTICAL_TWILIGHT_ELEVATION = -12;
+    public static final double ASTRONOMICAL_TWILIGHT_ELEVATION = -18;
+
+    private static final long SECONDS_PER_DAY = 86_400;
+    /// rise/set may not happen for up to half a year near the poles
+    private static final int MAX_DAYS_TO_SEARCH = 370;
+    private static final int MAX_CACHED_DAYS = 1024;
+    /// epoch day -> {declination (radians), equation of time (minutes)} at 00:00 UTC of that day
+    private static final ConcurrentMap<Long, double[]> dayTable = new ConcurrentHashMap<>();
+
+    private SolarCalculator() {
+    }
+
+    /// @return elevation of the centre of the sun above the horizon at the given time, in degrees, not corrected for refraction
+    public static double elevation(LatLon coordinates, Instant instant) {
+        double epochSeconds = instant.getEpochSecond() + instant.getNano() / 1e9;
+        double declination = interpolated(epochSeconds, 0);
+        double equationOfTimeMin = interpolated(epochSeconds, 1);
+        double minutesOfDay = Math.floorMod(instant.getEpochSecond(), SECONDS_PER_DAY) / 60.0;
+        double hourAngle = toRadians((minutesOfDay + equationOfTimeMin + 4 * coordinates.lon()) / 4 - 180);
+        double lat = toRadians(coordinates.lat());
+        return toDegrees(asin(sin(lat) * sin(declination) + cos(lat) * cos(declination) * cos(hourAngle)));
+    }
+
+    /// @return time of the sun's highest point on the solar day centred around noon UTC of the given date, adjusted by longitude
+    public static Instant solarNoon(LatLon coordinates, LocalDate utcDate) {
+        long dayStart = utcDate.toEpochDay() * SECONDS_PER_DAY;
+        double noonMin = 720 - 4 * coordinates.lon() - dayTableEntry(utcDate.toEpochDay())[1];
+        for (int i = 0; i < 2; i++) {
+            noonMin = 720 - 4 * coordinates.lon() - interpolated(dayStart + noonMin * 60, 1);
+        }
+        return toInstant(dayStart, noonMin);
+    }
+
+    /// @return when the sun rises through the given elevation on the solar day of [#solarNoon], or empty if it does not
+    public static Optional<Instant> rise(LatLon coordinates, LocalDate utcDate, double elevationDegrees) {
+        return crossing(coordinates, utcDate, elevationDegrees, true);
+    }
+
+    /// @return when the sun sets through the given elevation on the solar day of [#solarNoon], or empty if it does not
+    public static Optional<Instant> set(LatLon coordinates, LocalDate utcDate, double elevationDegrees) {
+        return crossing(coordinates, utcDate, elevationDegrees, false);
+    }
+
+    /// @return the first time strictly after `after` that the sun rises (if `rising`) or sets through the given elevation, or empty if that
+    /// does not happen within a year
+    public static Optional<Instant> nextCrossing(LatLon coordinates, Instant after, double elevationDegrees, boolean rising) {
+        LocalDate date = LocalDate.ofEpochDay(Math.floorDiv(after.getEpochSecond(), SECONDS_PER_DAY) - 1);
+        for (int i = 0; i < MAX_DAYS_TO_SEARCH; i++, date = date.plusDays(1)) {
+            Optional<Instant> crossing = crossing(coordinates, date, elevationDegrees, rising);
+            if (crossing.isPresent() && crossing.get().isAfter(after)) {
+                return crossing;
+            }
+        }
+        return Optional.empty();
+    }
+
+    private static Optional<Instant> crossing(LatLon coordinates, LocalDate utcDate, double elevationDegrees, boolean rising) {
+        long dayStart = utcDate.toEpochDay() * SECONDS_PER_DAY;
+        double lat = toRadians(coordinates.lat());
+        double sinElevation = sin(toRadians(elevationDegrees));
+        // start from noon, then refine with declination and equation of time at the estimated crossing time
+        double crossingMin = 720 - 4 * coordinates.lon() - dayTableEntry(utcDate.toEpochDay())[1];
+        for (int i = 0; i < 3; i++) {
+            double epochSeconds = dayStart + crossingMin * 60;
+            double declination = interpolated(epochSeconds, 0);
+            double cosHourAngle = (sinElevation - sin(lat) * sin(declination)) / (cos(lat) * cos(declination));
+            if (cosHourAngle > 1 || cosHourAngle < -1) {
+                return Optional.empty();
+            }
+            double hourAngleDegrees = toDegrees(acos(cosHourAngle));
+            double noonMin = 720 - 4 * coordinates.lon() - interpolated(epochSeconds, 1);
+            crossingMin = rising ? noonMin - 4 * hourAngleDegrees : noonMin + 4 * hourAngleDegrees;
+        }
+        return Optional.of(toInstant(dayStart, crossingMin));
+    }
+
+    private static Instant toInstant(long dayStartEpochSeconds, double minutes) {
+        return Instant.ofEpochSecond(dayStartEpochSeconds + Math.round(minutes * 60));
+    }
+
+    private static double interpolated(double epochSeconds, int parameter) {
+        long epochDay = (long) Math.floor(epochSeconds / SECONDS_PER_DAY);
+        double fraction = epochSeconds / SECONDS_PER_DAY - epochDay;
+        double start = dayTableEntry(epochDay)[parameter];
+        return start + (dayTableEntry(epochDay + 1)[parameter] - start) * fraction;
+    }
+
+    private static double[] dayTableEntry(long epochDay) {
+        double[] entry = dayTable.get(epochDay);
+        if (entry == null) {
+            if (dayTable.size() >= MAX_CACHED_DAYS) {
+                dayTable.clear();
+            }
+            entry = dayTable.computeIfAbsent(epochDay, SolarCalculator::computeDayTableEntry);
+        }
+        return entry;
+    }
+
+    private static double[] computeDayTableEntry(long epochDay) {
+        // Julian centuries since J2000.0
+        double t = (epochDay + 2440587.5 - 2451545.0) / 36525.0;
+
+        double geomMeanLongSun = toRadians((280.46646 + t * (36000.76983 + t * 0.0003032)) % 360);
+        double geomMeanAnomSun = toRadians(357.52911 + t * (35999.05029 - 0.0001537 * t));
+        double eccentEarthOrbit = 0.016708634 - t * (0.000042037 + 0.0000001267 * t);
+        double sunEqOfCtr = toRadians(sin(geomMeanAnomSun) * (1.914602 - t * (0.004817 + 0.000014 * t))
+                                      + sin(2 * geomMeanAnomSun) * (0.019993 - 0.000101 * t)
+                                      + sin(3 * geomMeanAnomSun) * 0.000289);
+        double sunTrueLong = geomMeanLongSun + sunEqOfCtr;
+        double omega = toRadians(125.04 - 1934.136 * t);
+        double sunAppLong = sunTrueLong - toRadians(0.00569 + 0.00478 * sin(omega));
+        double meanObliqEcliptic = 23 + (26 + (21.448 - t * (46.815 + t * (0.00059 - t * 0.001813))) / 60) / 60;
+        double obliqCorr = toRadians(meanObliqEcliptic + 0.00256 * cos(omega));
+
+        double declination = asin(sin(obliqCorr) * sin(sunAppLong));
+
+        double y = tan(obliqCorr / 2) * tan(obliqCorr / 2);
+        double equationOfTimeMin = 4 * toDegrees(y * sin(2 * geomMeanLongSun)
+                                                 - 2 * eccentEarthOrbit * sin(geomMeanAnomSun)
+                                                 + 4 * eccentEarthOrbit * y * sin(geomMeanAnomSun) * cos(2 * geomMeanLongSun)
+                                                 - 0.5 * y * y * sin(4 * geomMeanLongSun)
+                                                 - 1.25 * eccentEarthOrbit * eccentEarthOrbit * sin(2 * geomMeanAnomSun));
+        return new double[]{declination, equationOfTimeMin};
+    }
+}
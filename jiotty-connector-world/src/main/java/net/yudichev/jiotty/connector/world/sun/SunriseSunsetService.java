@@ -5,9 +5,25 @@ import net.yudichev.jiotty.common.lang.Closeable;
 
 import java.util.concurrent.Executor;
 
-/// Courtesy of sunrise-sunset.org.
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.SUNRISE_SUNSET_ELEVATION;
+
+/// Sun transitions at a location, computed locally by [SolarCalculator]; handlers fire at the exact transition time.
 public interface SunriseSunsetService extends LifecycleComponent {
-    Closeable onEverySunrise(Runnable action, Executor executor);
+    /// Runs the action on every sunrise, and immediately if the sun is up now.
+    default Closeable onEverySunrise(Runnable action, Executor executor) {
+        return onEverySunRiseAbove(SUNRISE_SUNSET_ELEVATION, action, executor);
+    }
+
+    /// Runs the action on every sunset, and immediately if the sun is down now.
+    default Closeable onEverySunset(Runnable action, Executor executor) {
+        return onEverySunSetBelow(SUNRISE_SUNSET_ELEVATION, action, executor);
+    }
+
+    /// Runs the action every time the sun rises above the given elevation, and immediately if it is above it now. See [SolarCalculator] for
+    /// the twilight elevations.
+    Closeable onEverySunRiseAbove(double elevationDegrees, Runnable action, Executor executor);
 
-    Closeable onEverySunset(Runnable action, Executor executor);
+    /// Runs the action every time the sun sets below the given elevation, and immediately if it is below it now. See [SolarCalculator] for
+    /// the twilight elevations.
+    Closeable onEverySunSetBelow(double elevationDegrees, Runnable action, Executor executor);
 }
@@ -13,82 +13,73 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
-import java.time.LocalTime;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
 import java.util.concurrent.Executor;
 import java.util.concurrent.locks.Lock;
 import java.util.concurrent.locks.ReentrantLock;
 
 import static com.google.common.base.Preconditions.checkNotNull;
-import static java.time.ZoneOffset.UTC;
-import static java.util.concurrent.TimeUnit.SECONDS;
 import static net.yudichev.jiotty.common.lang.Closeable.closeIfNotNull;
 import static net.yudichev.jiotty.common.lang.Locks.inLock;
-import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
 
 final class SunriseSunsetServiceImpl extends BaseLifecycleComponent implements SunriseSunsetService {
     private static final Logger logger = LoggerFactory.getLogger(SunriseSunsetServiceImpl.class);
 
     private final ExecutorFactory executorFactory;
-    private final SunriseSunsetTimes sunriseSunsetTimes;
     private final CurrentDateTimeProvider currentDateTimeProvider;
     private final LatLon coordinates;
-    private final CompositeRunnable sunsetHandlers = new CompositeRunnable();
-    private final CompositeRunnable sunriseHandlers = new CompositeRunnable();
     private final Lock lock = new ReentrantLock();
+    private final Map<Double, Threshold> thresholdsByElevation = new HashMap<>();
 
     private SchedulingExecutor executor;
-    private SunriseSunsetData currentSsData;
-    private boolean sunIsUp;
 
     @Inject
     SunriseSunsetServiceImpl(ExecutorFactory executorFactory,
-                             SunriseSunsetTimes sunriseSunsetTimes,
                              CurrentDateTimeProvider currentDateTimeProvider,
                              @Assisted LatLon coordinates) {
         this.executorFactory = checkNotNull(executorFactory);
-        this.sunriseSunsetTimes = checkNotNull(sunriseSunsetTimes);
         this.currentDateTimeProvider = checkNotNull(currentDateTimeProvider);
         this.coordinates = checkNotNull(coordinates);
     }
 
     @Override
-    public Closeable onEverySunrise(Runnable action, Executor executor) {
+    public Closeable onEverySunRiseAbove(double elevationDegrees, Runnable action, Executor executor) {
         checkStarted();
         Runnable dispatchedAction = executedBy(action, executor);
         return inLock(lock, () -> {
-            if (sunIsUp) {
+            Threshold threshold = threshold(elevationDegrees);
+            if (threshold.sunIsAbove) {
                 dispatchedAction.run();
             }
-            return sunriseHandlers.add(dispatchedAction);
+            return threshold.riseHandlers.add(dispatchedAction);
         });
     }
 
     @Override
-    public Closeable onEverySunset(Runnable action, Executor executor) {
+    public Closeable onEverySunSetBelow(double elevationDegrees, Runnable action, Executor executor) {
         checkStarted();
         Runnable dispatchedAction = executedBy(action, executor);
         return inLock(lock, () -> {
-            if (!sunIsUp) {
+            Threshold threshold = threshold(elevationDegrees);
+            if (!threshold.sunIsAbove) {
                 dispatchedAction.run();
             }
-            return sunsetHandlers.add(dispatchedAction);
+            return threshold.setHandlers.add(dispatchedAction);
         });
     }
 
     @Override
     protected void doStart() {
         executor = executorFactory.createSingleThreadedSchedulingExecutor("sunrise-sunset-service");
-        SunriseSunsetData ssData = getAsUnchecked(() -> sunriseSunsetTimes.getCurrentSunriseSunset(coordinates).get(5, SECONDS));
-        inLock(lock, () -> {
-            currentSsData = ssData;
-            sunIsUp = calculateSunIsUp();
-        });
-        executor.scheduleAtFixedRate(Duration.ZERO, Duration.ofDays(1), this::onTimesRefresh);
-        executor.scheduleAtFixedRate(Duration.ofMinutes(7), this::onRefresh);
+        inLock(lock, () -> thresholdsByElevation.values().forEach(Threshold::arm));
     }
 
     @Override
     protected void doStop() {
+        inLock(lock, () -> thresholdsByElevation.values().forEach(Threshold::disarm));
         closeIfNotNull(executor);
     }
 
@@ -96,56 +87,78 @@ final class SunriseSunsetServiceImpl extends BaseLifecycleComponent implements S
         return () -> executor.execute(action);
     }
 
-    private void onRefresh() {
-        inLock(lock, () -> {
-            boolean newSunIsUp = calculateSunIsUp();
-            try {
-                if (!sunIsUp && newSunIsUp) {
-                    sunriseHandlers.run();
-                } else if (sunIsUp && !newSunIsUp) {
-                    sunsetHandlers.run();
-                }
-            } finally {
-                sunIsUp = newSunIsUp;
-            }
+    private Threshold threshold(double elevationDegrees) {
+        return thresholdsByElevation.computeIfAbsent(elevationDegrees, elevation -> {
+            var threshold = new Threshold(elevation);
+            threshold.arm();
+            return threshold;
         });
     }
 
-    private boolean calculateSunIsUp() {
-        LocalTime localTime = currentDateTimeProvider.currentInstant().atZone(UTC).toLocalTime();
-        LocalTime sunriseTime = currentSsData.sunrise().atZone(UTC).toLocalTime();
-        LocalTime sunsetTime = currentSsData.sunset().atZone(UTC).toLocalTime();
+    /// Guarded by [#lock].
+    private final class Threshold {
+        final double elevation;
+        final CompositeRunnable riseHandlers = new CompositeRunnable();
+        final CompositeRunnable setHandlers = new CompositeRunnable();
+        boolean sunIsAbove;
+        Closeable timer;
+        /// changes whenever the threshold is armed or disarmed, so that a crossing that was already due by then is ignored
+        int generation;
+
+        Threshold(double elevation) {
+            this.elevation = elevation;
+        }
 
-        return isBetween(localTime, sunriseTime, sunsetTime);
-    }
+        void arm() {
+            Instant now = currentDateTimeProvider.currentInstant();
+            Optional<Instant> nextRise = SolarCalculator.nextCrossing(coordinates, now, elevation, true);
+            Optional<Instant> nextSet = SolarCalculator.nextCrossing(coordinates, now, elevation, false);
+            // derive the current state from the upcoming crossings rather than from the current elevation, so that they agree
+            if (nextRise.isPresent() && nextSet.isPresent()) {
+                sunIsAbove = nextSet.get().isBefore(nextRise.get());
+            } else if (nextRise.isPresent() || nextSet.isPresent()) {
+                sunIsAbove = nextSet.isPresent();
+            } else {
+                sunIsAbove = SolarCalculator.elevation(coordinates, now) > elevation;
+            }
+            generation++;
+            scheduleNextCrossing(now);
+        }
 
-    private void onTimesRefresh() {
-        whenStartedAndNotLifecycling(() -> {
-            sunriseSunsetTimes.getCurrentSunriseSunset(coordinates)
-                              .whenCompleteAsync((sunriseSunsetData, e) -> {
-                                  if (e != null) {
-                                      logger.error("Unable to get current SS times, will retry in 5 minutes", e);
-                                      whenStartedAndNotLifecycling(() -> executor.schedule(Duration.ofMinutes(5), this::onTimesRefresh));
-                                  } else {
-                                      logger.debug("Refreshed SS data: {}", sunriseSunsetData);
-                                      inLock(lock, () -> {
-                                          currentSsData = sunriseSunsetData;
-                                          onRefresh();
-                                      });
-                                  }
-                              }, executor);
-        });
-    }
+        void disarm() {
+            generation++;
+            closeIfNotNull(timer);
+            timer = null;
+        }
 
-    private static boolean isBetween(LocalTime checkLocalTime, LocalTime startLocalTime, LocalTime endLocalTime) {
-        boolean inBetween = false;
-        if (endLocalTime.isAfter(startLocalTime)) {
-            if (startLocalTime.isBefore(checkLocalTime) && endLocalTime.isAfter(checkLocalTime)) {
-                inBetween = true;
-            }
-        } else if (checkLocalTime.isAfter(startLocalTime) || checkLocalTime.isBefore(endLocalTime)) {
-            inBetween = true;
+        private void scheduleNextCrossing(Instant after) {
+            int scheduledGeneration = generation;
+            SolarCalculator.nextCrossing(coordinates, after, elevation, !sunIsAbove).ifPresentOrElse(
+                    crossing -> {
+                        logger.debug("{}: sun is {} {}°, next crossing at {}", coordinates, sunIsAbove ? "above" : "below", elevation, crossing);
+                        Duration delay = Duration.between(currentDateTimeProvider.currentInstant(), crossing);
+                        timer = executor.schedule(delay.isNegative() ? Duration.ZERO : delay, () -> onCrossing(crossing, scheduledGeneration));
+                    },
+                    () -> logger.info("{}: sun is {} {}° and will not cross it within a year", coordinates, sunIsAbove ? "above" : "below", elevation));
+        }
+
+        private void onCrossing(Instant crossing, int scheduledGeneration) {
+            inLock(lock, () -> {
+                if (scheduledGeneration != generation) {
+                    logger.debug("{}: ignoring crossing of {}° at {} as the threshold was disarmed", coordinates, elevation, crossing);
+                    return;
+                }
+                sunIsAbove = !sunIsAbove;
+                try {
+                    if (sunIsAbove) {
+                        riseHandlers.run();
+                    } else {
+                        setHandlers.run();
+                    }
+                } finally {
+                    scheduleNextCrossing(crossing);
+                }
+            });
         }
-        return inBetween;
     }
 }
@@ -1,18 +1,24 @@
 package net.yudichev.jiotty.connector.world.sun;
 
+import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.geo.LatLon;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.rest.HttpCachePolicy;
+import net.yudichev.jiotty.common.rest.HttpResponseCache;
+import net.yudichev.jiotty.common.time.CurrentDateTimeProvider;
 import okhttp3.OkHttpClient;
 import okhttp3.Request;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.concurrent.CompletableFuture;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.time.ZoneOffset.UTC;
 import static net.yudichev.jiotty.common.lang.Closeable.closeSafelyIfNotNull;
-import static net.yudichev.jiotty.common.rest.RestClients.call;
 import static net.yudichev.jiotty.common.rest.RestClients.newClient;
 import static net.yudichev.jiotty.common.rest.RestClients.shutdown;
 import static okhttp3.HttpUrl.parse;
@@ -21,9 +27,18 @@ final class SunriseSunsetTimesImpl extends BaseLifecycleComponent implements Sun
     private static final Logger logger = LoggerFactory.getLogger(SunriseSunsetTimesImpl.class);
 
     private static final String API_URL = "https://api.sunrise-sunset.org/json";
+    /// the times of a given date do not change, and the date is part of the request, so the cached response of one day is never served for
+    /// another
+    private static final HttpCachePolicy CACHE_POLICY = HttpCachePolicy.of("sunrise-sunset", Duration.ofDays(1));
 
+    private final CurrentDateTimeProvider timeProvider;
     private OkHttpClient client;
 
+    @Inject
+    SunriseSunsetTimesImpl(CurrentDateTimeProvider timeProvider) {
+        this.timeProvider = checkNotNull(timeProvider);
+    }
+
     @Override
     protected void doStart() {
         client = newClient();
@@ -36,15 +51,20 @@ final class SunriseSunsetTimesImpl extends BaseLifecycleComponent implements Sun
 
     @Override
     public CompletableFuture<SunriseSunsetData> getCurrentSunriseSunset(LatLon worldCoordinates) {
-        return whenStartedAndNotLifecycling(() -> call(client.newCall(
+        return whenStartedAndNotLifecycling(() -> HttpResponseCache.shared().call(
+                client,
                 new Request.Builder()
                         .url(checkNotNull(parse(API_URL)).newBuilder()
                                                          .addQueryParameter("lat", Double.toString(worldCoordinates.lat()))
                                                          .addQueryParameter("lng", Double.toString(worldCoordinates.lon()))
+                                                         // the current UTC date, which the API defaults to
+                                                         .addQueryParameter("date", LocalDate.ofInstant(timeProvider.currentInstant(), UTC).toString())
                                                          .addQueryParameter("formatted", "0")
                                                          .build())
                         .get()
-                        .build()), SunriseSunsetResponse.class)
+                        .build(),
+                SunriseSunsetResponse.class,
+                CACHE_POLICY)
                 .thenApply(sunriseSunsetResponse -> {
                     checkState("OK".equals(sunriseSunsetResponse.status()), "status not OK in response %s", sunriseSunsetResponse);
                     checkState(sunriseSunsetResponse.results().isPresent(), "no results in response %s", sunriseSunsetResponse);
@@ -6,7 +6,10 @@ import net.yudichev.jiotty.common.lang.TypedBuilder;
 
 // TODO add HasWithAnnotation to all jiotty modules
 public final class SunriseSunsetTimesModule extends BaseLifecycleComponentModule implements ExposedKeyModule<SunriseSunsetTimes> {
-    private SunriseSunsetTimesModule() {
+    private final boolean local;
+
+    private SunriseSunsetTimesModule(boolean local) {
+        this.local = local;
     }
 
     public static Builder builder() {
@@ -15,14 +18,26 @@ public final class SunriseSunsetTimesModule extends BaseLifecycleComponentModule
 
     @Override
     protected void configure() {
-        bind(getExposedKey()).to(registerLifecycleComponent(SunriseSunsetTimesImpl.class));
+        if (local) {
+            bind(getExposedKey()).to(LocalSunriseSunsetTimes.class);
+        } else {
+            bind(getExposedKey()).to(registerLifecycleComponent(SunriseSunsetTimesImpl.class));
+        }
         expose(getExposedKey());
     }
 
     public static class Builder implements TypedBuilder<ExposedKeyModule<SunriseSunsetTimes>> {
+        private boolean local;
+
+        /// Compute the times locally with [SolarCalculator] instead of calling sunrise-sunset.org.
+        public Builder withLocalCalculation() {
+            local = true;
+            return this;
+        }
+
         @Override
         public ExposedKeyModule<SunriseSunsetTimes> build() {
-            return new SunriseSunsetTimesModule();
+            return new SunriseSunsetTimesModule(local);
         }
     }
 }
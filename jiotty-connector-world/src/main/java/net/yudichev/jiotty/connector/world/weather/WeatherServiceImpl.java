@@ -3,8 +3,11 @@ package net.yudichev.jiotty.connector.world.weather;
 import com.google.common.collect.ImmutableList;
 import com.google.inject.BindingAnnotation;
 import jakarta.inject.Inject;
+import net.yudichev.jiotty.common.async.SingleFlight;
 import net.yudichev.jiotty.common.geo.LatLon;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
+import net.yudichev.jiotty.common.rest.HttpCachePolicy;
+import net.yudichev.jiotty.common.rest.HttpResponseCache;
 import net.yudichev.jiotty.common.time.CurrentDateTimeProvider;
 import okhttp3.HttpUrl;
 import okhttp3.OkHttpClient;
@@ -38,7 +41,13 @@ final class WeatherServiceImpl extends BaseLifecycleComponent implements Weather
     private static final Logger logger = LoggerFactory.getLogger(WeatherServiceImpl.class);
 
     private static final String API_BASE = "https://api.weatherapi.com/v1";
+    /// the forecast is updated a few times an hour at most
+    private static final HttpCachePolicy FORECAST_CACHE_POLICY = HttpCachePolicy.of("weatherapi-forecast", Duration.ofMinutes(15))
+                                                                                 .withStaleWhileRevalidate(Duration.ofHours(1))
+                                                                                 .withStaleIfError(Duration.ofHours(6));
 
+    /// the current weather is updated every 15 minutes, so callers asking within a minute of each other can share it
+    private final SingleFlight<LatLon, Weather> currentWeatherFlight = SingleFlight.create("weatherapi-current", Duration.ofMinutes(1));
     private final String apiKey;
     private final CurrentDateTimeProvider timeProvider;
     private final AtomicLong requestIdGenerator = new AtomicLong();
@@ -62,6 +71,10 @@ final class WeatherServiceImpl extends BaseLifecycleComponent implements Weather
 
     @Override
     public CompletableFuture<Weather> getCurrentWeather(LatLon worldCoordinates) {
+        return currentWeatherFlight.get(worldCoordinates, () -> fetchCurrentWeather(worldCoordinates));
+    }
+
+    private CompletableFuture<Weather> fetchCurrentWeather(LatLon worldCoordinates) {
         var request = buildGet("/current.json", worldCoordinates, null);
         long reqId = requestIdGenerator.incrementAndGet();
         logger.debug("[{}] getCurrentWeather for {}", reqId, worldCoordinates);
@@ -86,7 +99,7 @@ final class WeatherServiceImpl extends BaseLifecycleComponent implements Weather
         var request = buildGet("/forecast.json", worldCoordinates, b -> b.addQueryParameter("days", String.valueOf(finalDaysToInclude)));
         long reqId = requestIdGenerator.incrementAndGet();
         logger.debug("[{}] getForecastWeather for {} until {} ({} days)", reqId, worldCoordinates, until, finalDaysToInclude);
-        return callApi(request, ForecastResponse.class)
+        return callApi(request, ForecastResponse.class, FORECAST_CACHE_POLICY)
                 .<List<ForecastHour>>thenApply(resp -> {
                     ImmutableList<ForecastDay> days = resp.forecast().days();
                     var resultBuilder = ImmutableList.<ForecastHour>builderWithExpectedSize(days.size() * 24);
@@ -120,6 +133,10 @@ final class WeatherServiceImpl extends BaseLifecycleComponent implements Weather
         return whenStartedAndNotLifecycling(() -> call(client.newCall(request), responseType));
     }
 
+    private <T> CompletableFuture<T> callApi(Request request, Class<? extends T> responseType, HttpCachePolicy cachePolicy) {
+        return whenStartedAndNotLifecycling(() -> HttpResponseCache.shared().call(client, request, responseType, cachePolicy));
+    }
+
     @BindingAnnotation
     @Target({FIELD, PARAMETER, METHOD})
     @Retention(RUNTIME)
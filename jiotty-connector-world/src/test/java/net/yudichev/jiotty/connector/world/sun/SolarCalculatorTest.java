@@ -0,0 +1,79 @@
+package net.yudichev.jiotty.connector.world.sun;
+
+import net.yudichev.jiotty.common.geo.LatLon;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.Optional;
+
+import static java.time.temporal.ChronoUnit.MINUTES;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.ASTRONOMICAL_TWILIGHT_ELEVATION;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.CIVIL_TWILIGHT_ELEVATION;
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.SUNRISE_SUNSET_ELEVATION;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class SolarCalculatorTest {
+    private static final LatLon LONDON = new LatLon(51.5074, -0.1278);
+    private static final LatLon NEW_YORK = new LatLon(40.7128, -74.006);
+    private static final LatLon SYDNEY = new LatLon(-33.8688, 151.2093);
+    private static final LatLon TROMSO = new LatLon(69.65, 18.96);
+
+    @Test
+    void sunriseAndSunset() {
+        var midsummer = LocalDate.of(2024, 6, 21);
+        assertCloseTo(SolarCalculator.rise(LONDON, midsummer, SUNRISE_SUNSET_ELEVATION), "2024-06-21T03:43:00Z");
+        assertCloseTo(SolarCalculator.set(LONDON, midsummer, SUNRISE_SUNSET_ELEVATION), "2024-06-21T20:21:00Z");
+
+        var newYear = LocalDate.of(2025, 1, 1);
+        assertCloseTo(SolarCalculator.rise(NEW_YORK, newYear, SUNRISE_SUNSET_ELEVATION), "2025-01-01T12:20:00Z");
+        assertCloseTo(SolarCalculator.set(NEW_YORK, newYear, SUNRISE_SUNSET_ELEVATION), "2025-01-01T21:39:00Z");
+
+        // solar day around 2024-12-21 noon UTC is early morning to evening on the 21st local time
+        var midwinter = LocalDate.of(2024, 12, 21);
+        assertCloseTo(SolarCalculator.rise(SYDNEY, midwinter, SUNRISE_SUNSET_ELEVATION), "2024-12-20T18:41:00Z");
+        assertCloseTo(SolarCalculator.set(SYDNEY, midwinter, SUNRISE_SUNSET_ELEVATION), "2024-12-21T09:06:00Z");
+    }
+
+    @Test
+    void twilight() {
+        var midsummer = LocalDate.of(2024, 6, 21);
+        assertCloseTo(SolarCalculator.rise(LONDON, midsummer, CIVIL_TWILIGHT_ELEVATION), "2024-06-21T02:55:00Z");
+        assertThat(SolarCalculator.rise(LONDON, midsummer, ASTRONOMICAL_TWILIGHT_ELEVATION)).isEmpty();
+        assertThat(SolarCalculator.rise(LONDON, midsummer, ASTRONOMICAL_TWILIGHT_ELEVATION - 10)).isEmpty();
+    }
+
+    @Test
+    void polarDayAndNight() {
+        assertThat(SolarCalculator.rise(TROMSO, LocalDate.of(2024, 12, 21), SUNRISE_SUNSET_ELEVATION)).isEmpty();
+        assertThat(SolarCalculator.set(TROMSO, LocalDate.of(2024, 6, 21), SUNRISE_SUNSET_ELEVATION)).isEmpty();
+
+        Instant firstSunrise = SolarCalculator.nextCrossing(TROMSO, Instant.parse("2024-12-01T00:00:00Z"), SUNRISE_SUNSET_ELEVATION, true)
+                                              .orElseThrow();
+        assertThat(firstSunrise).isBetween(Instant.parse("2025-01-14T00:00:00Z"), Instant.parse("2025-01-17T00:00:00Z"));
+    }
+
+    @Test
+    void nextCrossing() {
+        Instant midday = Instant.parse("2024-06-21T12:00:00Z");
+        assertCloseTo(SolarCalculator.nextCrossing(LONDON, midday, SUNRISE_SUNSET_ELEVATION, false), "2024-06-21T20:21:00Z");
+        assertCloseTo(SolarCalculator.nextCrossing(LONDON, midday, SUNRISE_SUNSET_ELEVATION, true), "2024-06-22T03:43:00Z");
+
+        Instant sunset = SolarCalculator.set(LONDON, LocalDate.of(2024, 6, 21), SUNRISE_SUNSET_ELEVATION).orElseThrow();
+        assertCloseTo(SolarCalculator.nextCrossing(LONDON, sunset, SUNRISE_SUNSET_ELEVATION, false), "2024-06-22T20:21:00Z");
+    }
+
+    @Test
+    void elevationAgreesWithCrossings() {
+        Instant sunrise = SolarCalculator.rise(LONDON, LocalDate.of(2024, 6, 21), SUNRISE_SUNSET_ELEVATION).orElseThrow();
+        assertThat(SolarCalculator.elevation(LONDON, sunrise)).isCloseTo(SUNRISE_SUNSET_ELEVATION, within(0.05));
+        assertThat(SolarCalculator.elevation(LONDON, SolarCalculator.solarNoon(LONDON, LocalDate.of(2024, 6, 21))))
+                .isCloseTo(90 - 51.5074 + 23.44, within(0.1));
+    }
+
+    private static void assertCloseTo(Optional<Instant> actual, String expected) {
+        assertThat(actual).isPresent();
+        assertThat(actual.get()).isCloseTo(Instant.parse(expected), within(1, MINUTES));
+    }
+}
@@ -0,0 +1,67 @@
+package net.yudichev.jiotty.connector.world.sun;
+
+import net.yudichev.jiotty.common.async.ProgrammableClock;
+import net.yudichev.jiotty.common.geo.LatLon;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static net.yudichev.jiotty.connector.world.sun.SolarCalculator.CIVIL_TWILIGHT_ELEVATION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SunriseSunsetServiceImplTest {
+    private static final LatLon LONDON = new LatLon(51.5074, -0.1278);
+
+    private ProgrammableClock clock;
+    private SunriseSunsetServiceImpl service;
+    private List<String> events;
+
+    @BeforeEach
+    void setUp() {
+        clock = new ProgrammableClock();
+        clock.setTimeAndTick(Instant.parse("2024-06-21T01:00:00Z"));
+        service = new SunriseSunsetServiceImpl(clock, clock, LONDON);
+        service.start();
+        events = new ArrayList<>();
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.stop();
+    }
+
+    @Test
+    void firesAtExactTransitions() {
+        service.onEverySunrise(() -> events.add("sunrise@" + clock.currentInstant()), Runnable::run);
+        service.onEverySunset(() -> events.add("sunset@" + clock.currentInstant()), Runnable::run);
+        assertThat(events).containsExactly("sunset@2024-06-21T01:00:00Z"); // sun is down now
+
+        clock.setTimeAndTick(Instant.parse("2024-06-21T03:43:00Z"));
+        assertThat(events).hasSize(1);
+        clock.setTimeAndTick(Instant.parse("2024-06-21T03:44:00Z"));
+        assertThat(events).hasSize(2);
+        assertThat(events.get(1)).startsWith("sunrise@2024-06-21T03:43");
+
+        clock.advanceTimeAndTick(Duration.ofDays(1));
+        assertThat(events).hasSize(4);
+        assertThat(events.get(2)).startsWith("sunset@2024-06-21T20:21");
+        assertThat(events.get(3)).startsWith("sunrise@2024-06-22T03:43");
+    }
+
+    @Test
+    void supportsTwilightThresholds() {
+        service.onEverySunRiseAbove(CIVIL_TWILIGHT_ELEVATION, () -> events.add("dawn@" + clock.currentInstant()), Runnable::run);
+        service.onEverySunrise(() -> events.add("sunrise@" + clock.currentInstant()), Runnable::run);
+        assertThat(events).isEmpty();
+
+        clock.setTimeAndTick(Instant.parse("2024-06-21T04:00:00Z"));
+        assertThat(events).hasSize(2);
+        assertThat(events.get(0)).startsWith("dawn@2024-06-21T02:5");
+        assertThat(events.get(1)).startsWith("sunrise@2024-06-21T03:43");
+    }
+}
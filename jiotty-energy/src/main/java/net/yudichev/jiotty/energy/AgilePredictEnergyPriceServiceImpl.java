@@ -1,6 +1,6 @@
 package net.yudichev.jiotty.energy;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.ImmutableDoubleArray;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -42,7 +42,7 @@ final class AgilePredictEnergyPriceServiceImpl extends BaseLifecycleComponent im
     private final Listeners<Prices> listeners = new Listeners<>();
 
     private Instant startOfOldestPricePeriod;
-    private volatile List<Double> pricesPerPeriod;
+    private volatile Prices latestPrices;
     private SchedulingExecutor executor;
     private Closeable refreshSchedule;
     @Nullable
@@ -59,8 +59,7 @@ final class AgilePredictEnergyPriceServiceImpl extends BaseLifecycleComponent im
 
     @Override
     public Optional<Prices> getPrices() {
-        return whenStartedAndNotLifecycling(() -> Optional.ofNullable(pricesPerPeriod)
-                                                          .map(this::constructPrices));
+        return whenStartedAndNotLifecycling(() -> Optional.ofNullable(latestPrices));
     }
 
     @Override
@@ -118,7 +117,7 @@ final class AgilePredictEnergyPriceServiceImpl extends BaseLifecycleComponent im
         Instant endOfPrices = prices.getLast().dateTime().plusSeconds(PRICE_PERIOD_LENGTH_SEC);
         logger.info("Received prices from {} till {}", startOfOldestPricePeriod, endOfPrices);
         logger.debug("Prices received: {}", prices);
-        var newPricesPerPeriodBuilder = ImmutableList.<Double>builder();
+        var newPricesPerPeriodBuilder = ImmutableDoubleArray.builder();
         Instant expectedStartTime = startOfOldestPricePeriod;
         for (int i = 0; i < prices.size(); i++) {
             AgilePredictPrice price = prices.get(i);
@@ -140,12 +139,9 @@ final class AgilePredictEnergyPriceServiceImpl extends BaseLifecycleComponent im
             newPricesPerPeriodBuilder.add(price.predictedPrice());
             expectedStartTime = expectedStartTime.plusSeconds(PRICE_PERIOD_LENGTH_SEC);
         }
-        pricesPerPeriod = newPricesPerPeriodBuilder.build();
-        return constructPrices(pricesPerPeriod);
-    }
-
-    private Prices constructPrices(List<Double> pricesPerPeriod) {
-        return new Prices(startOfOldestPricePeriod, new PriceProfile(PRICE_PERIOD_LENGTH_SEC, 0, pricesPerPeriod));
+        var pricesPerPeriod = newPricesPerPeriodBuilder.build();
+        latestPrices = new Prices(startOfOldestPricePeriod, new PriceProfile(PRICE_PERIOD_LENGTH_SEC, 0, pricesPerPeriod));
+        return latestPrices;
     }
 
     private void scheduleRetry() {
@@ -0,0 +1,46 @@
+package net.yudichev.jiotty.energy;
+
+/// Sparse table answering "index of the minimum value in `[from, to)`" in O(1) after O(n log n) preparation. Of equal values, the one with the
+/// lowest index wins.
+final class ArgMinSparseTable {
+    private final double[] values;
+    /// `table[j][i]` is the index of the minimum in `[i, i + 2^j)`
+    private final int[][] table;
+
+    ArgMinSparseTable(double[] values) {
+        this.values = values;
+        int n = values.length;
+        int levels = n == 0 ? 0 : 32 - Integer.numberOfLeadingZeros(n);
+        table = new int[levels][];
+        if (levels > 0) {
+            int[] level0 = new int[n];
+            for (int i = 0; i < n; i++) {
+                level0[i] = i;
+            }
+            table[0] = level0;
+        }
+        for (int j = 1; j < levels; j++) {
+            int[] previous = table[j - 1];
+            int halfSpan = 1 << (j - 1);
+            int[] level = new int[n - (1 << j) + 1];
+            for (int i = 0; i < level.length; i++) {
+                level[i] = lowerOf(previous[i], previous[i + halfSpan]);
+            }
+            table[j] = level;
+        }
+    }
+
+    double value(int index) {
+        return values[index];
+    }
+
+    /// @return index of the minimum value in `[from, to)`; the range must not be empty
+    int argMin(int from, int to) {
+        int j = 31 - Integer.numberOfLeadingZeros(to - from);
+        return lowerOf(table[j][from], table[j][to - (1 << j)]);
+    }
+
+    private int lowerOf(int leftIdx, int rightIdx) {
+        return values[rightIdx] < values[leftIdx] ? rightIdx : leftIdx;
+    }
+}
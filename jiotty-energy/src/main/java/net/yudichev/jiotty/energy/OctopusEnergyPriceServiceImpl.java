@@ -1,6 +1,6 @@
 package net.yudichev.jiotty.energy;
 
-import com.google.common.collect.ImmutableList;
+import com.google.common.primitives.ImmutableDoubleArray;
 import jakarta.annotation.Nullable;
 import jakarta.inject.Inject;
 import jakarta.inject.Provider;
@@ -48,7 +48,7 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
     private final Listeners<Prices> listeners = new Listeners<>();
 
     private Instant startOfOldestPricePeriod;
-    private volatile List<Double> pricesPerPeriod;
+    private volatile Prices latestPrices;
     private SchedulingExecutor executor;
     private Closeable jobSchedule;
     @Nullable
@@ -71,8 +71,7 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
 
     @Override
     public Optional<Prices> getPrices() {
-        return whenStartedAndNotLifecycling(() -> Optional.ofNullable(pricesPerPeriod)
-                                                          .map(this::constructPrices));
+        return whenStartedAndNotLifecycling(() -> Optional.ofNullable(latestPrices));
     }
 
     @Override
@@ -102,10 +101,6 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
         closeSafelyIfNotNull(logger, retrySchedule, jobSchedule);
     }
 
-    private Prices constructPrices(List<Double> pricesPerPeriod) {
-        return new Prices(startOfOldestPricePeriod, new PriceProfile(PRICE_PERIOD_LENGTH_SEC, pricesPerPeriod.size(), pricesPerPeriod));
-    }
-
     private void retrieveOctopusPrices(Instant periodFrom) {
         var periodTo = periodFrom.plus(2, DAYS);
         logger.info("Requesting prices from {} to {}", periodFrom, periodTo);
@@ -131,7 +126,7 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
         startOfOldestPricePeriod = rates.getLast().validFrom();
         logger.info("Received prices from {} till {}", startOfOldestPricePeriod, rates.getFirst().validTo());
         logger.debug("Prices received: {}", rates);
-        var newPricesPerPeriodBuilder = ImmutableList.<Double>builder();
+        var newPricesPerPeriodBuilder = ImmutableDoubleArray.builder();
         for (int i = rates.size() - 1; i >= 0; i--) {
             StandardUnitRate rate = rates.get(i);
             int j = rates.size() - i - 1;
@@ -142,7 +137,8 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
                           i, expectedStartTime, expectedEndTime, rates);
             newPricesPerPeriodBuilder.add(rate.valueIncVat());
         }
-        pricesPerPeriod = newPricesPerPeriodBuilder.build();
+        var pricesPerPeriod = newPricesPerPeriodBuilder.build();
+        latestPrices = new Prices(startOfOldestPricePeriod, new PriceProfile(PRICE_PERIOD_LENGTH_SEC, pricesPerPeriod.length(), pricesPerPeriod));
 
         var requestedFromLocalDateTime = LocalDateTime.ofInstant(requestedFrom, zoneId);
         if (requestedFromLocalDateTime.toLocalTime().getHour() >= 16) {
@@ -158,7 +154,7 @@ final class OctopusEnergyPriceServiceImpl extends BaseLifecycleComponent impleme
                 scheduleRetry(requestedFrom);
             }
         }
-        return constructPrices(pricesPerPeriod);
+        return latestPrices;
     }
 
     private void scheduleRetry(Instant requestedFrom) {
@@ -0,0 +1,31 @@
+package net.yudichev.jiotty.energy;
+
+import com.google.common.primitives.ImmutableDoubleArray;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+
+/// Immutable boxed view of an [ImmutableDoubleArray] that [PriceProfile] can get the array back from.
+final class PriceList extends AbstractList<Double> implements RandomAccess {
+    private final ImmutableDoubleArray prices;
+
+    PriceList(ImmutableDoubleArray prices) {
+        this.prices = checkNotNull(prices);
+    }
+
+    ImmutableDoubleArray prices() {
+        return prices;
+    }
+
+    @Override
+    public Double get(int index) {
+        return prices.get(index);
+    }
+
+    @Override
+    public int size() {
+        return prices.length();
+    }
+}
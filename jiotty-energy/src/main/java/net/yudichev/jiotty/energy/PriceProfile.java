@@ -1,6 +1,24 @@
 package net.yudichev.jiotty.energy;
 
+import com.google.common.primitives.ImmutableDoubleArray;
+
 import java.util.List;
 
 /// @param idxOfPredictedPriceStart if negative then all the prices are predicted; if >= `pricePerInterval.size()` then all prices are actual
-public record PriceProfile(int intervalLengthSec, int idxOfPredictedPriceStart, List<Double> pricePerInterval) {}
+/// @param pricePerInterval         copied into an immutable list backed by a primitive array, unless it already is one
+public record PriceProfile(int intervalLengthSec, int idxOfPredictedPriceStart, List<Double> pricePerInterval) {
+    public PriceProfile {
+        if (!(pricePerInterval instanceof PriceList)) {
+            pricePerInterval = new PriceList(ImmutableDoubleArray.copyOf(pricePerInterval));
+        }
+    }
+
+    public PriceProfile(int intervalLengthSec, int idxOfPredictedPriceStart, ImmutableDoubleArray prices) {
+        this(intervalLengthSec, idxOfPredictedPriceStart, new PriceList(prices));
+    }
+
+    /// @return primitive view of [#pricePerInterval()], without copying
+    public ImmutableDoubleArray prices() {
+        return ((PriceList) pricePerInterval).prices();
+    }
+}
@@ -1,9 +1,15 @@
 package net.yudichev.jiotty.energy;
 
+import com.google.common.primitives.ImmutableDoubleArray;
+import com.google.common.primitives.ImmutableIntArray;
+
 import java.time.Duration;
 import java.time.Instant;
-import java.util.AbstractList;
-import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
@@ -13,6 +19,7 @@ public final class Prices {
 
     private Instant profileEnd;
     private Duration duration;
+    private Index index;
 
     public Prices(Instant profileStart, PriceProfile profile) {
         this.profileStart = profileStart;
@@ -29,7 +36,7 @@ public final class Prices {
 
     public Instant profileEnd() {
         if (profileEnd == null) {
-            profileEnd = profileStart.plusSeconds((long) profile.intervalLengthSec() * profile.pricePerInterval().size());
+            profileEnd = profileStart.plusSeconds((long) profile.intervalLengthSec() * profile.prices().length());
         }
         return profileEnd;
     }
@@ -42,15 +49,15 @@ public final class Prices {
     }
 
     public Instant startOfProfileIndex(int index) {
-        checkArgument(index >= 0 && index <= profile.pricePerInterval().size()); // NB allow idx == size
+        checkArgument(index >= 0 && index <= profile.prices().length()); // NB allow idx == size
         return index == 0 ? profileStart :
-               index == profile.pricePerInterval().size() ? profileEnd
+               index == profile.prices().length() ? profileEnd
                                                           : profileStart.plusSeconds(index * (long) profile.intervalLengthSec());
     }
 
     public Instant endOfProfileIndex(int index) {
-        checkArgument(index >= 0 && index < profile.pricePerInterval().size());
-        return index == profile.pricePerInterval().size() - 1 ? profileEnd() : startOfProfileIndex(index + 1);
+        checkArgument(index >= 0 && index < profile.prices().length());
+        return index == profile.prices().length() - 1 ? profileEnd() : startOfProfileIndex(index + 1);
     }
 
     public int profileIndexOf(Instant t) {
@@ -59,7 +66,7 @@ public final class Prices {
             return -1;
         }
         int idx = (int) (offset / profile().intervalLengthSec());
-        int max = profile().pricePerInterval().size() - 1;
+        int max = profile().prices().length() - 1;
         if (idx > max) {
             return -1;
         }
@@ -72,22 +79,103 @@ public final class Prices {
         }
         checkArgument(!maxLength.isNegative(), "maxLength must be >=0 but was %s", maxLength);
 
-        List<Double> thisPricePerInterval = profile.pricePerInterval();
         int newSize = Math.toIntExact(maxLength.toSeconds() / profile.intervalLengthSec());
         return new Prices(profileStart,
                           new PriceProfile(profile.intervalLengthSec(),
                                            profile.idxOfPredictedPriceStart(),
-                                           new AbstractList<>() {
-                                               @Override
-                                               public Double get(int index) {
-                                                   return thisPricePerInterval.get(index);
-                                               }
+                                           profile.prices().subArray(0, newSize)));
+    }
+
+    /// @return total price of intervals `[fromIdx, toIdx)`, in O(1)
+    public double totalPrice(int fromIdx, int toIdx) {
+        checkRange(fromIdx, toIdx);
+        double[] prefixSums = index().prefixSums;
+        return prefixSums[toIdx] - prefixSums[fromIdx];
+    }
+
+    /// Finds the contiguous window of `windowLength` intervals within `[fromIdx, toIdx)` with the lowest total price; of equally priced windows,
+    /// the earliest wins. The first query for a given window length is O(n log n), subsequent ones are O(1).
+    ///
+    /// @return start index of the cheapest window, or empty if the window does not fit into the range
+    public OptionalInt cheapestWindowStartIndex(int windowLength, int fromIdx, int toIdx) {
+        checkArgument(windowLength > 0, "windowLength must be positive but was %s", windowLength);
+        checkRange(fromIdx, toIdx);
+        if (toIdx - fromIdx < windowLength) {
+            return OptionalInt.empty();
+        }
+        return OptionalInt.of(index().windowTable(windowLength).argMin(fromIdx, toIdx - windowLength + 1));
+    }
 
-                                               @Override
-                                               public int size() {
-                                                   return newSize;
-                                               }
-                                           }));
+    /// Finds the cheapest contiguous window at least `windowLength` long that starts at or after `notBefore` and ends at or before `deadline`,
+    /// both rounded inwards to interval boundaries.
+    ///
+    /// @return start of the cheapest window, or empty if no such window is covered by the profile
+    public Optional<Instant> cheapestWindowStart(Duration windowLength, Instant notBefore, Instant deadline) {
+        checkArgument(windowLength.isPositive(), "windowLength must be positive but was %s", windowLength);
+        long intervalLengthSec = profile.intervalLengthSec();
+        int intervals = Math.toIntExact((windowLength.toSeconds() + intervalLengthSec - 1) / intervalLengthSec);
+        int fromIdx = indexOfFirstIntervalStartingAtOrAfter(notBefore);
+        int toIdx = Math.max(indexAfterLastIntervalEndingAtOrBefore(deadline), fromIdx);
+        var startIdx = cheapestWindowStartIndex(intervals, fromIdx, toIdx);
+        return startIdx.isPresent() ? Optional.of(startOfProfileIndex(startIdx.getAsInt())) : Optional.empty();
+    }
+
+    /// @return indices of up to `count` cheapest intervals within `[fromIdx, toIdx)`, cheapest first, of equally priced ones the earliest first;
+    /// O(count log count)
+    public ImmutableIntArray cheapestIntervalIndices(int count, int fromIdx, int toIdx) {
+        checkArgument(count >= 0, "count must be >= 0 but was %s", count);
+        checkRange(fromIdx, toIdx);
+        ArgMinSparseTable table = index().priceTable;
+        var result = ImmutableIntArray.builder(Math.min(count, toIdx - fromIdx));
+        // each candidate is {argMin, from, to}: the cheapest interval of a range not yet consumed
+        var candidates = new PriorityQueue<int[]>((a, b) -> {
+            int byPrice = Double.compare(table.value(a[0]), table.value(b[0]));
+            return byPrice != 0 ? byPrice : Integer.compare(a[0], b[0]);
+        });
+        if (fromIdx < toIdx) {
+            candidates.add(new int[]{table.argMin(fromIdx, toIdx), fromIdx, toIdx});
+        }
+        for (int i = 0; i < count && !candidates.isEmpty(); i++) {
+            int[] candidate = candidates.poll();
+            int idx = candidate[0];
+            result.add(idx);
+            if (candidate[1] < idx) {
+                candidates.add(new int[]{table.argMin(candidate[1], idx), candidate[1], idx});
+            }
+            if (idx + 1 < candidate[2]) {
+                candidates.add(new int[]{table.argMin(idx + 1, candidate[2]), idx + 1, candidate[2]});
+            }
+        }
+        return result.build();
+    }
+
+    private int indexOfFirstIntervalStartingAtOrAfter(Instant t) {
+        long offsetSec = Duration.between(profileStart, t).toSeconds();
+        if (offsetSec <= 0) {
+            return 0;
+        }
+        long idx = (offsetSec + profile.intervalLengthSec() - 1) / profile.intervalLengthSec();
+        return (int) Math.min(idx, profile.prices().length());
+    }
+
+    private int indexAfterLastIntervalEndingAtOrBefore(Instant t) {
+        long offsetSec = Duration.between(profileStart, t).toSeconds();
+        if (offsetSec <= 0) {
+            return 0;
+        }
+        return (int) Math.min(offsetSec / profile.intervalLengthSec(), profile.prices().length());
+    }
+
+    private void checkRange(int fromIdx, int toIdx) {
+        checkArgument(fromIdx >= 0 && fromIdx <= toIdx && toIdx <= profile.prices().length(),
+                      "invalid range [%s, %s) for profile of size %s", fromIdx, toIdx, profile.prices().length());
+    }
+
+    private Index index() {
+        if (index == null) {
+            index = new Index(profile.prices());
+        }
+        return index;
     }
 
     @Override
@@ -114,4 +202,32 @@ public final class Prices {
                + profile
                + '}';
     }
+
+    /// Built once per [Prices] on first query.
+    private static final class Index {
+        /// `prefixSums[i]` is the total of the first `i` prices
+        final double[] prefixSums;
+        final ArgMinSparseTable priceTable;
+        final ConcurrentMap<Integer, ArgMinSparseTable> windowTablesByLength = new ConcurrentHashMap<>();
+
+        Index(ImmutableDoubleArray prices) {
+            double[] values = prices.toArray();
+            prefixSums = new double[values.length + 1];
+            for (int i = 0; i < values.length; i++) {
+                prefixSums[i + 1] = prefixSums[i] + values[i];
+            }
+            priceTable = new ArgMinSparseTable(values);
+        }
+
+        /// @return table over total prices of all windows of the given length, indexed by window start
+        ArgMinSparseTable windowTable(int windowLength) {
+            return windowTablesByLength.computeIfAbsent(windowLength, length -> {
+                double[] windowTotals = new double[Math.max(prefixSums.length - length, 0)];
+                for (int i = 0; i < windowTotals.length; i++) {
+                    windowTotals[i] = prefixSums[i + length] - prefixSums[i];
+                }
+                return new ArgMinSparseTable(windowTotals);
+            });
+        }
+    }
 }
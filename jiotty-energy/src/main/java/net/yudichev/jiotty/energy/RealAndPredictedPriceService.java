@@ -1,6 +1,7 @@
 package net.yudichev.jiotty.energy;
 
 import com.google.common.base.Verify;
+import com.google.common.primitives.ImmutableDoubleArray;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.lang.BaseIdempotentCloseable;
 import net.yudichev.jiotty.common.lang.Closeable;
@@ -8,8 +9,6 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Duration;
-import java.util.AbstractList;
-import java.util.List;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -50,27 +49,18 @@ final class RealAndPredictedPriceService implements EnergyPriceService {
         int predictedFirstIdx = Math.toIntExact(Duration.between(predictedPrices.profileStart(), realPrices.profileEnd()).getSeconds() / intervalLengthSec);
         Verify.verify(predictedFirstIdx >= 0, "cannot combine prices: gap between real end %s and predicted start %s",
                       realPrices.profileEnd(), predictedPrices.profileStart());
-        if (predictedFirstIdx >= predictedPrices.profile().pricePerInterval().size()) {
+        ImmutableDoubleArray realProfile = realPrices.profile().prices();
+        ImmutableDoubleArray predictedProfile = predictedPrices.profile().prices();
+        if (predictedFirstIdx >= predictedProfile.length()) {
             return realPrices;
         }
-        List<Double> realProfile = realPrices.profile().pricePerInterval();
-        List<Double> predictedProfile = predictedPrices.profile().pricePerInterval();
-        int size = realProfile.size() + predictedProfile.size() - predictedFirstIdx;
         return new Prices(realPrices.profileStart(),
                           new PriceProfile(intervalLengthSec,
-                                           realProfile.size(),
-                                           new AbstractList<>() {
-                                               @Override
-                                               public Double get(int index) {
-                                                   return index < realProfile.size() ? realProfile.get(index)
-                                                                                     : predictedProfile.get(index - realProfile.size() + predictedFirstIdx);
-                                               }
-
-                                               @Override
-                                               public int size() {
-                                                   return size;
-                                               }
-                                           }));
+                                           realProfile.length(),
+                                           ImmutableDoubleArray.builder(realProfile.length() + predictedProfile.length() - predictedFirstIdx)
+                                                               .addAll(realProfile)
+                                                               .addAll(predictedProfile.subArray(predictedFirstIdx, predictedProfile.length()))
+                                                               .build()));
     }
 
     private class CombiningSubscription extends BaseIdempotentCloseable {
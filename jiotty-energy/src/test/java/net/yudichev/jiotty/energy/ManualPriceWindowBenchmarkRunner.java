@@ -0,0 +1,95 @@
+package net.yudichev.jiotty.energy;
+
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+/// Cheapest-window and k-cheapest-interval queries over 13 days of half-hour prices: [Prices] index vs a naive scan of the boxed price list.
+/// Index build time is measured separately, as it is paid once per [Prices] instance.
+///
+/// `ManualPriceWindowBenchmarkRunner [queries]`
+final class ManualPriceWindowBenchmarkRunner {
+    private static final int SIZE = 13 * 48;
+
+    static void main(String[] args) {
+        int queryCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        var random = new Random(1);
+        List<Double> priceList = random.doubles(SIZE, -5, 40).boxed().toList();
+        int[][] queries = new int[queryCount][];
+        for (int i = 0; i < queryCount; i++) {
+            // window of up to 6 hours before a deadline anywhere in the profile, k up to 12
+            queries[i] = new int[]{1 + random.nextInt(12), random.nextInt(SIZE + 1), random.nextInt(12)};
+        }
+
+        for (int round = 0; round < 3; round++) {
+            long start = System.nanoTime();
+            long checksum = 0;
+            for (int[] query : queries) {
+                checksum += naiveCheapestWindowStart(priceList, query[0], query[1]);
+            }
+            report(round, "naive window", start, queryCount, checksum);
+
+            start = System.nanoTime();
+            var prices = new Prices(Instant.EPOCH, new PriceProfile(1800, 0, priceList));
+            prices.cheapestIntervalIndices(1, 0, SIZE);
+            for (int windowLength = 1; windowLength <= 12; windowLength++) {
+                prices.cheapestWindowStartIndex(windowLength, 0, SIZE);
+            }
+            System.out.printf("round %d %-16s %10.1f us (12 window lengths)%n", round, "index build", (System.nanoTime() - start) / 1e3);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int[] query : queries) {
+                checksum += prices.cheapestWindowStartIndex(query[0], 0, query[1]).orElse(-1);
+            }
+            report(round, "indexed window", start, queryCount, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int[] query : queries) {
+                checksum += naiveCheapestIntervals(priceList, query[2], query[1]).stream().mapToInt(Integer::intValue).sum();
+            }
+            report(round, "naive k-cheapest", start, queryCount, checksum);
+
+            start = System.nanoTime();
+            checksum = 0;
+            for (int[] query : queries) {
+                var indices = prices.cheapestIntervalIndices(query[2], 0, query[1]);
+                for (int i = 0; i < indices.length(); i++) {
+                    checksum += indices.get(i);
+                }
+            }
+            report(round, "indexed k-cheap", start, queryCount, checksum);
+        }
+    }
+
+    private static int naiveCheapestWindowStart(List<Double> prices, int windowLength, int deadlineIdx) {
+        int best = -1;
+        double bestTotal = Double.MAX_VALUE;
+        for (int start = 0; start + windowLength <= deadlineIdx; start++) {
+            double total = 0;
+            for (int i = start; i < start + windowLength; i++) {
+                total += prices.get(i);
+            }
+            if (total < bestTotal) {
+                bestTotal = total;
+                best = start;
+            }
+        }
+        return best;
+    }
+
+    private static List<Integer> naiveCheapestIntervals(List<Double> prices, int count, int deadlineIdx) {
+        return IntStream.range(0, deadlineIdx)
+                        .boxed()
+                        .sorted(Comparator.comparingDouble(prices::get))
+                        .limit(count)
+                        .toList();
+    }
+
+    private static void report(int round, String name, long startNanos, int queryCount, long checksum) {
+        System.out.printf("round %d %-16s %10.1f ns/query (checksum %d)%n", round, name, (double) (System.nanoTime() - startNanos) / queryCount, checksum);
+    }
+}
@@ -4,9 +4,15 @@ import org.junit.jupiter.api.Test;
 
 import java.time.Duration;
 import java.time.Instant;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Optional;
+import java.util.OptionalInt;
+import java.util.Random;
+import java.util.stream.IntStream;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
 
 class PricesTest {
     @Test
@@ -31,4 +37,76 @@ class PricesTest {
         assertThat(limitedPrices.profile().intervalLengthSec()).isEqualTo(60);
         assertThat(limitedPrices.profile().pricePerInterval()).isEmpty();
     }
-}
\ No newline at end of file
+
+    @Test
+    void cheapestWindow() {
+        var prices = new Prices(Instant.EPOCH, new PriceProfile(60, 0, List.of(5.0, 1.0, 2.0, 9.0, 1.0, 1.0, 7.0)));
+
+        assertThat(prices.cheapestWindowStartIndex(1, 0, 7)).isEqualTo(OptionalInt.of(1));
+        assertThat(prices.cheapestWindowStartIndex(2, 0, 7)).isEqualTo(OptionalInt.of(4));
+        assertThat(prices.cheapestWindowStartIndex(2, 0, 5)).isEqualTo(OptionalInt.of(1));
+        assertThat(prices.cheapestWindowStartIndex(3, 0, 7)).isEqualTo(OptionalInt.of(0));
+        assertThat(prices.cheapestWindowStartIndex(3, 2, 5)).isEqualTo(OptionalInt.of(2));
+        assertThat(prices.cheapestWindowStartIndex(4, 2, 5)).isEqualTo(OptionalInt.empty());
+        assertThat(prices.totalPrice(3, 6)).isEqualTo(11.0);
+
+        assertThat(prices.cheapestWindowStart(Duration.ofSeconds(90), Instant.EPOCH, Instant.ofEpochSecond(300)))
+                .isEqualTo(Optional.of(Instant.ofEpochSecond(60)));
+        // not before rounds up to the next interval, deadline rounds down
+        assertThat(prices.cheapestWindowStart(Duration.ofMinutes(2), Instant.ofEpochSecond(61), Instant.ofEpochSecond(419)))
+                .isEqualTo(Optional.of(Instant.ofEpochSecond(240)));
+        assertThat(prices.cheapestWindowStart(Duration.ofMinutes(2), Instant.ofEpochSecond(300), Instant.ofEpochSecond(1000)))
+                .isEqualTo(Optional.of(Instant.ofEpochSecond(300)));
+        assertThat(prices.cheapestWindowStart(Duration.ofMinutes(2), Instant.ofEpochSecond(400), Instant.ofEpochSecond(1000))).isEmpty();
+    }
+
+    @Test
+    void cheapestIntervals() {
+        var prices = new Prices(Instant.EPOCH, new PriceProfile(60, 0, List.of(5.0, 1.0, 2.0, 9.0, 1.0, 1.0, 7.0)));
+
+        assertThat(prices.cheapestIntervalIndices(4, 0, 7).asList()).containsExactly(1, 4, 5, 2);
+        assertThat(prices.cheapestIntervalIndices(10, 2, 4).asList()).containsExactly(2, 3);
+        assertThat(prices.cheapestIntervalIndices(0, 0, 7).isEmpty()).isTrue();
+        assertThat(prices.cheapestIntervalIndices(3, 3, 3).isEmpty()).isTrue();
+    }
+
+    @Test
+    void queriesAgreeWithNaiveScan() {
+        var random = new Random(1);
+        List<Double> priceList = random.doubles(13 * 48, -5, 40).map(d -> Math.round(d * 100) / 100.0).boxed().toList();
+        var prices = new Prices(Instant.EPOCH, new PriceProfile(1800, 0, priceList));
+        for (int i = 0; i < 500; i++) {
+            int from = random.nextInt(priceList.size());
+            int to = from + random.nextInt(priceList.size() - from + 1);
+            int windowLength = 1 + random.nextInt(12);
+
+            OptionalInt expectedStart = IntStream.rangeClosed(from, to - windowLength)
+                                                 .boxed()
+                                                 .min(Comparator.comparingDouble(start -> sum(priceList, start, start + windowLength)))
+                                                 .map(OptionalInt::of)
+                                                 .orElse(OptionalInt.empty());
+            OptionalInt actualStart = prices.cheapestWindowStartIndex(windowLength, from, to);
+            assertThat(actualStart.isPresent()).isEqualTo(expectedStart.isPresent());
+            if (actualStart.isPresent()) {
+                assertThat(sum(priceList, actualStart.getAsInt(), actualStart.getAsInt() + windowLength))
+                        .isCloseTo(sum(priceList, expectedStart.getAsInt(), expectedStart.getAsInt() + windowLength), within(1e-9));
+            }
+
+            int count = random.nextInt(10);
+            List<Integer> expectedCheapest = IntStream.range(from, to)
+                                                      .boxed()
+                                                      .sorted(Comparator.<Integer>comparingDouble(priceList::get).thenComparing(idx -> idx))
+                                                      .limit(count)
+                                                      .toList();
+            assertThat(prices.cheapestIntervalIndices(count, from, to).asList()).isEqualTo(expectedCheapest);
+        }
+    }
+
+    private static double sum(List<Double> prices, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += prices.get(i);
+        }
+        return sum;
+    }
+}
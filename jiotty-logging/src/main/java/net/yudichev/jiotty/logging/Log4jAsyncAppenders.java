@@ -0,0 +1,50 @@
+package net.yudichev.jiotty.logging;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.apache.logging.log4j.core.appender.AsyncAppender;
+import org.apache.logging.log4j.core.config.AppenderRef;
+import org.apache.logging.log4j.core.config.Configuration;
+import org.apache.logging.log4j.core.config.LoggerConfig;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/// Moves the appenders of the root logger behind an [AsyncAppender], so that logging threads only put events into its ring buffer.
+///
+/// The async appender blocks when its buffer is full, so no events are lost; set `log4j2.AsyncQueueFullPolicy=Discard` to drop events of
+/// level INFO and below instead. Location information is not captured, so layouts should use the logger name (`%c`), not the class (`%C`).
+final class Log4jAsyncAppenders {
+    static final String APPENDER_NAME = "JiottyAsync";
+    private static final Logger logger = LoggerFactory.getLogger(Log4jAsyncAppenders.class);
+
+    private Log4jAsyncAppenders() {
+    }
+
+    /// Has to be called again after the configuration is reloaded.
+    static void wrapRootAppenders(int bufferSize) {
+        var context = (LoggerContext) LogManager.getContext(false);
+        Configuration configuration = context.getConfiguration();
+        LoggerConfig rootLogger = configuration.getRootLogger();
+        List<AppenderRef> appenderRefs = rootLogger.getAppenderRefs();
+        if (appenderRefs.isEmpty() || rootLogger.getAppenders().containsKey(APPENDER_NAME)) {
+            return;
+        }
+        AsyncAppender asyncAppender = AsyncAppender.newBuilder()
+                                                   .setName(APPENDER_NAME)
+                                                   .setConfiguration(configuration)
+                                                   .setAppenderRefs(appenderRefs.toArray(AppenderRef[]::new))
+                                                   .setBufferSize(bufferSize)
+                                                   .setBlocking(true)
+                                                   .setIncludeLocation(false)
+                                                   .build();
+        asyncAppender.start();
+        configuration.addAppender(asyncAppender);
+        List.copyOf(rootLogger.getAppenders().keySet()).forEach(rootLogger::removeAppender);
+        rootLogger.addAppender(asyncAppender, null, null);
+        context.updateLoggers();
+        logger.info("Root appenders {} moved behind async appender with buffer size {}",
+                    appenderRefs.stream().map(AppenderRef::getRef).toList(), bufferSize);
+    }
+}
@@ -11,4 +11,15 @@ public interface LoggingLevelConfigurator {
 
     /// @return logging levels that were set via this service
     Map<String, String> getLevelsByLoggerName();
+
+    /// Sets the [sampling policy][net.yudichev.jiotty.common.logging.SamplingPolicy] of a logger and its descendants.
+    ///
+    /// @param samplingPolicy `all`, `1/N` (every Nth message) or `N/s` (at most N messages per second)
+    /// @throws IllegalArgumentException if the policy is invalid
+    void setLogSampling(String loggerName, String samplingPolicy);
+
+    void resetLogSampling(String loggerName);
+
+    /// @return sampling policies that were set via this service
+    Map<String, String> getSamplingByLoggerName();
 }
@@ -7,6 +7,8 @@ import com.google.inject.BindingAnnotation;
 import jakarta.inject.Inject;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponent;
 import net.yudichev.jiotty.common.lang.PackagePrivateImmutablesStyle;
+import net.yudichev.jiotty.common.logging.LogSampling;
+import net.yudichev.jiotty.common.logging.SamplingPolicy;
 import net.yudichev.jiotty.common.varstore.VarStore;
 import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.core.config.Configurator;
@@ -20,6 +22,7 @@ import java.lang.annotation.Target;
 import java.util.Map;
 import java.util.TreeMap;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.annotation.ElementType.FIELD;
 import static java.lang.annotation.ElementType.METHOD;
@@ -32,17 +35,45 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
 
     private final VarStore varStore;
     private final String storeKey;
+    private final String samplingStoreKey;
+    private final int asyncAppenderBufferSize;
 
     private final Map<String, String> levelsByLoggerName = new TreeMap<>();
+    /// guarded by levelsByLoggerName
+    private final Map<String, String> samplingByLoggerName = new TreeMap<>();
 
+    public PersistingLog4jLevelConfigurator(VarStore varStore, String varStoreKeyPrefix) {
+        this(varStore, varStoreKeyPrefix, 0);
+    }
+
+    /// @param asyncAppenderBufferSize see [PersistingLog4jLevelConfiguratorModule.Builder#withAsyncAppenderBufferSizeSpec]
     @Inject
-    public PersistingLog4jLevelConfigurator(VarStore varStore, @VarStoreKeyPrefix String varStoreKeyPrefix) {
+    public PersistingLog4jLevelConfigurator(VarStore varStore,
+                                            @VarStoreKeyPrefix String varStoreKeyPrefix,
+                                            @AsyncAppenderBufferSize int asyncAppenderBufferSize) {
         this.varStore = checkNotNull(varStore);
         storeKey = varStoreKeyPrefix.isEmpty() ? "LogLevels" : varStoreKeyPrefix + '_' + "LogLevels";
+        samplingStoreKey = varStoreKeyPrefix.isEmpty() ? "LogSampling" : varStoreKeyPrefix + '_' + "LogSampling";
+        checkArgument(asyncAppenderBufferSize >= 0, "asyncAppenderBufferSize must not be negative: %s", asyncAppenderBufferSize);
+        this.asyncAppenderBufferSize = asyncAppenderBufferSize;
     }
 
     @Override
     protected void doStart() {
+        wrapAppendersIfConfigured();
+        varStore.readValue(LoggerSampling.class, samplingStoreKey)
+                .orElse(LoggerSampling.builder().build())
+                .getSamplingByLoggerName()
+                .forEach((loggerName, samplingPolicy) -> {
+                    try {
+                        doSetLogSampling(loggerName, samplingPolicy);
+                    } catch (IllegalArgumentException e) {
+                        log.warn("Ignoring stored sampling policy of logger {}: {}", loggerName, e.getMessage());
+                    }
+                });
+        if (!samplingByLoggerName.isEmpty()) {
+            varStore.saveValue(samplingStoreKey, LoggerSampling.of(samplingByLoggerName));
+        }
         varStore.readValue(LoggerLevels.class, storeKey)
                 .orElse(LoggerLevels.builder().build())
                 .getLevelsByLoggerName()
@@ -56,6 +87,9 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
     @Override
     protected void doStop() {
         levelsByLoggerName.clear();
+        samplingByLoggerName.clear();
+        LogSampling.resetAllPolicies();
+        // also brings back the appenders as configured
         resetAllLoggingLevels();
     }
 
@@ -75,6 +109,7 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
         synchronized (this.levelsByLoggerName) {
             this.levelsByLoggerName.clear();
             resetAllLoggingLevels();
+            wrapAppendersIfConfigured();
             levelsByLoggerName.forEach(this::doSetLoggingLevel);
             loggerLevels = LoggerLevels.of(this.levelsByLoggerName);
         }
@@ -101,6 +136,7 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
             String oldLevel = levelsByLoggerName.remove(loggerName);
             if (oldLevel != null) {
                 Configurator.reconfigure();
+                wrapAppendersIfConfigured();
                 levelsByLoggerName.forEach(Configurator::setLevel);
                 log.info("Reset logger {} (was set to {})", loggerName, oldLevel);
             }
@@ -116,6 +152,47 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
         }
     }
 
+    @Override
+    public void setLogSampling(String loggerName, String samplingPolicy) {
+        LoggerSampling loggerSampling;
+        synchronized (levelsByLoggerName) {
+            doSetLogSampling(loggerName, samplingPolicy);
+            loggerSampling = LoggerSampling.of(samplingByLoggerName);
+        }
+        varStore.saveValue(samplingStoreKey, loggerSampling);
+    }
+
+    @Override
+    public void resetLogSampling(String loggerName) {
+        LoggerSampling loggerSampling;
+        synchronized (levelsByLoggerName) {
+            if (samplingByLoggerName.remove(loggerName) != null) {
+                LogSampling.resetPolicy(loggerName);
+            }
+            loggerSampling = LoggerSampling.of(samplingByLoggerName);
+        }
+        varStore.saveValue(samplingStoreKey, loggerSampling);
+    }
+
+    @Override
+    public Map<String, String> getSamplingByLoggerName() {
+        synchronized (levelsByLoggerName) {
+            return ImmutableMap.copyOf(samplingByLoggerName);
+        }
+    }
+
+    private void doSetLogSampling(String loggerName, String samplingPolicy) {
+        SamplingPolicy policy = SamplingPolicy.parse(samplingPolicy);
+        LogSampling.setPolicy(loggerName, policy);
+        samplingByLoggerName.put(loggerName, policy.toString());
+    }
+
+    private void wrapAppendersIfConfigured() {
+        if (asyncAppenderBufferSize > 0) {
+            Log4jAsyncAppenders.wrapRootAppenders(asyncAppenderBufferSize);
+        }
+    }
+
     @Immutable
     @PackagePrivateImmutablesStyle
     @JsonSerialize
@@ -125,9 +202,24 @@ public final class PersistingLog4jLevelConfigurator extends BaseLifecycleCompone
         Map<String, String> getLevelsByLoggerName();
     }
 
+    @Immutable
+    @PackagePrivateImmutablesStyle
+    @JsonSerialize
+    @JsonDeserialize
+    interface BaseLoggerSampling {
+        @Value.Parameter
+        Map<String, String> getSamplingByLoggerName();
+    }
+
     @BindingAnnotation
     @Target({FIELD, PARAMETER, METHOD})
     @Retention(RUNTIME)
     @interface VarStoreKeyPrefix {
     }
+
+    @BindingAnnotation
+    @Target({FIELD, PARAMETER, METHOD})
+    @Retention(RUNTIME)
+    @interface AsyncAppenderBufferSize {
+    }
 }
\ No newline at end of file
@@ -10,9 +10,11 @@ import static net.yudichev.jiotty.common.inject.BindingSpec.literally;
 
 public final class PersistingLog4jLevelConfiguratorModule extends BaseLifecycleComponentModule implements ExposedKeyModule<LoggingLevelConfigurator> {
     private final BindingSpec<String> varStoreKeyPrefixSpec;
+    private final BindingSpec<Integer> asyncAppenderBufferSizeSpec;
 
-    private PersistingLog4jLevelConfiguratorModule(BindingSpec<String> varStoreKeyPrefixSpec) {
+    private PersistingLog4jLevelConfiguratorModule(BindingSpec<String> varStoreKeyPrefixSpec, BindingSpec<Integer> asyncAppenderBufferSizeSpec) {
         this.varStoreKeyPrefixSpec = checkNotNull(varStoreKeyPrefixSpec);
+        this.asyncAppenderBufferSizeSpec = checkNotNull(asyncAppenderBufferSizeSpec);
     }
 
     public static Builder builder() {
@@ -24,21 +26,33 @@ public final class PersistingLog4jLevelConfiguratorModule extends BaseLifecycleC
         varStoreKeyPrefixSpec.bind(String.class)
                              .annotatedWith(PersistingLog4jLevelConfigurator.VarStoreKeyPrefix.class)
                              .installedBy(this::installLifecycleComponentModule);
+        asyncAppenderBufferSizeSpec.bind(Integer.class)
+                                   .annotatedWith(PersistingLog4jLevelConfigurator.AsyncAppenderBufferSize.class)
+                                   .installedBy(this::installLifecycleComponentModule);
         bind(getExposedKey()).to(registerLifecycleComponent(PersistingLog4jLevelConfigurator.class));
         expose(getExposedKey());
     }
 
     public static class Builder implements TypedBuilder<ExposedKeyModule<LoggingLevelConfigurator>> {
         private BindingSpec<String> varStoreKeyPrefixSpec = literally("");
+        private BindingSpec<Integer> asyncAppenderBufferSizeSpec = literally(0);
 
         public Builder withVarStoreKeyPrefixSpec(BindingSpec<String> varStoreKeyPrefixSpec) {
             this.varStoreKeyPrefixSpec = checkNotNull(varStoreKeyPrefixSpec);
             return this;
         }
 
+        /// When positive, the appenders of the root logger are moved behind an async appender with a ring buffer of this many events while
+        /// the configurator is started, so that hot paths do not wait for I/O. Layouts should then use `%c` rather than `%C`, as the
+        /// location of the log call is not captured. Defaults to 0: appenders stay as configured.
+        public Builder withAsyncAppenderBufferSizeSpec(BindingSpec<Integer> asyncAppenderBufferSizeSpec) {
+            this.asyncAppenderBufferSizeSpec = checkNotNull(asyncAppenderBufferSizeSpec);
+            return this;
+        }
+
         @Override
         public ExposedKeyModule<LoggingLevelConfigurator> build() {
-            return new PersistingLog4jLevelConfiguratorModule(varStoreKeyPrefixSpec);
+            return new PersistingLog4jLevelConfiguratorModule(varStoreKeyPrefixSpec, asyncAppenderBufferSizeSpec);
         }
     }
 }
@@ -0,0 +1,108 @@
+package net.yudichev.jiotty.logging;
+
+import net.yudichev.jiotty.common.logging.LogPayloads;
+import net.yudichev.jiotty.common.logging.LogSampler;
+import net.yudichev.jiotty.common.logging.LogSampling;
+import net.yudichev.jiotty.common.logging.SamplingPolicy;
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Throughput of a connector-like hot path that logs every incoming message at DEBUG into a file: full payload formatting on the calling
+/// thread (what connectors did) vs sampling, abbreviated payloads and the async appender.
+///
+/// `ManualLoggingThroughputRunner [payloadBytes] [sampleEveryN]`
+final class ManualLoggingThroughputRunner {
+    private static final int WARMUP_ITERATIONS = 3;
+    private static final int MEASURED_ITERATIONS = 5;
+    private static final int MESSAGES_PER_ITERATION = 200_000;
+    private static final String LOGGER_NAME = "net.yudichev.jiotty.logging.benchmark";
+    private static final Logger logger = LoggerFactory.getLogger(LOGGER_NAME);
+    private static final LogSampler sampler = LogSampling.sampler(logger);
+
+    private static volatile int sink;
+
+    static void main(String[] args) throws IOException {
+        int payloadBytes = args.length > 0 ? Integer.parseInt(args[0]) : 2048;
+        int sampleEveryN = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        byte[] payload = "{\"value\":42}".repeat(payloadBytes / 12 + 1).substring(0, payloadBytes).getBytes(UTF_8);
+        Path logFile = Files.createTempFile(ManualLoggingThroughputRunner.class.getSimpleName(), ".log");
+        try {
+            configure(logFile);
+
+            measure("sync, full payload", () -> {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("IN topic: {}, msg: {}", "benchmark/topic", new String(payload, UTF_8));
+                }
+            });
+            measure("sync, abbreviated payload", () -> {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("IN topic: {}, msg: {}", "benchmark/topic", LogPayloads.abbreviated(payload));
+                }
+            });
+            LogSampling.setPolicy(LOGGER_NAME, SamplingPolicy.everyNth(sampleEveryN));
+            measure("sync, sampled 1/" + sampleEveryN + ", abbreviated", () -> {
+                if (logger.isDebugEnabled() && sampler.sample()) {
+                    logger.debug("IN topic: {}, msg: {}", "benchmark/topic", LogPayloads.abbreviated(payload));
+                }
+            });
+            LogSampling.resetAllPolicies();
+
+            Log4jAsyncAppenders.wrapRootAppenders(64 * 1024);
+            measure("async, full payload", () -> {
+                if (logger.isDebugEnabled()) {
+                    logger.debug("IN topic: {}, msg: {}", "benchmark/topic", new String(payload, UTF_8));
+                }
+            });
+            LogSampling.setPolicy(LOGGER_NAME, SamplingPolicy.everyNth(sampleEveryN));
+            measure("async, sampled 1/" + sampleEveryN + ", abbreviated", () -> {
+                if (logger.isDebugEnabled() && sampler.sample()) {
+                    logger.debug("IN topic: {}, msg: {}", "benchmark/topic", LogPayloads.abbreviated(payload));
+                }
+            });
+        } finally {
+            Configurator.shutdown(null);
+            Files.delete(logFile);
+        }
+    }
+
+    private static void configure(Path logFile) {
+        var builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.add(builder.newAppender("FILE", "File")
+                           .addAttribute("fileName", logFile.toString())
+                           .addAttribute("append", false)
+                           .add(builder.newLayout("PatternLayout").addAttribute("pattern", "%d %p [%t] %c %m%n")));
+        builder.add(builder.newRootLogger(Level.INFO).add(builder.newAppenderRef("FILE")));
+        builder.add(builder.newLogger(LOGGER_NAME, Level.DEBUG));
+        Configurator.reconfigure(builder.build());
+    }
+
+    private static void measure(String name, Runnable onMessage) {
+        for (int i = 0; i < WARMUP_ITERATIONS; i++) {
+            run(onMessage);
+        }
+        long totalNanos = 0;
+        for (int i = 0; i < MEASURED_ITERATIONS; i++) {
+            totalNanos += run(onMessage);
+        }
+        System.out.printf("%-40s %,12.0f messages/s%n", name, (double) MESSAGES_PER_ITERATION * MEASURED_ITERATIONS * 1e9 / totalNanos);
+    }
+
+    private static long run(Runnable onMessage) {
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES_PER_ITERATION; i++) {
+            onMessage.run();
+            // stands in for the rest of the message handling
+            sink = i;
+        }
+        return System.nanoTime() - start;
+    }
+}
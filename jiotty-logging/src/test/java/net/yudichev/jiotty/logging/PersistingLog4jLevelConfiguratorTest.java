@@ -1,5 +1,7 @@
 package net.yudichev.jiotty.logging;
 
+import net.yudichev.jiotty.common.logging.LogSampling;
+import net.yudichev.jiotty.common.logging.SamplingPolicy;
 import net.yudichev.jiotty.common.varstore.InMemoryVarStore;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
@@ -14,6 +16,7 @@ import java.nio.file.Path;
 import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 @SuppressWarnings({"StaticVariableUsedBeforeInitialization", "StaticVariableMayNotBeInitialized"}) // static @BeforeAll mechanism used
 @Isolated
@@ -62,6 +65,22 @@ class PersistingLog4jLevelConfiguratorTest {
         verifyInfoLevel();
     }
 
+    @Test
+    void changesLogSampling() {
+        configurator.setLogSampling(LOGGER_NAME, "1/10");
+        assertThat(LogSampling.policies()).isEqualTo(Map.of(LOGGER_NAME, SamplingPolicy.everyNth(10)));
+        restartConfigurator();
+        assertThat(LogSampling.policies()).isEqualTo(Map.of(LOGGER_NAME, SamplingPolicy.everyNth(10)));
+        assertThat(configurator.getSamplingByLoggerName()).isEqualTo(Map.of(LOGGER_NAME, "1/10"));
+
+        assertThrows(IllegalArgumentException.class, () -> configurator.setLogSampling(LOGGER_NAME, "sometimes"));
+
+        configurator.resetLogSampling(LOGGER_NAME);
+        assertThat(LogSampling.policies()).isEqualTo(Map.of());
+        restartConfigurator();
+        assertThat(LogSampling.policies()).isEqualTo(Map.of());
+    }
+
     private static void restartConfigurator() {
         configurator.stop();
         startConfigurator();
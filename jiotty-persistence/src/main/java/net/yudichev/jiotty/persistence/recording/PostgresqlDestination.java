@@ -6,10 +6,12 @@ import net.yudichev.jiotty.common.lang.ThrowingFunction;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.SQLException;
+import java.time.Duration;
 import java.util.Calendar;
 import java.util.List;
 import java.util.Set;
 
+import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 
 public interface PostgresqlDestination extends Destination {
@@ -68,4 +70,23 @@ public interface PostgresqlDestination extends Destination {
             return value == null ? null : transform.apply(value);
         }
     }
+
+    /// Write-behind mode of the recorders: records are queued and written in JDBC batches of up to `maxBatchSize` rows, flushed when a
+    /// batch is full or every `flushInterval`, whichever comes first.
+    ///
+    /// @param queueCapacity  maximum number of records waiting to be written per recorder; when full, `record` blocks the caller for up to
+    ///                       `enqueueTimeout` and then drops the record
+    /// @param enqueueTimeout how long `record` waits for space in a full queue
+    record WriteBehindConfig(int maxBatchSize, Duration flushInterval, int queueCapacity, Duration enqueueTimeout) {
+        public WriteBehindConfig {
+            checkArgument(maxBatchSize > 0, "maxBatchSize must be positive: %s", maxBatchSize);
+            checkArgument(!flushInterval.isNegative() && !flushInterval.isZero(), "flushInterval must be positive: %s", flushInterval);
+            checkArgument(queueCapacity >= maxBatchSize, "queueCapacity %s must be at least maxBatchSize %s", queueCapacity, maxBatchSize);
+            checkNotNull(enqueueTimeout);
+        }
+
+        public static WriteBehindConfig defaults() {
+            return new WriteBehindConfig(500, Duration.ofSeconds(1), 50_000, Duration.ofMillis(100));
+        }
+    }
 }
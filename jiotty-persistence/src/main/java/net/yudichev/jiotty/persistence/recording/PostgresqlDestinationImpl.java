@@ -13,40 +13,59 @@ import net.yudichev.jiotty.persistence.recording.RecordingModule.PsqlExecutor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.sql.BatchUpdateException;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Timestamp;
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.TimeZone;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.regex.Pattern;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.base.Preconditions.checkState;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static java.util.concurrent.TimeUnit.NANOSECONDS;
 import static java.util.stream.Collectors.joining;
 import static net.yudichev.jiotty.persistence.recording.RecordingModule.Dependency;
 
 @SuppressWarnings({"JDBCPrepareStatementWithNonConstantString", "JDBCExecuteWithNonConstantString"})
 class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements PostgresqlDestination {
     private static final Logger logger = LoggerFactory.getLogger(PostgresqlDestinationImpl.class);
+    private static final Duration CLOSE_TIMEOUT = Duration.ofMinutes(1);
 
     private final Provider<SchedulingExecutor> executorProvider;
     private final Calendar calendar;
     private final PsqlDataSourceFactory dataSourceFactory;
+    private final Optional<WriteBehindConfig> writeBehindConfig;
+    private final List<WriteBehindRecorder<?>> writeBehindRecorders = new CopyOnWriteArrayList<>();
 
     private SchedulingExecutor executor;
     private CloseableDataSource dataSource;
 
     @Inject
     public PostgresqlDestinationImpl(@PsqlExecutor Provider<SchedulingExecutor> executorProvider,
-                                     @Dependency PsqlDataSourceFactory dataSourceFactory) {
+                                     @Dependency PsqlDataSourceFactory dataSourceFactory,
+                                     @Dependency Optional<WriteBehindConfig> writeBehindConfig) {
         this.executorProvider = checkNotNull(executorProvider);
         this.dataSourceFactory = checkNotNull(dataSourceFactory);
+        this.writeBehindConfig = checkNotNull(writeBehindConfig);
         calendar = Calendar.getInstance();
         calendar.setTimeZone(TimeZone.getTimeZone(ZoneOffset.UTC));
     }
@@ -60,7 +79,11 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
     @Override
     public <R> Recorder<R> createRecorder(Config<R> destinationConfig) {
         var psqlConfig = (PsqlConfig<R>) destinationConfig;
-        var recorder = new RecorderImpl<>(psqlConfig);
+        RecorderImpl<R> recorder = writeBehindConfig.<RecorderImpl<R>>map(config -> {
+            var writeBehindRecorder = new WriteBehindRecorder<>(psqlConfig, config);
+            writeBehindRecorders.add(writeBehindRecorder);
+            return writeBehindRecorder;
+        }).orElseGet(() -> new RecorderImpl<>(psqlConfig));
         executor.execute(recorder::initialise);
         return recorder;
     }
@@ -72,7 +95,21 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
 
     @Override
     protected void doClose() {
-        executor.execute(() -> Closeable.closeSafelyIfNotNull(logger, dataSource));
+        writeBehindRecorders.forEach(WriteBehindRecorder::stopRecording);
+        // the executor runs tasks in order, so this final flush writes everything recorded before closing, and does not overlap other flushes
+        CompletableFuture<Void> finalFlush = executor.submit(() -> {
+            writeBehindRecorders.forEach(WriteBehindRecorder::closeAndFlush);
+            Closeable.closeSafelyIfNotNull(logger, dataSource);
+        });
+        try {
+            finalFlush.get(CLOSE_TIMEOUT.toMillis(), MILLISECONDS);
+        } catch (TimeoutException e) {
+            logger.warn("Final flush did not complete in {}", CLOSE_TIMEOUT);
+        } catch (ExecutionException e) {
+            logger.warn("Final flush failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 
     private void connect() {
@@ -120,9 +157,10 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
         private final String columnNames;
         private final String columnsWithTypes;
         private final String insertPlaceholders;
-        private boolean disabled;
+        protected final String insertSql;
+        protected boolean disabled;
 
-        private R lastRecorded;
+        protected R lastRecorded;
 
         public RecorderImpl(PsqlConfig<R> config) {
             super(config);
@@ -132,6 +170,7 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
                                           .collect(joining(", "));
             columnNames = TIMESTAMP_COL_NAME + ", " + this.config.columns().stream().map(Column::name).collect(joining(", "));
             insertPlaceholders = this.config.columns().stream().map(Column::valuePlaceholder).collect(joining(", "));
+            insertSql = "INSERT INTO " + tableName + " (" + columnNames + ") VALUES (?, " + insertPlaceholders + ");";
         }
 
         public void initialise() {
@@ -194,24 +233,24 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
                     return;
                 }
                 if (!Objects.equals(lastRecorded, recordable)) {
-                    String sql = "INSERT INTO " + tableName + " (" + columnNames + ") VALUES (?, " + insertPlaceholders + ");";
                     try (var connection = dataSource.getConnection()) {
-                        doUpdate(connection, sql, 1,
-                                 stmt -> {
-                                     stmt.setTimestamp(1, Timestamp.from(timestamp), calendar);
-                                     for (int i = 0; i < config.columns().size(); i++) {
-                                         Column<R, ?> col = config.columns().get(i);
-                                         col.stmtColValueSetter().set(new InsertStmtColValueSetter.Input<>(recordable, calendar, connection, stmt, i + 2));
-                                     }
-                                 });
+                        doUpdate(connection, insertSql, 1, stmt -> setInsertParameters(connection, stmt, timestamp, recordable));
                         lastRecorded = recordable;
                     } catch (SQLException e) {
-                        logger.warn("Failed recording {}, sql was {}", recordable, sql, e);
+                        logger.warn("Failed recording {}, sql was {}", recordable, insertSql, e);
                     }
                 }
             });
         }
 
+        protected void setInsertParameters(Connection connection, PreparedStatement stmt, Instant timestamp, R recordable) throws SQLException {
+            stmt.setTimestamp(1, Timestamp.from(timestamp), calendar);
+            for (int i = 0; i < config.columns().size(); i++) {
+                Column<R, ?> col = config.columns().get(i);
+                col.stmtColValueSetter().set(new InsertStmtColValueSetter.Input<>(recordable, calendar, connection, stmt, i + 2));
+            }
+        }
+
         private static void doUpdate(Connection connection,
                                      String sql,
                                      int expectedRowsUpdated,
@@ -227,6 +266,190 @@ class PostgresqlDestinationImpl extends BaseIdempotentCloseable implements Postg
         }
     }
 
+    /// Queues records in a bounded queue and writes them on the PSQL executor in JDBC batches over a single connection and prepared
+    /// statement. Deduplication against the last written record happens in the writer, in recording order, same as in [RecorderImpl].
+    ///
+    /// Each batch is written in a transaction. A batch that fails is kept and written again, before anything queued after it, on the
+    /// following flushes; after [#MAX_BATCH_ATTEMPTS] failed attempts, or if it still fails when the recorder is closed, its records are
+    /// counted as failed and discarded.
+    private final class WriteBehindRecorder<R> extends RecorderImpl<R> {
+        private static final long STATS_LOG_INTERVAL_NANOS = Duration.ofMinutes(10).toNanos();
+        private static final int MAX_BATCH_ATTEMPTS = 3;
+        private final WriteBehindConfig writeBehindConfig;
+        private final BlockingQueue<QueuedRecord<R>> queue;
+        private final AtomicBoolean flushRequested = new AtomicBoolean();
+        private final WriteBehindStats stats = new WriteBehindStats();
+        private final Closeable flushSchedule;
+        // PSQL executor only
+        private final List<QueuedRecord<R>> failedBatch = new ArrayList<>();
+        private int failedBatchAttempts;
+        private volatile boolean closed;
+        private long lastStatsLogNanos = System.nanoTime();
+
+        WriteBehindRecorder(PsqlConfig<R> config, WriteBehindConfig writeBehindConfig) {
+            super(config);
+            this.writeBehindConfig = checkNotNull(writeBehindConfig);
+            queue = new ArrayBlockingQueue<>(writeBehindConfig.queueCapacity());
+            flushSchedule = executor.scheduleAtFixedRate(writeBehindConfig.flushInterval(), writeBehindConfig.flushInterval(), this::flush);
+        }
+
+        @Override
+        public void record(Instant timestamp, R recordable) {
+            if (closed) {
+                logger.debug("[{}] Recorder closed, not recording: {}", typeName, recordable);
+                return;
+            }
+            boolean queued;
+            try {
+                queued = queue.offer(new QueuedRecord<>(timestamp, recordable), writeBehindConfig.enqueueTimeout().toNanos(), NANOSECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                queued = false;
+            }
+            if (!queued) {
+                long droppedCount = stats.droppedCount.incrementAndGet();
+                logger.warn("[{}] Write-behind queue full ({} records), dropped {} (total dropped {})",
+                            typeName, writeBehindConfig.queueCapacity(), recordable, droppedCount);
+                return;
+            }
+            stats.updateMaxQueueDepth(queue.size());
+            if (queue.size() >= writeBehindConfig.maxBatchSize() && flushRequested.compareAndSet(false, true)) {
+                executor.execute(this::flush);
+            }
+        }
+
+        void stopRecording() {
+            closed = true;
+        }
+
+        void closeAndFlush() {
+            flushSchedule.close();
+            flush();
+            int unwrittenCount = failedBatch.size() + queue.size();
+            if (unwrittenCount > 0) {
+                stats.failedRecordCount.addAndGet(unwrittenCount);
+                logger.warn("[{}] Discarding {} records that could not be written before closing", typeName, unwrittenCount);
+                failedBatch.clear();
+                queue.clear();
+            }
+            logger.info("[{}] Write-behind recorder closed, {}", typeName, stats);
+        }
+
+        private void flush() {
+            flushRequested.set(false);
+            if (failedBatch.isEmpty() || retryFailedBatch()) {
+                var batch = new ArrayList<QueuedRecord<R>>(writeBehindConfig.maxBatchSize());
+                while (queue.drainTo(batch, writeBehindConfig.maxBatchSize()) > 0) {
+                    if (disabled) {
+                        logger.debug("[{}] Recording disabled, discarding {} records", typeName, batch.size());
+                    } else if (!writeBatch(batch)) {
+                        // keep the order: nothing else is written until this batch is
+                        failedBatch.addAll(batch);
+                        failedBatchAttempts = 1;
+                        break;
+                    }
+                    batch.clear();
+                }
+            }
+            if (System.nanoTime() - lastStatsLogNanos >= STATS_LOG_INTERVAL_NANOS) {
+                lastStatsLogNanos = System.nanoTime();
+                logger.info("[{}] Write-behind {}, queue depth {}", typeName, stats, queue.size());
+            }
+        }
+
+        /// @return whether the queue can be flushed: the failed batch was written or given up on
+        private boolean retryFailedBatch() {
+            if (writeBatch(failedBatch)) {
+                failedBatch.clear();
+                return true;
+            }
+            if (++failedBatchAttempts < MAX_BATCH_ATTEMPTS) {
+                return false;
+            }
+            stats.failedRecordCount.addAndGet(failedBatch.size());
+            logger.warn("[{}] Discarding batch of {} records after {} failed attempts", typeName, failedBatch.size(), failedBatchAttempts);
+            failedBatch.clear();
+            return true;
+        }
+
+        /// @return whether the batch was written
+        private boolean writeBatch(List<QueuedRecord<R>> batch) {
+            long startNanos = System.nanoTime();
+            R lastInBatch = lastRecorded;
+            int rowCount = 0;
+            try (var connection = dataSource.getConnection();
+                 var stmt = connection.prepareStatement(insertSql)) {
+                for (QueuedRecord<R> queuedRecord : batch) {
+                    if (!Objects.equals(lastInBatch, queuedRecord.recordable())) {
+                        setInsertParameters(connection, stmt, queuedRecord.timestamp(), queuedRecord.recordable());
+                        stmt.addBatch();
+                        lastInBatch = queuedRecord.recordable();
+                        rowCount++;
+                    }
+                }
+                if (rowCount > 0) {
+                    // all or nothing, so that writing a failed batch again does not duplicate rows
+                    connection.setAutoCommit(false);
+                    try {
+                        stmt.executeBatch();
+                        connection.commit();
+                    } catch (SQLException e) {
+                        connection.rollback();
+                        throw e;
+                    }
+                }
+                lastRecorded = lastInBatch;
+                long latencyNanos = System.nanoTime() - startNanos;
+                stats.recordFlush(rowCount, latencyNanos);
+                logger.debug("[{}] Wrote {} of {} queued records in {} us, {} still queued",
+                             typeName, rowCount, batch.size(), NANOSECONDS.toMicros(latencyNanos), queue.size());
+                return true;
+            } catch (SQLException e) {
+                stats.failedFlushCount++;
+                logger.warn("[{}] Failed writing batch of {} records, sql was {}", typeName, batch.size(), insertSql,
+                            e instanceof BatchUpdateException && e.getNextException() != null ? e.getNextException() : e);
+                return false;
+            }
+        }
+    }
+
+    private record QueuedRecord<R>(Instant timestamp, R recordable) {}
+
+    private static final class WriteBehindStats {
+        private final AtomicLong maxQueueDepth = new AtomicLong();
+        private final AtomicLong droppedCount = new AtomicLong();
+        private final AtomicLong failedRecordCount = new AtomicLong();
+        // written on the PSQL executor only
+        private long flushCount;
+        private long failedFlushCount;
+        private long writtenRecordCount;
+        private long totalFlushNanos;
+        private long maxFlushNanos;
+
+        void updateMaxQueueDepth(int queueDepth) {
+            maxQueueDepth.accumulateAndGet(queueDepth, Math::max);
+        }
+
+        void recordFlush(int recordCount, long latencyNanos) {
+            flushCount++;
+            writtenRecordCount += recordCount;
+            totalFlushNanos += latencyNanos;
+            maxFlushNanos = Math.max(maxFlushNanos, latencyNanos);
+        }
+
+        @Override
+        public String toString() {
+            return "flushes: " + flushCount +
+                   ", written: " + writtenRecordCount +
+                   ", failed flushes: " + failedFlushCount +
+                   ", failed: " + failedRecordCount.get() +
+                   ", dropped: " + droppedCount.get() +
+                   ", max queue depth: " + maxQueueDepth.get() +
+                   ", avg flush latency: " + (flushCount == 0 ? Duration.ZERO : Duration.ofNanos(totalFlushNanos / flushCount)) +
+                   ", max flush latency: " + Duration.ofNanos(maxFlushNanos);
+        }
+    }
+
     private class ReaderImpl<R> extends SqlBase<R> implements Reader {
         protected static final Pattern TIMESTAMP_PATTERN = Pattern.compile("%TIMESTAMP%");
 
@@ -8,6 +8,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.time.Instant;
+import java.util.Optional;
 
 import static net.yudichev.jiotty.persistence.recording.RecordingModule.Dependency;
 import static net.yudichev.jiotty.persistence.recording.RecordingModule.PsqlExecutor;
@@ -16,8 +17,10 @@ final class ReadOnlyPostgresqlDestination extends PostgresqlDestinationImpl {
     private static final Logger logger = LoggerFactory.getLogger(ReadOnlyPostgresqlDestination.class);
 
     @Inject
-    public ReadOnlyPostgresqlDestination(@PsqlExecutor Provider<SchedulingExecutor> executorProvider, @Dependency PsqlDataSourceFactory dataSourceFactory) {
-        super(executorProvider, dataSourceFactory);
+    public ReadOnlyPostgresqlDestination(@PsqlExecutor Provider<SchedulingExecutor> executorProvider,
+                                         @Dependency PsqlDataSourceFactory dataSourceFactory,
+                                         @Dependency Optional<WriteBehindConfig> writeBehindConfig) {
+        super(executorProvider, dataSourceFactory, writeBehindConfig);
     }
 
     @Override
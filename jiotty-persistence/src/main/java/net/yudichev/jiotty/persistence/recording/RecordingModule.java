@@ -1,15 +1,19 @@
 package net.yudichev.jiotty.persistence.recording;
 
 import com.google.inject.BindingAnnotation;
+import com.google.inject.TypeLiteral;
 import com.google.inject.assistedinject.FactoryModuleBuilder;
+import jakarta.annotation.Nullable;
 import net.yudichev.jiotty.common.async.ExecutorProviderModule;
 import net.yudichev.jiotty.common.inject.BaseLifecycleComponentModule;
 import net.yudichev.jiotty.common.inject.BindingSpec;
 import net.yudichev.jiotty.common.inject.ExposedKeyModule;
 import net.yudichev.jiotty.persistence.psql.PsqlDataSourceFactory;
+import net.yudichev.jiotty.persistence.recording.PostgresqlDestination.WriteBehindConfig;
 
 import java.lang.annotation.Retention;
 import java.lang.annotation.Target;
+import java.util.Optional;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static java.lang.annotation.ElementType.FIELD;
@@ -20,10 +24,18 @@ import static java.lang.annotation.RetentionPolicy.RUNTIME;
 public final class RecordingModule extends BaseLifecycleComponentModule implements ExposedKeyModule<RecordingService> {
     private final BindingSpec<PsqlDataSourceFactory> dataSourceFactorySpec;
     private final boolean readOnly;
+    @Nullable
+    private final WriteBehindConfig writeBehindConfig;
 
     public RecordingModule(BindingSpec<PsqlDataSourceFactory> dataSourceFactorySpec, boolean readOnly) {
+        this(dataSourceFactorySpec, readOnly, null);
+    }
+
+    /// @param writeBehindConfig if not null, PostgreSQL recorders queue records and write them in batches instead of one by one
+    public RecordingModule(BindingSpec<PsqlDataSourceFactory> dataSourceFactorySpec, boolean readOnly, @Nullable WriteBehindConfig writeBehindConfig) {
         this.dataSourceFactorySpec = checkNotNull(dataSourceFactorySpec);
         this.readOnly = readOnly;
+        this.writeBehindConfig = writeBehindConfig;
     }
 
     @Override
@@ -32,6 +44,7 @@ public final class RecordingModule extends BaseLifecycleComponentModule implemen
                              .annotatedWith(Dependency.class)
                              .installedBy(this::installLifecycleComponentModule);
         installLifecycleComponentModule(new ExecutorProviderModule("PSQL", PsqlExecutor.class));
+        bind(new TypeLiteral<Optional<WriteBehindConfig>>() {}).annotatedWith(Dependency.class).toInstance(Optional.ofNullable(writeBehindConfig));
         install(new FactoryModuleBuilder()
                         .implement(PostgresqlDestination.class, readOnly ? ReadOnlyPostgresqlDestination.class : PostgresqlDestinationImpl.class)
                         .build(PostgresqlDestinationFactory.class));
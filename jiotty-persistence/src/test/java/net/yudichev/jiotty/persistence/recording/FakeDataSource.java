@@ -0,0 +1,136 @@
+package net.yudichev.jiotty.persistence.recording;
+
+import net.yudichev.jiotty.persistence.psql.CloseableDataSource;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.BatchUpdateException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/// Accepts any statement; keeps the second parameter of each row inserted in a JDBC batch, honouring transactions, and can be told to fail
+/// batches. Queries return no rows.
+final class FakeDataSource implements CloseableDataSource {
+    private final List<Object> rows = Collections.synchronizedList(new ArrayList<>());
+    private final List<List<Object>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger batchFailures = new AtomicInteger();
+    private volatile boolean closed;
+
+    @Override
+    public Connection getConnection() {
+        return proxy(Connection.class, new ConnectionHandler());
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+
+    void failBatches(int count) {
+        batchFailures.set(count);
+    }
+
+    List<Object> rows() {
+        return List.copyOf(rows);
+    }
+
+    List<List<Object>> batches() {
+        return List.copyOf(batches);
+    }
+
+    boolean isClosed() {
+        return closed;
+    }
+
+    private static <T> T proxy(Class<T> type, InvocationHandler handler) {
+        return type.cast(Proxy.newProxyInstance(FakeDataSource.class.getClassLoader(), new Class<?>[]{type}, handler));
+    }
+
+    private static Object defaultValue(Class<?> type) {
+        if (type == boolean.class) {
+            return false;
+        }
+        if (type == int.class) {
+            return 0;
+        }
+        if (type == long.class) {
+            return 0L;
+        }
+        return null;
+    }
+
+    private final class ConnectionHandler implements InvocationHandler {
+        private final List<Object> uncommittedRows = new ArrayList<>();
+        private boolean autoCommit = true;
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            return switch (method.getName()) {
+                case "createStatement" -> proxy(Statement.class, (statement, statementMethod, statementArgs) ->
+                        defaultValue(statementMethod.getReturnType()));
+                case "prepareStatement" -> proxy(PreparedStatement.class, new PreparedStatementHandler(this));
+                case "setAutoCommit" -> {
+                    autoCommit = (Boolean) args[0];
+                    yield null;
+                }
+                case "commit" -> {
+                    rows.addAll(uncommittedRows);
+                    uncommittedRows.clear();
+                    yield null;
+                }
+                case "rollback" -> {
+                    uncommittedRows.clear();
+                    yield null;
+                }
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+
+    private final class PreparedStatementHandler implements InvocationHandler {
+        private final ConnectionHandler connection;
+        private final List<Object> batch = new ArrayList<>();
+        private Object value;
+
+        PreparedStatementHandler(ConnectionHandler connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws BatchUpdateException {
+            return switch (method.getName()) {
+                case "setString", "setObject", "setInt", "setLong", "setDouble" -> {
+                    if ((Integer) args[0] == 2) {
+                        value = args[1];
+                    }
+                    yield null;
+                }
+                case "addBatch" -> {
+                    batch.add(value);
+                    yield null;
+                }
+                case "executeBatch" -> {
+                    if (batchFailures.getAndUpdate(failures -> Math.max(0, failures - 1)) > 0) {
+                        throw new BatchUpdateException();
+                    }
+                    batches.add(List.copyOf(batch));
+                    (connection.autoCommit ? rows : connection.uncommittedRows).addAll(batch);
+                    int[] updateCounts = new int[batch.size()];
+                    batch.clear();
+                    yield updateCounts;
+                }
+                case "executeQuery" -> proxy(ResultSet.class, (resultSet, resultSetMethod, resultSetArgs) ->
+                        defaultValue(resultSetMethod.getReturnType()));
+                case "executeUpdate" -> 1;
+                default -> defaultValue(method.getReturnType());
+            };
+        }
+    }
+}
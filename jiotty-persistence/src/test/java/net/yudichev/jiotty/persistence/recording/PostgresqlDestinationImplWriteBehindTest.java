@@ -0,0 +1,149 @@
+package net.yudichev.jiotty.persistence.recording;
+
+import net.yudichev.jiotty.common.async.SchedulingExecutor;
+import net.yudichev.jiotty.common.async.SingleThreadedSchedulingExecutor;
+import net.yudichev.jiotty.persistence.recording.PostgresqlDestination.Column;
+import net.yudichev.jiotty.persistence.recording.PostgresqlDestination.Migrator;
+import net.yudichev.jiotty.persistence.recording.PostgresqlDestination.PsqlConfig;
+import net.yudichev.jiotty.persistence.recording.PostgresqlDestination.WriteBehindConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PostgresqlDestinationImplWriteBehindTest {
+    private static final PsqlConfig<String> CONFIG = new PsqlConfig<>(
+            String.class, "test", 1, Set.of(), Migrator.NO_OP,
+            List.of(new Column<String, String>("value", "text", false, "?", input -> input.stmt().setString(input.colIdx(), input.record()))));
+    private static final Duration NEVER = Duration.ofHours(1);
+
+    private final FakeDataSource dataSource = new FakeDataSource();
+    private SchedulingExecutor executor;
+    private PostgresqlDestinationImpl destination;
+
+    @BeforeEach
+    void setUp() {
+        executor = new SingleThreadedSchedulingExecutor("psql");
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.close();
+    }
+
+    @Test
+    void writesQueuedRecordsInBatchesOfMaxBatchSize() {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(2, NEVER, 10, Duration.ofMillis(100)));
+        CountDownLatch writerBlocked = blockWriter();
+        record(recorder, "a", "b", "c", "d", "e");
+        writerBlocked.countDown();
+
+        destination.close();
+
+        assertThat(dataSource.batches()).containsExactly(List.of("a", "b"), List.of("c", "d"), List.of("e"));
+    }
+
+    @Test
+    void deduplicatesAcrossBatchBoundaries() {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(2, NEVER, 10, Duration.ofMillis(100)));
+        CountDownLatch writerBlocked = blockWriter();
+        record(recorder, "a", "b", "b", "c", "c");
+        writerBlocked.countDown();
+
+        destination.close();
+
+        assertThat(dataSource.rows()).containsExactly("a", "b", "c");
+    }
+
+    @Test
+    void dropsRecordsWhenQueueIsFull() {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(2, NEVER, 4, Duration.ofMillis(1)));
+        CountDownLatch writerBlocked = blockWriter();
+        record(recorder, "0", "1", "2", "3", "4", "5");
+        writerBlocked.countDown();
+
+        destination.close();
+
+        assertThat(dataSource.rows()).containsExactly("0", "1", "2", "3");
+    }
+
+    @Test
+    void closeWritesEverythingRecordedBeforeAndNothingAfter() {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(100, NEVER, 1000, Duration.ofMillis(100)));
+        record(recorder, "a", "b", "c");
+
+        destination.close();
+        recorder.record(Instant.now(), "d");
+
+        assertThat(dataSource.rows()).containsExactly("a", "b", "c");
+        assertThat(dataSource.isClosed()).isTrue();
+    }
+
+    @Test
+    void writesFailedBatchAgainBeforeLaterRecords() throws Exception {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(2, NEVER, 10, Duration.ofMillis(100)));
+        dataSource.failBatches(1);
+        CountDownLatch writerBlocked = blockWriter();
+        record(recorder, "a", "b", "c", "d");
+        writerBlocked.countDown();
+        awaitWriter();
+        assertThat(dataSource.rows()).isEmpty();
+
+        destination.close();
+
+        assertThat(dataSource.rows()).containsExactly("a", "b", "c", "d");
+    }
+
+    @Test
+    void discardsBatchThatKeepsFailing() throws Exception {
+        Recorder<String> recorder = createRecorder(new WriteBehindConfig(2, NEVER, 10, Duration.ofMillis(100)));
+        dataSource.failBatches(3);
+        record(recorder, "a", "b");
+        awaitWriter();
+        record(recorder, "c", "d");
+        awaitWriter();
+        record(recorder, "e", "f");
+        awaitWriter();
+
+        destination.close();
+
+        assertThat(dataSource.rows()).containsExactly("c", "d", "e", "f");
+    }
+
+    private Recorder<String> createRecorder(WriteBehindConfig writeBehindConfig) {
+        destination = new PostgresqlDestinationImpl(() -> executor, () -> dataSource, Optional.of(writeBehindConfig));
+        destination.initialise();
+        return destination.createRecorder(CONFIG);
+    }
+
+    private CountDownLatch blockWriter() {
+        var latch = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                latch.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        return latch;
+    }
+
+    private void awaitWriter() throws Exception {
+        executor.submit(() -> {}).get(5, SECONDS);
+    }
+
+    private static void record(Recorder<String> recorder, String... values) {
+        for (String value : values) {
+            recorder.record(Instant.now(), value);
+        }
+    }
+}
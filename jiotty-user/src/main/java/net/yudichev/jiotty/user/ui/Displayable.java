@@ -34,6 +34,17 @@ public interface Displayable {
         return null;
     }
 
+    /// @return `true` if [#toDeltaDto()] produces only what changed, rather than the full [#toDto()]
+    default boolean supportsDeltas() {
+        return false;
+    }
+
+    /// @return what changed since the previous call of this method, to be applied on top of a previously obtained [#toDto()]; there is one
+    /// consumer of deltas per displayable (the UI server)
+    default CompletableFuture<DisplayableDtos.DisplayableDto> toDeltaDto() {
+        return toDto();
+    }
+
     default CompletableFuture<Void> handleDownload(String downloadId, HttpServletResponse resp) throws IOException {
         resp.sendError(HttpServletResponse.SC_NOT_FOUND, "Downloads are not supported by " + getDisplayName());
         return completedFuture(null);
@@ -0,0 +1,155 @@
+package net.yudichev.jiotty.user.ui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.annotation.Nullable;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
+
+/// The state of one displayable as sent to SSE clients.
+///
+/// Every DTO that differs from the previous one becomes a new version, encoded once into a full `displayable-update` event shared by all
+/// clients. JSON patches between recent versions are kept, so that a client that was last sent version `n` can be brought up to date with a
+/// single `displayable-patch` event, which is also encoded once for all clients at version `n`.
+final class DisplayableChannel {
+    static final long NO_VERSION = -1;
+    private static final int MAX_PATCHES = 16;
+
+    private final String id;
+    private final ObjectMapper mapper;
+    /// executor thread only: the latest DTO tree, and the patches leading to it, the last one producing the latest version
+    private final Deque<ArrayNode> patches = new ArrayDeque<>(MAX_PATCHES);
+    @Nullable
+    private ObjectNode tree;
+    private long version = NO_VERSION;
+
+    @Nullable
+    private volatile Snapshot snapshot;
+
+    DisplayableChannel(String id, ObjectMapper mapper) {
+        this.id = checkNotNull(id);
+        this.mapper = checkNotNull(mapper);
+    }
+
+    String id() {
+        return id;
+    }
+
+    /// executor thread
+    boolean hasImage() {
+        return tree != null;
+    }
+
+    /// @return the latest version, or `null` if there is none yet
+    @Nullable
+    Snapshot snapshot() {
+        return snapshot;
+    }
+
+    /// Executor thread.
+    ///
+    /// @param dto a full DTO, or a [DisplayableDtos.HistoryDelta] if [#hasImage()]
+    /// @return whether this produced a new version
+    boolean update(DisplayableDtos.DisplayableDto dto) {
+        ObjectNode newTree;
+        @Nullable ArrayNode patch;
+        if (dto instanceof DisplayableDtos.HistoryDelta delta && tree != null) {
+            // only the changed groups are converted, the rest of the tree is shared with the previous version
+            ArrayNode deltaPatch = JsonNodeFactory.instance.arrayNode();
+            ObjectNode groups = JsonNodeFactory.instance.objectNode();
+            groups.setAll((ObjectNode) tree.get("groups"));
+            delta.groups().forEach((key, entries) -> {
+                JsonNode value = mapper.valueToTree(entries);
+                JsonNode oldValue = groups.get(key);
+                if (!value.equals(oldValue)) {
+                    JsonPatches.set(deltaPatch, "/groups", key, oldValue != null, value);
+                    groups.set(key, value);
+                }
+            });
+            patch = deltaPatch;
+            newTree = JsonNodeFactory.instance.objectNode();
+            newTree.setAll(tree);
+            newTree.set("groups", groups);
+        } else {
+            newTree = mapper.valueToTree(dto);
+            patch = tree == null ? null : JsonPatches.diff(tree, newTree);
+        }
+        if (patch != null && patch.isEmpty()) {
+            return false;
+        }
+
+        version++;
+        if (patch == null) {
+            patches.clear();
+        } else {
+            if (patches.size() == MAX_PATCHES) {
+                patches.removeFirst();
+            }
+            patches.addLast(patch);
+        }
+        tree = newTree;
+
+        ObjectNode event = JsonNodeFactory.instance.objectNode()
+                                                   .put("id", id)
+                                                   .put("v", version);
+        event.set("dto", newTree);
+        snapshot = new Snapshot(version, SseClient.frame("displayable-update", getAsUnchecked(() -> mapper.writeValueAsBytes(event))), List.copyOf(patches));
+        return true;
+    }
+
+    final class Snapshot {
+        private final long version;
+        private final byte[] fullFrame;
+        private final List<ArrayNode> patches;
+        private final ConcurrentMap<Long, byte[]> patchFramesByFromVersion = new ConcurrentHashMap<>();
+
+        private Snapshot(long version, byte[] fullFrame, List<ArrayNode> patches) {
+            this.version = version;
+            this.fullFrame = fullFrame;
+            this.patches = patches;
+        }
+
+        long version() {
+            return version;
+        }
+
+        /// @param sentVersion    the version this client was last sent, or [#NO_VERSION]
+        /// @param acceptsPatches whether the client understands `displayable-patch` events
+        /// @return the event to bring the client up to this version, or `null` if it already has it
+        @Nullable
+        byte[] frameFor(long sentVersion, boolean acceptsPatches) {
+            if (sentVersion == version) {
+                return null;
+            }
+            if (!acceptsPatches || sentVersion == NO_VERSION || sentVersion < version - patches.size() || sentVersion > version) {
+                return fullFrame;
+            }
+            return patchFramesByFromVersion.computeIfAbsent(sentVersion, this::encodePatchFrame);
+        }
+
+        private byte[] encodePatchFrame(long fromVersion) {
+            ArrayNode operations = JsonNodeFactory.instance.arrayNode();
+            for (int i = patches.size() - (int) (version - fromVersion); i < patches.size(); i++) {
+                operations.addAll(patches.get(i));
+            }
+            ObjectNode event = JsonNodeFactory.instance.objectNode()
+                                                       .put("id", id)
+                                                       .put("from", fromVersion)
+                                                       .put("v", version);
+            event.set("patch", operations);
+            byte[] frame = SseClient.frame("displayable-patch", getAsUnchecked(() -> mapper.writeValueAsBytes(event)));
+            // a long run of patches may outgrow the full image
+            return frame.length < fullFrame.length ? frame : fullFrame;
+        }
+    }
+}
@@ -11,7 +11,7 @@ public final class DisplayableDtos {
     private DisplayableDtos() {
     }
 
-    public sealed interface DisplayableDto permits History, ChargingEventsDto, ChargingPricesDto {
+    public sealed interface DisplayableDto permits History, HistoryDelta, ChargingEventsDto, ChargingPricesDto {
         String type();
     }
 
@@ -24,6 +24,18 @@ public final class DisplayableDtos {
         }
     }
 
+    /// What [Displayable#toDeltaDto()] returns. Not sent to clients as is: [DisplayableChannel] applies it to the full image it keeps and
+    /// clients get the resulting patch.
+    ///
+    /// @param groups changed history groups, each replacing the group with the same key; groups not present are unchanged
+    public record HistoryDelta(Map<String, List<HistoryEntry>> groups) implements DisplayableDto {
+        @Override
+        @JsonProperty("type")
+        public String type() {
+            return "history_delta";
+        }
+    }
+
     public record HistoryEntry(String time, String text, TextFormat format) {}
 
     public record ChargingEventsDto(List<ChargingEventDto> events) implements DisplayableDto {
@@ -0,0 +1,57 @@
+package net.yudichev.jiotty.user.ui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+import java.util.Map;
+
+/// Minimal [RFC 6902](https://www.rfc-editor.org/rfc/rfc6902) JSON patch support: object members are diffed recursively, anything else that
+/// differs (arrays included) is replaced as a whole.
+final class JsonPatches {
+    private JsonPatches() {
+    }
+
+    /// @return operations that turn `from` into `to`
+    static ArrayNode diff(JsonNode from, JsonNode to) {
+        ArrayNode patch = JsonNodeFactory.instance.arrayNode();
+        diff("", from, to, patch);
+        return patch;
+    }
+
+    /// Appends an operation setting the member `name` of the object at `objectPath` to `value`.
+    static void set(ArrayNode patch, String objectPath, String name, boolean exists, JsonNode value) {
+        patch.addObject()
+             .put("op", exists ? "replace" : "add")
+             .put("path", objectPath + '/' + escape(name))
+             .set("value", value);
+    }
+
+    private static void diff(String path, JsonNode from, JsonNode to, ArrayNode patch) {
+        if (from.equals(to)) {
+            return;
+        }
+        if (from instanceof ObjectNode fromObject && to instanceof ObjectNode toObject) {
+            for (Map.Entry<String, JsonNode> field : fromObject.properties()) {
+                if (!toObject.has(field.getKey())) {
+                    patch.addObject().put("op", "remove").put("path", path + '/' + escape(field.getKey()));
+                }
+            }
+            for (Map.Entry<String, JsonNode> field : toObject.properties()) {
+                JsonNode fromValue = fromObject.get(field.getKey());
+                if (fromValue == null) {
+                    set(patch, path, field.getKey(), false, field.getValue());
+                } else {
+                    diff(path + '/' + escape(field.getKey()), fromValue, field.getValue(), patch);
+                }
+            }
+        } else {
+            patch.addObject().put("op", "replace").put("path", path).set("value", to);
+        }
+    }
+
+    private static String escape(String name) {
+        return name.indexOf('~') < 0 && name.indexOf('/') < 0 ? name : name.replace("~", "~0").replace("/", "~1");
+    }
+}
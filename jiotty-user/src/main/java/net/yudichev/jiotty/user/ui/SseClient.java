@@ -0,0 +1,222 @@
+package net.yudichev.jiotty.user.ui;
+
+import jakarta.annotation.Nullable;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import net.yudichev.jiotty.common.lang.Closeable;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.yudichev.jiotty.common.lang.Locks.inLock;
+
+/// One SSE connection, written to without blocking: frames are only written when the container reports the connection writable, so a slow
+/// client never holds up the thread feeding the others.
+///
+/// Displayable updates are not queued as frames: the client only remembers which displayables changed, and when it can next write, sends the
+/// latest version of each, encoded (once, for all clients in the same position) against the version this client was sent last. A slow
+/// client therefore gets fewer, conflated updates rather than a growing backlog; one that makes no progress at all is dropped, to reconnect
+/// and start over from full images.
+@SuppressWarnings("HardcodedLineSeparator")
+final class SseClient implements WriteListener, Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(SseClient.class);
+    private static final byte[] PING_FRAME = frame("ping", "{}".getBytes(UTF_8));
+    private static final int MAX_QUEUED_CONTROL_FRAMES = 8;
+
+    private final AsyncContext asyncContext;
+    private final ServletOutputStream out;
+    private final String clientId;
+    private final boolean acceptsPatches;
+    private final Function<String, DisplayableChannel> channelsById;
+    private final Consumer<SseClient> onClosed;
+
+    private final Lock lock = new ReentrantLock();
+    private final Queue<byte[]> controlFrames = new ArrayDeque<>(MAX_QUEUED_CONTROL_FRAMES);
+    private final Set<String> changedDisplayableIds = new LinkedHashSet<>();
+    private final Map<String, SentVersion> sentVersionByDisplayableId = new HashMap<>();
+    private boolean started;
+    private boolean flushNeeded;
+    private boolean closed;
+    private long lastWritableNanos = System.nanoTime();
+
+    /// @param acceptsPatches whether to send `displayable-patch` events, rather than only full `displayable-update` ones
+    /// @param channelsById   looks up displayable channels, may return `null` for displayables that are gone; called on arbitrary threads
+    SseClient(AsyncContext asyncContext,
+              String clientId,
+              boolean acceptsPatches,
+              Function<String, DisplayableChannel> channelsById,
+              Consumer<SseClient> onClosed) throws IOException {
+        this.asyncContext = checkNotNull(asyncContext);
+        this.clientId = checkNotNull(clientId);
+        this.acceptsPatches = acceptsPatches;
+        this.channelsById = checkNotNull(channelsById);
+        this.onClosed = checkNotNull(onClosed);
+        out = asyncContext.getResponse().getOutputStream();
+    }
+
+    static byte[] frame(String eventName, byte[] jsonData) {
+        byte[] prefix = ("event: " + eventName + "\ndata: ").getBytes(UTF_8);
+        byte[] frame = new byte[prefix.length + jsonData.length + 2];
+        System.arraycopy(prefix, 0, frame, 0, prefix.length);
+        System.arraycopy(jsonData, 0, frame, prefix.length, jsonData.length);
+        frame[frame.length - 2] = '\n';
+        frame[frame.length - 1] = '\n';
+        return frame;
+    }
+
+    /// Switches the connection to non-blocking writes and queues the greeting.
+    void start(int clientIdSeqNum) {
+        inLock(lock, () -> {
+            logger.debug("[SSE {}] init", clientId);
+            controlFrames.add("retry: 3000\n\n".getBytes(UTF_8));
+            // immediately inform the client of the server-assigned sequence number
+            controlFrames.add(frame("hello", ("{\"clientIdSeqNum\":" + clientIdSeqNum + '}').getBytes(UTF_8)));
+            started = true;
+            try {
+                // the container calls onWritePossible() as soon as the connection is writable
+                out.setWriteListener(this);
+            } catch (RuntimeException e) {
+                logger.debug("[SSE {}] setWriteListener failed", clientId, e);
+                close();
+            }
+        });
+    }
+
+    void displayableChanged(String displayableId) {
+        inLock(lock, () -> {
+            if (!closed && changedDisplayableIds.add(displayableId) && started) {
+                drain();
+            }
+        });
+    }
+
+    /// Sends a ping, unless the client is busy receiving something else anyway, or drops the client if it has had data pending without being
+    /// writable for longer than `stallTimeout`.
+    void ping(Duration stallTimeout) {
+        inLock(lock, () -> {
+            if (closed) {
+                return;
+            }
+            boolean dataPending = !controlFrames.isEmpty() || !changedDisplayableIds.isEmpty() || flushNeeded;
+            if (dataPending) {
+                if (System.nanoTime() - lastWritableNanos > stallTimeout.toNanos()) {
+                    logger.info("[SSE {}] made no progress in {}, dropping", clientId, stallTimeout);
+                    close();
+                }
+            } else {
+                logger.debug("[SSE {}] ping", clientId);
+                enqueueControlFrame(PING_FRAME);
+            }
+        });
+    }
+
+    @Override
+    public void onWritePossible() {
+        inLock(lock, this::drain);
+    }
+
+    @Override
+    public void onError(Throwable t) {
+        logger.debug("[SSE {}] write failed", clientId, t);
+        close();
+    }
+
+    @Override
+    public void close() {
+        inLock(lock, () -> {
+            if (!closed) {
+                closed = true;
+                logger.debug("[SSE {}] closed", clientId);
+                try {
+                    asyncContext.complete();
+                } catch (RuntimeException ignored) {
+                }
+                onClosed.accept(this);
+            }
+        });
+    }
+
+    @Override
+    public String toString() {
+        return clientId;
+    }
+
+    private void enqueueControlFrame(byte[] frame) {
+        if (controlFrames.size() < MAX_QUEUED_CONTROL_FRAMES) {
+            controlFrames.add(frame);
+            if (started) {
+                drain();
+            }
+        } else {
+            logger.info("[SSE {}] too many control frames pending, dropping", clientId);
+            close();
+        }
+    }
+
+    private void drain() {
+        // lock held
+        try {
+            while (!closed && out.isReady()) {
+                lastWritableNanos = System.nanoTime();
+                byte[] frame = nextFrame();
+                if (frame != null) {
+                    out.write(frame);
+                    flushNeeded = true;
+                } else if (flushNeeded) {
+                    // everything available is buffered, push it out; flush completes asynchronously, isReady() tells when
+                    flushNeeded = false;
+                    out.flush();
+                } else {
+                    return;
+                }
+            }
+        } catch (IOException | RuntimeException e) {
+            logger.debug("[SSE {}] write failed", clientId, e);
+            close();
+        }
+    }
+
+    @Nullable
+    private byte[] nextFrame() {
+        byte[] frame = controlFrames.poll();
+        if (frame != null) {
+            return frame;
+        }
+        for (Iterator<String> iterator = changedDisplayableIds.iterator(); iterator.hasNext(); ) {
+            String displayableId = iterator.next();
+            iterator.remove();
+            DisplayableChannel channel = channelsById.apply(displayableId);
+            DisplayableChannel.Snapshot snapshot = channel == null ? null : channel.snapshot();
+            if (snapshot != null) {
+                // versions are per channel, and a displayable registered again under the same id gets a new one
+                SentVersion sentVersion = sentVersionByDisplayableId.get(displayableId);
+                frame = snapshot.frameFor(sentVersion == null || sentVersion.channel != channel ? DisplayableChannel.NO_VERSION : sentVersion.version,
+                                          acceptsPatches);
+                if (frame != null) {
+                    // once written, a frame counts as delivered: a failed write drops the client, which then starts over
+                    sentVersionByDisplayableId.put(displayableId, new SentVersion(channel, snapshot.version()));
+                    return frame;
+                }
+            }
+        }
+        return null;
+    }
+
+    private record SentVersion(DisplayableChannel channel, long version) {}
+}
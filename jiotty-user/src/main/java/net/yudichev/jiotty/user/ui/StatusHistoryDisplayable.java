@@ -1,5 +1,6 @@
 package net.yudichev.jiotty.user.ui;
 
+import jakarta.annotation.Nullable;
 import jakarta.servlet.http.HttpServletResponse;
 import net.yudichev.jiotty.common.lang.Appender;
 import net.yudichev.jiotty.common.lang.Closeable;
@@ -7,16 +8,19 @@ import net.yudichev.jiotty.common.lang.Listeners;
 import net.yudichev.jiotty.common.lang.PublicImmutablesStyle;
 import org.immutables.value.Value;
 
+import java.time.Duration;
 import java.time.Instant;
 import java.time.ZoneId;
 import java.util.ArrayList;
-import java.util.Deque;
-import java.util.HashMap;
+import java.util.Comparator;
 import java.util.LinkedHashMap;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.BiConsumer;
 import java.util.function.Function;
 
@@ -25,8 +29,20 @@ import static com.google.common.base.Preconditions.checkNotNull;
 import static java.time.format.DateTimeFormatter.RFC_1123_DATE_TIME;
 import static java.util.concurrent.CompletableFuture.completedFuture;
 
+/// Last `windowSize` events per key, newest first.
+///
+/// Events go into a per-key ring buffer under a per-key lock held only for the O(1) append or merge, so writers of different keys never
+/// contend and rendering (which runs outside the lock) never holds up writers, which makes this suitable for high-rate sources. With
+/// [Downsampling], events falling into the same time bucket are merged into one entry showing the last value and the min/max of the bucket.
+///
+/// Listeners are only notified on the first event after the previous [#toDto()] or [#toDeltaDto()], and rendered entries are cached per
+/// key, so a consumer polling at its own pace only pays for the keys that changed.
 public final class StatusHistoryDisplayable<K, T> implements Displayable {
-    private final Map<K, DeviceStats> statsByKey = new HashMap<>();
+    private static final long NO_BUCKET = Long.MIN_VALUE;
+    /// stands for the `null` key, which [ConcurrentHashMap] does not allow
+    private static final Object NULL_KEY = new Object();
+
+    private final ConcurrentMap<Object, DeviceStats> statsByKey = new ConcurrentHashMap<>();
     private final String title;
     private final Function<K, String> keyToKeyTitle;
     private final Function<DeviceStatus<T>, String> statusToEventTime;
@@ -34,7 +50,11 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
     private final BiConsumer<String, HttpServletResponse> downloadHandler;
     private final int windowSize;
     private final TextFormat textFormat;
+    @Nullable
+    private final Downsampling<T> downsampling;
     private final Listeners<Void> listeners = new Listeners<>();
+    private final AtomicBoolean changesPending = new AtomicBoolean();
+    private final Object deltaLock = new Object();
 
     public StatusHistoryDisplayable(String title, int windowSize, Function<K, String> keyToKeyTitle) {
         this(title,
@@ -53,6 +73,18 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
                                     BiConsumer<DeviceStatus<T>, Appender> statusRenderer,
                                     BiConsumer<String, HttpServletResponse> downloadHandler,
                                     TextFormat textFormat) {
+        this(title, windowSize, keyToKeyTitle, statusToEventTime, statusRenderer, downloadHandler, textFormat, null);
+    }
+
+    /// @param downsampling if not `null`, events of a key falling into the same time bucket are merged into one entry
+    public StatusHistoryDisplayable(String title,
+                                    int windowSize,
+                                    Function<K, String> keyToKeyTitle,
+                                    Function<DeviceStatus<T>, String> statusToEventTime,
+                                    BiConsumer<DeviceStatus<T>, Appender> statusRenderer,
+                                    BiConsumer<String, HttpServletResponse> downloadHandler,
+                                    TextFormat textFormat,
+                                    @Nullable Downsampling<T> downsampling) {
         this.title = checkNotNull(title);
         this.keyToKeyTitle = checkNotNull(keyToKeyTitle);
         this.statusToEventTime = checkNotNull(statusToEventTime);
@@ -61,6 +93,7 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
         checkArgument(windowSize > 0);
         this.windowSize = windowSize;
         this.textFormat = checkNotNull(textFormat);
+        this.downsampling = downsampling;
     }
 
     @Override
@@ -69,11 +102,16 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
         return listeners.addListener(unused -> updatesAvailable.run());
     }
 
-    public void addEvent(K key, T value, Instant lastChanged) {
-        synchronized (statsByKey) {
-            statsByKey.computeIfAbsent(key, ignored -> new DeviceStats()).add(DeviceStatus.<T>builder().setLastChanged(lastChanged).setStatus(value).build());
+    public void addEvent(@Nullable K key, T value, Instant lastChanged) {
+        Object mapKey = key == null ? NULL_KEY : key;
+        DeviceStats stats = statsByKey.get(mapKey);
+        if (stats == null) {
+            stats = statsByKey.computeIfAbsent(mapKey, ignored -> new DeviceStats());
+        }
+        stats.add(DeviceStatus.<T>builder().setLastChanged(lastChanged).setStatus(value).build());
+        if (changesPending.compareAndSet(false, true)) {
+            listeners.notify(null);
         }
-        listeners.notify(null);
     }
 
     @Override
@@ -92,6 +130,11 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
         return true;
     }
 
+    @Override
+    public boolean supportsDeltas() {
+        return true;
+    }
+
     @Override
     public boolean visible() {
         return true;
@@ -99,24 +142,40 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
 
     @Override
     public CompletableFuture<DisplayableDtos.DisplayableDto> toDto() {
+        changesPending.set(false);
         var groups = new LinkedHashMap<String, List<DisplayableDtos.HistoryEntry>>();
-        synchronized (statsByKey) {
+        statsByKey.forEach((key, stats) -> groups.put(keyTitle(key), stats.render()));
+        return completedFuture(new DisplayableDtos.History(groups));
+    }
+
+    @Override
+    public CompletableFuture<DisplayableDtos.DisplayableDto> toDeltaDto() {
+        changesPending.set(false);
+        var groups = new LinkedHashMap<String, List<DisplayableDtos.HistoryEntry>>();
+        synchronized (deltaLock) {
             statsByKey.forEach((key, stats) -> {
-                String what = key == null ? "" : keyToKeyTitle.apply(key);
-                var entries = new ArrayList<DisplayableDtos.HistoryEntry>();
-                var sb = new StringBuilder(64);
-                var appender = Appender.wrap(sb);
-                // newest first
-                stats.statusHistory().descendingIterator().forEachRemaining(status -> {
-                    String time = statusToEventTime.apply(status);
-                    statusRenderer.accept(status, appender);
-                    entries.add(new DisplayableDtos.HistoryEntry(time, sb.toString(), textFormat));
-                    sb.setLength(0);
-                });
-                groups.put(what, entries);
+                long version = stats.version.get();
+                if (version != stats.deltaVersion) {
+                    stats.deltaVersion = version;
+                    groups.put(keyTitle(key), stats.render());
+                }
             });
         }
-        return completedFuture(new DisplayableDtos.History(groups));
+        return completedFuture(new DisplayableDtos.HistoryDelta(groups));
+    }
+
+    @SuppressWarnings("unchecked") // only keys of type K are put, besides NULL_KEY
+    private String keyTitle(Object mapKey) {
+        return mapKey == NULL_KEY ? "" : keyToKeyTitle.apply((K) mapKey);
+    }
+
+    /// @param bucketLength events of a key within the same bucket of this length (aligned to the epoch) are merged into one entry
+    /// @param order        used to determine min and max values of a bucket
+    public record Downsampling<T>(Duration bucketLength, Comparator<? super T> order) {
+        public Downsampling {
+            checkArgument(bucketLength.toMillis() > 0, "bucketLength must be at least 1ms, but was %s", bucketLength);
+            checkNotNull(order);
+        }
     }
 
     @Value.Immutable
@@ -129,19 +188,87 @@ public final class StatusHistoryDisplayable<K, T> implements Displayable {
         Instant lastChanged();
     }
 
-    private final class DeviceStats {
+    /// One ring buffer entry: a single event, or, with downsampling, all events of one time bucket.
+    private record Slot<T>(long bucket, DeviceStatus<T> last, T min, T max, int count) {
+        Slot<T> merge(DeviceStatus<T> status, Comparator<? super T> order) {
+            T value = status.status();
+            return new Slot<>(bucket,
+                              status,
+                              order.compare(value, min) < 0 ? value : min,
+                              order.compare(value, max) > 0 ? value : max,
+                              count + 1);
+        }
+    }
+
+    private record RenderedHistory(long version, List<DisplayableDtos.HistoryEntry> entries) {}
 
-        private final Deque<DeviceStatus<T>> history = new LinkedList<>();
+    private final class DeviceStats {
+        /// guarded by this
+        private final List<Slot<T>> slots = new ArrayList<>(windowSize);
+        /// guarded by this; total number of slots ever appended
+        private long slotCount;
+        /// incremented on every event, including ones merged into an existing bucket
+        private final AtomicLong version = new AtomicLong();
+        private volatile RenderedHistory rendered = new RenderedHistory(0, List.of());
+        /// guarded by deltaLock
+        private long deltaVersion;
 
-        public Deque<DeviceStatus<T>> statusHistory() {
-            return history;
+        void add(DeviceStatus<T> status) {
+            long bucket = downsampling == null ? NO_BUCKET : Math.floorDiv(status.lastChanged().toEpochMilli(), downsampling.bucketLength().toMillis());
+            synchronized (this) {
+                int headIndex = index(slotCount - 1);
+                if (bucket != NO_BUCKET && slotCount > 0 && slots.get(headIndex).bucket() == bucket) {
+                    slots.set(headIndex, slots.get(headIndex).merge(status, downsampling.order()));
+                } else {
+                    var slot = new Slot<>(bucket, status, status.status(), status.status(), 1);
+                    if (slots.size() < windowSize) {
+                        slots.add(slot);
+                    } else {
+                        slots.set(index(slotCount), slot);
+                    }
+                    slotCount++;
+                }
+                // under the lock, so that a snapshot taken under the lock is exactly of this version
+                version.incrementAndGet();
+            }
         }
 
-        public void add(DeviceStatus<T> status) {
-            history.add(status);
-            if (history.size() > windowSize) {
-                history.poll();
+        List<DisplayableDtos.HistoryEntry> render() {
+            RenderedHistory current = rendered;
+            if (current.version() == version.get()) {
+                return current.entries();
             }
+            long snapshotVersion;
+            var newestFirst = new ArrayList<Slot<T>>(windowSize);
+            synchronized (this) {
+                snapshotVersion = version.get();
+                for (long i = slotCount - 1; i >= slotCount - slots.size(); i--) {
+                    newestFirst.add(slots.get(index(i)));
+                }
+            }
+            var entries = new ArrayList<DisplayableDtos.HistoryEntry>(newestFirst.size());
+            var sb = new StringBuilder(64);
+            var appender = Appender.wrap(sb);
+            for (Slot<T> slot : newestFirst) {
+                DeviceStatus<T> last = slot.last();
+                statusRenderer.accept(last, appender);
+                if (slot.count() > 1) {
+                    appender.append(" (min ");
+                    statusRenderer.accept(DeviceStatus.of(slot.min(), last.lastChanged()), appender);
+                    appender.append(", max ");
+                    statusRenderer.accept(DeviceStatus.of(slot.max(), last.lastChanged()), appender);
+                    appender.append(", ").append(slot.count()).append(" events)");
+                }
+                entries.add(new DisplayableDtos.HistoryEntry(statusToEventTime.apply(last), sb.toString(), textFormat));
+                sb.setLength(0);
+            }
+            List<DisplayableDtos.HistoryEntry> result = List.copyOf(entries);
+            rendered = new RenderedHistory(snapshotVersion, result);
+            return result;
+        }
+
+        private int index(long seq) {
+            return Math.floorMod(seq, windowSize);
         }
     }
 }
@@ -8,7 +8,6 @@ import jakarta.inject.Inject;
 import jakarta.servlet.AsyncContext;
 import jakarta.servlet.AsyncEvent;
 import jakarta.servlet.AsyncListener;
-import jakarta.servlet.ServletOutputStream;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -40,6 +39,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.regex.Pattern;
 
@@ -56,6 +57,7 @@ import static net.yudichev.jiotty.common.lang.MoreThrowables.asUnchecked;
 
 final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
     private static final Logger logger = LoggerFactory.getLogger(UIServerImpl.class);
+    private static final Duration SSE_STALL_TIMEOUT = Duration.ofMinutes(1);
     private static final Pattern TAB_NAME_TO_ID_CONVERSION_PATTERN = Pattern.compile("[^A-Za-z0-9_-]");
     private static final ObjectMapper MAPPER = new ObjectMapper(new JsonFactory())
             .registerModule(new JavaTimeModule());
@@ -66,6 +68,7 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
     private final Server server;
     private final List<Closeable> optionsPersistenceRegistrations = new ArrayList<>();
     private final ExecutorFactory executorFactory;
+    private final Map<String, DisplayableChannel> channelsById = new ConcurrentHashMap<>();
     private final Set<SseClient> sseClients = new HashSet<>();
     private final AtomicInteger sseClientIdGenerator = new AtomicInteger();
     private SchedulingExecutor executor;
@@ -112,18 +115,25 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
                           "Displayable with id '%s' is already registered", displayable.getId());
             Closeable dataSubscription;
             @Nullable ThrottlingConsumer<Void> throttle;
+            @Nullable DisplayableChannel channel;
             if (displayable.supportsData()) {
-                throttle = new ThrottlingConsumer<>(executor, Duration.ofSeconds(1), _ -> onNewData(displayable));
+                channel = new DisplayableChannel(displayable.getId(), MAPPER);
+                channelsById.put(channel.id(), channel);
+                throttle = new ThrottlingConsumer<>(executor, Duration.ofSeconds(1), _ -> refresh(channel, displayable));
                 dataSubscription = displayable.subscribeForUpdates(() -> throttle.accept(null));
+                // deliver image to existing SSE clients
+                executor.execute(() -> refresh(channel, displayable));
             } else {
+                channel = null;
                 dataSubscription = noop();
                 throttle = null;
             }
             logger.info("Registered displayable {} with title {}", displayable, displayable.getDisplayName());
-            // deliver image to existing SSE clients
-            onNewData(displayable);
             return idempotent(() -> whenStartedAndNotLifecycling(() -> {
                 if (displayablesById.remove(displayable.getId(), displayable)) {
+                    if (channel != null) {
+                        channelsById.remove(channel.id(), channel);
+                    }
                     Closeable.closeSafelyIfNotNull(logger, throttle, dataSubscription);
                     logger.info("Unregistered displayable {} with title {}", displayable, displayable.getDisplayName());
                 }
@@ -131,21 +141,28 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
         });
     }
 
-    private void onNewData(Displayable displayable) {
+    private void refresh(DisplayableChannel channel, Displayable displayable) {
         // executor thread
-        displayable.toDto().whenCompleteAsync(
+        CompletableFuture<DisplayableDtos.DisplayableDto> dtoFuture =
+                channel.hasImage() && displayable.supportsDeltas() ? displayable.toDeltaDto() : displayable.toDto();
+        dtoFuture.whenCompleteAsync(
                 (displayableDto, throwable) -> {
                     if (throwable != null) {
                         logger.warn("Displayable {} failed to generate DTO", displayable.getId(), throwable);
                         return;
                     }
+                    if (channelsById.get(channel.id()) != channel) {
+                        return; // unregistered meanwhile
+                    }
                     try {
-                        String json = MAPPER.writeValueAsString(Map.of("id", displayable.getId(), "dto", displayableDto));
-                        broadcastSse("displayable-update", json);
-                    } catch (@SuppressWarnings("OverlyBroadCatchBlock") IOException e) {
+                        if (channel.update(displayableDto)) {
+                            for (SseClient client : sseClients) {
+                                client.displayableChanged(channel.id());
+                            }
+                        }
+                    } catch (RuntimeException e) {
                         logger.warn("Failed to serialize update of displayable {}", displayable.getId(), e);
                     }
-
                 },
                 executor);
     }
@@ -287,17 +304,10 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
         };
     }
 
-    private void broadcastSse(String eventName, String jsonData) {
-        // executor thread
-        for (SseClient client : sseClients) {
-            client.sendEvent(eventName, jsonData);
-        }
-    }
-
     private void sendSseHeartbeat() {
         // executor thread
         for (SseClient client : sseClients) {
-            client.ping();
+            client.ping(SSE_STALL_TIMEOUT);
         }
     }
 
@@ -314,19 +324,21 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
         resp.setHeader("X-Accel-Buffering", "no");
         // include server-generated client sequence number for client-side diagnostics
         resp.setHeader("X-Client-Id-Seq-Num", String.valueOf(clientIdSeqNum));
+        // clients passing deltas=true also get "displayable-patch" events: RFC 6902 patches taking a displayable from version "from" to "v"
+        boolean acceptsPatches = Boolean.parseBoolean(req.getParameter("deltas"));
         // make sure headers are sent
         resp.flushBuffer();
 
         @SuppressWarnings("resource")
-        var client = new SseClient(asyncContext, clientId, clientIdSeqNum);
+        var client = new SseClient(asyncContext, clientId, acceptsPatches, channelsById::get, closed -> executor.execute(() -> sseClients.remove(closed)));
         logger.debug("[SSE {}] created", clientId);
         executor.execute(() -> {
             sseClients.add(client);
-            client.init();
+            client.start(clientIdSeqNum);
 
-            // deliver image to the new client
+            // deliver images to the new client
             logger.debug("[SSE {}] delivering initial image", clientId);
-            whenStartedAndNotLifecycling(() -> List.copyOf(displayablesById.values())).forEach(this::onNewData);
+            channelsById.keySet().forEach(client::displayableChanged);
 
             try {
                 asyncContext.addListener(new AsyncListener() {
@@ -355,79 +367,16 @@ final class UIServerImpl extends BaseLifecycleComponent implements UIServer {
                     }
 
                     private void removeClient() {
-                        executor.execute(() -> sseClients.remove(client));
+                        client.close();
                     }
                 });
             } catch (RuntimeException e) {
                 logger.debug("[SSE {}] asyncContext.addListener failed", clientId, e);
                 client.close();
-                sseClients.remove(client);
             }
         });
     }
 
-    @SuppressWarnings("HardcodedLineSeparator")
-    private static final class SseClient implements Closeable {
-        private final AsyncContext asyncContext;
-        private final ServletOutputStream out;
-        private final int clientIdSeqNum;
-        private final String clientId;
-
-        SseClient(AsyncContext asyncContext, String clientId, int clientIdSeqNum) throws IOException {
-            this.asyncContext = checkNotNull(asyncContext);
-            this.clientId = checkNotNull(clientId);
-            out = asyncContext.getResponse().getOutputStream();
-            this.clientIdSeqNum = clientIdSeqNum;
-        }
-
-        private void init() {
-            try {
-                logger.debug("[SSE {}] init", clientId);
-                out.print("retry: 3000\n\n");
-                // immediately inform the client of the server-assigned sequence number
-                sendEvent("hello", "{\"clientIdSeqNum\":" + clientIdSeqNum + "}");
-                out.flush();
-            } catch (IOException e) {
-                close();
-            }
-        }
-
-        private void sendEvent(String eventName, String data) {
-            try {
-                logger.debug("[SSE {}] send event {}, {}", clientId, eventName, data);
-                out.print("event: ");
-                out.print(eventName);
-                out.print('\n');
-                out.print("data: ");
-                out.print(data);
-                out.print("\n\n");
-                out.flush();
-            } catch (IOException e) {
-                close();
-            }
-        }
-
-        public void ping() {
-            try {
-                logger.debug("[SSE {}] ping", clientId);
-                out.print("event: ping\n");
-                out.print("data: {}\n\n");
-                out.flush();
-            } catch (IOException e) {
-                close();
-            }
-        }
-
-        @Override
-        public void close() {
-            try {
-                logger.debug("[SSE {}] closed", clientId);
-                asyncContext.complete();
-            } catch (RuntimeException ignored) {
-            }
-        }
-    }
-
     private class OptionsServlet extends HttpServlet {
         @Override
         protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
@@ -0,0 +1,127 @@
+package net.yudichev.jiotty.user.ui;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
+import static net.yudichev.jiotty.user.ui.DisplayableChannel.NO_VERSION;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class DisplayableChannelTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private DisplayableChannel channel;
+
+    @BeforeEach
+    void setUp() {
+        channel = new DisplayableChannel("id", MAPPER);
+    }
+
+    @Test
+    void sendsFullImageToNewClients() {
+        assertThat(channel.snapshot()).isNull();
+
+        assertThat(channel.update(history(Map.of("a", List.of(entry("1")))))).isTrue();
+
+        var snapshot = channel.snapshot();
+        assertThat(snapshot.version()).isEqualTo(0L);
+        var event = Event.parse(snapshot.frameFor(NO_VERSION, true));
+        assertThat(event.name()).isEqualTo("displayable-update");
+        assertThat(event.data().get("id").asText()).isEqualTo("id");
+        assertThat(event.data().get("v").asLong()).isEqualTo(0L);
+        assertThat(event.data().at("/dto/groups/a/0/text").asText()).isEqualTo("1");
+        assertThat(snapshot.frameFor(0, true)).isNull();
+    }
+
+    @Test
+    void appliesHistoryDeltaAsPatch() {
+        channel.update(history(Map.of("a", List.of(entry("1")), "b/c", List.of(entry("2")))));
+
+        channel.update(new DisplayableDtos.HistoryDelta(Map.of("b/c", List.of(entry("3"), entry("2")))));
+
+        var snapshot = channel.snapshot();
+        var event = Event.parse(snapshot.frameFor(0, true));
+        assertThat(event.name()).isEqualTo("displayable-patch");
+        assertThat(event.data().get("from").asLong()).isEqualTo(0L);
+        assertThat(event.data().get("v").asLong()).isEqualTo(1L);
+        JsonNode patch = event.data().get("patch");
+        assertThat(patch.size()).isEqualTo(1);
+        assertThat(patch.at("/0/op").asText()).isEqualTo("replace");
+        assertThat(patch.at("/0/path").asText()).isEqualTo("/groups/b~1c");
+        assertThat(patch.at("/0/value/0/text").asText()).isEqualTo("3");
+
+        var fullImage = Event.parse(snapshot.frameFor(0, false));
+        assertThat(fullImage.name()).isEqualTo("displayable-update");
+        assertThat(fullImage.data().at("/dto/type").asText()).isEqualTo("history");
+        assertThat(fullImage.data().at("/dto/groups/a/0/text").asText()).isEqualTo("1");
+        assertThat(fullImage.data().at("/dto/groups/b~1c/0/text").asText()).isEqualTo("3");
+    }
+
+    @Test
+    void ignoresUnchangedData() {
+        channel.update(history(Map.of("a", List.of(entry("1")))));
+
+        assertThat(channel.update(history(Map.of("a", List.of(entry("1")))))).isFalse();
+        assertThat(channel.update(new DisplayableDtos.HistoryDelta(Map.of("a", List.of(entry("1")))))).isFalse();
+        assertThat(channel.snapshot().version()).isEqualTo(0L);
+    }
+
+    @Test
+    void concatenatesPatchesFromOlderVersionsAndEncodesThemOnce() {
+        channel.update(history(Map.of("a", List.of(entry("1")))));
+        channel.update(history(Map.of("a", List.of(entry("2")))));
+        channel.update(history(Map.of("a", List.of(entry("2")), "b", List.of(entry("3")))));
+
+        var snapshot = channel.snapshot();
+        byte[] frame = snapshot.frameFor(0, true);
+        JsonNode patch = Event.parse(frame).data().get("patch");
+        assertThat(patch.size()).isEqualTo(2);
+        assertThat(patch.at("/0/path").asText()).isEqualTo("/groups/a");
+        assertThat(patch.at("/1/op").asText()).isEqualTo("add");
+        assertThat(patch.at("/1/path").asText()).isEqualTo("/groups/b");
+        assertThat(snapshot.frameFor(0, true)).isSameAs(frame);
+    }
+
+    @Test
+    void sendsFullImageToClientsTooFarBehind() {
+        channel.update(history(Map.of("a", List.of(entry("0")))));
+        for (int i = 1; i <= 20; i++) {
+            channel.update(history(Map.of("a", List.of(entry(Integer.toString(i))))));
+        }
+
+        assertThat(Event.parse(channel.snapshot().frameFor(0, true)).name()).isEqualTo("displayable-update");
+        assertThat(Event.parse(channel.snapshot().frameFor(19, true)).name()).isEqualTo("displayable-patch");
+    }
+
+    /// patches are only sent when smaller than the full image, so every image also has a large group that never changes
+    private static DisplayableDtos.History history(Map<String, List<DisplayableDtos.HistoryEntry>> groups) {
+        var allGroups = new HashMap<>(groups);
+        allGroups.put("static", IntStream.range(0, 50).mapToObj(i -> entry("static entry " + i)).toList());
+        return new DisplayableDtos.History(allGroups);
+    }
+
+    private static DisplayableDtos.HistoryEntry entry(String text) {
+        return new DisplayableDtos.HistoryEntry("time", text, TextFormat.PLAIN);
+    }
+
+    record Event(String name, JsonNode data) {
+        static Event parse(byte[] frame) {
+            String text = new String(frame, UTF_8);
+            assertThat(text).endsWith("\n\n");
+            String[] lines = text.strip().split("\n");
+            assertThat(Arrays.asList(lines)).hasSize(2);
+            assertThat(lines[0]).startsWith("event: ");
+            assertThat(lines[1]).startsWith("data: ");
+            return new Event(lines[0].substring("event: ".length()), getAsUnchecked(() -> MAPPER.readTree(lines[1].substring("data: ".length()))));
+        }
+    }
+}
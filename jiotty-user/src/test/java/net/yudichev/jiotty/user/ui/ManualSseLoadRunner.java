@@ -0,0 +1,157 @@
+package net.yudichev.jiotty.user.ui;
+
+import net.yudichev.jiotty.common.async.ExecutorFactoryImpl;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/// Starts a [UIServerImpl] with a [StatusHistoryDisplayable] fed at a high rate and connects hundreds of SSE clients to it, some of which
+/// read slowly, then reports per client events, bytes and delivery latency (the age of the newest event seen in each frame).
+///
+/// Needs the `/uiserver/wwwroot` resources on the classpath and port [UIServerModule#LISTEN_PORT] free.
+///
+/// `ManualSseLoadRunner [fastClients] [slowClients] [eventsPerSecond] [seconds] [deltas]`
+final class ManualSseLoadRunner {
+    private static final Pattern EVENT_NANOS = Pattern.compile("\"text\":\"(\\d+)");
+    private static final int KEY_COUNT = 20;
+
+    static void main(String[] args) throws Exception {
+        int fastClients = args.length > 0 ? Integer.parseInt(args[0]) : 300;
+        int slowClients = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int eventsPerSecond = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        int seconds = args.length > 3 ? Integer.parseInt(args[3]) : 30;
+        boolean deltas = args.length <= 4 || Boolean.parseBoolean(args[4]);
+
+        var server = new UIServerImpl(new NoPersistence(), new ExecutorFactoryImpl());
+        server.start();
+        var displayable = new StatusHistoryDisplayable<Integer, Long>("load", 50, key -> "key " + key);
+        server.registerDisplayable(displayable);
+
+        var uri = URI.create("http://localhost:" + UIServerModule.LISTEN_PORT + UIServerModule.PATH_ROOT + "/api/displayables/stream?deltas=" + deltas);
+        var httpClient = HttpClient.newBuilder().executor(Executors.newVirtualThreadPerTaskExecutor()).build();
+        var readers = Executors.newVirtualThreadPerTaskExecutor();
+        List<ClientStats> stats = new ArrayList<>();
+        var finished = new CountDownLatch(fastClients + slowClients);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        for (int i = 0; i < fastClients + slowClients; i++) {
+            var clientStats = new ClientStats(i >= fastClients);
+            stats.add(clientStats);
+            readers.execute(() -> {
+                try {
+                    read(httpClient, uri, clientStats, deadline);
+                } catch (IOException | RuntimeException e) {
+                    clientStats.error = e.toString();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    finished.countDown();
+                }
+            });
+        }
+
+        long nanosPerEvent = TimeUnit.SECONDS.toNanos(1) / eventsPerSecond;
+        long eventCount = 0;
+        long start = System.nanoTime();
+        while (System.nanoTime() < deadline) {
+            long due = start + eventCount * nanosPerEvent;
+            long now = System.nanoTime();
+            if (now < due) {
+                TimeUnit.NANOSECONDS.sleep(due - now);
+            }
+            // the event value is its creation time, which lets readers measure latency from the rendered text
+            displayable.addEvent((int) (eventCount % KEY_COUNT), System.nanoTime(), Instant.now());
+            eventCount++;
+        }
+        finished.await(10, TimeUnit.SECONDS);
+        readers.shutdownNow();
+        server.stop();
+
+        System.out.printf("%d events fed, %d fast + %d slow clients, deltas=%s%n", eventCount, fastClients, slowClients, deltas);
+        report("fast", stats.stream().filter(s -> !s.slow).toList(), seconds);
+        report("slow", stats.stream().filter(s -> s.slow).toList(), seconds);
+        stats.stream().filter(s -> s.error != null).limit(5).forEach(s -> System.out.println("error: " + s.error));
+    }
+
+    private static void read(HttpClient httpClient, URI uri, ClientStats stats, long deadline) throws IOException, InterruptedException {
+        var response = httpClient.send(HttpRequest.newBuilder(uri).build(), HttpResponse.BodyHandlers.ofLines());
+        try (var lines = response.body()) {
+            var iterator = lines.iterator();
+            while (System.nanoTime() < deadline && iterator.hasNext()) {
+                String line = iterator.next();
+                stats.bytes += line.getBytes(UTF_8).length + 1;
+                if (line.startsWith("event: ")) {
+                    stats.events++;
+                } else if (line.startsWith("data: ")) {
+                    long newestEventNanos = 0;
+                    Matcher matcher = EVENT_NANOS.matcher(line);
+                    while (matcher.find()) {
+                        newestEventNanos = Math.max(newestEventNanos, Long.parseLong(matcher.group(1)));
+                    }
+                    if (newestEventNanos > 0) {
+                        stats.latency.add(System.nanoTime() - newestEventNanos);
+                        stats.latencySamples.increment();
+                    }
+                    if (stats.slow) {
+                        // a reader that cannot keep up: the server should conflate rather than queue
+                        Thread.sleep(200);
+                    }
+                }
+            }
+        }
+    }
+
+    private static void report(String kind, List<ClientStats> clients, int seconds) {
+        if (clients.isEmpty()) {
+            return;
+        }
+        long events = clients.stream().mapToLong(s -> s.events).sum();
+        long bytes = clients.stream().mapToLong(s -> s.bytes).sum();
+        long latencySamples = clients.stream().mapToLong(s -> s.latencySamples.sum()).sum();
+        long latencyNanos = clients.stream().mapToLong(s -> s.latency.sum()).sum();
+        long failed = clients.stream().filter(s -> s.error != null).count();
+        System.out.printf("%s: %.1f events/s/client, %.1f KiB/s/client, mean latency %s, %d failed%n",
+                          kind,
+                          (double) events / clients.size() / seconds,
+                          (double) bytes / clients.size() / seconds / 1024,
+                          latencySamples == 0 ? "n/a" : Duration.ofNanos(latencyNanos / latencySamples),
+                          failed);
+    }
+
+    private static final class ClientStats {
+        final boolean slow;
+        final LongAdder latency = new LongAdder();
+        final LongAdder latencySamples = new LongAdder();
+        volatile long events;
+        volatile long bytes;
+        volatile String error;
+
+        ClientStats(boolean slow) {
+            this.slow = slow;
+        }
+    }
+
+    private static final class NoPersistence implements OptionPersistence {
+        @Override
+        public void save(Option<?> option) {
+        }
+
+        @Override
+        public <T> void load(Option<T> option) {
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package net.yudichev.jiotty.user.ui;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.ServletResponse;
+import jakarta.servlet.WriteListener;
+import net.yudichev.jiotty.user.ui.DisplayableChannelTest.Event;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+class SseClientTest {
+    private static final ObjectMapper MAPPER = new ObjectMapper();
+
+    private final Map<String, DisplayableChannel> channelsById = new HashMap<>();
+    private final FrameRecordingOutputStream out = new FrameRecordingOutputStream();
+    @Mock
+    private AsyncContext asyncContext;
+    @Mock
+    private ServletResponse response;
+    private SseClient client;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        when(asyncContext.getResponse()).thenReturn(response);
+        when(response.getOutputStream()).thenReturn(out);
+        client = new SseClient(asyncContext, "client", true, channelsById::get, _ -> {});
+        client.start(1);
+        client.onWritePossible();
+        out.frames.clear();
+    }
+
+    @Test
+    void sendsFullImageOfDisplayableRegisteredAgainUnderSameId() {
+        register("before 1");
+        update("before 2");
+        client.displayableChanged("id");
+        assertThat(lastEvent().data().get("v").asLong()).isEqualTo(1L);
+
+        // behind the version the client was sent
+        register("after 1");
+        client.displayableChanged("id");
+        Event event = lastEvent();
+        assertThat(event.name()).isEqualTo("displayable-update");
+        assertThat(event.data().at("/dto/groups/a/0/text").asText()).isEqualTo("after 1");
+
+        // at the version the client was sent
+        register("again 1");
+        update("again 2");
+        client.displayableChanged("id");
+        event = lastEvent();
+        assertThat(event.name()).isEqualTo("displayable-update");
+        assertThat(event.data().at("/dto/groups/a/0/text").asText()).isEqualTo("again 2");
+        assertThat(out.frames).hasSize(3);
+    }
+
+    private void register(String text) {
+        channelsById.put("id", new DisplayableChannel("id", MAPPER));
+        update(text);
+    }
+
+    private void update(String text) {
+        channelsById.get("id").update(new DisplayableDtos.History(Map.of("a", List.of(new DisplayableDtos.HistoryEntry("time", text, TextFormat.PLAIN)))));
+    }
+
+    private Event lastEvent() {
+        return Event.parse(out.frames.getLast());
+    }
+
+    private static final class FrameRecordingOutputStream extends ServletOutputStream {
+        final List<byte[]> frames = new ArrayList<>();
+
+        @Override
+        public boolean isReady() {
+            return true;
+        }
+
+        @Override
+        public void setWriteListener(WriteListener writeListener) {
+        }
+
+        @Override
+        public void write(byte[] b) {
+            frames.add(b.clone());
+        }
+
+        @Override
+        public void write(int b) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package net.yudichev.jiotty.user.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static java.util.concurrent.TimeUnit.SECONDS;
+import static net.yudichev.jiotty.common.lang.MoreThrowables.getAsUnchecked;
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatusHistoryDisplayableTest {
+    private static final Instant T0 = Instant.parse("2026-01-01T00:00:00Z");
+
+    @Test
+    void keepsLastWindowSizeEventsPerKeyNewestFirst() {
+        var displayable = displayable(3, null);
+        for (int i = 0; i < 5; i++) {
+            displayable.addEvent("a", i, T0.plusSeconds(i));
+        }
+        displayable.addEvent("b", 10, T0);
+
+        Map<String, List<DisplayableDtos.HistoryEntry>> groups = history(displayable);
+
+        assertThat(texts(groups.get("a"))).containsExactly("4", "3", "2");
+        assertThat(texts(groups.get("b"))).containsExactly("10");
+    }
+
+    @Test
+    void keepsEventsOfNullKeyUnderEmptyTitle() {
+        var displayable = displayable(3, null);
+        displayable.addEvent(null, 1, T0);
+        displayable.addEvent(null, 2, T0.plusSeconds(1));
+        displayable.addEvent("a", 3, T0);
+
+        Map<String, List<DisplayableDtos.HistoryEntry>> groups = history(displayable);
+
+        assertThat(texts(groups.get(""))).containsExactly("2", "1");
+        assertThat(texts(groups.get("a"))).containsExactly("3");
+    }
+
+    @Test
+    void keepsWindowInOrderAcrossManyWraps() {
+        var displayable = displayable(4, null);
+        for (int i = 0; i < 1003; i++) {
+            displayable.addEvent("a", i, T0.plusSeconds(i));
+        }
+
+        assertThat(texts(history(displayable).get("a"))).containsExactly("1002", "1001", "1000", "999");
+    }
+
+    @Test
+    void mergesEventsOfOneBucketShowingLastMinMaxAndCount() {
+        var displayable = displayable(3, new StatusHistoryDisplayable.Downsampling<>(Duration.ofMinutes(1), Comparator.<Integer>naturalOrder()));
+        displayable.addEvent("a", 5, T0);
+        displayable.addEvent("a", 9, T0.plusSeconds(10));
+        displayable.addEvent("a", 1, T0.plusSeconds(20));
+        displayable.addEvent("a", 4, T0.plusSeconds(30));
+        displayable.addEvent("a", 7, T0.plusSeconds(60));
+
+        List<DisplayableDtos.HistoryEntry> entries = history(displayable).get("a");
+
+        assertThat(texts(entries)).containsExactly("7", "4 (min 1, max 9, 4 events)");
+        assertThat(entries.get(1).time()).isEqualTo(T0.plusSeconds(30).toString());
+    }
+
+    @Test
+    void mergedBucketsWrapAroundTheWindow() {
+        var displayable = displayable(2, new StatusHistoryDisplayable.Downsampling<>(Duration.ofMinutes(1), Comparator.<Integer>naturalOrder()));
+        for (int minute = 0; minute < 5; minute++) {
+            displayable.addEvent("a", minute * 10, T0.plus(Duration.ofMinutes(minute)));
+            displayable.addEvent("a", minute * 10 + 1, T0.plus(Duration.ofMinutes(minute)).plusSeconds(1));
+        }
+
+        assertThat(texts(history(displayable).get("a"))).containsExactly("41 (min 40, max 41, 2 events)", "31 (min 30, max 31, 2 events)");
+    }
+
+    @Test
+    void concurrentWritersLoseNoEventsAndKeepEachWritersOrder() throws Exception {
+        int writerCount = 4;
+        int eventsPerWriter = 10_000;
+        var displayable = displayable(writerCount * eventsPerWriter, null);
+        var merging = displayable(writerCount * eventsPerWriter,
+                                  new StatusHistoryDisplayable.Downsampling<>(Duration.ofMillis(1), Comparator.<Integer>naturalOrder()));
+        var start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(writerCount);
+        try {
+            var futures = new ArrayList<Future<?>>();
+            for (int writer = 0; writer < writerCount; writer++) {
+                int base = writer * eventsPerWriter;
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < eventsPerWriter; i++) {
+                        displayable.addEvent("a", base + i, T0);
+                        // each writer's events fall into buckets of their own, interleaved with the other writers' ones
+                        merging.addEvent("a", base + i, T0.plusMillis(base + i / 2));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get(30, SECONDS);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<String> texts = texts(history(displayable).get("a"));
+        assertThat(texts.size()).isEqualTo(writerCount * eventsPerWriter);
+        for (int writer = 0; writer < writerCount; writer++) {
+            int base = writer * eventsPerWriter;
+            List<Integer> writerValues = texts.stream().map(Integer::parseInt).filter(value -> value >= base && value < base + eventsPerWriter).toList();
+            assertThat(writerValues.size()).isEqualTo(eventsPerWriter);
+            for (int i = 1; i < writerValues.size(); i++) {
+                assertThat(writerValues.get(i - 1)).isGreaterThan(writerValues.get(i));
+            }
+        }
+
+        int mergedEventCount = history(merging).get("a").stream()
+                                               .map(DisplayableDtos.HistoryEntry::text)
+                                               .mapToInt(text -> text.contains(" events)") ? Integer.parseInt(text.replaceAll(".*, (\\d+) events\\)", "$1")) : 1)
+                                               .sum();
+        assertThat(mergedEventCount).isEqualTo(writerCount * eventsPerWriter);
+    }
+
+    @Test
+    void deltaContainsOnlyKeysChangedSinceThePreviousDelta() {
+        var displayable = displayable(3, new StatusHistoryDisplayable.Downsampling<>(Duration.ofMinutes(1), Comparator.<Integer>naturalOrder()));
+        displayable.addEvent("a", 1, T0);
+        displayable.addEvent("b", 2, T0);
+        assertThat(deltaGroups(displayable).keySet()).containsExactlyInAnyOrder("a", "b");
+
+        assertThat(deltaGroups(displayable)).isEmpty();
+
+        // merged into the existing bucket, so no new entry, but still a change
+        displayable.addEvent("b", 3, T0.plusSeconds(1));
+        Map<String, List<DisplayableDtos.HistoryEntry>> delta = deltaGroups(displayable);
+        assertThat(delta.keySet()).containsExactly("b");
+        assertThat(texts(delta.get("b"))).containsExactly("3 (min 2, max 3, 2 events)");
+
+        // a full DTO does not consume the changes of the delta consumer
+        displayable.addEvent("a", 4, T0.plusSeconds(60));
+        history(displayable);
+        assertThat(deltaGroups(displayable).keySet()).containsExactly("a");
+    }
+
+    @Test
+    void notifiesListenersOnlyOnFirstEventAfterRead() {
+        var displayable = displayable(3, null);
+        int[] notificationCount = {0};
+        displayable.subscribeForUpdates(() -> notificationCount[0]++);
+        assertThat(notificationCount[0]).isEqualTo(1);
+
+        displayable.addEvent("a", 1, T0);
+        displayable.addEvent("a", 2, T0);
+        assertThat(notificationCount[0]).isEqualTo(2);
+
+        history(displayable);
+        displayable.addEvent("a", 3, T0);
+        assertThat(notificationCount[0]).isEqualTo(3);
+    }
+
+    private static StatusHistoryDisplayable<String, Integer> displayable(int windowSize,
+                                                                         StatusHistoryDisplayable.Downsampling<Integer> downsampling) {
+        return new StatusHistoryDisplayable<>("title",
+                                              windowSize,
+                                              key -> key,
+                                              status -> status.lastChanged().toString(),
+                                              (status, appender) -> appender.append(status.status()),
+                                              (downloadId, response) -> {},
+                                              TextFormat.PLAIN,
+                                              downsampling);
+    }
+
+    private static Map<String, List<DisplayableDtos.HistoryEntry>> history(StatusHistoryDisplayable<String, Integer> displayable) {
+        return ((DisplayableDtos.History) getAsUnchecked(() -> displayable.toDto().get())).groups();
+    }
+
+    private static Map<String, List<DisplayableDtos.HistoryEntry>> deltaGroups(StatusHistoryDisplayable<String, Integer> displayable) {
+        return ((DisplayableDtos.HistoryDelta) getAsUnchecked(() -> displayable.toDeltaDto().get())).groups();
+    }
+
+    private static List<String> texts(List<DisplayableDtos.HistoryEntry> entries) {
+        return entries.stream().map(DisplayableDtos.HistoryEntry::text).toList();
+    }
+}